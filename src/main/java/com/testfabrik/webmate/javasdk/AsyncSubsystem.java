@@ -0,0 +1,50 @@
+package com.testfabrik.webmate.javasdk;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Asynchronous view of a subsystem facade (e.g. {@link com.testfabrik.webmate.javasdk.devices.DeviceClient}).
+ * Every method of the facade can be called asynchronously, e.g.
+ * <pre>
+ *     CompletableFuture&lt;DeviceDTO&gt; device = session.async(session.device).call(d -&gt; d.getDeviceInfo(deviceId));
+ * </pre>
+ * The calls themselves are still blocking and run on the session's {@link WebmateAsyncExecutor}. For the most
+ * frequently used calls, the facades have typed asynchronous variants instead, e.g.
+ * {@link com.testfabrik.webmate.javasdk.testmgmt.TestMgmtClient#getTestRunAsync}.
+ * Errors are reported by completing the future exceptionally, usually with a {@link WebmateApiClientException}.
+ *
+ * @param <C> type of the subsystem facade
+ */
+public class AsyncSubsystem<C> {
+
+    private final C client;
+    private final WebmateAsyncExecutor executor;
+
+    public AsyncSubsystem(C client, WebmateAsyncExecutor executor) {
+        this.client = client;
+        this.executor = executor;
+    }
+
+    /**
+     * Call a method of the facade asynchronously and complete with its result.
+     */
+    public <T> CompletableFuture<T> call(Function<? super C, ? extends T> call) {
+        return executor.supplyAsync(() -> call.apply(client));
+    }
+
+    /**
+     * Call a method of the facade asynchronously which has no result.
+     */
+    public CompletableFuture<Void> run(Consumer<? super C> call) {
+        return executor.runAsync(() -> call.accept(client));
+    }
+
+    /**
+     * The synchronous facade.
+     */
+    public C sync() {
+        return client;
+    }
+}
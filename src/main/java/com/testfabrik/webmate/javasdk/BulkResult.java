@@ -0,0 +1,80 @@
+package com.testfabrik.webmate.javasdk;
+
+import com.google.common.collect.ImmutableMap;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * Outcome of an operation applied to many elements (e.g. BrowserSessions) in parallel: for each element either a
+ * result or the error that occurred. Both maps keep the order in which the elements were given.
+ *
+ * @param <K> type of the elements, e.g. BrowserSessionId
+ * @param <V> type of the results
+ */
+public class BulkResult<K, V> {
+
+    private final Map<K, V> results;
+    private final Map<K, Throwable> errors;
+
+    public BulkResult(Map<K, V> results, Map<K, Throwable> errors) {
+        this.results = ImmutableMap.copyOf(results);
+        this.errors = ImmutableMap.copyOf(errors);
+    }
+
+    /**
+     * Wait until all given futures are completed and collect their results and errors.
+     *
+     * @throws WebmateApiClientException if the calling thread is interrupted while waiting.
+     */
+    public static <K, V> BulkResult<K, V> collect(Map<K, ? extends CompletableFuture<? extends V>> futures) {
+        Map<K, V> results = new LinkedHashMap<>();
+        Map<K, Throwable> errors = new LinkedHashMap<>();
+        for (Map.Entry<K, ? extends CompletableFuture<? extends V>> entry : futures.entrySet()) {
+            try {
+                results.put(entry.getKey(), entry.getValue().get());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new WebmateApiClientException("Interrupted while waiting for bulk operation", e);
+            } catch (ExecutionException | CompletionException e) {
+                errors.put(entry.getKey(), e.getCause() != null ? e.getCause() : e);
+            } catch (RuntimeException e) {
+                // e.g. the future has been cancelled
+                errors.put(entry.getKey(), e);
+            }
+        }
+        return new BulkResult<>(results, errors);
+    }
+
+    /**
+     * Results of the elements for which the operation succeeded.
+     */
+    public Map<K, V> getResults() {
+        return results;
+    }
+
+    /**
+     * Errors of the elements for which the operation failed.
+     */
+    public Map<K, Throwable> getErrors() {
+        return errors;
+    }
+
+    /**
+     * @return true if the operation succeeded for all elements.
+     */
+    public boolean isSuccessful() {
+        return errors.isEmpty();
+    }
+
+    @Override
+    public String toString() {
+        return "BulkResult{" +
+                "results=" + results +
+                ", errors=" + errors +
+                '}';
+    }
+}
@@ -0,0 +1,54 @@
+package com.testfabrik.webmate.javasdk;
+
+import com.google.common.base.Optional;
+
+/**
+ * JSON tree of a response stored in a {@link ResponseCache}, together with the validators (ETag, Last-Modified)
+ * needed to revalidate it once it has expired. The tree is never handed out to callers, each of them gets a value
+ * bound from it.
+ */
+public class CachedResponse {
+
+    private final Object value;
+    private final Optional<String> eTag;
+    private final Optional<String> lastModified;
+    private final long expiresAtMillis;
+
+    public CachedResponse(Object value, Optional<String> eTag, Optional<String> lastModified, long expiresAtMillis) {
+        this.value = value;
+        this.eTag = eTag;
+        this.lastModified = lastModified;
+        this.expiresAtMillis = expiresAtMillis;
+    }
+
+    public Object getValue() {
+        return value;
+    }
+
+    public Optional<String> getETag() {
+        return eTag;
+    }
+
+    public Optional<String> getLastModified() {
+        return lastModified;
+    }
+
+    public long getExpiresAtMillis() {
+        return expiresAtMillis;
+    }
+
+    public boolean isFresh(long nowMillis) {
+        return nowMillis < expiresAtMillis;
+    }
+
+    public boolean canBeRevalidated() {
+        return eTag.isPresent() || lastModified.isPresent();
+    }
+
+    /**
+     * Copy of this response with a new expiry, e.g. after the server confirmed that it is still valid.
+     */
+    public CachedResponse withExpiry(long expiresAtMillis) {
+        return new CachedResponse(value, eTag, lastModified, expiresAtMillis);
+    }
+}
@@ -0,0 +1,280 @@
+package com.testfabrik.webmate.javasdk;
+
+import com.google.common.base.Optional;
+import com.google.common.base.Predicate;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * A group of runs (e.g. TestRuns or JobRuns) which are awaited together. The runs are polled by the shared poll loop
+ * of their subsystem, so waiting for a thousand runs does not need a thousand threads. The group offers combinators
+ * completing as soon as their condition holds ({@link #awaitAll()}, {@link #awaitAny()}, {@link #awaitFirstFailure()}),
+ * the completions in the order in which they happened ({@link #completions()}) and progress callbacks
+ * ({@link #addProgressListener}).
+ * <p>
+ * A run counts as failed if waiting for it failed (e.g. timed out) or if its final state is a failure.
+ *
+ * @param <K> type of the run ids, e.g. TestRunId
+ * @param <V> type of the final run states, e.g. TestRunInfo
+ */
+public class CompletionGroup<K, V> {
+
+    private static final Logger LOG = LoggerFactory.getLogger(CompletionGroup.class);
+
+    /**
+     * The completion of a single run of the group.
+     */
+    public static class Completion<K, V> {
+        private final K id;
+        private final Optional<V> result;
+        private final Optional<Throwable> error;
+        private final boolean failure;
+
+        Completion(K id, Optional<V> result, Optional<Throwable> error, boolean failure) {
+            this.id = id;
+            this.result = result;
+            this.error = error;
+            this.failure = failure;
+        }
+
+        public K getId() {
+            return id;
+        }
+
+        /**
+         * Final state of the run, absent if waiting for it failed.
+         */
+        public Optional<V> getResult() {
+            return result;
+        }
+
+        /**
+         * Error that occurred while waiting for the run, e.g. a timeout.
+         */
+        public Optional<Throwable> getError() {
+            return error;
+        }
+
+        /**
+         * @return true if waiting for the run failed or the run itself failed.
+         */
+        public boolean isFailure() {
+            return failure;
+        }
+
+        @Override
+        public String toString() {
+            return "Completion{" +
+                    "id=" + id +
+                    ", result=" + result +
+                    ", error=" + error +
+                    ", failure=" + failure +
+                    '}';
+        }
+    }
+
+    /**
+     * Called for each completed run of a group.
+     */
+    public interface ProgressListener<K, V> {
+        /**
+         * @param completion the run which has completed.
+         * @param completed number of completed runs, including this one.
+         * @param total number of runs in the group.
+         */
+        void onCompletion(Completion<K, V> completion, int completed, int total);
+    }
+
+    private final Map<K, CompletableFuture<V>> futures;
+    private final Predicate<V> isFailure;
+
+    /** Completions in the order in which they happened, guarded by this. */
+    private final List<Completion<K, V>> completions = new ArrayList<>();
+    /** Guarded by this. */
+    private final List<ProgressListener<K, V>> listeners = new ArrayList<>();
+
+    private final CompletableFuture<BulkResult<K, V>> all = new CompletableFuture<>();
+    private final CompletableFuture<Completion<K, V>> any = new CompletableFuture<>();
+    private final CompletableFuture<Optional<Completion<K, V>>> firstFailure = new CompletableFuture<>();
+
+    /**
+     * @param futures futures completed with the final state of each run.
+     * @param isFailure true if the given final state of a run is a failure.
+     */
+    public CompletionGroup(Map<K, ? extends CompletableFuture<V>> futures, Predicate<V> isFailure) {
+        this.futures = ImmutableMap.copyOf(futures);
+        this.isFailure = isFailure;
+        if (this.futures.isEmpty()) {
+            all.complete(new BulkResult<>(ImmutableMap.<K, V>of(), ImmutableMap.<K, Throwable>of()));
+            any.completeExceptionally(new NoSuchElementException("Empty group"));
+            firstFailure.complete(Optional.<Completion<K, V>>absent());
+        }
+        for (Map.Entry<K, CompletableFuture<V>> entry : this.futures.entrySet()) {
+            entry.getValue().whenComplete((result, error) -> onCompletion(entry.getKey(), result, error));
+        }
+    }
+
+    private void onCompletion(K id, V result, Throwable error) {
+        if (error instanceof CompletionException && error.getCause() != null) {
+            error = error.getCause();
+        }
+        boolean failure = error != null || isFailure.apply(result);
+        Completion<K, V> completion = new Completion<>(id, Optional.fromNullable(result), Optional.fromNullable(error), failure);
+        int completed;
+        List<ProgressListener<K, V>> toNotify;
+        synchronized (this) {
+            completions.add(completion);
+            completed = completions.size();
+            toNotify = ImmutableList.copyOf(listeners);
+            notifyAll();
+        }
+        for (ProgressListener<K, V> listener : toNotify) {
+            try {
+                listener.onCompletion(completion, completed, futures.size());
+            } catch (RuntimeException e) {
+                LOG.warn("Progress listener failed for " + id, e);
+            }
+        }
+
+        any.complete(completion);
+        if (failure) {
+            firstFailure.complete(Optional.of(completion));
+        }
+        if (completed == futures.size()) {
+            firstFailure.complete(Optional.<Completion<K, V>>absent());
+            all.complete(toBulkResult());
+        }
+    }
+
+    private synchronized BulkResult<K, V> toBulkResult() {
+        Map<K, V> results = new LinkedHashMap<>();
+        Map<K, Throwable> errors = new LinkedHashMap<>();
+        for (Completion<K, V> completion : completions) {
+            if (completion.getResult().isPresent()) {
+                results.put(completion.getId(), completion.getResult().get());
+            } else {
+                errors.put(completion.getId(), completion.getError().get());
+            }
+        }
+        return new BulkResult<>(results, errors);
+    }
+
+    /**
+     * Number of runs in the group.
+     */
+    public int size() {
+        return futures.size();
+    }
+
+    /**
+     * Number of runs which have completed so far.
+     */
+    public synchronized int getCompletedCount() {
+        return completions.size();
+    }
+
+    /**
+     * Snapshot of the completions so far, in the order in which they happened.
+     */
+    public synchronized List<Completion<K, V>> getCompletions() {
+        return ImmutableList.copyOf(completions);
+    }
+
+    /**
+     * Register a listener called (on the thread completing the run) for each completed run. Runs which have already
+     * completed are reported immediately, on the calling thread.
+     */
+    public CompletionGroup<K, V> addProgressListener(ProgressListener<K, V> listener) {
+        List<Completion<K, V>> before;
+        synchronized (this) {
+            listeners.add(listener);
+            before = ImmutableList.copyOf(completions);
+        }
+        for (int i = 0; i < before.size(); i++) {
+            listener.onCompletion(before.get(i), i + 1, futures.size());
+        }
+        return this;
+    }
+
+    /**
+     * Completes once all runs have completed, with the final state or the error per run.
+     */
+    public CompletableFuture<BulkResult<K, V>> awaitAll() {
+        return all;
+    }
+
+    /**
+     * Completes with the first run to complete, whether it failed or not.
+     */
+    public CompletableFuture<Completion<K, V>> awaitAny() {
+        return any;
+    }
+
+    /**
+     * Completes with the first failed run, or with absent once all runs have completed without failure.
+     */
+    public CompletableFuture<Optional<Completion<K, V>>> awaitFirstFailure() {
+        return firstFailure;
+    }
+
+    /**
+     * Blocking stream of all completions in the order in which they happened, i.e. each element is returned as soon
+     * as its run completes.
+     *
+     * @throws WebmateApiClientException (when consuming the stream) if the calling thread is interrupted.
+     */
+    public Stream<Completion<K, V>> completions() {
+        Iterator<Completion<K, V>> iterator = new Iterator<Completion<K, V>>() {
+            private int index = 0;
+
+            @Override
+            public boolean hasNext() {
+                return index < futures.size();
+            }
+
+            @Override
+            public Completion<K, V> next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                synchronized (CompletionGroup.this) {
+                    while (index >= completions.size()) {
+                        try {
+                            CompletionGroup.this.wait();
+                        } catch (InterruptedException e) {
+                            Thread.currentThread().interrupt();
+                            throw new WebmateApiClientException("Interrupted while waiting for next completion", e);
+                        }
+                    }
+                    return completions.get(index++);
+                }
+            }
+        };
+        return StreamSupport.stream(Spliterators.spliterator(iterator, futures.size(),
+                Spliterator.ORDERED | Spliterator.NONNULL | Spliterator.SIZED), false);
+    }
+
+    /**
+     * Stop waiting for the runs which have not completed yet; they complete with a cancellation error.
+     */
+    public void cancel() {
+        for (CompletableFuture<V> future : futures.values()) {
+            future.cancel(false);
+        }
+    }
+}
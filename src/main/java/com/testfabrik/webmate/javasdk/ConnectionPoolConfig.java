@@ -0,0 +1,85 @@
+package com.testfabrik.webmate.javasdk;
+
+/**
+ * Configuration of the connection pool shared by all subsystem clients of a {@link WebmateAPISession}.
+ */
+public class ConnectionPoolConfig {
+
+    public static final int DEFAULT_MAX_TOTAL = 100;
+    public static final int DEFAULT_MAX_PER_ROUTE = 50;
+    public static final long DEFAULT_KEEP_ALIVE_MILLIS = 30_000;
+    public static final long DEFAULT_MAX_IDLE_MILLIS = 60_000;
+
+    private int maxTotal = DEFAULT_MAX_TOTAL;
+    private int maxPerRoute = DEFAULT_MAX_PER_ROUTE;
+    private long keepAliveMillis = DEFAULT_KEEP_ALIVE_MILLIS;
+    private long maxIdleMillis = DEFAULT_MAX_IDLE_MILLIS;
+
+    public static ConnectionPoolConfig defaults() {
+        return new ConnectionPoolConfig();
+    }
+
+    /**
+     * Maximum number of connections in the pool.
+     */
+    public ConnectionPoolConfig setMaxTotal(int maxTotal) {
+        if (maxTotal < 1) {
+            throw new IllegalArgumentException("maxTotal must be positive, but was " + maxTotal);
+        }
+        this.maxTotal = maxTotal;
+        return this;
+    }
+
+    /**
+     * Maximum number of connections per route (i.e. per webmate host).
+     */
+    public ConnectionPoolConfig setMaxPerRoute(int maxPerRoute) {
+        if (maxPerRoute < 1) {
+            throw new IllegalArgumentException("maxPerRoute must be positive, but was " + maxPerRoute);
+        }
+        this.maxPerRoute = maxPerRoute;
+        return this;
+    }
+
+    /**
+     * Time a connection is kept alive if the server does not send a Keep-Alive header.
+     */
+    public ConnectionPoolConfig setKeepAliveMillis(long keepAliveMillis) {
+        this.keepAliveMillis = keepAliveMillis;
+        return this;
+    }
+
+    /**
+     * Idle connections are evicted from the pool after this time. A value of 0 or less disables eviction.
+     */
+    public ConnectionPoolConfig setMaxIdleMillis(long maxIdleMillis) {
+        this.maxIdleMillis = maxIdleMillis;
+        return this;
+    }
+
+    public int getMaxTotal() {
+        return maxTotal;
+    }
+
+    public int getMaxPerRoute() {
+        return maxPerRoute;
+    }
+
+    public long getKeepAliveMillis() {
+        return keepAliveMillis;
+    }
+
+    public long getMaxIdleMillis() {
+        return maxIdleMillis;
+    }
+
+    @Override
+    public String toString() {
+        return "ConnectionPoolConfig{" +
+                "maxTotal=" + maxTotal +
+                ", maxPerRoute=" + maxPerRoute +
+                ", keepAliveMillis=" + keepAliveMillis +
+                ", maxIdleMillis=" + maxIdleMillis +
+                '}';
+    }
+}
@@ -0,0 +1,48 @@
+package com.testfabrik.webmate.javasdk;
+
+import com.google.common.base.Optional;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+
+/**
+ * {@link ResponseCache} keeping at most maxEntries responses in memory. If the cache is full, the least recently
+ * used entries are evicted.
+ */
+public class InMemoryResponseCache implements ResponseCache {
+
+    public static final int DEFAULT_MAX_ENTRIES = 1000;
+
+    private final Cache<String, CachedResponse> cache;
+
+    public InMemoryResponseCache() {
+        this(DEFAULT_MAX_ENTRIES);
+    }
+
+    public InMemoryResponseCache(int maxEntries) {
+        this.cache = CacheBuilder.newBuilder().maximumSize(maxEntries).build();
+    }
+
+    @Override
+    public Optional<CachedResponse> get(String key) {
+        return Optional.fromNullable(cache.getIfPresent(key));
+    }
+
+    @Override
+    public void put(String key, CachedResponse response) {
+        cache.put(key, response);
+    }
+
+    @Override
+    public void invalidate(String key) {
+        cache.invalidate(key);
+    }
+
+    @Override
+    public void invalidateAll() {
+        cache.invalidateAll();
+    }
+
+    public long size() {
+        return cache.size();
+    }
+}
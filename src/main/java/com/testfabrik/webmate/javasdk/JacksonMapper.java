@@ -1,28 +1,130 @@
 package com.testfabrik.webmate.javasdk;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.MapperFeature;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.node.ObjectNode;
 import com.fasterxml.jackson.datatype.guava.GuavaModule;
 import com.fasterxml.jackson.datatype.jdk8.Jdk8Module;
 import com.fasterxml.jackson.datatype.joda.JodaModule;
 
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
 /**
  * Global (properly configured) Jackson mapper singleton.
+ * <p>
+ * The mapper is configured once when the class is loaded and is never handed out, as it is shared by all threads.
+ * Use the (immutable) readers and writers handed out by this class instead, e.g. {@link #readerFor(Class)}, or
+ * {@link #valueToTree(Object, JsonInclude.Include)} for a different inclusion policy. Readers are built once per
+ * type and then reused. Unknown properties are ignored when reading, as webmate may add fields to its DTOs.
  */
 public class JacksonMapper {
 
-    static private ObjectMapper theInstance = null;
+    private static final ObjectMapper theInstance = createMapper();
+
+    /** Mappers with a serialization inclusion other than the default, copied from theInstance. */
+    private static final Map<JsonInclude.Include, ObjectMapper> inclusionMappers = createInclusionMappers();
+
+    private static final ObjectWriter theWriter = theInstance.writer();
+    private static final Map<JsonInclude.Include, ObjectWriter> inclusionWriters = createInclusionWriters();
+
+    private static final ConcurrentMap<JavaType, ObjectReader> readers = new ConcurrentHashMap<>();
 
     private JacksonMapper() {}
 
+    private static ObjectMapper createMapper() {
+        ObjectMapper mapper = new ObjectMapper();
+        mapper.registerModule(new JodaModule());
+        mapper.registerModule(new Jdk8Module().configureAbsentsAsNulls(true));
+        mapper.registerModule(new GuavaModule());
+        mapper.enable(MapperFeature.ACCEPT_CASE_INSENSITIVE_ENUMS);
+        mapper.disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES);
+        return mapper;
+    }
+
+    private static Map<JsonInclude.Include, ObjectMapper> createInclusionMappers() {
+        Map<JsonInclude.Include, ObjectMapper> mappers = new EnumMap<>(JsonInclude.Include.class);
+        for (JsonInclude.Include include : JsonInclude.Include.values()) {
+            if (include != JsonInclude.Include.USE_DEFAULTS) {
+                mappers.put(include, theInstance.copy().setSerializationInclusion(include));
+            }
+        }
+        return mappers;
+    }
+
+    private static Map<JsonInclude.Include, ObjectWriter> createInclusionWriters() {
+        Map<JsonInclude.Include, ObjectWriter> writers = new EnumMap<>(JsonInclude.Include.class);
+        for (Map.Entry<JsonInclude.Include, ObjectMapper> entry : inclusionMappers.entrySet()) {
+            writers.put(entry.getKey(), entry.getValue().writer());
+        }
+        return writers;
+    }
+
+    /**
+     * Copy of the shared mapper, which may be reconfigured freely. Copying is not cheap, so prefer the readers and
+     * writers of this class for reading and writing JSON.
+     */
     static public ObjectMapper getInstance() {
-        if (JacksonMapper.theInstance == null) {
-            JacksonMapper.theInstance = new ObjectMapper();
-            JacksonMapper.theInstance.registerModule(new JodaModule());
-            JacksonMapper.theInstance.registerModule(new Jdk8Module().configureAbsentsAsNulls(true));
-            JacksonMapper.theInstance.registerModule(new GuavaModule());
-            JacksonMapper.theInstance.enable(MapperFeature.ACCEPT_CASE_INSENSITIVE_ENUMS);
+        return theInstance.copy();
+    }
+
+    /**
+     * Reader for the given type.
+     */
+    static public ObjectReader readerFor(Class<?> type) {
+        return readerFor(theInstance.constructType(type));
+    }
+
+    static public ObjectReader readerFor(TypeReference<?> type) {
+        return readerFor(theInstance.getTypeFactory().constructType(type));
+    }
+
+    private static ObjectReader readerFor(JavaType type) {
+        ObjectReader reader = readers.get(type);
+        if (reader == null) {
+            ObjectReader newReader = theInstance.readerFor(type);
+            reader = readers.putIfAbsent(type, newReader);
+            if (reader == null) {
+                reader = newReader;
+            }
         }
-        return JacksonMapper.theInstance;
+        return reader;
+    }
+
+    static public ObjectWriter writer() {
+        return theWriter;
+    }
+
+    /**
+     * Writer serializing with the given inclusion policy.
+     */
+    static public ObjectWriter writer(JsonInclude.Include include) {
+        ObjectWriter writer = inclusionWriters.get(include);
+        return writer != null ? writer : theWriter;
+    }
+
+    static public JsonNode valueToTree(Object value) {
+        return theInstance.valueToTree(value);
+    }
+
+    static public ObjectNode createObjectNode() {
+        return theInstance.createObjectNode();
+    }
+
+    /**
+     * Convert value to a JSON tree with the given inclusion policy, e.g. NON_NULL to omit null properties.
+     */
+    static public JsonNode valueToTree(Object value, JsonInclude.Include include) {
+        ObjectMapper mapper = inclusionMappers.get(include);
+        return (mapper != null ? mapper : theInstance).valueToTree(value);
     }
 }
@@ -0,0 +1,272 @@
+package com.testfabrik.webmate.javasdk;
+
+import com.google.common.collect.ImmutableSet;
+
+import java.util.Set;
+
+/**
+ * Configuration of retries, circuit breakers and concurrency limits of a {@link WebmateHttpTransport}.
+ * <p>
+ * Idempotent calls (GET, DELETE and calls to endpoints marked as idempotent, e.g. terminating a browser session)
+ * are retried on connection errors and on transient status codes, with exponential backoff and jitter. A
+ * Retry-After header sent by webmate is honoured. Each endpoint has a circuit breaker which opens after a number of
+ * consecutive failures and lets calls fail fast until the endpoint has had time to recover.
+ * <p>
+ * The number of concurrent calls is limited per endpoint and for the whole transport. The limits adapt to the
+ * backend: they grow while calls succeed and shrink when the backend signals overload. Calls exceeding a limit are
+ * queued until a slot becomes free; optionally, they are rejected after concurrencyQueueTimeoutMillis.
+ * <p>
+ * Optionally, concurrent identical GETs to endpoints that support it (e.g. polling a test run, device or Selenium
+ * session) are coalesced into a single request whose result is shared by all callers.
+ */
+public class ResilienceConfig {
+
+    public static final int DEFAULT_MAX_ATTEMPTS = 3;
+    public static final long DEFAULT_INITIAL_BACKOFF_MILLIS = 200;
+    public static final long DEFAULT_MAX_BACKOFF_MILLIS = 10_000;
+    public static final long DEFAULT_MAX_RETRY_AFTER_MILLIS = 60_000;
+    public static final Set<Integer> DEFAULT_RETRYABLE_STATUS_CODES = ImmutableSet.of(429, 502, 503, 504);
+    public static final int DEFAULT_CIRCUIT_BREAKER_FAILURE_THRESHOLD = 10;
+    public static final long DEFAULT_CIRCUIT_BREAKER_OPEN_MILLIS = 30_000;
+    public static final int DEFAULT_ENDPOINT_CONCURRENCY_LIMIT = 20;
+    public static final int DEFAULT_ENDPOINT_MAX_CONCURRENCY_LIMIT = 100;
+    public static final int DEFAULT_TOTAL_CONCURRENCY_LIMIT = 50;
+    public static final int DEFAULT_TOTAL_MAX_CONCURRENCY_LIMIT = 200;
+    /** Calls wait for a free slot as long as it takes, like they did before concurrency limits existed. */
+    public static final long DEFAULT_CONCURRENCY_QUEUE_TIMEOUT_MILLIS = Long.MAX_VALUE;
+
+    private int maxAttempts = DEFAULT_MAX_ATTEMPTS;
+    private long initialBackoffMillis = DEFAULT_INITIAL_BACKOFF_MILLIS;
+    private long maxBackoffMillis = DEFAULT_MAX_BACKOFF_MILLIS;
+    private long maxRetryAfterMillis = DEFAULT_MAX_RETRY_AFTER_MILLIS;
+    private Set<Integer> retryableStatusCodes = DEFAULT_RETRYABLE_STATUS_CODES;
+    private int circuitBreakerFailureThreshold = DEFAULT_CIRCUIT_BREAKER_FAILURE_THRESHOLD;
+    private long circuitBreakerOpenMillis = DEFAULT_CIRCUIT_BREAKER_OPEN_MILLIS;
+    private boolean concurrencyLimitEnabled = true;
+    private int endpointConcurrencyLimit = DEFAULT_ENDPOINT_CONCURRENCY_LIMIT;
+    private int endpointMaxConcurrencyLimit = DEFAULT_ENDPOINT_MAX_CONCURRENCY_LIMIT;
+    private int totalConcurrencyLimit = DEFAULT_TOTAL_CONCURRENCY_LIMIT;
+    private int totalMaxConcurrencyLimit = DEFAULT_TOTAL_MAX_CONCURRENCY_LIMIT;
+    private long concurrencyLatencyThresholdMillis = 0;
+    private long concurrencyQueueTimeoutMillis = DEFAULT_CONCURRENCY_QUEUE_TIMEOUT_MILLIS;
+    private boolean requestCoalescingEnabled = false;
+
+    public static ResilienceConfig defaults() {
+        return new ResilienceConfig();
+    }
+
+    /**
+     * No retries, circuit breakers or concurrency limits, i.e. every failure is reported immediately.
+     */
+    public static ResilienceConfig disabled() {
+        return new ResilienceConfig().setMaxAttempts(1).setCircuitBreakerFailureThreshold(0).setConcurrencyLimitEnabled(false);
+    }
+
+    /**
+     * Maximum number of attempts of an idempotent call, including the first one. 1 disables retries.
+     */
+    public ResilienceConfig setMaxAttempts(int maxAttempts) {
+        if (maxAttempts < 1) {
+            throw new IllegalArgumentException("maxAttempts must be positive, but was " + maxAttempts);
+        }
+        this.maxAttempts = maxAttempts;
+        return this;
+    }
+
+    /**
+     * Backoff before the first retry. The backoff is doubled for every further retry, up to maxBackoffMillis.
+     * The actual wait time is randomized between half and the full backoff.
+     */
+    public ResilienceConfig setInitialBackoffMillis(long initialBackoffMillis) {
+        if (initialBackoffMillis < 0) {
+            throw new IllegalArgumentException("initialBackoffMillis must not be negative, but was " + initialBackoffMillis);
+        }
+        this.initialBackoffMillis = initialBackoffMillis;
+        return this;
+    }
+
+    public ResilienceConfig setMaxBackoffMillis(long maxBackoffMillis) {
+        if (maxBackoffMillis < 0) {
+            throw new IllegalArgumentException("maxBackoffMillis must not be negative, but was " + maxBackoffMillis);
+        }
+        this.maxBackoffMillis = maxBackoffMillis;
+        return this;
+    }
+
+    /**
+     * Upper bound for waiting on a Retry-After header.
+     */
+    public ResilienceConfig setMaxRetryAfterMillis(long maxRetryAfterMillis) {
+        this.maxRetryAfterMillis = maxRetryAfterMillis;
+        return this;
+    }
+
+    /**
+     * HTTP status codes which are considered transient, i.e. after which an idempotent call is retried.
+     */
+    public ResilienceConfig setRetryableStatusCodes(Set<Integer> retryableStatusCodes) {
+        this.retryableStatusCodes = ImmutableSet.copyOf(retryableStatusCodes);
+        return this;
+    }
+
+    /**
+     * Number of consecutive failures (connection errors, transient status codes) of an endpoint after which its
+     * circuit breaker opens. A value of 0 or less disables circuit breakers.
+     */
+    public ResilienceConfig setCircuitBreakerFailureThreshold(int circuitBreakerFailureThreshold) {
+        this.circuitBreakerFailureThreshold = circuitBreakerFailureThreshold;
+        return this;
+    }
+
+    /**
+     * Time an open circuit breaker rejects calls before it lets a trial call through.
+     */
+    public ResilienceConfig setCircuitBreakerOpenMillis(long circuitBreakerOpenMillis) {
+        this.circuitBreakerOpenMillis = circuitBreakerOpenMillis;
+        return this;
+    }
+
+    public ResilienceConfig setConcurrencyLimitEnabled(boolean concurrencyLimitEnabled) {
+        this.concurrencyLimitEnabled = concurrencyLimitEnabled;
+        return this;
+    }
+
+    /**
+     * Initial and maximum number of concurrent calls per endpoint.
+     */
+    public ResilienceConfig setEndpointConcurrencyLimit(int initialLimit, int maxLimit) {
+        checkLimits(initialLimit, maxLimit);
+        this.endpointConcurrencyLimit = initialLimit;
+        this.endpointMaxConcurrencyLimit = maxLimit;
+        return this;
+    }
+
+    /**
+     * Initial and maximum number of concurrent calls of all endpoints together.
+     */
+    public ResilienceConfig setTotalConcurrencyLimit(int initialLimit, int maxLimit) {
+        checkLimits(initialLimit, maxLimit);
+        this.totalConcurrencyLimit = initialLimit;
+        this.totalMaxConcurrencyLimit = maxLimit;
+        return this;
+    }
+
+    /**
+     * Calls taking longer than this are treated like overload errors and reduce the concurrency limit. A value of
+     * 0 or less (the default) disables the latency check, as some webmate calls are long-running by design.
+     */
+    public ResilienceConfig setConcurrencyLatencyThresholdMillis(long concurrencyLatencyThresholdMillis) {
+        this.concurrencyLatencyThresholdMillis = concurrencyLatencyThresholdMillis;
+        return this;
+    }
+
+    /**
+     * Time a call waits for a free slot if a concurrency limit is reached. 0 rejects such calls immediately,
+     * {@link Long#MAX_VALUE} (the default) waits indefinitely.
+     */
+    public ResilienceConfig setConcurrencyQueueTimeoutMillis(long concurrencyQueueTimeoutMillis) {
+        if (concurrencyQueueTimeoutMillis < 0) {
+            throw new IllegalArgumentException("concurrencyQueueTimeoutMillis must not be negative, but was " + concurrencyQueueTimeoutMillis);
+        }
+        this.concurrencyQueueTimeoutMillis = concurrencyQueueTimeoutMillis;
+        return this;
+    }
+
+    /**
+     * If enabled, concurrent identical GETs (same URI) to endpoints which allow it share one request and its parsed
+     * result. Note that the callers then receive the same result object. Disabled by default.
+     */
+    public ResilienceConfig setRequestCoalescingEnabled(boolean requestCoalescingEnabled) {
+        this.requestCoalescingEnabled = requestCoalescingEnabled;
+        return this;
+    }
+
+    private static void checkLimits(int initialLimit, int maxLimit) {
+        if (initialLimit < 1 || maxLimit < initialLimit) {
+            throw new IllegalArgumentException("Limits must satisfy 1 <= initial <= max, but were " + initialLimit + ", " + maxLimit);
+        }
+    }
+
+    public int getMaxAttempts() {
+        return maxAttempts;
+    }
+
+    public long getInitialBackoffMillis() {
+        return initialBackoffMillis;
+    }
+
+    public long getMaxBackoffMillis() {
+        return maxBackoffMillis;
+    }
+
+    public long getMaxRetryAfterMillis() {
+        return maxRetryAfterMillis;
+    }
+
+    public Set<Integer> getRetryableStatusCodes() {
+        return retryableStatusCodes;
+    }
+
+    public int getCircuitBreakerFailureThreshold() {
+        return circuitBreakerFailureThreshold;
+    }
+
+    public long getCircuitBreakerOpenMillis() {
+        return circuitBreakerOpenMillis;
+    }
+
+    public boolean isCircuitBreakerEnabled() {
+        return circuitBreakerFailureThreshold > 0;
+    }
+
+    public boolean isConcurrencyLimitEnabled() {
+        return concurrencyLimitEnabled;
+    }
+
+    public int getEndpointConcurrencyLimit() {
+        return endpointConcurrencyLimit;
+    }
+
+    public int getEndpointMaxConcurrencyLimit() {
+        return endpointMaxConcurrencyLimit;
+    }
+
+    public int getTotalConcurrencyLimit() {
+        return totalConcurrencyLimit;
+    }
+
+    public int getTotalMaxConcurrencyLimit() {
+        return totalMaxConcurrencyLimit;
+    }
+
+    public long getConcurrencyLatencyThresholdMillis() {
+        return concurrencyLatencyThresholdMillis;
+    }
+
+    public long getConcurrencyQueueTimeoutMillis() {
+        return concurrencyQueueTimeoutMillis;
+    }
+
+    public boolean isRequestCoalescingEnabled() {
+        return requestCoalescingEnabled;
+    }
+
+    @Override
+    public String toString() {
+        return "ResilienceConfig{" +
+                "maxAttempts=" + maxAttempts +
+                ", initialBackoffMillis=" + initialBackoffMillis +
+                ", maxBackoffMillis=" + maxBackoffMillis +
+                ", maxRetryAfterMillis=" + maxRetryAfterMillis +
+                ", retryableStatusCodes=" + retryableStatusCodes +
+                ", circuitBreakerFailureThreshold=" + circuitBreakerFailureThreshold +
+                ", circuitBreakerOpenMillis=" + circuitBreakerOpenMillis +
+                ", concurrencyLimitEnabled=" + concurrencyLimitEnabled +
+                ", endpointConcurrencyLimit=" + endpointConcurrencyLimit + "/" + endpointMaxConcurrencyLimit +
+                ", totalConcurrencyLimit=" + totalConcurrencyLimit + "/" + totalMaxConcurrencyLimit +
+                ", concurrencyLatencyThresholdMillis=" + concurrencyLatencyThresholdMillis +
+                ", concurrencyQueueTimeoutMillis=" + concurrencyQueueTimeoutMillis +
+                ", requestCoalescingEnabled=" + requestCoalescingEnabled +
+                '}';
+    }
+}
@@ -0,0 +1,21 @@
+package com.testfabrik.webmate.javasdk;
+
+import com.google.common.base.Optional;
+
+/**
+ * Cache for parsed responses of GET requests to endpoints which allow caching (e.g. packages, artifacts, test
+ * templates). Keys are the request URIs. Implementations must be thread-safe and should bound their size.
+ *
+ * @see InMemoryResponseCache
+ * @see WebmateHttpTransport#setResponseCache(ResponseCache)
+ */
+public interface ResponseCache {
+
+    Optional<CachedResponse> get(String key);
+
+    void put(String key, CachedResponse response);
+
+    void invalidate(String key);
+
+    void invalidateAll();
+}
@@ -0,0 +1,220 @@
+package com.testfabrik.webmate.javasdk;
+
+import com.google.common.collect.ImmutableSet;
+import com.testfabrik.webmate.javasdk.browsersession.BrowserSessionId;
+import com.testfabrik.webmate.javasdk.commonutils.Scheduling;
+import com.testfabrik.webmate.javasdk.selenium.WebmateSeleniumSessionId;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Keeps track of the BrowserSessions and Selenium sessions registered with a {@link WebmateAPISession}, so that
+ * all of them can be terminated at once, e.g. when a test run is aborted. BrowserSessions are tracked when they
+ * are associated with the session (see {@link WebmateAPISession#addBrowserSession(BrowserSessionId)}) and no
+ * longer tracked once they have been terminated through the SDK.
+ * <p>
+ * Terminating runs in parallel, with at most maxConcurrency calls at the same time, each of which is given up
+ * after callTimeoutMillis. Optionally, a JVM shutdown hook terminates all sessions still tracked when the JVM exits.
+ */
+public class SessionTeardownManager {
+
+    private static final Logger LOG = LoggerFactory.getLogger(SessionTeardownManager.class);
+
+    public static final int DEFAULT_MAX_CONCURRENCY = 16;
+    public static final long DEFAULT_CALL_TIMEOUT_MILLIS = 10_000;
+
+    private static final AtomicInteger threadCounter = new AtomicInteger();
+
+    private final WebmateAPISession session;
+
+    private final Set<BrowserSessionId> browserSessions = ConcurrentHashMap.newKeySet();
+    private final Set<WebmateSeleniumSessionId> seleniumSessions = ConcurrentHashMap.newKeySet();
+
+    private volatile int maxConcurrency = DEFAULT_MAX_CONCURRENCY;
+    private volatile long callTimeoutMillis = DEFAULT_CALL_TIMEOUT_MILLIS;
+
+    private Thread shutdownHook;
+
+    SessionTeardownManager(WebmateAPISession session) {
+        this.session = session;
+    }
+
+    /**
+     * Maximum number of sessions terminated at the same time. Should not exceed the number of connections per
+     * route of the session's connection pool.
+     */
+    public SessionTeardownManager setMaxConcurrency(int maxConcurrency) {
+        if (maxConcurrency < 1) {
+            throw new IllegalArgumentException("maxConcurrency must be positive, but was " + maxConcurrency);
+        }
+        this.maxConcurrency = maxConcurrency;
+        return this;
+    }
+
+    /**
+     * Time after which terminating a single session is given up (and reported as failed).
+     */
+    public SessionTeardownManager setCallTimeoutMillis(long callTimeoutMillis) {
+        if (callTimeoutMillis <= 0) {
+            throw new IllegalArgumentException("callTimeoutMillis must be positive, but was " + callTimeoutMillis);
+        }
+        this.callTimeoutMillis = callTimeoutMillis;
+        return this;
+    }
+
+    public void track(BrowserSessionId browserSessionId) {
+        browserSessions.add(browserSessionId);
+    }
+
+    /**
+     * Track a Selenium session, e.g. one created with a RemoteWebDriver, which should be stopped on teardown.
+     */
+    public void track(WebmateSeleniumSessionId seleniumSessionId) {
+        seleniumSessions.add(seleniumSessionId);
+    }
+
+    public void untrack(BrowserSessionId browserSessionId) {
+        browserSessions.remove(browserSessionId);
+    }
+
+    public void untrack(WebmateSeleniumSessionId seleniumSessionId) {
+        seleniumSessions.remove(seleniumSessionId);
+    }
+
+    public Set<BrowserSessionId> getTrackedBrowserSessions() {
+        return ImmutableSet.copyOf(browserSessions);
+    }
+
+    public Set<WebmateSeleniumSessionId> getTrackedSeleniumSessions() {
+        return ImmutableSet.copyOf(seleniumSessions);
+    }
+
+    /**
+     * Terminate all tracked BrowserSessions in parallel.
+     *
+     * @return for each BrowserSession whether webmate reports it as terminated, or the error (e.g. a
+     * {@link java.util.concurrent.TimeoutException}) if the call failed.
+     */
+    public BulkResult<BrowserSessionId, Boolean> terminateBrowserSessions() {
+        return terminateBrowserSessions(getTrackedBrowserSessions());
+    }
+
+    /**
+     * Terminate the given BrowserSessions in parallel. See {@link #terminateBrowserSessions()}.
+     */
+    public BulkResult<BrowserSessionId, Boolean> terminateBrowserSessions(Collection<BrowserSessionId> browserSessionIds) {
+        return runAll(browserSessionIds, id -> () -> session.browserSession.terminateBrowsersession(id), "browsersession-teardown");
+    }
+
+    /**
+     * Stop all tracked Selenium sessions in parallel.
+     *
+     * @return for each Selenium session true if it has been stopped, or the error if the call failed.
+     */
+    public BulkResult<WebmateSeleniumSessionId, Boolean> stopSeleniumSessions() {
+        return runAll(getTrackedSeleniumSessions(), id -> () -> {
+            session.selenium.stopSeleniumsession(id);
+            return true;
+        }, "seleniumsession-teardown");
+    }
+
+    /**
+     * Stop all tracked Selenium sessions and terminate all tracked BrowserSessions. Errors are logged.
+     *
+     * @return true if all sessions have been terminated successfully.
+     */
+    public boolean teardownAll() {
+        BulkResult<WebmateSeleniumSessionId, Boolean> stopped = stopSeleniumSessions();
+        BulkResult<BrowserSessionId, Boolean> terminated = terminateBrowserSessions();
+        for (Map.Entry<WebmateSeleniumSessionId, Throwable> error : stopped.getErrors().entrySet()) {
+            LOG.warn("Could not stop Selenium session " + error.getKey() + ": " + error.getValue());
+        }
+        for (Map.Entry<BrowserSessionId, Throwable> error : terminated.getErrors().entrySet()) {
+            LOG.warn("Could not terminate browsersession " + error.getKey() + ": " + error.getValue());
+        }
+        return stopped.isSuccessful() && terminated.isSuccessful() && !terminated.getResults().containsValue(false);
+    }
+
+    /**
+     * Register a JVM shutdown hook calling {@link #teardownAll()}, so that sessions are cleaned up even if the test
+     * run is aborted. The hook is removed when the session is closed. Registering it twice has no effect.
+     */
+    public synchronized void registerShutdownHook() {
+        if (shutdownHook == null) {
+            shutdownHook = new Thread(() -> {
+                LOG.info("JVM is shutting down, terminating " + browserSessions.size() + " browsersessions and " +
+                        seleniumSessions.size() + " Selenium sessions");
+                teardownAll();
+            }, "webmate-teardown-hook");
+            Runtime.getRuntime().addShutdownHook(shutdownHook);
+        }
+    }
+
+    /**
+     * Remove the shutdown hook registered with {@link #registerShutdownHook()}, if any.
+     */
+    public synchronized void removeShutdownHook() {
+        if (shutdownHook != null) {
+            try {
+                Runtime.getRuntime().removeShutdownHook(shutdownHook);
+            } catch (IllegalStateException e) {
+                // the JVM is already shutting down, so the hook is running or has run
+            }
+            shutdownHook = null;
+        }
+    }
+
+    private <K> BulkResult<K, Boolean> runAll(Collection<K> ids, Function<K, Supplier<Boolean>> call,
+                                              String threadName) {
+        if (ids.isEmpty()) {
+            return new BulkResult<>(new LinkedHashMap<K, Boolean>(), new LinkedHashMap<K, Throwable>());
+        }
+        // Concurrency is limited by permits which are released when a call completes or times out, so a hanging
+        // call cannot hold up the others. Its (daemon) thread is abandoned.
+        Semaphore permits = new Semaphore(maxConcurrency);
+        ExecutorService threads = Executors.newCachedThreadPool(r -> {
+            Thread thread = new Thread(r, "webmate-" + threadName + "-" + threadCounter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        Map<K, CompletableFuture<Boolean>> pending = new LinkedHashMap<>();
+        try {
+            for (K id : ids) {
+                try {
+                    permits.acquire();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new WebmateApiClientException("Interrupted while terminating sessions", e);
+                }
+                CompletableFuture<Boolean> result = new CompletableFuture<>();
+                result.whenComplete((r, error) -> permits.release());
+                Scheduling.failAfter(result, callTimeoutMillis, "Terminating " + id + " took longer than " + callTimeoutMillis + "ms");
+                Supplier<Boolean> task = call.apply(id);
+                threads.execute(() -> {
+                    try {
+                        result.complete(task.get());
+                    } catch (Throwable t) {
+                        result.completeExceptionally(t);
+                    }
+                });
+                pending.put(id, result);
+            }
+            return BulkResult.collect(pending);
+        } finally {
+            threads.shutdown();
+        }
+    }
+}
@@ -0,0 +1,107 @@
+package com.testfabrik.webmate.javasdk;
+
+import java.nio.charset.StandardCharsets;
+import java.util.BitSet;
+
+/**
+ * Percent-encoding of URI components directly into a StringBuilder. The character classes match those used by
+ * Apache HttpClient's URIBuilder, so URIs built by {@link WebmateApiClient.UriTemplate} are identical to the ones
+ * built with URIBuilder.
+ */
+final class UriEncoder {
+
+    private static final char[] HEX = "0123456789ABCDEF".toCharArray();
+
+    /** Characters that are never encoded. */
+    private static final BitSet UNRESERVED = new BitSet(128);
+    /** Characters allowed unencoded in a path. */
+    private static final BitSet PATHSAFE = new BitSet(128);
+    /** Characters allowed unencoded in a (custom) query. */
+    private static final BitSet URIC = new BitSet(128);
+    /** Characters allowed unencoded in form encoded query parameters. */
+    private static final BitSet FORM = new BitSet(128);
+
+    static {
+        for (char c = 'a'; c <= 'z'; c++) {
+            UNRESERVED.set(c);
+        }
+        for (char c = 'A'; c <= 'Z'; c++) {
+            UNRESERVED.set(c);
+        }
+        for (char c = '0'; c <= '9'; c++) {
+            UNRESERVED.set(c);
+        }
+        FORM.or(UNRESERVED);
+        for (char c : "_-.*".toCharArray()) {
+            FORM.set(c);
+        }
+        for (char c : "_-!.~'()*".toCharArray()) {
+            UNRESERVED.set(c);
+        }
+
+        PATHSAFE.or(UNRESERVED);
+        for (char c : "/;:@&=+$,".toCharArray()) {
+            PATHSAFE.set(c);
+        }
+
+        URIC.or(UNRESERVED);
+        for (char c : ";/?:@&=+$,[]".toCharArray()) {
+            URIC.set(c);
+        }
+    }
+
+    private UriEncoder() {}
+
+    /**
+     * Append a path fragment. Consecutive slashes are collapsed into one, also across fragments.
+     */
+    static void appendPath(StringBuilder sb, String s) {
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (c == '/' && sb.length() > 0 && sb.charAt(sb.length() - 1) == '/') {
+                continue;
+            }
+            i = appendChar(sb, s, i, PATHSAFE, false);
+        }
+    }
+
+    static void appendQuery(StringBuilder sb, String s) {
+        for (int i = 0; i < s.length(); i++) {
+            i = appendChar(sb, s, i, URIC, false);
+        }
+    }
+
+    static void appendFormField(StringBuilder sb, String s) {
+        for (int i = 0; i < s.length(); i++) {
+            i = appendChar(sb, s, i, FORM, true);
+        }
+    }
+
+    /**
+     * Append the character at index i, encoding it if it is not in the safe set.
+     *
+     * @return index of the last char consumed (i + 1 for surrogate pairs)
+     */
+    private static int appendChar(StringBuilder sb, String s, int i, BitSet safe, boolean blankAsPlus) {
+        char c = s.charAt(i);
+        if (c < 128) {
+            if (safe.get(c)) {
+                sb.append(c);
+            } else if (blankAsPlus && c == ' ') {
+                sb.append('+');
+            } else {
+                appendEncoded(sb, c);
+            }
+            return i;
+        }
+        int end = Character.isHighSurrogate(c) && i + 1 < s.length() ? i + 2 : i + 1;
+        for (byte b : s.substring(i, end).getBytes(StandardCharsets.UTF_8)) {
+            appendEncoded(sb, b & 0xFF);
+        }
+        return end - 1;
+    }
+
+    private static void appendEncoded(StringBuilder sb, int b) {
+        sb.append('%').append(HEX[(b >> 4) & 0xF]).append(HEX[b & 0xF]);
+    }
+}
@@ -8,6 +8,7 @@ import com.testfabrik.webmate.javasdk.browsersession.BrowserSessionClient;
 import com.testfabrik.webmate.javasdk.browsersession.BrowserSessionId;
 import com.testfabrik.webmate.javasdk.devices.DeviceClient;
 import com.testfabrik.webmate.javasdk.jobs.JobEngine;
+import com.testfabrik.webmate.javasdk.jobs.JobIdentityCache;
 import com.testfabrik.webmate.javasdk.mailtest.MailTestClient;
 import com.testfabrik.webmate.javasdk.packagemgmt.PackageMgmtClient;
 import com.testfabrik.webmate.javasdk.selenium.SeleniumServiceClient;
@@ -17,18 +18,26 @@ import com.testfabrik.webmate.javasdk.testmgmt.TestMgmtClient;
 import com.testfabrik.webmate.javasdk.testmgmt.TestSessionId;
 import org.apache.http.impl.client.HttpClientBuilder;
 
-import java.util.ArrayList;
+import java.io.Closeable;
+import java.io.IOException;
 import java.util.List;
 import java.util.UUID;
+import java.util.concurrent.atomic.AtomicReference;
 
 /**
- * WebmateSession
+ * WebmateSession. A session (and its connection pool) may be shared by tests running in parallel threads.
  */
-public class WebmateAPISession {
+public class WebmateAPISession implements Closeable {
 
     public final WebmateAuthInfo authInfo;
     public final WebmateEnvironment environment;
 
+    private final WebmateHttpTransport transport;
+
+    private WebmateAsyncExecutor asyncExecutor;
+
+    private final SessionTeardownManager teardownManager;
+
     /**
      * Facade to webmate's JobEngine subsystem.
      */
@@ -79,41 +88,57 @@ public class WebmateAPISession {
     /// Mutable Session state
     ///////////////////////////////
 
-    private List<Tag> associatedTags = new ArrayList<>();
+    // The session may be shared by tests running in parallel. Each registry holds an immutable snapshot which is
+    // replaced (copy-on-write) when an element is added, so readers neither lock nor copy.
+
+    private final AtomicReference<ImmutableList<Tag>> associatedTags = new AtomicReference<>(ImmutableList.<Tag>of());
+
+    private final AtomicReference<ImmutableList<ApplicationModelId>> associatedModels = new AtomicReference<>(ImmutableList.<ApplicationModelId>of());
 
-    private List<ApplicationModelId> associatedModels = new ArrayList<>();
+    private final AtomicReference<ImmutableList<BrowserSessionId>> associatedExpeditions = new AtomicReference<>(ImmutableList.<BrowserSessionId>of());
 
-    private List<BrowserSessionId> associatedExpeditions = new ArrayList<>();
+    private final AtomicReference<ImmutableList<TestSessionId>> associatedTestSessions = new AtomicReference<>(ImmutableList.<TestSessionId>of());
 
-    private List<TestSessionId> associatedTestSessions = new ArrayList<>();
+    private final Optional<ProjectId> projectId;
 
-    private Optional<ProjectId> projectId = Optional.absent();
+    private static <T> void append(AtomicReference<ImmutableList<T>> registry, T element) {
+        ImmutableList<T> current;
+        ImmutableList<T> updated;
+        do {
+            current = registry.get();
+            updated = ImmutableList.<T>builder().addAll(current).add(element).build();
+        } while (!registry.compareAndSet(current, updated));
+    }
 
+    /**
+     * @return snapshot of the Tags associated with the session. It does not change if Tags are added later.
+     */
     public List<Tag> getAssociatedTags() {
-        return ImmutableList.copyOf(associatedTags);
+        return associatedTags.get();
     }
 
     public List<ApplicationModelId> getAssociatedModels() {
-        return ImmutableList.copyOf(associatedModels);
+        return associatedModels.get();
     }
 
     public List<BrowserSessionId> getAssociatedExpeditions() {
-        return ImmutableList.copyOf(associatedExpeditions);
+        return associatedExpeditions.get();
     }
 
     /**
      * Check if there is only one associated Expedition / BrowserSession and return it.
      */
     public BrowserSessionId getOnlyAssociatedExpedition() {
-        if (associatedExpeditions.size() != 1) {
+        List<BrowserSessionId> expeditions = associatedExpeditions.get();
+        if (expeditions.size() != 1) {
             throw new WebmateApiClientException("Expected exactly one active Expedition (e.g. BrowserSession) in WebmateSession, but there are " +
-                    associatedExpeditions.size());
+                    expeditions.size());
         }
-        return associatedExpeditions.get(0);
+        return expeditions.get(0);
     }
 
     public List<TestSessionId> getAssociatedTestSessions() {
-        return ImmutableList.copyOf(associatedTestSessions);
+        return associatedTestSessions.get();
     }
 
     public Optional<ProjectId> getProjectId() {
@@ -128,19 +153,7 @@ public class WebmateAPISession {
      * @param environment an instance of WebmateEnvironment which contains the url of webmate
      */
     public WebmateAPISession(WebmateAuthInfo authInfo, WebmateEnvironment environment, ProjectId projectId) {
-        this.authInfo = authInfo;
-        this.environment = environment;
-        this.projectId = Optional.of(projectId);
-
-        this.jobEngine = new JobEngine(this);
-        this.browserSession = new BrowserSessionClient(this);
-        this.device = new DeviceClient(this);
-        this.testMgmt = new TestMgmtClient(this);
-        this.artifact = new ArtifactClient(this);
-        this.mailTest = new MailTestClient(this, artifact);
-        this.selenium = new SeleniumServiceClient(this);
-        this.packages = new PackageMgmtClient(this);
-        this.blob = new BlobClient(this);
+        this(new WebmateHttpTransport(authInfo, environment), Optional.of(projectId));
     }
 
     /**
@@ -151,18 +164,7 @@ public class WebmateAPISession {
      * @param environment an instance of WebmateEnvironment which contains the url of webmate
      */
     public WebmateAPISession(WebmateAuthInfo authInfo, WebmateEnvironment environment) {
-        this.authInfo = authInfo;
-        this.environment = environment;
-
-        this.jobEngine = new JobEngine(this);
-        this.browserSession = new BrowserSessionClient(this);
-        this.device = new DeviceClient(this);
-        this.testMgmt = new TestMgmtClient(this);
-        this.artifact = new ArtifactClient(this);
-        this.mailTest = new MailTestClient(this, artifact);
-        this.selenium = new SeleniumServiceClient(this);
-        this.packages = new PackageMgmtClient(this);
-        this.blob = new BlobClient(this);
+        this(new WebmateHttpTransport(authInfo, environment), Optional.<ProjectId>absent());
     }
 
     /**
@@ -174,18 +176,7 @@ public class WebmateAPISession {
      * @param httpClientBuilder client builder used to create HTTP connections
      */
     public WebmateAPISession(WebmateAuthInfo authInfo, WebmateEnvironment environment, HttpClientBuilder httpClientBuilder) {
-        this.authInfo = authInfo;
-        this.environment = environment;
-
-        this.jobEngine = new JobEngine(this, httpClientBuilder);
-        this.browserSession = new BrowserSessionClient(this, httpClientBuilder);
-        this.device = new DeviceClient(this, httpClientBuilder);
-        this.testMgmt = new TestMgmtClient(this, httpClientBuilder);
-        this.artifact = new ArtifactClient(this, httpClientBuilder);
-        this.mailTest = new MailTestClient(this, artifact, httpClientBuilder);
-        this.selenium = new SeleniumServiceClient(this, httpClientBuilder);
-        this.packages = new PackageMgmtClient(this, httpClientBuilder);
-        this.blob = new BlobClient(this);
+        this(new WebmateHttpTransport(authInfo, environment, httpClientBuilder), Optional.<ProjectId>absent());
     }
 
     /**
@@ -198,26 +189,116 @@ public class WebmateAPISession {
      */
     public WebmateAPISession(WebmateAuthInfo authInfo, WebmateEnvironment environment, ProjectId projectId,
                              HttpClientBuilder httpClientBuilder) {
-        this.authInfo = authInfo;
-        this.environment = environment;
-        this.projectId = Optional.of(projectId);
-
-        this.jobEngine = new JobEngine(this, httpClientBuilder);
-        this.browserSession = new BrowserSessionClient(this, httpClientBuilder);
-        this.device = new DeviceClient(this, httpClientBuilder);
-        this.testMgmt = new TestMgmtClient(this, httpClientBuilder);
-        this.artifact = new ArtifactClient(this, httpClientBuilder);
-        this.mailTest = new MailTestClient(this, artifact, httpClientBuilder);
-        this.selenium = new SeleniumServiceClient(this, httpClientBuilder);
-        this.packages = new PackageMgmtClient(this, httpClientBuilder);
+        this(new WebmateHttpTransport(authInfo, environment, httpClientBuilder), Optional.of(projectId));
+    }
+
+    /**
+     * Constructor to create a new WebmateAPISession with a custom connection pool configuration.
+     * The session is used to access all functionality of webmate.
+     *
+     * @param authInfo an instance of WebmateAuthInfo which contains the users credentials
+     * @param environment an instance of WebmateEnvironment which contains the url of webmate
+     * @param httpClientBuilder client builder used to create HTTP connections
+     * @param poolConfig configuration of the connection pool shared by all subsystems
+     */
+    public WebmateAPISession(WebmateAuthInfo authInfo, WebmateEnvironment environment, ProjectId projectId,
+                             HttpClientBuilder httpClientBuilder, ConnectionPoolConfig poolConfig) {
+        this(new WebmateHttpTransport(authInfo, environment, httpClientBuilder, poolConfig), Optional.of(projectId));
+    }
+
+    /**
+     * Constructor to create a new WebmateAPISession on a custom transport, e.g. with a specific
+     * {@link ResilienceConfig}. The session takes ownership of the transport and closes it in {@link #close()}.
+     *
+     * @param transport transport used by all subsystems of the session
+     * @param projectId project the session works in
+     */
+    public WebmateAPISession(WebmateHttpTransport transport, ProjectId projectId) {
+        this(transport, Optional.of(projectId));
+    }
+
+    private WebmateAPISession(WebmateHttpTransport transport, Optional<ProjectId> projectId) {
+        this.authInfo = transport.authInfo;
+        this.environment = transport.environment;
+        this.transport = transport;
+        this.projectId = projectId;
+        this.teardownManager = new SessionTeardownManager(this);
+
+        // the facades are cheap: each creates its API client (and loads its DTO classes and JSON readers) on first use
+        this.jobEngine = new JobEngine(this);
+        this.browserSession = new BrowserSessionClient(this);
+        this.device = new DeviceClient(this);
+        this.testMgmt = new TestMgmtClient(this);
+        this.artifact = new ArtifactClient(this);
+        this.mailTest = new MailTestClient(this, artifact);
+        this.selenium = new SeleniumServiceClient(this);
+        this.packages = new PackageMgmtClient(this);
         this.blob = new BlobClient(this);
     }
 
     /**
-     * Associate BrowserSession with API session.
+     * HTTP transport (and connection pool) shared by all subsystems of this session.
+     */
+    public WebmateHttpTransport getTransport() {
+        return transport;
+    }
+
+    /**
+     * Tracks the BrowserSessions and Selenium sessions of this session, so that they can be terminated in bulk,
+     * e.g. from a JVM shutdown hook.
+     */
+    public SessionTeardownManager getTeardownManager() {
+        return teardownManager;
+    }
+
+    /**
+     * Executor for asynchronous calls of this session. It is created on first use and runs at most as many calls in
+     * parallel as the connection pool allows per route.
+     */
+    public synchronized WebmateAsyncExecutor getAsyncExecutor() {
+        if (asyncExecutor == null) {
+            asyncExecutor = new WebmateAsyncExecutor(transport.getPoolConfig().getMaxPerRoute());
+        }
+        return asyncExecutor;
+    }
+
+    /**
+     * Asynchronous view of a subsystem facade of this session, e.g.
+     * <code>session.async(session.device).call(d -&gt; d.getDeviceInfo(deviceId))</code>.
+     *
+     * @param subsystem one of the facades of this session, e.g. {@link #device} or {@link #testMgmt}
+     */
+    public <C> AsyncSubsystem<C> async(C subsystem) {
+        return new AsyncSubsystem<>(subsystem, getAsyncExecutor());
+    }
+
+    /**
+     * Close the session and release all pooled connections. Asynchronous calls that have already been submitted
+     * are finished first (see {@link WebmateAsyncExecutor#close()}), and so are asynchronously reported actions.
+     * Pending changes of the cache used for job reuse are written.
+     */
+    @Override
+    public void close() throws IOException {
+        teardownManager.removeShutdownHook();
+        browserSession.disableAsyncActionReporting();
+        synchronized (this) {
+            if (asyncExecutor != null) {
+                asyncExecutor.close();
+            }
+        }
+        Optional<JobIdentityCache> jobReuseCache = jobEngine.getJobReuseCache();
+        if (jobReuseCache.isPresent()) {
+            jobReuseCache.get().flush();
+        }
+        transport.close();
+    }
+
+    /**
+     * Associate BrowserSession with API session. The BrowserSession is tracked by the teardown manager.
      */
     public void addBrowserSession(BrowserSessionId id) {
-        this.associatedExpeditions.add(id);
+        append(associatedExpeditions, id);
+        teardownManager.track(id);
     }
 
     /**
@@ -235,14 +316,14 @@ public class WebmateAPISession {
      * Associate Tag with API session.
      */
     public void addTag(Tag tag) {
-        this.associatedTags.add(tag);
+        append(associatedTags, tag);
     }
 
     /**
      * Associate Application Model with API session.
      */
     public void addModel(ApplicationModelId modelId) {
-        this.associatedModels.add(modelId);
+        append(associatedModels, modelId);
     }
 
     /**
@@ -251,7 +332,7 @@ public class WebmateAPISession {
      * multiple TestSessions.
      */
     public void addToTestSession(TestSessionId session) {
-        this.associatedTestSessions.add(session);
+        append(associatedTestSessions, session);
     }
 
     /**
@@ -1,21 +1,26 @@
 package com.testfabrik.webmate.javasdk;
 
-import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
 import com.google.common.base.Optional;
+import com.testfabrik.webmate.javasdk.commonutils.AdaptiveConcurrencyLimiter;
+import com.testfabrik.webmate.javasdk.commonutils.CircuitBreaker;
+import com.testfabrik.webmate.javasdk.commonutils.JsonEntity;
+import com.testfabrik.webmate.javasdk.commonutils.UploadEntities;
 import org.apache.http.*;
 import org.apache.http.client.HttpClient;
+import org.apache.http.client.ResponseHandler;
 import org.apache.http.client.entity.UrlEncodedFormEntity;
 import org.apache.http.client.methods.HttpDelete;
 import org.apache.http.client.methods.HttpGet;
 import org.apache.http.client.methods.HttpPost;
-import org.apache.http.client.utils.URIBuilder;
-import org.apache.http.entity.ByteArrayEntity;
-import org.apache.http.entity.ContentType;
+import org.apache.http.client.methods.HttpRequestBase;
+import org.apache.http.client.utils.DateUtils;
 import org.apache.http.entity.StringEntity;
 import org.apache.http.impl.client.HttpClientBuilder;
-import org.apache.http.message.BasicHeader;
 import org.apache.http.util.EntityUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -24,6 +29,8 @@ import java.io.IOException;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.util.*;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
 
 /**
  * API client for interacting with the webmate API.
@@ -32,13 +39,7 @@ public class WebmateApiClient {
 
     private final static Logger LOG = LoggerFactory.getLogger(WebmateApiClient.class);
 
-    private final static String WEBMATE_JAVASDK_USERAGENT = "webmate-javasdk";
-    private final static String WEBMATE_USER_HEADERKEY = "webmate.user";
-    private final static String WEBMATE_APITOKEN_HEADERKEY = "webmate.api-token";
-
-    private final HttpClient httpClient;
-    private final HttpClientBuilder httpClientBuilder;
-    private final WebmateAuthInfo authInfo;
+    private final WebmateHttpTransport transport;
     private final WebmateEnvironment environment;
 
     /**
@@ -48,7 +49,7 @@ public class WebmateApiClient {
      * @param environment webmate environment to be used.
      */
     public WebmateApiClient(WebmateAuthInfo authInfo, WebmateEnvironment environment) {
-        this(authInfo, environment, HttpClientBuilder.create());
+        this(new WebmateHttpTransport(authInfo, environment));
     }
 
     /**
@@ -60,57 +61,27 @@ public class WebmateApiClient {
      * @param httpClientBuilder Client builder used to create HTTP connections
      */
     public WebmateApiClient(WebmateAuthInfo authInfo, WebmateEnvironment environment, HttpClientBuilder httpClientBuilder) {
-        this.httpClient = makeHttpClient(authInfo, environment, httpClientBuilder);
-        this.httpClientBuilder = httpClientBuilder;
-        this.authInfo = authInfo;
-        this.environment = environment;
-    }
-
-    /**
-     * Returns the configured and built HttpClient with default "application/json" content type header.
-     *
-     * @return Configured and built HttpClient.
-     */
-    private HttpClient getHttpClient() {
-        return this.httpClient;
+        this(new WebmateHttpTransport(authInfo, environment, httpClientBuilder));
     }
 
     /**
-     * Creates a new HttpClient with the given content type header as default header.
-     * There is no easy mechanism to replace or override a default header. Therefore, we instantiate a
-     * new http client with the passed content type header. Another solution would be to create a
-     * custom HttpRequestInterceptor that handles http headers.
+     * Constructor for WebmateAPIClient that uses an existing (usually session-wide) transport, so that
+     * connections are shared with other clients.
      *
-     * @param contentType Content type header set as default header.
-     * @return New HttpClient to be used by Service clients.
+     * @param transport Transport used to send HTTP requests.
      */
-    private HttpClient getHttpClientAndOverrideContentHeader(Header contentType) {
-        return makeHttpClient(this.authInfo, this.environment, this.httpClientBuilder, contentType);
+    public WebmateApiClient(WebmateHttpTransport transport) {
+        this.transport = transport;
+        this.environment = transport.environment;
     }
 
     /**
-     * Creates new HttpClient for interacting with webmate API.
+     * Returns the pooled HttpClient of the underlying transport.
      *
-     * @param authInfo Authentication information (email address + token)
-     * @param environment API endpoint address
-     * @return New HttpClient to be used by Service clients.
+     * @return Configured and built HttpClient.
      */
-    private static HttpClient makeHttpClient(WebmateAuthInfo authInfo, WebmateEnvironment environment,
-                                             HttpClientBuilder httpClientBuilder) {
-        return makeHttpClient(authInfo, environment, httpClientBuilder, new BasicHeader(HttpHeaders.CONTENT_TYPE,
-                "application/json"));
-    }
-
-    private static HttpClient makeHttpClient(WebmateAuthInfo authInfo, WebmateEnvironment environment,
-                                             HttpClientBuilder httpClientBuilder, Header contentType) {
-        List<Header> headers = new ArrayList<>();
-        headers.add(new BasicHeader(WEBMATE_USER_HEADERKEY, authInfo.emailAddress));
-        headers.add(new BasicHeader(WEBMATE_APITOKEN_HEADERKEY, authInfo.apiKey));
-        headers.add(contentType);
-
-        httpClientBuilder.setUserAgent(WEBMATE_JAVASDK_USERAGENT);
-        httpClientBuilder.setDefaultHeaders(headers);
-        return httpClientBuilder.build();
+    private HttpClient getHttpClient() {
+        return this.transport.getHttpClient();
     }
 
     private void checkErrors(HttpResponse httpResponse, Optional<String> endpointName) {
@@ -123,19 +94,18 @@ public class WebmateApiClient {
                 entityContent = "n/a";
             }
             if (endpointName.isPresent()) {
-                throw new WebmateApiClientException("An error occurred during '" + endpointName.get() + "' request: " +
-                        httpResponse.getStatusLine().getReasonPhrase() + ": " + entityContent);
+                throw new WebmateApiStatusException("An error occurred during '" + endpointName.get() + "' request: " +
+                        httpResponse.getStatusLine().getReasonPhrase() + ": " + entityContent, statusCode);
             } else {
-                throw new WebmateApiClientException("An error occurred during request: " +
-                        httpResponse.getStatusLine().getReasonPhrase() + ": " + entityContent);
+                throw new WebmateApiStatusException("An error occurred during request: " +
+                        httpResponse.getStatusLine().getReasonPhrase() + ": " + entityContent, statusCode);
             }
         }
     }
 
     protected UUID readUUIDFromResponse(HttpResponse res) throws IOException {
         String json = EntityUtils.toString(res.getEntity());
-        ObjectMapper mapper = new ObjectMapper();
-        String imageIdStr = mapper.readValue(json, new TypeReference<String>(){});
+        String imageIdStr = JacksonMapper.readerFor(String.class).readValue(json);
         return UUID.fromString(imageIdStr);
     }
 
@@ -196,6 +166,41 @@ public class WebmateApiClient {
         return new ApiResponse(httpResponse);
     }
 
+    /**
+     * Sends a Post to the Uri in schema using params to populate the schema. The body is the JSON serialization of the
+     * given object, which is written directly to the connection (see {@link JsonEntity}).
+     *
+     * @param schema The Uri schema that will become the target of the Post
+     * @param params The params that should be used in the schema
+     * @param body The object (DTO, collection, JsonNode) that is supposed to be sent in the body
+     * @return The response of the API
+     */
+    public ApiResponse sendPOSTJson(UriTemplate schema, Map<String, String> params, Object body) {
+        HttpResponse httpResponse = sendPOSTUnchecked(schema, params, new JsonEntity(body), Optional.<String>absent(), null);
+        checkErrors(httpResponse, schema.name);
+        return new ApiResponse(httpResponse);
+    }
+
+    /**
+     * Like {@link #sendPOSTJson(UriTemplate, Map, Object)}, but serializing with the given inclusion policy, e.g.
+     * NON_NULL to omit properties which are null.
+     */
+    public ApiResponse sendPOSTJson(UriTemplate schema, Map<String, String> params, Object body, JsonInclude.Include include) {
+        HttpResponse httpResponse = sendPOSTUnchecked(schema, params, new JsonEntity(body, JacksonMapper.writer(include)),
+                Optional.<String>absent(), null);
+        checkErrors(httpResponse, schema.name);
+        return new ApiResponse(httpResponse);
+    }
+
+    /**
+     * Like {@link #sendPOSTJson(UriTemplate, Map, Object)}, appending the query String after template replacement.
+     */
+    public ApiResponse sendPOSTJson(UriTemplate schema, Map<String, String> params, String query, Object body) {
+        HttpResponse httpResponse = sendPOSTJsonUnchecked(schema, params, query, new JsonEntity(body));
+        checkErrors(httpResponse, schema.name);
+        return new ApiResponse(httpResponse);
+    }
+
     /**
      * Sends a Post to the Uri in schema using params to populate the schema. The body of the request is a byte array.
      *
@@ -218,29 +223,47 @@ public class WebmateApiClient {
         return new ApiResponse(httpResponse);
     }
 
+    /**
+     * Sends a Post to the Uri in schema using params to populate the schema. The body of the request is streamed from
+     * the given entity, so that large uploads (e.g. files) need not be held in memory.
+     *
+     * @param schema The Uri schema that will become the target of the Post
+     * @param params The params that should be used in the schema
+     * @param body The entity that is supposed to be sent in the body, e.g. created with {@link UploadEntities}
+     * @param contentType Content type of the body. If absent, application/json is sent.
+     * @return The response of the API
+     */
+    public ApiResponse sendPOST(UriTemplate schema, Map<String, String> params, HttpEntity body,
+                                Optional<String> contentType) {
+        HttpResponse httpResponse = sendPOSTUnchecked(schema, params, body, contentType, null);
+        checkErrors(httpResponse, schema.name);
+        return new ApiResponse(httpResponse);
+    }
+
+    public ApiResponse sendPOST(UriTemplate schema, Map<String, String> params, HttpEntity body,
+                                Optional<String> contentType, List<NameValuePair> urlParams) {
+        HttpResponse httpResponse = sendPOSTUnchecked(schema, params, body, contentType, urlParams);
+        checkErrors(httpResponse, schema.name);
+        return new ApiResponse(httpResponse);
+    }
+
     protected HttpResponse sendPOSTUnchecked(UriTemplate schema, Map<String, String> params, JsonNode body) {
-        try {
-            HttpPost req = new HttpPost(schema.buildUri(environment.baseURI, params));
-            req.setEntity(new StringEntity(body.toString()));
-            return sendPOSTUnchecked(this.getHttpClient(), req);
-        } catch (IOException e) {
-            throw new WebmateApiClientException("Error sending POST to webmate API", e);
-        }
+        return sendPOSTUnchecked(schema, params, new JsonEntity(body), Optional.<String>absent(), null);
     }
 
     protected HttpResponse sendPOSTUnchecked(UriTemplate schema, Map<String, String> params, String query, JsonNode body) {
-        try {
-            HttpPost req = new HttpPost(schema.buildUri(environment.baseURI, params, query));
-            req.setEntity(new StringEntity(body.toString()));
-            return sendPOSTUnchecked(this.getHttpClient(), req);
-        } catch (IOException e) {
-            throw new WebmateApiClientException("Error sending POST to webmate API", e);
-        }
+        return sendPOSTJsonUnchecked(schema, params, query, new JsonEntity(body));
+    }
+
+    private HttpResponse sendPOSTJsonUnchecked(UriTemplate schema, Map<String, String> params, String query, JsonEntity body) {
+        HttpPost req = new HttpPost(schema.buildUri(environment.baseURI, params, query));
+        req.setEntity(body);
+        return sendPOSTUnchecked(schema, req);
     }
 
     protected HttpResponse sendPOSTUnchecked(UriTemplate schema, Map<String, String> params) {
         HttpPost req = new HttpPost(schema.buildUri(environment.baseURI, params));
-        return sendPOSTUnchecked(this.getHttpClient(), req);
+        return sendPOSTUnchecked(schema, req);
     }
 
     protected HttpResponse sendPOSTUnchecked(UriTemplate schema, Map<String, String> params,
@@ -248,7 +271,7 @@ public class WebmateApiClient {
         try {
             HttpPost req = new HttpPost(schema.buildUri(environment.baseURI, params));
             req.setEntity(new UrlEncodedFormEntity(urlParams));
-            return sendPOSTUnchecked(this.getHttpClient(), req);
+            return sendPOSTUnchecked(schema, req);
         } catch (IOException e) {
             throw new WebmateApiClientException("Error sending POST to webmate API", e);
         }
@@ -256,53 +279,39 @@ public class WebmateApiClient {
 
     protected HttpResponse sendPOSTUnchecked(UriTemplate schema, Map<String, String> params, byte[] byteParam,
                                              Optional<String> contentType) {
-        HttpPost req = new HttpPost(schema.buildUri(environment.baseURI, params));
-        HttpClient httpClient;
-
-        if (contentType.isPresent()) {
-            req.setEntity(new ByteArrayEntity(byteParam, ContentType.create(contentType.get())));
-            httpClient = this.getHttpClientAndOverrideContentHeader(new BasicHeader(HttpHeaders.CONTENT_TYPE, contentType.get()));
-        } else {
-            req.setEntity(new ByteArrayEntity(byteParam));
-            httpClient = this.getHttpClient();
-        }
-
-        return sendPOSTUnchecked(httpClient, req);
+        return sendPOSTUnchecked(schema, params, UploadEntities.fromBytes(byteParam, contentType), contentType, null);
     }
 
     protected HttpResponse sendPOSTUnchecked(UriTemplate schema, Map<String, String> params, byte[] byteParam,
                                              Optional<String> contentType, List<NameValuePair> urlParams) {
-        HttpPost req = new HttpPost(schema.buildUri(environment.baseURI, params, urlParams));
-        HttpClient httpClient;
+        return sendPOSTUnchecked(schema, params, UploadEntities.fromBytes(byteParam, contentType), contentType, urlParams);
+    }
+
+    protected HttpResponse sendPOSTUnchecked(UriTemplate schema, Map<String, String> params, HttpEntity body,
+                                             Optional<String> contentType, List<NameValuePair> urlParams) {
+        HttpPost req;
+        if (urlParams != null) {
+            req = new HttpPost(schema.buildUri(environment.baseURI, params, urlParams));
+        } else {
+            req = new HttpPost(schema.buildUri(environment.baseURI, params));
+        }
 
+        req.setEntity(body);
         if (contentType.isPresent()) {
-            req.setEntity(new ByteArrayEntity(byteParam, ContentType.create(contentType.get())));
-            httpClient = this.getHttpClientAndOverrideContentHeader(new BasicHeader(HttpHeaders.CONTENT_TYPE, contentType.get()));
-        } else {
-            req.setEntity(new ByteArrayEntity(byteParam));
-            httpClient = this.getHttpClient();
+            // set on the request, so the shared client's default content type is not added
+            req.setHeader(HttpHeaders.CONTENT_TYPE, contentType.get());
         }
 
-        return sendPOSTUnchecked(httpClient, req);
+        return sendPOSTUnchecked(schema, req);
     }
 
     protected HttpResponse sendPOSTUnchecked(UriTemplate schema, Map<String, String> params, String queryString) {
         HttpPost req = new HttpPost(schema.buildUri(environment.baseURI, params, queryString));
-        return sendPOSTUnchecked(this.getHttpClient(), req);
+        return sendPOSTUnchecked(schema, req);
     }
 
-    protected HttpResponse sendPOSTUnchecked(HttpClient httpClient, HttpPost req) {
-        HttpResponse httpResponse;
-        try {
-            httpResponse = httpClient.execute(req);
-            // Buffer the response entity in memory so we can release the connection safely
-            HttpEntity old = httpResponse.getEntity();
-            EntityUtils.updateEntity(httpResponse, new StringEntity(EntityUtils.toString(old)));
-            req.releaseConnection();
-        } catch (IOException e) {
-            throw new WebmateApiClientException("Error sending POST to webmate API", e);
-        }
-        return httpResponse;
+    protected HttpResponse sendPOSTUnchecked(UriTemplate schema, HttpPost req) {
+        return execute(schema, req, BUFFERING_HANDLER);
     }
 
     public ApiResponse sendGET(UriTemplate schema, Map<String, String> params) {
@@ -322,23 +331,154 @@ public class WebmateApiClient {
     }
 
     protected HttpResponse sendGETUnchecked(UriTemplate schema, Map<String, String> params, List<NameValuePair> queryParams) {
-        HttpResponse httpResponse;
-        try {
-            HttpGet req;
-            if (queryParams != null) {
-                req = new HttpGet(schema.buildUri(environment.baseURI, params, queryParams));
-            } else {
-                req = new HttpGet(schema.buildUri(environment.baseURI, params));
+        HttpGet req;
+        if (queryParams != null) {
+            req = new HttpGet(schema.buildUri(environment.baseURI, params, queryParams));
+        } else {
+            req = new HttpGet(schema.buildUri(environment.baseURI, params));
+        }
+        return execute(schema, req, BUFFERING_HANDLER);
+    }
+
+    /**
+     * Sends a GET to the Uri in schema and deserializes the JSON response with the given reader. In contrast to
+     * {@link #sendGET(UriTemplate, Map)}, the response body is not buffered in memory but parsed directly from the
+     * connection's input stream. The connection is released afterwards.
+     *
+     * @param schema The Uri schema that will become the target of the GET
+     * @param params The params that should be used in the schema
+     * @param queryParams Query parameters that should be appended (may be null)
+     * @param reader Reader used to deserialize the response body
+     * @return The deserialized response
+     */
+    public <T> T sendGETStreaming(UriTemplate schema, Map<String, String> params, List<NameValuePair> queryParams,
+                                  ObjectReader reader) {
+        HttpGet req;
+        if (queryParams != null) {
+            req = new HttpGet(schema.buildUri(environment.baseURI, params, queryParams));
+        } else {
+            req = new HttpGet(schema.buildUri(environment.baseURI, params));
+        }
+        Optional<ResponseCache> cache = transport.getResponseCache();
+        if (schema.isCacheable() && cache.isPresent()) {
+            return sendGETCached(schema, req, reader, cache.get());
+        }
+        final ResponseHandler<T> handler = new StreamingJsonResponseHandler<T>(schema.name, reader);
+        if (schema.isCoalescable() && transport.getResilienceConfig().isRequestCoalescingEnabled()) {
+            final HttpGet coalescedReq = req;
+            @SuppressWarnings("unchecked")
+            T result = (T) transport.getSingleFlight().execute(req.getURI().toString(),
+                    () -> execute(schema, coalescedReq, handler));
+            return result;
+        }
+        return execute(schema, req, handler);
+    }
+
+    public <T> T sendGETStreaming(UriTemplate schema, Map<String, String> params, ObjectReader reader) {
+        return sendGETStreaming(schema, params, null, reader);
+    }
+
+    /**
+     * GET with response cache: fresh cache entries are returned without a request. Expired entries with an ETag or
+     * Last-Modified date are revalidated with a conditional request, and reused if the server answers with 304.
+     * The cache holds the JSON tree of the response, and each call binds its own value from it, so that callers
+     * cannot change what other callers get.
+     */
+    private <T> T sendGETCached(UriTemplate schema, HttpGet req, ObjectReader reader, ResponseCache cache) {
+        String key = req.getURI().toString();
+        Optional<CachedResponse> cached = cache.get(key);
+        long now = System.currentTimeMillis();
+        if (cached.isPresent()) {
+            if (cached.get().isFresh(now)) {
+                return cachedValue(cached.get(), reader);
             }
-            httpResponse = this.getHttpClient().execute(req);
-            // Buffer the response entity in memory so we can release the connection safely
-            HttpEntity old = httpResponse.getEntity();
-            EntityUtils.updateEntity(httpResponse, new StringEntity(EntityUtils.toString(old)));
-            req.releaseConnection();
+            if (cached.get().getETag().isPresent()) {
+                req.setHeader(HttpHeaders.IF_NONE_MATCH, cached.get().getETag().get());
+            }
+            if (cached.get().getLastModified().isPresent()) {
+                req.setHeader(HttpHeaders.IF_MODIFIED_SINCE, cached.get().getLastModified().get());
+            }
+        }
+
+        CachedResponse response = execute(schema, req, new CachingJsonResponseHandler(schema.name));
+        long expiresAt = System.currentTimeMillis() + schema.getCacheTtlMillis();
+        if (response == null) { // not modified
+            if (!cached.isPresent()) {
+                throw new WebmateApiClientException("Got 'not modified' for '" + schema.endpointName() +
+                        "' request without cached response");
+            }
+            response = cached.get();
+        }
+        cache.put(key, response.withExpiry(expiresAt));
+        return cachedValue(response, reader);
+    }
+
+    private static <T> T cachedValue(CachedResponse response, ObjectReader reader) {
+        JsonNode tree = (JsonNode) response.getValue();
+        if (tree == null) {
+            return null;
+        }
+        try {
+            return reader.readValue(tree);
         } catch (IOException e) {
-            throw new WebmateApiClientException("Error sending GET to webmate API", e);
+            throw new WebmateApiClientException("Error reading cached response data: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Parses the response into a JSON tree like {@link StreamingJsonResponseHandler} and keeps the validators of
+     * the response. Returns null if the server answered that the cached response is still valid.
+     */
+    private class CachingJsonResponseHandler implements ResponseHandler<CachedResponse> {
+        private final StreamingJsonResponseHandler<JsonNode> parser;
+
+        CachingJsonResponseHandler(Optional<String> endpointName) {
+            this.parser = new StreamingJsonResponseHandler<>(endpointName, JacksonMapper.readerFor(JsonNode.class));
+        }
+
+        @Override
+        public CachedResponse handleResponse(HttpResponse httpResponse) throws IOException {
+            if (httpResponse.getStatusLine().getStatusCode() == HttpStatus.SC_NOT_MODIFIED) {
+                return null;
+            }
+            Object value = parser.handleResponse(httpResponse);
+            return new CachedResponse(value, headerValue(httpResponse, HttpHeaders.ETAG),
+                    headerValue(httpResponse, HttpHeaders.LAST_MODIFIED), 0);
+        }
+
+        private Optional<String> headerValue(HttpResponse httpResponse, String name) {
+            Header header = httpResponse.getFirstHeader(name);
+            return header == null ? Optional.<String>absent() : Optional.of(header.getValue());
+        }
+    }
+
+    /**
+     * Checks the response for errors and parses the entity content with a Jackson parser. Closing the parser
+     * consumes the rest of the entity, so that the connection can be returned to the pool.
+     */
+    private class StreamingJsonResponseHandler<T> implements ResponseHandler<T> {
+        private final Optional<String> endpointName;
+        private final ObjectReader reader;
+
+        StreamingJsonResponseHandler(Optional<String> endpointName, ObjectReader reader) {
+            this.endpointName = endpointName;
+            this.reader = reader;
+        }
+
+        @Override
+        public T handleResponse(HttpResponse httpResponse) throws IOException {
+            checkErrors(httpResponse, endpointName);
+            HttpEntity entity = httpResponse.getEntity();
+            if (entity == null) {
+                return null;
+            }
+            try (JsonParser parser = reader.getFactory().createParser(entity.getContent())) {
+                return reader.readValue(parser);
+            } catch (JsonProcessingException e) {
+                throw new WebmateApiClientException("Error reading response data" +
+                        (endpointName.isPresent() ? " of '" + endpointName.get() + "' request" : "") + ": " + e.getMessage(), e);
+            }
         }
-        return httpResponse;
     }
 
     /**
@@ -349,39 +489,255 @@ public class WebmateApiClient {
      * @return The response of the API
      */
     public ApiResponse sendDELETE(UriTemplate schema, Map<String, String> params) {
-        HttpResponse httpResponse;
-        try {
-            HttpDelete req = new HttpDelete(schema.buildUri(environment.baseURI, params));
-            httpResponse = this.getHttpClient().execute(req);
-            // Buffer the response entity in memory so we can release the connection safely
-            HttpEntity old = httpResponse.getEntity();
-            EntityUtils.updateEntity(httpResponse, new StringEntity(EntityUtils.toString(old)));
-            req.releaseConnection();
-        } catch (IOException e) {
-            throw new WebmateApiClientException("Error sending DELETE to webmate API", e);
-        }
+        HttpDelete req = new HttpDelete(schema.buildUri(environment.baseURI, params));
+        HttpResponse httpResponse = execute(schema, req, BUFFERING_HANDLER);
         checkErrors(httpResponse, schema.name);
         return new ApiResponse(httpResponse);
     }
 
+    /**
+     * Buffers the response entity in memory, so that the connection can be released before the response is
+     * evaluated.
+     */
+    private static final ResponseHandler<HttpResponse> BUFFERING_HANDLER = new ResponseHandler<HttpResponse>() {
+        @Override
+        public HttpResponse handleResponse(HttpResponse httpResponse) throws IOException {
+            HttpEntity old = httpResponse.getEntity();
+            if (old != null) {
+                EntityUtils.updateEntity(httpResponse, new StringEntity(EntityUtils.toString(old)));
+            }
+            return httpResponse;
+        }
+    };
+
+    /**
+     * Executes a request to the endpoint described by schema. All requests of the client pass through here.
+     * <p>
+     * Idempotent requests (GET, DELETE, or endpoints marked with {@link UriTemplate#idempotent()}) are retried on
+     * connection errors and transient status codes according to the transport's {@link ResilienceConfig}. Every
+     * endpoint has a circuit breaker which rejects requests while the endpoint is failing.
+     */
+    private <T> T execute(UriTemplate schema, HttpRequestBase req, ResponseHandler<T> handler) {
+        ResilienceConfig config = transport.getResilienceConfig();
+        String endpoint = schema.endpointName();
+        boolean retryable = isRetryable(schema, req);
+        CircuitBreaker breaker = config.isCircuitBreakerEnabled() ? transport.getCircuitBreaker(endpoint) : null;
+        List<AdaptiveConcurrencyLimiter> limiters = config.isConcurrencyLimitEnabled() ?
+                // endpoint first: a call queued behind a busy endpoint must not hold a slot of the total limit
+                Arrays.asList(transport.getConcurrencyLimiter(endpoint), transport.getTotalConcurrencyLimiter()) :
+                Collections.<AdaptiveConcurrencyLimiter>emptyList();
+
+        for (int attempt = 1; ; attempt++) {
+            acquireConcurrencyLimits(limiters, endpoint, config.getConcurrencyQueueTimeoutMillis());
+            if (breaker != null && !breaker.tryAcquire()) {
+                for (AdaptiveConcurrencyLimiter limiter : limiters) {
+                    limiter.cancel();
+                }
+                throw new WebmateApiClientException("Endpoint '" + endpoint + "' is unavailable after repeated " +
+                        "failures (circuit breaker open), not sending " + req.getMethod() + " to webmate API");
+            }
+            boolean lastAttempt = !retryable || attempt >= config.getMaxAttempts();
+            ResilientResponseHandler<T> resilientHandler =
+                    new ResilientResponseHandler<>(handler, config.getRetryableStatusCodes(), breaker, lastAttempt);
+            long startNanos = System.nanoTime();
+            boolean overloaded = false;
+            long retryAfterMillis;
+            try {
+                return getHttpClient().execute(req, resilientHandler);
+            } catch (TransientStatusException e) {
+                LOG.warn("'" + endpoint + "' request failed with status " + e.statusCode + " (attempt " + attempt + ")");
+                overloaded = true;
+                retryAfterMillis = e.retryAfterMillis;
+            } catch (IOException e) {
+                overloaded = !resilientHandler.responseReceived;
+                if (overloaded && breaker != null) {
+                    breaker.onFailure();
+                }
+                if (lastAttempt) {
+                    throw new WebmateApiClientException("Error sending " + req.getMethod() + " to webmate API", e);
+                }
+                LOG.warn("'" + endpoint + "' request failed: " + e.getMessage() + " (attempt " + attempt + ")");
+                retryAfterMillis = 0;
+            } catch (RuntimeException e) {
+                if (!resilientHandler.responseReceived && breaker != null) {
+                    breaker.onSuccess(); // not a failure of the endpoint, e.g. invalid request
+                }
+                throw e;
+            } finally {
+                long latencyNanos = System.nanoTime() - startNanos;
+                boolean overloadStatus = config.getRetryableStatusCodes().contains(resilientHandler.statusCode);
+                for (AdaptiveConcurrencyLimiter limiter : limiters) {
+                    limiter.release(latencyNanos, overloaded || overloadStatus);
+                }
+            }
+            req.reset();
+            sleepBeforeRetry(config, attempt, retryAfterMillis);
+        }
+    }
+
+    private static void acquireConcurrencyLimits(List<AdaptiveConcurrencyLimiter> limiters, String endpoint, long timeoutMillis) {
+        for (int i = 0; i < limiters.size(); i++) {
+            boolean acquired;
+            try {
+                acquired = limiters.get(i).tryAcquire(timeoutMillis);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                acquired = false;
+            }
+            if (!acquired) {
+                for (int j = 0; j < i; j++) {
+                    limiters.get(j).cancel();
+                }
+                throw new WebmateApiClientException("Too many concurrent requests to '" + endpoint + "' (limit of " +
+                        limiters.get(i).getName() + " is " + limiters.get(i).getLimit() + "), request rejected");
+            }
+        }
+    }
+
+    private static boolean isRetryable(UriTemplate schema, HttpRequestBase req) {
+        if (req instanceof HttpEntityEnclosingRequest) {
+            HttpEntity entity = ((HttpEntityEnclosingRequest) req).getEntity();
+            if (entity != null && !entity.isRepeatable()) {
+                return false;
+            }
+        }
+        String method = req.getMethod();
+        return schema.isIdempotent() || method.equals(HttpGet.METHOD_NAME) || method.equals(HttpDelete.METHOD_NAME);
+    }
+
+    /**
+     * Exponential backoff with jitter: waits between 50% and 100% of initialBackoff * 2^(attempt-1), bounded by
+     * maxBackoff, but at least as long as requested by a Retry-After header.
+     */
+    private static void sleepBeforeRetry(ResilienceConfig config, int attempt, long retryAfterMillis) {
+        long backoff = Math.min(config.getMaxBackoffMillis(),
+                config.getInitialBackoffMillis() * (1L << Math.min(attempt - 1, 30)));
+        long sleepMillis = backoff / 2 + (long) (ThreadLocalRandom.current().nextDouble() * (backoff - backoff / 2));
+        sleepMillis = Math.max(sleepMillis, Math.min(retryAfterMillis, config.getMaxRetryAfterMillis()));
+        try {
+            Thread.sleep(sleepMillis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new WebmateApiClientException("Interrupted while waiting to retry request to webmate API", e);
+        }
+    }
+
+    /**
+     * Records the outcome of a request in the endpoint's circuit breaker and signals transient failures that
+     * should be retried.
+     */
+    private static class ResilientResponseHandler<T> implements ResponseHandler<T> {
+        private final ResponseHandler<T> delegate;
+        private final Set<Integer> retryableStatusCodes;
+        private final CircuitBreaker breaker;
+        private final boolean lastAttempt;
+        private boolean responseReceived = false;
+        private int statusCode = 0;
+
+        ResilientResponseHandler(ResponseHandler<T> delegate, Set<Integer> retryableStatusCodes,
+                                 CircuitBreaker breaker, boolean lastAttempt) {
+            this.delegate = delegate;
+            this.retryableStatusCodes = retryableStatusCodes;
+            this.breaker = breaker;
+            this.lastAttempt = lastAttempt;
+        }
+
+        @Override
+        public T handleResponse(HttpResponse httpResponse) throws IOException {
+            responseReceived = true;
+            statusCode = httpResponse.getStatusLine().getStatusCode();
+            boolean transientFailure = retryableStatusCodes.contains(statusCode) || statusCode >= 500;
+            if (breaker != null) {
+                if (transientFailure) {
+                    breaker.onFailure();
+                } else {
+                    breaker.onSuccess();
+                }
+            }
+            if (transientFailure && retryableStatusCodes.contains(statusCode) && !lastAttempt) {
+                throw new TransientStatusException(statusCode, parseRetryAfterMillis(httpResponse));
+            }
+            return delegate.handleResponse(httpResponse);
+        }
+
+        /**
+         * Retry-After is either a number of seconds or an HTTP date.
+         */
+        private static long parseRetryAfterMillis(HttpResponse httpResponse) {
+            Header header = httpResponse.getFirstHeader(HttpHeaders.RETRY_AFTER);
+            if (header == null) {
+                return 0;
+            }
+            String value = header.getValue().trim();
+            try {
+                return TimeUnit.SECONDS.toMillis(Long.parseLong(value));
+            } catch (NumberFormatException e) {
+                Date date = DateUtils.parseDate(value);
+                return date == null ? 0 : Math.max(0, date.getTime() - System.currentTimeMillis());
+            }
+        }
+    }
+
+    private static class TransientStatusException extends IOException {
+        final int statusCode;
+        final long retryAfterMillis;
+
+        TransientStatusException(int statusCode, long retryAfterMillis) {
+            super("Transient error status " + statusCode);
+            this.statusCode = statusCode;
+            this.retryAfterMillis = retryAfterMillis;
+        }
+    }
+
     /**
      * Template for API URI, e.g. "/browsersessions/${browserSessionId}"
+     * <p>
+     * The template is compiled into literal and parameter segments when it is created, so that building a URI is a
+     * single pass appending (and percent-encoding) the segments into a reused buffer.
      */
     protected static class UriTemplate {
+        private final static String PARAM_PROLOGUE = "${";
+        private final static String PARAM_EPILOGUE = "}";
+
+        private final static ThreadLocal<StringBuilder> BUFFER = new ThreadLocal<StringBuilder>() {
+            @Override
+            protected StringBuilder initialValue() {
+                return new StringBuilder(256);
+            }
+        };
+
         public final Optional<String> name;
         public final String schema;
         public final Map<String, String> templateParams;
 
+        private final Segments path;
+        private final Segments[] queryKeys;
+        private final Segments[] queryValues;
+
+        private volatile BasePrefix basePrefix;
+
+        private boolean idempotent = false;
+        private boolean coalescable = false;
+        private long cacheTtlMillis = -1;
+
         public UriTemplate(String name, String schema, Map<String, String> templateParams) {
             this.name = Optional.fromNullable(name);
             this.schema = schema;
             this.templateParams = templateParams;
+
+            this.path = Segments.compile(schema);
+            this.queryKeys = new Segments[templateParams.size()];
+            this.queryValues = new Segments[templateParams.size()];
+            int i = 0;
+            for (Map.Entry<String, String> param : templateParams.entrySet()) {
+                queryKeys[i] = Segments.compile(param.getKey());
+                queryValues[i] = Segments.compile(param.getValue());
+                i++;
+            }
         }
 
         public UriTemplate(String schema, Map<String, String> templateParams) {
-            this.name = Optional.absent();
-            this.schema = schema;
-            this.templateParams = templateParams;
+            this(null, schema, templateParams);
         }
 
         public UriTemplate(String schema) {
@@ -392,97 +748,234 @@ public class WebmateApiClient {
             this(name, schema, new HashMap<String, String>());
         }
 
-        private static String replaceParamsInTemplate(String template, Map<String, String> params) {
-            final String paramPrologue = "${";
-            final String paramEpilogue = "}";
+        /**
+         * Mark the endpoint as idempotent, i.e. calling it more than once has the same effect as calling it once.
+         * Requests to idempotent endpoints are retried on transient errors, even if they are POSTs.
+         */
+        public UriTemplate idempotent() {
+            this.idempotent = true;
+            return this;
+        }
 
-            for (String paramKey : params.keySet()) {
-                template = template.replace(paramPrologue + paramKey + paramEpilogue, params.get(paramKey));
-            }
+        public boolean isIdempotent() {
+            return idempotent;
+        }
 
-            if (template.contains(paramPrologue)) { // there should be no parameters left
-                final String errorMsg = "At least one parameter of [" + params.keySet() + "] could not be matched in schema " + template;
-                LOG.error(errorMsg);
-                throw new WebmateApiClientException(errorMsg);
+        /**
+         * Allow concurrent identical GETs to this endpoint to be coalesced into one request (if enabled in the
+         * {@link ResilienceConfig}). Only suitable for endpoints whose result is always parsed into the same type.
+         */
+        public UriTemplate coalescable() {
+            this.coalescable = true;
+            return this;
+        }
+
+        public boolean isCoalescable() {
+            return coalescable;
+        }
+
+        /**
+         * Allow responses of this endpoint to be cached for the given time. After that time, the cached response
+         * is revalidated with the server (if it had an ETag or Last-Modified header) or fetched again. Only
+         * suitable for endpoints whose result is always parsed into the same type and not modified by callers.
+         */
+        public UriTemplate cacheable(long ttlMillis) {
+            if (ttlMillis < 0) {
+                throw new IllegalArgumentException("ttlMillis must not be negative, but was " + ttlMillis);
             }
-            return template;
+            this.cacheTtlMillis = ttlMillis;
+            return this;
+        }
+
+        public boolean isCacheable() {
+            return cacheTtlMillis >= 0;
+        }
+
+        public long getCacheTtlMillis() {
+            return cacheTtlMillis;
+        }
+
+        /**
+         * Name of the endpoint, used e.g. for logging and circuit breakers. Falls back to the schema if the template
+         * has no name.
+         */
+        public String endpointName() {
+            return name.isPresent() ? name.get() : schema;
         }
 
         URI buildUri(URI baseUri, Map<String, String> params) {
-            String schemaAfterReplacements = replaceParamsInTemplate(schema, params);
+            return expand(baseUri, params, null, null);
+        }
 
-            URIBuilder builder = new URIBuilder();
-            builder.setScheme(baseUri.getScheme());
-            builder.setHost(baseUri.getHost());
-            builder.setPort(baseUri.getPort());
-            String path = baseUri.normalize().getPath() + schemaAfterReplacements;
-            builder.setPath(path.replaceAll("//", "/")); // Replace double slashes
+        URI buildUri(URI baseUri, Map<String, String> params, String query) {
+            return expand(baseUri, params, query, null);
+        }
 
-            for (String templateParamKey : templateParams.keySet()) {
-                String templateParamKeyAfterReplacements = replaceParamsInTemplate(templateParamKey, params);
-                String templateParamValueAfterReplacements = replaceParamsInTemplate(templateParams.get(templateParamKey), params);
-                builder.setParameter(templateParamKeyAfterReplacements, templateParamValueAfterReplacements);
+        URI buildUri(URI baseUri, Map<String, String> params, List<NameValuePair> queryParams) {
+            return expand(baseUri, params, null, queryParams);
+        }
+
+        private URI expand(URI baseUri, Map<String, String> params, String query, List<NameValuePair> queryParams) {
+            StringBuilder sb = BUFFER.get();
+            sb.setLength(0);
+            sb.append(basePrefix(baseUri));
+            path.appendPathTo(sb, params, this);
+
+            char separator = '?';
+            if (query != null) {
+                sb.append(separator);
+                UriEncoder.appendQuery(sb, query);
+                separator = '&';
+            }
+            if (queryParams != null) {
+                for (NameValuePair pair : queryParams) {
+                    if (!isOverriddenByTemplate(pair.getName(), params)) {
+                        sb.append(separator);
+                        appendFormPair(sb, pair.getName(), pair.getValue());
+                        separator = '&';
+                    }
+                }
+            }
+            for (int i = 0; i < queryKeys.length; i++) {
+                sb.append(separator);
+                appendFormPair(sb, queryKeys[i].expand(params, this), queryValues[i].expand(params, this));
+                separator = '&';
             }
 
-            URI result;
             try {
-                result = builder.build();
+                return new URI(sb.toString());
             } catch (URISyntaxException e) {
                 throw new WebmateApiClientException("Could not build valid API URL", e);
             }
-            return result;
         }
 
-        URI buildUri(URI baseUri, Map<String, String> params, String query) {
-            String schemaAfterReplacements = replaceParamsInTemplate(schema, params);
+        private boolean isOverriddenByTemplate(String queryParamName, Map<String, String> params) {
+            for (Segments key : queryKeys) {
+                if (key.expand(params, this).equals(queryParamName)) {
+                    return true;
+                }
+            }
+            return false;
+        }
 
-            URIBuilder builder = new URIBuilder();
-            builder.setScheme(baseUri.getScheme());
-            builder.setCustomQuery(query);
-            builder.setHost(baseUri.getHost());
-            builder.setPort(baseUri.getPort());
-            String path = baseUri.normalize().getPath() + schemaAfterReplacements;
-            builder.setPath(path.replaceAll("//", "/")); // Replace double slashes
+        private static void appendFormPair(StringBuilder sb, String key, String value) {
+            UriEncoder.appendFormField(sb, key);
+            if (value != null) {
+                sb.append('=');
+                UriEncoder.appendFormField(sb, value);
+            }
+        }
 
-            for (String templateParamKey : templateParams.keySet()) {
-                String templateParamKeyAfterReplacements = replaceParamsInTemplate(templateParamKey, params);
-                String templateParamValueAfterReplacements = replaceParamsInTemplate(templateParams.get(templateParamKey), params);
-                builder.setParameter(templateParamKeyAfterReplacements, templateParamValueAfterReplacements);
+        /**
+         * Scheme, authority and (encoded) path of the base URI. Cached, as the base URI of a client never changes.
+         */
+        private String basePrefix(URI baseUri) {
+            BasePrefix cached = basePrefix;
+            if (cached != null && cached.baseUri.equals(baseUri)) {
+                return cached.prefix;
+            }
+            StringBuilder sb = new StringBuilder();
+            sb.append(baseUri.getScheme()).append("://").append(baseUri.getHost());
+            if (baseUri.getPort() >= 0) {
+                sb.append(':').append(baseUri.getPort());
+            }
+            String basePath = baseUri.normalize().getPath();
+            if (basePath == null || !basePath.startsWith("/")) {
+                sb.append('/');
             }
+            if (basePath != null) {
+                UriEncoder.appendPath(sb, basePath);
+            }
+            basePrefix = new BasePrefix(baseUri, sb.toString());
+            return basePrefix.prefix;
+        }
 
-            URI result;
-            try {
-                result = builder.build();
-            } catch (URISyntaxException e) {
-                throw new WebmateApiClientException("Could not build valid API URL", e);
+        private WebmateApiClientException missingParameter(Map<String, String> params) {
+            final String errorMsg = "At least one parameter of [" + params.keySet() + "] could not be matched in schema " + schema;
+            LOG.error(errorMsg);
+            return new WebmateApiClientException(errorMsg);
+        }
+
+        private static class BasePrefix {
+            final URI baseUri;
+            final String prefix;
+
+            BasePrefix(URI baseUri, String prefix) {
+                this.baseUri = baseUri;
+                this.prefix = prefix;
             }
-            return result;
         }
 
-        URI buildUri(URI baseUri, Map<String, String> params, List<NameValuePair> queryParams) {
-            String schemaAfterReplacements = replaceParamsInTemplate(schema, params);
+        /**
+         * A template string split into literals and parameter names, e.g. "/projects/${projectId}/blobs" is
+         * ["/projects/", projectId, "/blobs"].
+         */
+        private static class Segments {
+            private final String[] parts;
+            private final boolean[] isParam;
+
+            private Segments(String[] parts, boolean[] isParam) {
+                this.parts = parts;
+                this.isParam = isParam;
+            }
 
-            URIBuilder builder = new URIBuilder();
-            builder.setScheme(baseUri.getScheme());
-            builder.addParameters(queryParams);
-            builder.setHost(baseUri.getHost());
-            builder.setPort(baseUri.getPort());
-            String path = baseUri.normalize().getPath() + schemaAfterReplacements;
-            builder.setPath(path.replaceAll("//", "/")); // Replace double slashes
+            static Segments compile(String template) {
+                List<String> parts = new ArrayList<>();
+                List<Boolean> isParam = new ArrayList<>();
+                int pos = 0;
+                while (pos < template.length()) {
+                    int start = template.indexOf(PARAM_PROLOGUE, pos);
+                    int end = start < 0 ? -1 : template.indexOf(PARAM_EPILOGUE, start);
+                    if (start < 0 || end < 0) {
+                        parts.add(template.substring(pos));
+                        isParam.add(false);
+                        break;
+                    }
+                    if (start > pos) {
+                        parts.add(template.substring(pos, start));
+                        isParam.add(false);
+                    }
+                    parts.add(template.substring(start + PARAM_PROLOGUE.length(), end));
+                    isParam.add(true);
+                    pos = end + PARAM_EPILOGUE.length();
+                }
+                boolean[] paramFlags = new boolean[isParam.size()];
+                for (int i = 0; i < paramFlags.length; i++) {
+                    paramFlags[i] = isParam.get(i);
+                }
+                return new Segments(parts.toArray(new String[0]), paramFlags);
+            }
 
-            for (String templateParamKey : templateParams.keySet()) {
-                String templateParamKeyAfterReplacements = replaceParamsInTemplate(templateParamKey, params);
-                String templateParamValueAfterReplacements = replaceParamsInTemplate(templateParams.get(templateParamKey), params);
-                builder.setParameter(templateParamKeyAfterReplacements, templateParamValueAfterReplacements);
+            private String valueOf(int i, Map<String, String> params, UriTemplate template) {
+                if (!isParam[i]) {
+                    if (parts[i].contains(PARAM_PROLOGUE)) { // unterminated parameter
+                        throw template.missingParameter(params);
+                    }
+                    return parts[i];
+                }
+                String value = params.get(parts[i]);
+                if (value == null) {
+                    throw template.missingParameter(params);
+                }
+                return value;
             }
 
-            URI result;
-            try {
-                result = builder.build();
-            } catch (URISyntaxException e) {
-                throw new WebmateApiClientException("Could not build valid API URL", e);
+            void appendPathTo(StringBuilder sb, Map<String, String> params, UriTemplate template) {
+                for (int i = 0; i < parts.length; i++) {
+                    UriEncoder.appendPath(sb, valueOf(i, params, template));
+                }
+            }
+
+            String expand(Map<String, String> params, UriTemplate template) {
+                if (parts.length == 1) {
+                    return valueOf(0, params, template);
+                }
+                StringBuilder sb = new StringBuilder();
+                for (int i = 0; i < parts.length; i++) {
+                    sb.append(valueOf(i, params, template));
+                }
+                return sb.toString();
             }
-            return result;
         }
     }
 
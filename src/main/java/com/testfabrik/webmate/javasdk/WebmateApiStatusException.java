@@ -0,0 +1,29 @@
+package com.testfabrik.webmate.javasdk;
+
+/**
+ * webmate API answered a request with an error status code.
+ */
+public class WebmateApiStatusException extends WebmateApiClientException {
+
+    private final int statusCode;
+
+    public WebmateApiStatusException(String errorMsg, int statusCode) {
+        super(errorMsg);
+        this.statusCode = statusCode;
+    }
+
+    /**
+     * HTTP status code of the response, e.g. 404.
+     */
+    public int getStatusCode() {
+        return statusCode;
+    }
+
+    /**
+     * @return true if the request has been rejected because of the request itself (4xx), e.g. because the
+     * addressed resource does not exist, rather than because of a temporary problem like a timeout or rate limit.
+     */
+    public boolean isClientError() {
+        return statusCode >= 400 && statusCode < 500 && statusCode != 408 && statusCode != 429;
+    }
+}
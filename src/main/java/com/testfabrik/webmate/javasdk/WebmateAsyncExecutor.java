@@ -0,0 +1,173 @@
+package com.testfabrik.webmate.javasdk;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Executor for asynchronous calls of a {@link WebmateAPISession}: an asynchronous facade over the SDK's blocking
+ * calls, not a non-blocking HTTP client. Each call occupies a worker thread (and a pooled connection) while it runs,
+ * but the caller does not wait for it. At most maxConcurrency calls are running at the same time, up to
+ * maxQueuedCalls further calls are queued, and calls beyond that are rejected, so that a runaway producer fails
+ * fast instead of piling up memory. The worker threads are daemon threads and are stopped when idle.
+ */
+public class WebmateAsyncExecutor implements Executor, Closeable {
+
+    private final static Logger LOG = LoggerFactory.getLogger(WebmateAsyncExecutor.class);
+
+    private final static long IDLE_TIMEOUT_SECONDS = 30;
+    private final static long CLOSE_TIMEOUT_SECONDS = 30;
+
+    public final static int DEFAULT_MAX_QUEUED_CALLS = 10_000;
+
+    private final int maxConcurrency;
+    private final int maxQueuedCalls;
+    private final ThreadPoolExecutor executor;
+
+    /**
+     * @param maxConcurrency maximum number of calls running in parallel. Should not exceed the number of
+     *                       connections per route of the session's connection pool.
+     */
+    public WebmateAsyncExecutor(int maxConcurrency) {
+        this(maxConcurrency, DEFAULT_MAX_QUEUED_CALLS);
+    }
+
+    /**
+     * @param maxConcurrency maximum number of calls running in parallel. Should not exceed the number of
+     *                       connections per route of the session's connection pool.
+     * @param maxQueuedCalls maximum number of calls waiting to be run; further calls are rejected.
+     */
+    public WebmateAsyncExecutor(int maxConcurrency, int maxQueuedCalls) {
+        if (maxConcurrency < 1) {
+            throw new IllegalArgumentException("maxConcurrency must be positive, but was " + maxConcurrency);
+        }
+        if (maxQueuedCalls < 1) {
+            throw new IllegalArgumentException("maxQueuedCalls must be positive, but was " + maxQueuedCalls);
+        }
+        this.maxConcurrency = maxConcurrency;
+        this.maxQueuedCalls = maxQueuedCalls;
+        this.executor = new ThreadPoolExecutor(maxConcurrency, maxConcurrency, IDLE_TIMEOUT_SECONDS, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<Runnable>(maxQueuedCalls), new DaemonThreadFactory());
+        this.executor.allowCoreThreadTimeOut(true);
+    }
+
+    public int getMaxConcurrency() {
+        return maxConcurrency;
+    }
+
+    public int getMaxQueuedCalls() {
+        return maxQueuedCalls;
+    }
+
+    /**
+     * Number of calls that have been submitted but not yet started.
+     */
+    public int getQueuedCalls() {
+        return executor.getQueue().size();
+    }
+
+    /**
+     * Run the given call asynchronously. If the executor has been closed or too many calls are queued, the returned
+     * future fails with a {@link WebmateApiClientException}.
+     */
+    public <T> CompletableFuture<T> supplyAsync(Supplier<T> call) {
+        CallTask<T> task = new CallTask<>(call);
+        try {
+            executor.execute(task);
+        } catch (RejectedExecutionException e) {
+            task.result.completeExceptionally(new WebmateApiClientException(executor.isShutdown() ?
+                    "webmate async executor has been closed" :
+                    "webmate async executor is overloaded, " + maxQueuedCalls + " calls are queued already", e));
+        }
+        return task.result;
+    }
+
+    /**
+     * Run the given call asynchronously.
+     */
+    public CompletableFuture<Void> runAsync(Runnable call) {
+        return supplyAsync(() -> {
+            call.run();
+            return null;
+        });
+    }
+
+    /**
+     * Run the given task asynchronously, without a future.
+     *
+     * @throws RejectedExecutionException if the executor has been closed or too many calls are queued.
+     */
+    @Override
+    public void execute(Runnable task) {
+        executor.execute(task);
+    }
+
+    /**
+     * Stop accepting new calls and wait (for a bounded time) until the calls already submitted are finished.
+     * Calls that could not be finished in time are interrupted or failed.
+     */
+    @Override
+    public void close() {
+        LOG.debug("Shutting down webmate async executor");
+        executor.shutdown();
+        try {
+            if (executor.awaitTermination(CLOSE_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+                return;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        List<Runnable> dropped = executor.shutdownNow();
+        LOG.warn("webmate async executor did not finish in time, dropping " + dropped.size() + " queued calls");
+        for (Runnable r : dropped) {
+            if (r instanceof CallTask) {
+                ((CallTask<?>) r).result.completeExceptionally(
+                        new WebmateApiClientException("Call was dropped because the webmate async executor has been closed"));
+            }
+        }
+    }
+
+    private static class CallTask<T> implements Runnable {
+        private final Supplier<T> call;
+        private final CompletableFuture<T> result = new CompletableFuture<>();
+
+        CallTask(Supplier<T> call) {
+            this.call = call;
+        }
+
+        @Override
+        public void run() {
+            if (result.isDone()) {
+                // cancelled by the caller before it was started
+                return;
+            }
+            try {
+                result.complete(call.get());
+            } catch (Throwable t) {
+                result.completeExceptionally(t);
+            }
+        }
+    }
+
+    private static class DaemonThreadFactory implements ThreadFactory {
+        private final AtomicInteger counter = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable r) {
+            Thread thread = new Thread(r, "webmate-async-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
@@ -0,0 +1,305 @@
+package com.testfabrik.webmate.javasdk;
+
+import com.google.common.base.Optional;
+import com.testfabrik.webmate.javasdk.commonutils.AdaptiveConcurrencyLimiter;
+import com.testfabrik.webmate.javasdk.commonutils.CircuitBreaker;
+import com.testfabrik.webmate.javasdk.commonutils.SingleFlight;
+import org.apache.http.Header;
+import org.apache.http.HttpHeaders;
+import org.apache.http.HttpRequestInterceptor;
+import org.apache.http.client.HttpClient;
+import org.apache.http.conn.ConnectionKeepAliveStrategy;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.DefaultConnectionKeepAliveStrategy;
+import org.apache.http.impl.client.HttpClientBuilder;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.apache.http.message.BasicHeader;
+import org.apache.http.pool.PoolStats;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * HTTP transport for the webmate API. A transport owns a single pooled connection manager and is meant to be shared
+ * by all subsystem clients of a {@link WebmateAPISession}, so that connections (and TLS sessions) are reused across
+ * subsystems.
+ */
+public class WebmateHttpTransport implements Closeable {
+
+    private final static Logger LOG = LoggerFactory.getLogger(WebmateHttpTransport.class);
+
+    private final static String WEBMATE_JAVASDK_USERAGENT = "webmate-javasdk";
+    private final static String WEBMATE_USER_HEADERKEY = "webmate.user";
+    private final static String WEBMATE_APITOKEN_HEADERKEY = "webmate.api-token";
+    private final static String DEFAULT_CONTENT_TYPE = "application/json";
+
+    public final WebmateAuthInfo authInfo;
+    public final WebmateEnvironment environment;
+
+    private final ConnectionPoolConfig poolConfig;
+    private final ResilienceConfig resilienceConfig;
+    private final ConcurrentMap<String, CircuitBreaker> circuitBreakers = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, AdaptiveConcurrencyLimiter> concurrencyLimiters = new ConcurrentHashMap<>();
+    private final AdaptiveConcurrencyLimiter totalConcurrencyLimiter;
+    private final SingleFlight<String, Object> singleFlight = new SingleFlight<>();
+    private volatile Optional<ResponseCache> responseCache = Optional.<ResponseCache>of(new InMemoryResponseCache());
+    private final HttpClientBuilder httpClientBuilder;
+
+    /** Pool and client are created on the first request, as building them (e.g. the TLS context) is expensive. */
+    private PoolingHttpClientConnectionManager connectionManager;
+    private volatile CloseableHttpClient httpClient;
+    private boolean closed = false;
+
+    /**
+     * Create a transport with default HTTP connection strategy and pool configuration.
+     *
+     * @param authInfo webmate authentication information
+     * @param environment webmate environment to be used.
+     */
+    public WebmateHttpTransport(WebmateAuthInfo authInfo, WebmateEnvironment environment) {
+        this(authInfo, environment, HttpClientBuilder.create());
+    }
+
+    /**
+     * Create a transport with a custom client builder, e.g. to configure a proxy.
+     *
+     * @param authInfo webmate authentication information
+     * @param environment webmate environment to be used.
+     * @param httpClientBuilder Client builder used to create HTTP connections. Its connection manager is replaced
+     *                          by the pool of this transport.
+     */
+    public WebmateHttpTransport(WebmateAuthInfo authInfo, WebmateEnvironment environment, HttpClientBuilder httpClientBuilder) {
+        this(authInfo, environment, httpClientBuilder, ConnectionPoolConfig.defaults());
+    }
+
+    /**
+     * Create a transport with a custom client builder and pool configuration.
+     *
+     * @param authInfo webmate authentication information
+     * @param environment webmate environment to be used.
+     * @param httpClientBuilder Client builder used to create HTTP connections. Its connection manager is replaced
+     *                          by the pool of this transport.
+     * @param poolConfig configuration of the connection pool.
+     */
+    public WebmateHttpTransport(WebmateAuthInfo authInfo, WebmateEnvironment environment, HttpClientBuilder httpClientBuilder,
+                                ConnectionPoolConfig poolConfig) {
+        this(authInfo, environment, httpClientBuilder, poolConfig, ResilienceConfig.defaults());
+    }
+
+    /**
+     * Create a transport with a custom client builder, pool configuration and retry / circuit breaker configuration.
+     *
+     * @param authInfo webmate authentication information
+     * @param environment webmate environment to be used.
+     * @param httpClientBuilder Client builder used to create HTTP connections. Its connection manager is replaced
+     *                          by the pool of this transport. The client is built when the first request is made,
+     *                          so the builder must not be modified afterwards. The builder should not be shared:
+     *                          building is synchronized on it, but the transport's settings (pool, default headers,
+     *                          interceptor) stay in the builder and apply to everything built from it later.
+     * @param poolConfig configuration of the connection pool.
+     * @param resilienceConfig configuration of retries and circuit breakers.
+     */
+    public WebmateHttpTransport(WebmateAuthInfo authInfo, WebmateEnvironment environment, HttpClientBuilder httpClientBuilder,
+                                ConnectionPoolConfig poolConfig, ResilienceConfig resilienceConfig) {
+        this.authInfo = authInfo;
+        this.environment = environment;
+        this.poolConfig = poolConfig;
+        this.resilienceConfig = resilienceConfig;
+        this.totalConcurrencyLimiter = new AdaptiveConcurrencyLimiter("total", resilienceConfig.getTotalConcurrencyLimit(),
+                1, resilienceConfig.getTotalMaxConcurrencyLimit(), resilienceConfig.getConcurrencyLatencyThresholdMillis());
+
+        this.httpClientBuilder = httpClientBuilder;
+        LOG.debug("Created webmate HTTP transport for " + environment.baseURI + " with " + poolConfig + " and " + resilienceConfig);
+    }
+
+    private static CloseableHttpClient makeHttpClient(WebmateAuthInfo authInfo, HttpClientBuilder httpClientBuilder,
+                                                      PoolingHttpClientConnectionManager connectionManager,
+                                                      ConnectionPoolConfig poolConfig) {
+        List<Header> headers = new ArrayList<>();
+        headers.add(new BasicHeader(WEBMATE_USER_HEADERKEY, authInfo.emailAddress));
+        headers.add(new BasicHeader(WEBMATE_APITOKEN_HEADERKEY, authInfo.apiKey));
+
+        final long keepAliveMillis = poolConfig.getKeepAliveMillis();
+        ConnectionKeepAliveStrategy keepAliveStrategy = (response, context) -> {
+            long serverKeepAlive = DefaultConnectionKeepAliveStrategy.INSTANCE.getKeepAliveDuration(response, context);
+            return serverKeepAlive > 0 ? serverKeepAlive : keepAliveMillis;
+        };
+
+        // Default headers cannot be overridden per request, so the content type is only added
+        // if the request does not specify one on its own (e.g. for binary uploads).
+        HttpRequestInterceptor defaultContentType = (request, context) -> {
+            if (!request.containsHeader(HttpHeaders.CONTENT_TYPE)) {
+                request.addHeader(HttpHeaders.CONTENT_TYPE, DEFAULT_CONTENT_TYPE);
+            }
+        };
+
+        // The builder may have been passed to several transports (e.g. to a session and to a subsystem client), so
+        // configuring and building must not interleave with another transport doing the same.
+        synchronized (httpClientBuilder) {
+            httpClientBuilder.setUserAgent(WEBMATE_JAVASDK_USERAGENT);
+            httpClientBuilder.setDefaultHeaders(headers);
+            httpClientBuilder.addInterceptorFirst(defaultContentType);
+            httpClientBuilder.setConnectionManager(connectionManager);
+            httpClientBuilder.setKeepAliveStrategy(keepAliveStrategy);
+            if (poolConfig.getMaxIdleMillis() > 0) {
+                httpClientBuilder.evictExpiredConnections();
+                httpClientBuilder.evictIdleConnections(poolConfig.getMaxIdleMillis(), TimeUnit.MILLISECONDS);
+            }
+            return httpClientBuilder.build();
+        }
+    }
+
+    /**
+     * Returns the pooled HttpClient of this transport, creating it on first use.
+     */
+    HttpClient getHttpClient() {
+        CloseableHttpClient client = this.httpClient;
+        if (client == null) {
+            synchronized (this) {
+                if (closed) {
+                    throw new WebmateApiClientException("webmate HTTP transport for " + environment.baseURI + " has been closed");
+                }
+                client = this.httpClient;
+                if (client == null) {
+                    connectionManager = new PoolingHttpClientConnectionManager();
+                    connectionManager.setMaxTotal(poolConfig.getMaxTotal());
+                    connectionManager.setDefaultMaxPerRoute(poolConfig.getMaxPerRoute());
+                    client = makeHttpClient(authInfo, httpClientBuilder, connectionManager, poolConfig);
+                    this.httpClient = client;
+                }
+            }
+        }
+        return client;
+    }
+
+    public ConnectionPoolConfig getPoolConfig() {
+        return poolConfig;
+    }
+
+    public ResilienceConfig getResilienceConfig() {
+        return resilienceConfig;
+    }
+
+    /**
+     * Circuit breaker of the given endpoint (name of the endpoint's UriTemplate), created on first use.
+     */
+    CircuitBreaker getCircuitBreaker(String endpoint) {
+        CircuitBreaker breaker = circuitBreakers.get(endpoint);
+        if (breaker == null) {
+            CircuitBreaker created = new CircuitBreaker(endpoint, resilienceConfig.getCircuitBreakerFailureThreshold(),
+                    resilienceConfig.getCircuitBreakerOpenMillis());
+            breaker = circuitBreakers.putIfAbsent(endpoint, created);
+            if (breaker == null) {
+                breaker = created;
+            }
+        }
+        return breaker;
+    }
+
+    /**
+     * State of the circuit breakers of all endpoints that have been called so far.
+     */
+    public Map<String, CircuitBreaker.State> getCircuitBreakerStates() {
+        Map<String, CircuitBreaker.State> states = new TreeMap<>();
+        for (CircuitBreaker breaker : circuitBreakers.values()) {
+            states.put(breaker.getName(), breaker.getState());
+        }
+        return states;
+    }
+
+    /**
+     * Concurrency limiter of the given endpoint, created on first use.
+     */
+    AdaptiveConcurrencyLimiter getConcurrencyLimiter(String endpoint) {
+        AdaptiveConcurrencyLimiter limiter = concurrencyLimiters.get(endpoint);
+        if (limiter == null) {
+            AdaptiveConcurrencyLimiter created = new AdaptiveConcurrencyLimiter(endpoint,
+                    resilienceConfig.getEndpointConcurrencyLimit(), 1, resilienceConfig.getEndpointMaxConcurrencyLimit(),
+                    resilienceConfig.getConcurrencyLatencyThresholdMillis());
+            limiter = concurrencyLimiters.putIfAbsent(endpoint, created);
+            if (limiter == null) {
+                limiter = created;
+            }
+        }
+        return limiter;
+    }
+
+    /**
+     * Concurrency limiter for all calls of this transport.
+     */
+    AdaptiveConcurrencyLimiter getTotalConcurrencyLimiter() {
+        return totalConcurrencyLimiter;
+    }
+
+    /**
+     * Current adaptive concurrency limit of all endpoints that have been called so far.
+     */
+    public Map<String, Integer> getConcurrencyLimits() {
+        Map<String, Integer> limits = new TreeMap<>();
+        for (AdaptiveConcurrencyLimiter limiter : concurrencyLimiters.values()) {
+            limits.put(limiter.getName(), limiter.getLimit());
+        }
+        return limits;
+    }
+
+    /**
+     * Current adaptive concurrency limit of all calls of this transport together.
+     */
+    public int getTotalConcurrencyLimit() {
+        return totalConcurrencyLimiter.getLimit();
+    }
+
+    /**
+     * Coalesces concurrent identical GETs, keyed by URI.
+     */
+    SingleFlight<String, Object> getSingleFlight() {
+        return singleFlight;
+    }
+
+    /**
+     * Cache for responses of cacheable endpoints (e.g. packages, artifacts, test templates). By default, an
+     * {@link InMemoryResponseCache} with {@value InMemoryResponseCache#DEFAULT_MAX_ENTRIES} entries is used.
+     */
+    public Optional<ResponseCache> getResponseCache() {
+        return responseCache;
+    }
+
+    /**
+     * Replace the response cache, e.g. with a cache of different size or a shared cache. Passing null disables
+     * caching.
+     */
+    public void setResponseCache(ResponseCache responseCache) {
+        this.responseCache = Optional.fromNullable(responseCache);
+    }
+
+    /**
+     * Current statistics of the connection pool (leased, pending, available and max connections).
+     */
+    public synchronized PoolStats getPoolStats() {
+        if (connectionManager == null) {
+            return new PoolStats(0, 0, 0, poolConfig.getMaxTotal());
+        }
+        return connectionManager.getTotalStats();
+    }
+
+    /**
+     * Close all pooled connections. The transport cannot be used afterwards.
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        LOG.debug("Closing webmate HTTP transport for " + environment.baseURI);
+        closed = true;
+        if (httpClient != null) {
+            httpClient.close();
+        }
+    }
+}
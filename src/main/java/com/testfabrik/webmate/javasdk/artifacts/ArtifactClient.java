@@ -1,26 +1,24 @@
 package com.testfabrik.webmate.javasdk.artifacts;
 
-import com.fasterxml.jackson.databind.DeserializationFeature;
-import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
 import com.google.common.base.Optional;
+import com.google.common.base.Supplier;
+import com.google.common.base.Suppliers;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.Lists;
 import com.testfabrik.webmate.javasdk.*;
 import com.testfabrik.webmate.javasdk.browsersession.BrowserSessionId;
 import com.testfabrik.webmate.javasdk.testmgmt.*;
-import org.apache.commons.io.Charsets;
-import org.apache.http.HttpResponse;
 import org.apache.http.NameValuePair;
 import org.apache.http.impl.client.HttpClientBuilder;
 import org.apache.http.message.BasicNameValuePair;
-import org.apache.http.util.EntityUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.io.IOException;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Facade to webmate's Artifact subsystem.
@@ -28,7 +26,8 @@ import java.util.Set;
 public class ArtifactClient {
 
     private WebmateAPISession session;
-    private ArtifactApiClient apiClient;
+    /** Created on first use, so that unused subsystems of a session cost (almost) nothing. */
+    private final Supplier<ArtifactApiClient> apiClient;
 
     private static final Logger LOG = LoggerFactory.getLogger(ArtifactClient.class);
 
@@ -38,13 +37,17 @@ public class ArtifactClient {
                 new UriTemplate("/projects/${projectId}/artifacts");
 
         private final static UriTemplate getArtifactTemplate =
-                new UriTemplate("/artifact/artifacts/${artifactId}");
+                new UriTemplate("/artifact/artifacts/${artifactId}").cacheable(TimeUnit.MINUTES.toMillis(10));
 
 
         public ArtifactApiClient(WebmateAuthInfo authInfo, WebmateEnvironment environment) {
             super(authInfo, environment);
         }
 
+        public ArtifactApiClient(WebmateHttpTransport transport) {
+            super(transport);
+        }
+
         public ArtifactApiClient(WebmateAuthInfo authInfo, WebmateEnvironment environment, HttpClientBuilder clientBuilder) {
             super(authInfo, environment, clientBuilder);
         }
@@ -73,36 +76,14 @@ public class ArtifactClient {
                 }
                 params.add(new BasicNameValuePair("types", typesParam.toString()));
             }
-            Optional<HttpResponse> optHttpResponse = sendGET(queryArtifactsTemplate, ImmutableMap.of("projectId", id.toString()), params).getOptHttpResponse();
-            if (!optHttpResponse.isPresent()) {
-                return Optional.absent();
-            }
-
-            ArtifactInfo[] artifactInfos;
-            try {
-                String testInfosJson = EntityUtils.toString(optHttpResponse.get().getEntity());
-                ObjectMapper mapper = JacksonMapper.getInstance();
-                mapper.disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES);
-                artifactInfos = mapper.readValue(testInfosJson, ArtifactInfo[].class);
-            } catch (IOException e) {
-                throw new WebmateApiClientException("Error reading data: " + e.getMessage(), e);
-            }
+            ObjectReader reader = JacksonMapper.readerFor(ArtifactInfo[].class);
+            ArtifactInfo[] artifactInfos = sendGETStreaming(queryArtifactsTemplate, ImmutableMap.of("projectId", id.toString()), params, reader);
             return Optional.of(Arrays.asList(artifactInfos));
         }
 
         public Optional<Artifact> getArtifact(ArtifactId id) {
-            Optional<HttpResponse> optHttpResponse = sendGET(getArtifactTemplate, ImmutableMap.of("artifactId", id.toString())).getOptHttpResponse();
-            if (!optHttpResponse.isPresent()) {
-                return Optional.absent();
-            }
-
-            Artifact artifact;
-            try {
-                String artifactJson = EntityUtils.toString(optHttpResponse.get().getEntity());
-                artifact = Artifact.fromJsonString(artifactJson);
-            } catch (IOException e) {
-                throw new WebmateApiClientException("Error reading Artifact data: " + e.getMessage(), e);
-            }
+            Artifact artifact = sendGETStreaming(getArtifactTemplate, ImmutableMap.of("artifactId", id.toString()),
+                    JacksonMapper.readerFor(Artifact.class));
             return Optional.fromNullable(artifact);
         }
     }
@@ -114,7 +95,7 @@ public class ArtifactClient {
      */
     public ArtifactClient(WebmateAPISession session) {
         this.session = session;
-        this.apiClient = new ArtifactApiClient(session.authInfo, session.environment);
+        this.apiClient = Suppliers.memoize(() -> new ArtifactApiClient(session.getTransport()));
     }
 
     /**
@@ -125,7 +106,7 @@ public class ArtifactClient {
      */
     public ArtifactClient(WebmateAPISession session, HttpClientBuilder httpClientBuilder) {
         this.session = session;
-        this.apiClient = new ArtifactApiClient(session.authInfo, session.environment, httpClientBuilder);
+        this.apiClient = Suppliers.memoize(() -> new ArtifactApiClient(session.authInfo, session.environment, httpClientBuilder));
     }
 
     /**
@@ -137,7 +118,7 @@ public class ArtifactClient {
      * @return artifactInfo list
      */
     public List<ArtifactInfo> queryArtifacts(ProjectId projectId, TestRunId associatedTestRun, Set<ArtifactType> types) {
-        return this.apiClient.queryArtifacts(projectId, associatedTestRun, null, types).get();
+        return this.apiClient.get().queryArtifacts(projectId, associatedTestRun, null, types).get();
     }
 
     /**
@@ -149,7 +130,7 @@ public class ArtifactClient {
      * @return artifactInfo list
      */
     public List<ArtifactInfo> queryArtifacts(ProjectId projectId, BrowserSessionId associatedBrowserSession, Set<ArtifactType> types) {
-        return this.apiClient.queryArtifacts(projectId,  null, associatedBrowserSession, types).get();
+        return this.apiClient.get().queryArtifacts(projectId,  null, associatedBrowserSession, types).get();
     }
 
     /**
@@ -162,7 +143,7 @@ public class ArtifactClient {
      * @return artifactInfo list
      */
     public List<ArtifactInfo> queryArtifacts(ProjectId projectId, TestRunId associatedTestRun, BrowserSessionId associatedBrowserSession, Set<ArtifactType> types) {
-        return this.apiClient.queryArtifacts(projectId, associatedTestRun, associatedBrowserSession, types).get();
+        return this.apiClient.get().queryArtifacts(projectId, associatedTestRun, associatedBrowserSession, types).get();
     }
 
     /**
@@ -172,6 +153,6 @@ public class ArtifactClient {
      * @return Artifact
      */
     public Optional<Artifact> getArtifact(ArtifactId id) {
-        return this.apiClient.getArtifact(id);
+        return this.apiClient.get().getArtifact(id);
     }
 }
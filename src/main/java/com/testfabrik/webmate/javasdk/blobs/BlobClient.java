@@ -1,14 +1,21 @@
 package com.testfabrik.webmate.javasdk.blobs;
 
 import com.google.common.base.Optional;
+import com.google.common.base.Supplier;
+import com.google.common.base.Suppliers;
 import com.google.common.collect.ImmutableMap;
 import com.testfabrik.webmate.javasdk.*;
+import com.testfabrik.webmate.javasdk.commonutils.UploadEntities;
+import org.apache.http.HttpEntity;
 import org.apache.http.HttpResponse;
 import org.apache.http.impl.client.HttpClientBuilder;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
 
 /**
  * Facade to webmate's Blob subsystem.
@@ -16,7 +23,8 @@ import java.io.IOException;
 public class BlobClient {
 
     private WebmateAPISession session;
-    private BlobApiClient apiClient;
+    /** Created on first use, so that unused subsystems of a session cost (almost) nothing. */
+    private final Supplier<BlobApiClient> apiClient;
 
     private static final Logger LOG = LoggerFactory.getLogger(BlobClient.class);
 
@@ -31,11 +39,15 @@ public class BlobClient {
             super(authInfo, environment);
         }
 
+        public BlobApiClient(WebmateHttpTransport transport) {
+            super(transport);
+        }
+
         public BlobApiClient(WebmateAuthInfo authInfo, WebmateEnvironment environment, HttpClientBuilder httpClientBuilder) {
             super(authInfo, environment, httpClientBuilder);
         }
 
-        public BlobId putBlob(ProjectId projectId, byte[] uploadingBlob, Optional<String> contentType) {
+        public BlobId putBlob(ProjectId projectId, HttpEntity uploadingBlob, Optional<String> contentType) {
             Optional<HttpResponse> r = sendPOST(putBlobTemplate, ImmutableMap.of("projectId", projectId.toString()), uploadingBlob, contentType).getOptHttpResponse();
 
             if (!r.isPresent()) {
@@ -60,7 +72,7 @@ public class BlobClient {
      */
     public BlobClient(WebmateAPISession session) {
         this.session = session;
-        this.apiClient = new BlobApiClient(session.authInfo, session.environment);
+        this.apiClient = Suppliers.memoize(() -> new BlobApiClient(session.getTransport()));
     }
 
     /**
@@ -71,7 +83,7 @@ public class BlobClient {
      */
     public BlobClient(WebmateAPISession session, HttpClientBuilder httpClientBuilder) {
         this.session = session;
-        this.apiClient = new BlobApiClient(session.authInfo, session.environment, httpClientBuilder);
+        this.apiClient = Suppliers.memoize(() -> new BlobApiClient(session.authInfo, session.environment, httpClientBuilder));
     }
 
     /**
@@ -82,7 +94,41 @@ public class BlobClient {
      * @return BlobId of the uploaded blob
      */
     public BlobId putBlob(ProjectId projectId, byte[] blob, Optional<String> contentType) {
-        return this.apiClient.putBlob(projectId, blob, contentType);
+        return this.apiClient.get().putBlob(projectId, UploadEntities.fromBytes(blob, contentType), contentType);
+    }
+
+    /**
+     * Uploads a file as blob to webmate. The file is streamed and not loaded into memory.
+     *
+     * @param projectId ProjectId of device. Can be found in "Details" dialog of an item in webmate project overview.
+     * @param blob Path of the file that should be uploaded to webmate
+     * @return BlobId of the uploaded blob
+     */
+    public BlobId putBlob(ProjectId projectId, Path blob, Optional<String> contentType) {
+        return this.apiClient.get().putBlob(projectId, UploadEntities.fromPath(blob, contentType), contentType);
+    }
+
+    /**
+     * Uploads the content of a file channel, from its current position to the end, as blob to webmate.
+     *
+     * @param projectId ProjectId of device. Can be found in "Details" dialog of an item in webmate project overview.
+     * @param blob the channel to read from. It is not closed after the upload.
+     * @return BlobId of the uploaded blob
+     */
+    public BlobId putBlob(ProjectId projectId, FileChannel blob, Optional<String> contentType) {
+        return this.apiClient.get().putBlob(projectId, UploadEntities.fromChannel(blob, contentType), contentType);
+    }
+
+    /**
+     * Uploads the content of a stream as blob to webmate. The stream is closed after the upload.
+     *
+     * @param projectId ProjectId of device. Can be found in "Details" dialog of an item in webmate project overview.
+     * @param blob the stream to read from
+     * @param length number of bytes in the stream, or -1 if unknown
+     * @return BlobId of the uploaded blob
+     */
+    public BlobId putBlob(ProjectId projectId, InputStream blob, long length, Optional<String> contentType) {
+        return this.apiClient.get().putBlob(projectId, UploadEntities.fromStream(blob, length, contentType), contentType);
     }
 
     /**
@@ -91,7 +137,7 @@ public class BlobClient {
      * @param blobId The Id of the Blob
      */
     public void deleteBlob(BlobId blobId) {
-        this.apiClient.deleteBlob(blobId);
+        this.apiClient.get().deleteBlob(blobId);
     }
 
 }
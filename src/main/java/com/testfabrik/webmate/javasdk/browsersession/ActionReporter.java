@@ -0,0 +1,266 @@
+package com.testfabrik.webmate.javasdk.browsersession;
+
+import com.testfabrik.webmate.javasdk.WebmateApiClientException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiConsumer;
+
+/**
+ * Write-behind queue for action artifacts (start / finish of actions). Reports are taken from the queue in batches
+ * by a dispatcher thread. The reports of a BrowserSession are sent one after another in the order they were
+ * reported, reports of different BrowserSessions in parallel. Errors while sending are logged and counted, but not
+ * propagated to the test.
+ */
+class ActionReporter implements Closeable {
+
+    private static final Logger LOG = LoggerFactory.getLogger(ActionReporter.class);
+
+    private static final AtomicInteger reporterCounter = new AtomicInteger();
+
+    private static class Report {
+        final BrowserSessionId expeditionId;
+        final Object artifactData;
+
+        Report(BrowserSessionId expeditionId, Object artifactData) {
+            this.expeditionId = expeditionId;
+            this.artifactData = artifactData;
+        }
+    }
+
+    private final ActionReportingConfig config;
+    private final BiConsumer<BrowserSessionId, Object> sender;
+    private final BlockingQueue<Report> queue;
+    private final ExecutorService sendPool;
+    private final Thread dispatcher;
+
+    // queued and processed (sent, failed or dropped on close) reports, used for flushing; also guards closed
+    private final Object progressLock = new Object();
+    private long reported = 0;
+    private long processed = 0;
+
+    private final AtomicLong droppedReports = new AtomicLong();
+    private final AtomicLong failedReports = new AtomicLong();
+
+    private boolean closed = false;
+    private volatile boolean stopped = false;
+
+    /**
+     * @param sender sends a single artifact to the given expedition (synchronously).
+     */
+    ActionReporter(ActionReportingConfig config, BiConsumer<BrowserSessionId, Object> sender) {
+        this.config = config;
+        this.sender = sender;
+        this.queue = new ArrayBlockingQueue<>(config.getQueueCapacity());
+
+        final int reporterId = reporterCounter.incrementAndGet();
+        final AtomicInteger senderCounter = new AtomicInteger();
+        this.sendPool = Executors.newFixedThreadPool(config.getSenderParallelism(), r -> {
+            Thread thread = new Thread(r, "webmate-action-sender-" + reporterId + "-" + senderCounter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.dispatcher = new Thread(this::dispatch, "webmate-action-reporter-" + reporterId);
+        this.dispatcher.setDaemon(true);
+        this.dispatcher.start();
+    }
+
+    /**
+     * Queue an artifact for the given expedition. Depending on the overflow policy, waits for space in the queue or
+     * drops the artifact if the queue is full. Once the reporter has been closed, the artifact is sent synchronously.
+     *
+     * @throws WebmateApiClientException if the calling thread is interrupted while waiting for space in the queue.
+     */
+    void report(BrowserSessionId expeditionId, Object artifactData) {
+        Report report = new Report(expeditionId, artifactData);
+        boolean sendSynchronously;
+        // checking for close and queueing under the same lock, so that close() cannot miss a report
+        synchronized (progressLock) {
+            while (!closed) {
+                if (queue.offer(report)) {
+                    reported++;
+                    return;
+                }
+                if (config.getOverflowPolicy() != ActionReportingConfig.OverflowPolicy.BLOCK) {
+                    break;
+                }
+                try {
+                    // notified when the dispatcher takes reports from the queue, or when the reporter is closed
+                    progressLock.wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new WebmateApiClientException("Interrupted while waiting for space in the action report queue", e);
+                }
+            }
+            sendSynchronously = closed;
+        }
+        if (sendSynchronously) {
+            sender.accept(expeditionId, artifactData);
+            return;
+        }
+        long dropped = droppedReports.incrementAndGet();
+        if (dropped == 1) {
+            LOG.warn("Action report queue is full (capacity " + config.getQueueCapacity() + "), dropping action reports");
+        } else {
+            LOG.debug("Dropped action report for expedition " + expeditionId + " (" + dropped + " in total)");
+        }
+    }
+
+    /**
+     * Wait (at most flushTimeoutMillis) until all reports that were queued before this call have been sent.
+     *
+     * @return true if all reports have been sent, false if the timeout elapsed before.
+     */
+    boolean flush() {
+        long deadline = System.currentTimeMillis() + config.getFlushTimeoutMillis();
+        synchronized (progressLock) {
+            long target = reported;
+            while (processed < target) {
+                long remaining = deadline - System.currentTimeMillis();
+                if (remaining <= 0) {
+                    LOG.warn("Timeout while flushing action reports, " + (target - processed) + " reports are still pending");
+                    return false;
+                }
+                try {
+                    progressLock.wait(remaining);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Number of reports waiting to be sent.
+     */
+    int getQueuedReports() {
+        return queue.size();
+    }
+
+    /**
+     * Number of reports dropped because the queue was full, or because they were still queued when flushing on
+     * close timed out.
+     */
+    long getDroppedReports() {
+        return droppedReports.get();
+    }
+
+    /**
+     * Number of reports which could not be sent.
+     */
+    long getFailedReports() {
+        return failedReports.get();
+    }
+
+    /**
+     * Flush queued reports and stop the background threads. Artifacts reported afterwards are sent synchronously.
+     * Reports which have not been sent when flushing times out are counted as dropped.
+     */
+    @Override
+    public void close() {
+        synchronized (progressLock) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            // reporters waiting for space send synchronously instead
+            progressLock.notifyAll();
+        }
+        flush();
+        stopped = true;
+        dispatcher.interrupt();
+        sendPool.shutdownNow();
+
+        List<Report> unsent = new ArrayList<>();
+        queue.drainTo(unsent);
+        if (!unsent.isEmpty()) {
+            droppedReports.addAndGet(unsent.size());
+            LOG.warn("Dropped " + unsent.size() + " action reports which could not be sent before closing");
+            synchronized (progressLock) {
+                processed += unsent.size();
+                progressLock.notifyAll();
+            }
+        }
+    }
+
+    private void dispatch() {
+        List<Report> batch = new ArrayList<>(config.getMaxBatchSize());
+        // the interrupt of close() may be swallowed by the sender, so stopped is checked as well
+        while (!stopped) {
+            try {
+                batch.add(queue.take());
+            } catch (InterruptedException e) {
+                // closed
+                return;
+            }
+            queue.drainTo(batch, config.getMaxBatchSize() - 1);
+            synchronized (progressLock) {
+                // there is space in the queue again
+                progressLock.notifyAll();
+            }
+            try {
+                send(batch);
+            } finally {
+                synchronized (progressLock) {
+                    processed += batch.size();
+                    progressLock.notifyAll();
+                }
+                batch.clear();
+            }
+        }
+    }
+
+    private void send(List<Report> batch) {
+        Map<BrowserSessionId, List<Object>> perExpedition = new LinkedHashMap<>();
+        for (Report report : batch) {
+            perExpedition.computeIfAbsent(report.expeditionId, id -> new ArrayList<>()).add(report.artifactData);
+        }
+        if (perExpedition.size() == 1) {
+            Map.Entry<BrowserSessionId, List<Object>> only = perExpedition.entrySet().iterator().next();
+            sendInOrder(only.getKey(), only.getValue());
+            return;
+        }
+
+        List<Future<?>> sending = new ArrayList<>(perExpedition.size());
+        for (Map.Entry<BrowserSessionId, List<Object>> entry : perExpedition.entrySet()) {
+            sending.add(sendPool.submit(() -> sendInOrder(entry.getKey(), entry.getValue())));
+        }
+        // wait for the whole batch, so that later reports of an expedition cannot overtake earlier ones
+        for (Future<?> future : sending) {
+            try {
+                future.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (ExecutionException e) {
+                LOG.warn("Error while sending action reports", e.getCause());
+            }
+        }
+    }
+
+    private void sendInOrder(BrowserSessionId expeditionId, List<Object> artifacts) {
+        for (Object artifactData : artifacts) {
+            try {
+                sender.accept(expeditionId, artifactData);
+            } catch (RuntimeException e) {
+                failedReports.incrementAndGet();
+                LOG.warn("Could not report action to expedition " + expeditionId + ": " + e.getMessage());
+            }
+        }
+    }
+}
@@ -0,0 +1,110 @@
+package com.testfabrik.webmate.javasdk.browsersession;
+
+/**
+ * Configuration of asynchronous (write-behind) reporting of actions, see
+ * {@link BrowserSessionClient#enableAsyncActionReporting(ActionReportingConfig)}.
+ * <p>
+ * Started and finished actions are put into a bounded queue and sent by a background thread, in order per
+ * BrowserSession. Reports of different BrowserSessions are sent in parallel. If the queue is full, the overflow
+ * policy decides whether the test thread waits for free space or the report is dropped.
+ */
+public class ActionReportingConfig {
+
+    /**
+     * What happens if an action is reported while the queue is full.
+     */
+    public enum OverflowPolicy {
+        /** Wait until there is space in the queue (backpressure). */
+        BLOCK,
+        /** Drop the report and log a warning. The action will be missing (or unfinished) in webmate. */
+        DROP
+    }
+
+    public static final int DEFAULT_QUEUE_CAPACITY = 10_000;
+    public static final int DEFAULT_MAX_BATCH_SIZE = 100;
+    public static final int DEFAULT_SENDER_PARALLELISM = 4;
+    public static final long DEFAULT_FLUSH_TIMEOUT_MILLIS = 30_000;
+
+    private int queueCapacity = DEFAULT_QUEUE_CAPACITY;
+    private int maxBatchSize = DEFAULT_MAX_BATCH_SIZE;
+    private int senderParallelism = DEFAULT_SENDER_PARALLELISM;
+    private OverflowPolicy overflowPolicy = OverflowPolicy.BLOCK;
+    private long flushTimeoutMillis = DEFAULT_FLUSH_TIMEOUT_MILLIS;
+
+    public static ActionReportingConfig defaults() {
+        return new ActionReportingConfig();
+    }
+
+    /**
+     * Maximum number of reports waiting to be sent.
+     */
+    public ActionReportingConfig setQueueCapacity(int queueCapacity) {
+        if (queueCapacity < 1) {
+            throw new IllegalArgumentException("queueCapacity must be positive, but was " + queueCapacity);
+        }
+        this.queueCapacity = queueCapacity;
+        return this;
+    }
+
+    /**
+     * Maximum number of reports taken from the queue at once by the sender.
+     */
+    public ActionReportingConfig setMaxBatchSize(int maxBatchSize) {
+        if (maxBatchSize < 1) {
+            throw new IllegalArgumentException("maxBatchSize must be positive, but was " + maxBatchSize);
+        }
+        this.maxBatchSize = maxBatchSize;
+        return this;
+    }
+
+    /**
+     * Maximum number of BrowserSessions whose reports are sent in parallel. Should not exceed the number of
+     * connections per route of the session's connection pool.
+     */
+    public ActionReportingConfig setSenderParallelism(int senderParallelism) {
+        if (senderParallelism < 1) {
+            throw new IllegalArgumentException("senderParallelism must be positive, but was " + senderParallelism);
+        }
+        this.senderParallelism = senderParallelism;
+        return this;
+    }
+
+    public ActionReportingConfig setOverflowPolicy(OverflowPolicy overflowPolicy) {
+        if (overflowPolicy == null) {
+            throw new IllegalArgumentException("overflowPolicy must not be null");
+        }
+        this.overflowPolicy = overflowPolicy;
+        return this;
+    }
+
+    /**
+     * Maximum time a flush (e.g. when finishing a TestRun or closing the session) waits for queued reports.
+     */
+    public ActionReportingConfig setFlushTimeoutMillis(long flushTimeoutMillis) {
+        if (flushTimeoutMillis < 0) {
+            throw new IllegalArgumentException("flushTimeoutMillis must not be negative, but was " + flushTimeoutMillis);
+        }
+        this.flushTimeoutMillis = flushTimeoutMillis;
+        return this;
+    }
+
+    public int getQueueCapacity() {
+        return queueCapacity;
+    }
+
+    public int getMaxBatchSize() {
+        return maxBatchSize;
+    }
+
+    public int getSenderParallelism() {
+        return senderParallelism;
+    }
+
+    public OverflowPolicy getOverflowPolicy() {
+        return overflowPolicy;
+    }
+
+    public long getFlushTimeoutMillis() {
+        return flushTimeoutMillis;
+    }
+}
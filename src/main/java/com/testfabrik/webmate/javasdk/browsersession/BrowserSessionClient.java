@@ -2,11 +2,14 @@ package com.testfabrik.webmate.javasdk.browsersession;
 
 import com.fasterxml.jackson.annotation.JsonInclude;
 import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectReader;
 import com.google.common.base.Optional;
+import com.google.common.base.Supplier;
+import com.google.common.base.Suppliers;
 import com.google.common.collect.ImmutableMap;
 import com.testfabrik.webmate.javasdk.*;
 import com.testfabrik.webmate.javasdk.commonutils.HttpHelpers;
-import com.testfabrik.webmate.javasdk.utils.JsonUtils;
+import com.testfabrik.webmate.javasdk.commonutils.Poller;
 import org.apache.http.HttpResponse;
 import org.apache.http.impl.client.HttpClientBuilder;
 import org.apache.http.util.EntityUtils;
@@ -15,6 +18,11 @@ import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Function;
 
 /**
  * Facade to webmate's BrowserSession subsystem.
@@ -22,12 +30,25 @@ import java.util.*;
 public class BrowserSessionClient {
 
     private WebmateAPISession session;
-    private BrowserSessionApiClient apiClient;
+    /** Created on first use, so that unused subsystems of a session cost (almost) nothing. */
+    private final Supplier<BrowserSessionApiClient> apiClient;
 
-    private Stack<ActionSpanId> currentSpanIds = new Stack<>();
+    /**
+     * Stacks of open actions per BrowserSession, so that one session can drive many browsers. Actions started
+     * without BrowserSessionId use the stack of the only BrowserSession associated with the session.
+     */
+    private final ConcurrentMap<BrowserSessionId, Deque<ActionSpanId>> spanIdsPerBrowserSession = new ConcurrentHashMap<>();
+
+    /** Present if actions are reported asynchronously. */
+    private volatile Optional<ActionReporter> actionReporter = Optional.absent();
 
     private static final Logger LOG = LoggerFactory.getLogger(BrowserSessionClient.class);
 
+    /** Maximum time {@link #createStateAsync} waits for the extraction of a state. */
+    public static final long STATE_EXTRACTION_TIMEOUT_MILLIS = 300_000;
+    private static final long STATE_PROGRESS_INITIAL_INTERVAL_MILLIS = 250;
+    private static final long STATE_PROGRESS_MAX_INTERVAL_MILLIS = 2_000;
+
     // Sane default Config, extracting DOM and taking non fullpage Screenshots. Otherwise take Webmate Defaults.
     private static final BrowserSessionStateExtractionConfig DefaultStateExtractionConfig = new BrowserSessionStateExtractionConfig(null, null, null, null, null, true,
                                                                                                                                        new BrowserSessionScreenshotExtractionConfig(true, false), null);
@@ -42,23 +63,33 @@ public class BrowserSessionClient {
     public static class ActionDelegate {
 
         private final BrowserSessionClient client;
+        private final Optional<BrowserSessionId> browserSessionId;
 
         public ActionDelegate(BrowserSessionClient client) {
+            this(client, Optional.<BrowserSessionId>absent());
+        }
+
+        /**
+         * @param browserSessionId BrowserSession of the action, absent for the only BrowserSession of the API session.
+         */
+        public ActionDelegate(BrowserSessionClient client, Optional<BrowserSessionId> browserSessionId) {
             this.client = client;
+            this.browserSessionId = browserSessionId;
         }
 
         /**
          * Finish current action successfully.
          */
         public void finishAction() {
-            this.client.finishAction();
+            this.client.finishAction(browserSessionId, true, FinishStoryActionAddArtifactData::successful);
         }
 
         /**
          * Finish current action as failure.
          */
         public void finishActionAsFailure(String errorMessage) {
-            this.client.finishActionAsFailure(errorMessage);
+            this.client.finishAction(browserSessionId, true,
+                    spanId -> FinishStoryActionAddArtifactData.failure(spanId, errorMessage, Optional.<JsonNode>absent()));
         }
     }
 
@@ -67,6 +98,8 @@ public class BrowserSessionClient {
         private final static UriTemplate createStateTemplate =
                 new UriTemplate("/browsersession/${browserSessionId}/states");
 
+        private final static ObjectReader jsonNodeReader = JacksonMapper.readerFor(JsonNode.class);
+
         private final static UriTemplate checkStateProgressTemplate =
                 new UriTemplate("/browsersession/${browserSessionId}/artifacts/${browserSessionArtifactId}/progress");
 
@@ -74,7 +107,7 @@ public class BrowserSessionClient {
                 new UriTemplate("/browsersession/${expeditionId}/artifacts");
 
         private final static UriTemplate terminateBrowsersessionTemplate =
-                new UriTemplate("/browsersession/${browserSessionId}");
+                new UriTemplate("/browsersession/${browserSessionId}").idempotent();
 
 
         /**
@@ -87,6 +120,15 @@ public class BrowserSessionClient {
             super(authInfo, environment);
         }
 
+        /**
+         * Creates an webmate api client that shares the given transport (and its connection pool).
+         *
+         * @param transport The transport used for the underlying connection
+         */
+        public BrowserSessionApiClient(WebmateHttpTransport transport) {
+            super(transport);
+        }
+
 
         /**
          * Creates an webmate api client using a custom HttpClientBuilder, which allows the use of proxies.
@@ -129,22 +171,54 @@ public class BrowserSessionClient {
          */
         public BrowserSessionStateId createState(BrowserSessionId browserSessionId, String matchingId, BrowserSessionStateExtractionConfig browserSessionStateExtractionConfig) {
             Map<String, Object>  params = ImmutableMap.of("optMatchingId", matchingId, "extractionConfig", browserSessionStateExtractionConfig);
-            JsonNode body = JsonUtils.getJsonFromData(params, JsonInclude.Include.NON_NULL);
-            Optional<HttpResponse> optHttpResponse = sendPOST(createStateTemplate, ImmutableMap.of("browserSessionId", browserSessionId.toString()), body).getOptHttpResponse();
+            Optional<HttpResponse> optHttpResponse = sendPOSTJson(createStateTemplate, ImmutableMap.of("browserSessionId", browserSessionId.toString()),
+                    params, JsonInclude.Include.NON_NULL).getOptHttpResponse();
             return HttpHelpers.getObjectFromJsonEntity(optHttpResponse.get(), BrowserSessionStateId.class);
         }
 
-        public void startAction(BrowserSessionId expeditionId, StartStoryActionAddArtifactData art) {
-            Map<String, String>  params = ImmutableMap.of("expeditionId", expeditionId.getValueAsString());
-            sendPOST(addArtifactTemplate, params, JsonUtils.getJsonFromData(art)).getOptHttpResponse();
+        /**
+         * Check whether the extraction of the given state has finished. The progress endpoint answers with an object
+         * <code>{"finished": &lt;boolean&gt;, "error": &lt;message, absent or null&gt;}</code>.
+         *
+         * @throws StateExtractionException if webmate reports that the extraction has failed, or if the progress
+         * does not have this shape.
+         */
+        public boolean isStateExtractionFinished(BrowserSessionId browserSessionId, BrowserSessionStateId stateId) {
+            JsonNode progress = sendGETStreaming(checkStateProgressTemplate, ImmutableMap.of(
+                    "browserSessionId", browserSessionId.toString(),
+                    "browserSessionArtifactId", stateId.toString()), jsonNodeReader);
+            return BrowserSessionClient.parseStateExtractionProgress(browserSessionId, stateId, progress);
         }
 
-        public void finishAction(BrowserSessionId expeditionId, FinishStoryActionAddArtifactData art) {
+        /**
+         * Add an artifact, e.g. {@link StartStoryActionAddArtifactData} or {@link FinishStoryActionAddArtifactData},
+         * to the given expedition.
+         */
+        public void addArtifact(BrowserSessionId expeditionId, Object art) {
             Map<String, String>  params = ImmutableMap.of("expeditionId", expeditionId.getValueAsString());
-            sendPOST(addArtifactTemplate, params, JsonUtils.getJsonFromData(art)).getOptHttpResponse();
+            sendPOSTJson(addArtifactTemplate, params, art).getOptHttpResponse();
         }
     }
 
+    /**
+     * Interpret the response of the state progress endpoint, see
+     * {@link BrowserSessionApiClient#isStateExtractionFinished(BrowserSessionId, BrowserSessionStateId)}.
+     */
+    static boolean parseStateExtractionProgress(BrowserSessionId browserSessionId, BrowserSessionStateId stateId,
+                                                JsonNode progress) {
+        JsonNode finished = progress == null ? null : progress.get("finished");
+        JsonNode error = progress == null ? null : progress.path("error");
+        if (finished == null || !finished.isBoolean() || !(error.isMissingNode() || error.isNull() || error.isTextual())) {
+            throw new StateExtractionException("Unexpected progress of state " + stateId + " in browsersession " +
+                    browserSessionId + ": " + progress);
+        }
+        if (error.isTextual()) {
+            throw new StateExtractionException("Extraction of state " + stateId + " in browsersession " +
+                    browserSessionId + " failed: " + error.textValue());
+        }
+        return finished.booleanValue();
+    }
+
     /**
      * Creates a BrowserSessionClient based on a WebmateApiSession.
      *
@@ -152,7 +226,7 @@ public class BrowserSessionClient {
      */
     public BrowserSessionClient(WebmateAPISession session) {
         this.session = session;
-        this.apiClient = new BrowserSessionApiClient(session.authInfo, session.environment);
+        this.apiClient = Suppliers.memoize(() -> new BrowserSessionApiClient(session.getTransport()));
     }
 
     /**
@@ -163,7 +237,7 @@ public class BrowserSessionClient {
      */
     public BrowserSessionClient(WebmateAPISession session, HttpClientBuilder httpClientBuilder) {
         this.session = session;
-        this.apiClient = new BrowserSessionApiClient(session.authInfo, session.environment, httpClientBuilder);
+        this.apiClient = Suppliers.memoize(() -> new BrowserSessionApiClient(session.authInfo, session.environment, httpClientBuilder));
     }
 
 
@@ -242,7 +316,95 @@ public class BrowserSessionClient {
      */
     public BrowserSessionStateId createState(BrowserSessionId browserSessionId, String matchingId, BrowserSessionStateExtractionConfig browserSessionStateExtractionConfig) {
         LOG.debug("Creating state with matching id [" + matchingId + "] for browsersession [" + browserSessionId + "]");
-        return apiClient.createState(browserSessionId, matchingId, browserSessionStateExtractionConfig);
+        // the state must be created within the currently active action, so that must have been reported before
+        flushActionReports();
+        return apiClient.get().createState(browserSessionId, matchingId, browserSessionStateExtractionConfig);
+    }
+
+    /**
+     * Create a State with the same matching id in each of the given BrowserSessions, e.g. for comparing them
+     * across browsers. The states are created in parallel on the session's async executor, so the call takes about
+     * as long as the slowest extraction. How many of them are requested at a time is decided by the transport's
+     * adaptive concurrency limits (see {@link ResilienceConfig}), like for any other call; if a
+     * {@link ResilienceConfig#setConcurrencyQueueTimeoutMillis queue timeout} is configured, states which cannot be
+     * requested in time are reported as errors.
+     *
+     * @param matchingId Label for the states (should be unique for each BrowserSession).
+     * @param configs BrowserSessions in which a state should be extracted, with the extraction configuration to use.
+     * @return the id of the state for each BrowserSession in which it was created, the error for all others.
+     */
+    public BulkResult<BrowserSessionId, BrowserSessionStateId> createStates(String matchingId,
+                                                                            Map<BrowserSessionId, BrowserSessionStateExtractionConfig> configs) {
+        LOG.debug("Creating states with matching id [" + matchingId + "] for " + configs.size() + " browsersessions");
+        // flush once here, instead of in all the parallel calls
+        flushActionReports();
+        WebmateAsyncExecutor executor = session.getAsyncExecutor();
+        Map<BrowserSessionId, CompletableFuture<BrowserSessionStateId>> pending = new LinkedHashMap<>();
+        for (Map.Entry<BrowserSessionId, BrowserSessionStateExtractionConfig> entry : configs.entrySet()) {
+            pending.put(entry.getKey(), executor.supplyAsync(() ->
+                    apiClient.get().createState(entry.getKey(), matchingId, entry.getValue())));
+        }
+        return BulkResult.collect(pending);
+    }
+
+    /**
+     * Create a State with the same matching id in each of the given BrowserSessions, using the default state
+     * extraction configuration. See {@link #createStates(String, Map)}.
+     *
+     * @param matchingId Label for the states (should be unique for each BrowserSession).
+     * @param browserSessionIds BrowserSessions in which a state should be extracted.
+     * @return the id of the state for each BrowserSession in which it was created, the error for all others.
+     */
+    public BulkResult<BrowserSessionId, BrowserSessionStateId> createStates(String matchingId, Collection<BrowserSessionId> browserSessionIds) {
+        Map<BrowserSessionId, BrowserSessionStateExtractionConfig> configs = new LinkedHashMap<>();
+        for (BrowserSessionId browserSessionId : browserSessionIds) {
+            configs.put(browserSessionId, DefaultStateExtractionConfig);
+        }
+        return createStates(matchingId, configs);
+    }
+
+    /**
+     * Create a new State for the given BrowserSession without waiting for the extraction. Uses the default state
+     * extraction configuration. See {@link #createStateAsync(BrowserSessionId, String, BrowserSessionStateExtractionConfig)}.
+     *
+     * @param browserSessionId BrowserSession, in which the state should be extracted.
+     * @param matchingId Label for state (should be unique for BrowserSession, otherwise some tests could get confused).
+     * @return future completed with the id of the state once it has been extracted.
+     */
+    public CompletableFuture<BrowserSessionStateId> createStateAsync(BrowserSessionId browserSessionId, String matchingId) {
+        return createStateAsync(browserSessionId, matchingId, DefaultStateExtractionConfig);
+    }
+
+    /**
+     * Create a new State for the given BrowserSession without waiting for the extraction. The state is requested
+     * on the calling thread, so that it belongs to the currently active action like with
+     * {@link #createState(BrowserSessionId, String, BrowserSessionStateExtractionConfig)}. Then its progress is
+     * polled (on a scheduler shared by all pending states, with the checks on the session's async executor) until
+     * webmate reports the extraction as finished, so the test can keep driving the browser meanwhile.
+     *
+     * @param browserSessionId BrowserSession, in which the state should be extracted.
+     * @param matchingId Label for state (should be unique for BrowserSession, otherwise some tests could get confused).
+     * @param browserSessionStateExtractionConfig configuration controlling the state extraction process. See {@link BrowserSessionStateExtractionConfig}.
+     * @return future completed with the id of the state once it has been extracted. It fails with the error of the
+     * request if the state could not be requested, with a {@link StateExtractionException} if the extraction fails or
+     * webmate reports an unexpected progress, or with a {@link WebmateApiClientException} if it does not finish
+     * within {@link #STATE_EXTRACTION_TIMEOUT_MILLIS}. Failed progress checks are retried until then. Cancelling
+     * the future stops polling.
+     */
+    public CompletableFuture<BrowserSessionStateId> createStateAsync(BrowserSessionId browserSessionId, String matchingId,
+                                                                     BrowserSessionStateExtractionConfig browserSessionStateExtractionConfig) {
+        BrowserSessionStateId stateId;
+        try {
+            stateId = createState(browserSessionId, matchingId, browserSessionStateExtractionConfig);
+        } catch (RuntimeException e) {
+            CompletableFuture<BrowserSessionStateId> failed = new CompletableFuture<>();
+            failed.completeExceptionally(e);
+            return failed;
+        }
+        return Poller.poll(
+                () -> apiClient.get().isStateExtractionFinished(browserSessionId, stateId) ? Optional.of(stateId) : Optional.<BrowserSessionStateId>absent(),
+                session.getAsyncExecutor(), STATE_PROGRESS_INITIAL_INTERVAL_MILLIS, STATE_PROGRESS_MAX_INTERVAL_MILLIS,
+                STATE_EXTRACTION_TIMEOUT_MILLIS, e -> !(e instanceof StateExtractionException));
     }
 
     /**
@@ -256,49 +418,107 @@ public class BrowserSessionClient {
      * @return Returned value of lambda
      */
     public <T> T withAction(String actionName, ActionFunc<T> actionFunc) {
-        this.startAction(actionName);
-        ActionDelegate actionDelegate = new ActionDelegate(this);
-        T result = null;
-        try {
-            result = actionFunc.op(actionDelegate);
-        } catch (Throwable e) {
-            this.finishActionAsFailureIgnoreNoneActive("Exception in '" + actionName + "': " + e.getMessage());
-        } finally {
-            this.finishActionAsSuccessIgnoreNoneActive();
-        }
-        return result;
+        return withAction(Optional.<BrowserSessionId>absent(), actionName, actionFunc);
     }
 
     /**
-     * Wrap the given action (lambda) in an Action with the given name. The action can be
+     * Wrap the given action (lambda) without return value in an Action with the given name. The action can be
      * closed explicitly with the ActionDelegate argument provided to the lambda. It also
      * implicitly finishes as successful or an error if an exception is throws within the lambda.
      *
      * @param actionName Name of action
      * @param actionFunc function executed within action.
      */
+    public void withActionVoid(String actionName, ActionFuncVoid actionFunc) {
+        withActionVoid(Optional.<BrowserSessionId>absent(), actionName, actionFunc);
+    }
+
+    /**
+     * @deprecated ambiguous with {@link #withAction(String, ActionFunc)} for lambdas; use
+     * {@link #withActionVoid(String, ActionFuncVoid)} instead.
+     */
+    @Deprecated
     public void withAction(String actionName, ActionFuncVoid actionFunc) {
-        this.startAction(actionName);
-        ActionDelegate actionDelegate = new ActionDelegate(this);
+        withActionVoid(actionName, actionFunc);
+    }
+
+    /**
+     * Wrap the given action (lambda) in an Action with the given name in the given BrowserSession.
+     * See {@link #withAction(String, ActionFunc)}.
+     *
+     * @param browserSessionId BrowserSession the action belongs to.
+     * @param actionName Name of action
+     * @param actionFunc function executed within action.
+     * @param <T> Return value of inner code.
+     * @return Returned value of lambda
+     */
+    public <T> T withAction(BrowserSessionId browserSessionId, String actionName, ActionFunc<T> actionFunc) {
+        return withAction(Optional.of(browserSessionId), actionName, actionFunc);
+    }
+
+    /**
+     * Wrap the given action (lambda) without return value in an Action with the given name in the given
+     * BrowserSession. See {@link #withActionVoid(String, ActionFuncVoid)}.
+     *
+     * @param browserSessionId BrowserSession the action belongs to.
+     * @param actionName Name of action
+     * @param actionFunc function executed within action.
+     */
+    public void withActionVoid(BrowserSessionId browserSessionId, String actionName, ActionFuncVoid actionFunc) {
+        withActionVoid(Optional.of(browserSessionId), actionName, actionFunc);
+    }
+
+    private <T> T withAction(Optional<BrowserSessionId> browserSessionId, String actionName, ActionFunc<T> actionFunc) {
+        ActionSpanId spanId = startAction(browserSessionId, actionName);
+        ActionDelegate actionDelegate = new ActionDelegate(this, browserSessionId);
+        T result = null;
         try {
-            actionFunc.op(actionDelegate);
+            result = actionFunc.op(actionDelegate);
         } catch (Throwable e) {
-            this.finishActionAsFailureIgnoreNoneActive("Exception in '" + actionName + "': " + e.getMessage());
+            finishSpanIfActive(browserSessionId, spanId, FinishStoryActionAddArtifactData.failure(spanId,
+                    "Exception in '" + actionName + "': " + e.getMessage(), Optional.<JsonNode>absent()));
         } finally {
-            this.finishActionAsSuccessIgnoreNoneActive();
+            finishSpanIfActive(browserSessionId, spanId, FinishStoryActionAddArtifactData.successful(spanId));
         }
+        return result;
+    }
+
+    private void withActionVoid(Optional<BrowserSessionId> browserSessionId, String actionName, ActionFuncVoid actionFunc) {
+        withAction(browserSessionId, actionName, (ActionFunc<Void>) action -> {
+            actionFunc.op(action);
+            return null;
+        });
     }
 
     /**
-     * Start action with the given name.
+     * Start action with the given name in the only BrowserSession associated with the API session. The action is
+     * put on the same stack as actions started for the BrowserSession explicitly (e.g. via {@link BrowserSessionRef}),
+     * so both ways can be mixed.
      */
     public void startAction(String actionName) {
+        startAction(Optional.<BrowserSessionId>absent(), actionName);
+    }
+
+    /**
+     * Start action with the given name in the given BrowserSession. If there is another action already active in
+     * the BrowserSession, this action will be a child action of that one. Each BrowserSession has its own stack of
+     * actions, independent of the thread.
+     *
+     * @param browserSessionId BrowserSession the action belongs to.
+     * @param actionName Name of action
+     */
+    public void startAction(BrowserSessionId browserSessionId, String actionName) {
+        startAction(Optional.of(browserSessionId), actionName);
+    }
+
+    private ActionSpanId startAction(Optional<BrowserSessionId> browserSessionId, String actionName) {
         LOG.debug("Start action " + actionName);
-        BrowserSessionId expeditionId = session.getOnlyAssociatedExpedition();
+        BrowserSessionId expeditionId = expeditionFor(browserSessionId);
         ActionSpanId spanId = new ActionSpanId(UUID.randomUUID());
         StartStoryActionAddArtifactData artifactData = new StartStoryActionAddArtifactData(actionName, spanId);
-        apiClient.startAction(expeditionId, artifactData);
-        this.currentSpanIds.push(spanId);
+        addActionArtifact(expeditionId, artifactData);
+        spanIdsOf(expeditionId).push(spanId);
+        return spanId;
     }
 
     /**
@@ -308,34 +528,39 @@ public class BrowserSessionClient {
      * @throws WebmateApiClientException if no action is active
      */
     public void finishAction(String successMessage) {
-        BrowserSessionId expeditionId = session.getOnlyAssociatedExpedition();
-        if (this.currentSpanIds.isEmpty()) {
-            throw new WebmateApiClientException("Trying to finish action but none is active.");
-        }
-        ActionSpanId spanId = this.currentSpanIds.pop();
-        apiClient.finishAction(expeditionId, FinishStoryActionAddArtifactData.successful(spanId, successMessage));
+        finishAction(Optional.<BrowserSessionId>absent(), true, spanId -> FinishStoryActionAddArtifactData.successful(spanId, successMessage));
     }
 
     public void finishAction() {
-        BrowserSessionId expeditionId = session.getOnlyAssociatedExpedition();
-        if (this.currentSpanIds.isEmpty()) {
-            throw new WebmateApiClientException("Trying to finish action but none is active.");
-        }
-        ActionSpanId spanId = this.currentSpanIds.pop();
-        apiClient.finishAction(expeditionId, FinishStoryActionAddArtifactData.successful(spanId));
+        finishAction(Optional.<BrowserSessionId>absent(), true, FinishStoryActionAddArtifactData::successful);
+    }
+
+    /**
+     * Finish the currently active Action of the given BrowserSession and provide a success message.
+     *
+     * @param browserSessionId BrowserSession the action belongs to.
+     * @param successMessage message that should be added to the action
+     * @throws WebmateApiClientException if no action is active in the BrowserSession
+     */
+    public void finishAction(BrowserSessionId browserSessionId, String successMessage) {
+        finishAction(Optional.of(browserSessionId), true, spanId -> FinishStoryActionAddArtifactData.successful(spanId, successMessage));
+    }
+
+    /**
+     * Finish the currently active Action of the given BrowserSession successfully.
+     *
+     * @param browserSessionId BrowserSession the action belongs to.
+     * @throws WebmateApiClientException if no action is active in the BrowserSession
+     */
+    public void finishAction(BrowserSessionId browserSessionId) {
+        finishAction(Optional.of(browserSessionId), true, FinishStoryActionAddArtifactData::successful);
     }
 
     /**
      * Finish the currently active Action. Do nothing if there is no active action.
      */
     public void finishActionAsSuccessIgnoreNoneActive() {
-        BrowserSessionId expeditionId = session.getOnlyAssociatedExpedition();
-        if (this.currentSpanIds.isEmpty()) {
-            // we don't care
-            return;
-        }
-        ActionSpanId spanId = this.currentSpanIds.pop();
-        apiClient.finishAction(expeditionId, FinishStoryActionAddArtifactData.successful(spanId));
+        finishAction(Optional.<BrowserSessionId>absent(), false, FinishStoryActionAddArtifactData::successful);
     }
 
     /**
@@ -344,13 +569,8 @@ public class BrowserSessionClient {
      * @param errorMessage Error message indicating why this action has failed.
      */
     public void finishActionAsFailureIgnoreNoneActive(String errorMessage) {
-        BrowserSessionId expeditionId = session.getOnlyAssociatedExpedition();
-        if (this.currentSpanIds.isEmpty()) {
-            // we don't care
-            return;
-        }
-        ActionSpanId spanId = this.currentSpanIds.pop();
-        apiClient.finishAction(expeditionId, FinishStoryActionAddArtifactData.failure(spanId, errorMessage, Optional.<JsonNode>absent()));
+        finishAction(Optional.<BrowserSessionId>absent(), false,
+                spanId -> FinishStoryActionAddArtifactData.failure(spanId, errorMessage, Optional.<JsonNode>absent()));
     }
 
     /**
@@ -360,12 +580,110 @@ public class BrowserSessionClient {
      * @throws WebmateApiClientException if no action is active
      */
     public void finishActionAsFailure(String errorMessage) {
-        BrowserSessionId expeditionId = session.getOnlyAssociatedExpedition();
-        if (this.currentSpanIds.isEmpty()) {
-           throw new WebmateApiClientException("Trying to finish action but none is active.");
+        finishAction(Optional.<BrowserSessionId>absent(), true,
+                spanId -> FinishStoryActionAddArtifactData.failure(spanId, errorMessage, Optional.<JsonNode>absent()));
+    }
+
+    /**
+     * Finish the currently active Action of the given BrowserSession and mark it as failure.
+     *
+     * @param browserSessionId BrowserSession the action belongs to.
+     * @param errorMessage Error message indicating why this action has failed.
+     * @throws WebmateApiClientException if no action is active in the BrowserSession
+     */
+    public void finishActionAsFailure(BrowserSessionId browserSessionId, String errorMessage) {
+        finishAction(Optional.of(browserSessionId), true,
+                spanId -> FinishStoryActionAddArtifactData.failure(spanId, errorMessage, Optional.<JsonNode>absent()));
+    }
+
+    private void finishAction(Optional<BrowserSessionId> browserSessionId, boolean failIfNoneActive,
+                              Function<ActionSpanId, FinishStoryActionAddArtifactData> artifactData) {
+        BrowserSessionId expeditionId = expeditionFor(browserSessionId);
+        // pollFirst (instead of isEmpty and pop) so that concurrent callers cannot both take the same action
+        ActionSpanId spanId = spanIdsOf(expeditionId).pollFirst();
+        if (spanId == null) {
+            if (failIfNoneActive) {
+                throw new WebmateApiClientException("Trying to finish action but none is active.");
+            }
+            // we don't care
+            return;
+        }
+        addActionArtifact(expeditionId, artifactData.apply(spanId));
+    }
+
+    /**
+     * Finish the given action unless it has already been finished, e.g. explicitly via the ActionDelegate. In
+     * contrast to finishing the top of the stack, this never finishes the enclosing action by accident.
+     */
+    private void finishSpanIfActive(Optional<BrowserSessionId> browserSessionId, ActionSpanId spanId,
+                                    FinishStoryActionAddArtifactData artifactData) {
+        BrowserSessionId expeditionId = expeditionFor(browserSessionId);
+        if (spanIdsOf(expeditionId).remove(spanId)) {
+            addActionArtifact(expeditionId, artifactData);
+        }
+    }
+
+    private BrowserSessionId expeditionFor(Optional<BrowserSessionId> browserSessionId) {
+        return browserSessionId.isPresent() ? browserSessionId.get() : session.getOnlyAssociatedExpedition();
+    }
+
+    private Deque<ActionSpanId> spanIdsOf(BrowserSessionId browserSessionId) {
+        return spanIdsPerBrowserSession.computeIfAbsent(browserSessionId, id -> new ConcurrentLinkedDeque<>());
+    }
+
+    private void addActionArtifact(BrowserSessionId expeditionId, Object artifactData) {
+        Optional<ActionReporter> reporter = this.actionReporter;
+        if (reporter.isPresent()) {
+            reporter.get().report(expeditionId, artifactData);
+        } else {
+            apiClient.get().addArtifact(expeditionId, artifactData);
         }
-        ActionSpanId spanId = this.currentSpanIds.pop();
-        apiClient.finishAction(expeditionId, FinishStoryActionAddArtifactData.failure(spanId, errorMessage, Optional.<JsonNode>absent()));
+    }
+
+    /**
+     * Report started and finished actions asynchronously, so that the test thread does not wait for webmate.
+     * Reports are queued and sent in the background, in order per BrowserSession. Errors while sending are logged
+     * but not thrown. Pending reports are flushed before a state is created, a TestRun is finished and when the
+     * session is closed.
+     *
+     * @param config size of the queue, overflow policy etc.
+     */
+    public synchronized void enableAsyncActionReporting(ActionReportingConfig config) {
+        disableAsyncActionReporting();
+        this.actionReporter = Optional.of(new ActionReporter(config,
+                (expeditionId, artifactData) -> apiClient.get().addArtifact(expeditionId, artifactData)));
+    }
+
+    /**
+     * Flush pending action reports and report actions synchronously again. Does nothing if actions are already
+     * reported synchronously.
+     */
+    public synchronized void disableAsyncActionReporting() {
+        Optional<ActionReporter> reporter = this.actionReporter;
+        this.actionReporter = Optional.absent();
+        if (reporter.isPresent()) {
+            reporter.get().close();
+        }
+    }
+
+    /**
+     * Wait (for a bounded time, see {@link ActionReportingConfig#setFlushTimeoutMillis(long)}) until all actions
+     * reported so far have been sent to webmate. Does nothing if actions are reported synchronously.
+     */
+    public void flushActionReports() {
+        Optional<ActionReporter> reporter = this.actionReporter;
+        if (reporter.isPresent()) {
+            reporter.get().flush();
+        }
+    }
+
+    /**
+     * Number of action reports which have been dropped because the queue was full or could not be sent. Always 0
+     * if actions are reported synchronously.
+     */
+    public long getLostActionReports() {
+        Optional<ActionReporter> reporter = this.actionReporter;
+        return reporter.isPresent() ? reporter.get().getDroppedReports() + reporter.get().getFailedReports() : 0;
     }
 
     /**
@@ -376,7 +694,12 @@ public class BrowserSessionClient {
      */
     public boolean terminateBrowsersession(BrowserSessionId browserSessionId) {
         LOG.debug("Trying to terminate Browsersession with id ["+ browserSessionId +"]");
-        return apiClient.terminateSession(browserSessionId);
+        boolean terminated = apiClient.get().terminateSession(browserSessionId);
+        if (terminated) {
+            spanIdsPerBrowserSession.remove(browserSessionId);
+            session.getTeardownManager().untrack(browserSessionId);
+        }
+        return terminated;
     }
 
 }
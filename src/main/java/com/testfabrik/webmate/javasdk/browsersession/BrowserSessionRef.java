@@ -3,6 +3,7 @@ package com.testfabrik.webmate.javasdk.browsersession;
 import com.testfabrik.webmate.javasdk.WebmateAPISession;
 
 import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * Convenience handle object wrapping the webmate session with a BrowserSessionId.
@@ -38,11 +39,22 @@ public class BrowserSessionRef {
     }
 
     /**
-     * Start custom action with given name. If there is another action already active, this action will be a
-     * child action of that one.
+     * Creates a State for a Browsersession with a matching id without waiting for the extraction. The extraction
+     * parameters are set to default.
+     *
+     * @param matchingId The Id for the state. Used for matching.
+     * @return future completed with the id of the state once it has been extracted.
+     */
+    public CompletableFuture<BrowserSessionStateId> createStateAsync(String matchingId) {
+        return session.browserSession.createStateAsync(browserSessionId, matchingId);
+    }
+
+    /**
+     * Start custom action with given name. If there is another action already active in this BrowserSession, this
+     * action will be a child action of that one.
      */
     public void startAction(String actionName) {
-        session.browserSession.startAction(actionName);
+        session.browserSession.startAction(browserSessionId, actionName);
     }
 
     /**
@@ -56,40 +68,49 @@ public class BrowserSessionRef {
      * @return Returned value of lambda
      */
     public <T> T withAction(String actionName, BrowserSessionClient.ActionFunc<T> actionFunc) {
-        return session.browserSession.withAction(actionName, actionFunc);
+        return session.browserSession.withAction(browserSessionId, actionName, actionFunc);
     }
 
     /**
-     * Wrap the given action (lambda) in an Action with the given name. The action can be
+     * Wrap the given action (lambda) without return value in an Action with the given name. The action can be
      * closed explicitly with the ActionDelegate argument provided to the lambda. It also
      * implicitly finishes as successful or an error if an exception is throws within the lambda.
      *
      * @param actionName Name of action
      * @param actionFunc function executed within action.
      */
+    public void withActionVoid(String actionName, BrowserSessionClient.ActionFuncVoid actionFunc) {
+        session.browserSession.withActionVoid(browserSessionId, actionName, actionFunc);
+    }
+
+    /**
+     * @deprecated ambiguous with {@link #withAction(String, BrowserSessionClient.ActionFunc)} for lambdas; use
+     * {@link #withActionVoid(String, BrowserSessionClient.ActionFuncVoid)} instead.
+     */
+    @Deprecated
     public void withAction(String actionName, BrowserSessionClient.ActionFuncVoid actionFunc) {
-        session.browserSession.withAction(actionName, actionFunc);
+        withActionVoid(actionName, actionFunc);
     }
 
     /**
      * Finish the current active custom action as a success.
      */
     public void finishAction() {
-        session.browserSession.finishAction();
+        session.browserSession.finishAction(browserSessionId);
     }
 
     /**
      * Finish the currently active custom action successfully with message.
      */
     public void finishAction(String successMessage) {
-        session.browserSession.finishAction(successMessage);
+        session.browserSession.finishAction(browserSessionId, successMessage);
     }
 
     /**
      * Finish the currently active custom action and mark as failed with the given message.
      */
     public void finishActionAsFailure(String errorMessage) {
-        session.browserSession.finishActionAsFailure(errorMessage);
+        session.browserSession.finishActionAsFailure(browserSessionId, errorMessage);
     }
 
     /**
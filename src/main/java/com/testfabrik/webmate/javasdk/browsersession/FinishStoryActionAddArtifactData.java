@@ -2,7 +2,6 @@ package com.testfabrik.webmate.javasdk.browsersession;
 
 import com.fasterxml.jackson.annotation.JsonValue;
 import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.node.ObjectNode;
 import com.google.common.base.Optional;
 import com.google.common.collect.ImmutableList;
@@ -23,13 +22,11 @@ public class FinishStoryActionAddArtifactData {
     private ActionSpanId spanId;
 
     public static FinishStoryActionAddArtifactData successful(ActionSpanId spanId) {
-        ObjectMapper om = JacksonMapper.getInstance();
-        return new FinishStoryActionAddArtifactData(spanId, om.createObjectNode().put("success", true));
+        return new FinishStoryActionAddArtifactData(spanId, JacksonMapper.createObjectNode().put("success", true));
     }
 
     public static FinishStoryActionAddArtifactData successful(ActionSpanId spanId, String message) {
-        ObjectMapper om = JacksonMapper.getInstance();
-        return new FinishStoryActionAddArtifactData(spanId, om.createObjectNode()
+        return new FinishStoryActionAddArtifactData(spanId, JacksonMapper.createObjectNode()
                 .put("success", true)
                 .put("message", message));
     }
@@ -51,17 +48,16 @@ public class FinishStoryActionAddArtifactData {
 
     @JsonValue
     JsonNode toJson() {
-        ObjectMapper om = JacksonMapper.getInstance();
-        ObjectNode root = om.createObjectNode();
+        ObjectNode root = JacksonMapper.createObjectNode();
         root.put("artifactType", "Action.ActionFinish");
 
-        ObjectNode data = om.createObjectNode();
+        ObjectNode data = JacksonMapper.createObjectNode();
         data.put("spanId", spanId.toString());
 
         if (result.isPresent()) {
             data.set("result", this.result.get());
         } else {
-            ObjectNode errorData = om.createObjectNode();
+            ObjectNode errorData = JacksonMapper.createObjectNode();
             errorData.put("errorMessage", this.errorMessage.get());
             if (errorDetails.isPresent()) {
                 errorData.set("errorDetails", this.errorDetails.get());
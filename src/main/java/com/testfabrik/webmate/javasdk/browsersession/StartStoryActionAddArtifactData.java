@@ -2,7 +2,6 @@ package com.testfabrik.webmate.javasdk.browsersession;
 
 import com.fasterxml.jackson.annotation.JsonValue;
 import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.node.ObjectNode;
 import com.google.common.collect.ImmutableList;
 import com.testfabrik.webmate.javasdk.JacksonMapper;
@@ -34,14 +33,13 @@ public class StartStoryActionAddArtifactData {
 
     @JsonValue
     JsonNode toJson() {
-        ObjectMapper om = JacksonMapper.getInstance();
-        ObjectNode root = om.createObjectNode();
+        ObjectNode root = JacksonMapper.createObjectNode();
         root.put("artifactType", "Action.ActionStart");
         if (!associatedTestRuns.isEmpty()) {
-            root.set("associatedTestRuns", om.valueToTree(associatedTestRuns));
+            root.set("associatedTestRuns", JacksonMapper.valueToTree(associatedTestRuns));
         }
 
-        ObjectNode data = om.createObjectNode();
+        ObjectNode data = JacksonMapper.createObjectNode();
         data.put("name", name);
         data.put("actionType", "story");
         data.put("spanId", spanId.toString());
@@ -0,0 +1,13 @@
+package com.testfabrik.webmate.javasdk.browsersession;
+
+import com.testfabrik.webmate.javasdk.WebmateApiClientException;
+
+/**
+ * The extraction of a state has failed, or webmate answered with a progress that cannot be interpreted. In contrast
+ * to other errors while waiting for a state, asking again will not help.
+ */
+public class StateExtractionException extends WebmateApiClientException {
+    public StateExtractionException(String errorMsg) {
+        super(errorMsg);
+    }
+}
@@ -0,0 +1,125 @@
+package com.testfabrik.webmate.javasdk.commonutils;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Limits the number of concurrent calls with an AIMD (additive increase, multiplicative decrease) strategy: every
+ * successful call made while at least half of the limit is in use raises the limit, by about one per "round" of calls; a call which
+ * signals overload (e.g. 503 responses, connection errors, or latency above a threshold) reduces the limit by a
+ * constant factor. The limit is reduced at most once per round: overload signals of calls which were already
+ * running when the limit was last reduced are ignored, so that a burst of concurrent failures counts only once.
+ * Calls exceeding the limit wait until a permit becomes free or the queue timeout has passed.
+ */
+public class AdaptiveConcurrencyLimiter {
+
+    private static final double BACKOFF_RATIO = 0.9;
+
+    private final String name;
+    private final int minLimit;
+    private final int maxLimit;
+    private final long latencyThresholdNanos;
+
+    private double limit;
+    private int inFlight = 0;
+    /** Time of the last reduction of the limit (System.nanoTime), valid if reduced is true. */
+    private long lastReductionNanos;
+    private boolean reduced = false;
+
+    /**
+     * @param latencyThresholdMillis calls taking longer than this are considered a sign of overload. A value of 0
+     *                               or less only uses errors as overload signal.
+     */
+    public AdaptiveConcurrencyLimiter(String name, int initialLimit, int minLimit, int maxLimit, long latencyThresholdMillis) {
+        if (minLimit < 1 || initialLimit < minLimit || maxLimit < initialLimit) {
+            throw new IllegalArgumentException("Limits must satisfy 1 <= min <= initial <= max, but were " +
+                    minLimit + ", " + initialLimit + ", " + maxLimit);
+        }
+        this.name = name;
+        this.limit = initialLimit;
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.latencyThresholdNanos = TimeUnit.MILLISECONDS.toNanos(latencyThresholdMillis);
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Acquire a permit, waiting at most timeoutMillis for one to become free. {@link Long#MAX_VALUE} waits
+     * indefinitely.
+     *
+     * @return true if a permit was acquired and must be released with {@link #release(long, boolean)}, false if
+     *         the limit was still exceeded after the timeout.
+     */
+    public synchronized boolean tryAcquire(long timeoutMillis) throws InterruptedException {
+        if (timeoutMillis == Long.MAX_VALUE) {
+            while (inFlight >= getLimit()) {
+                wait();
+            }
+            inFlight++;
+            return true;
+        }
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+        while (inFlight >= getLimit()) {
+            long remainingNanos = deadline - System.nanoTime();
+            if (remainingNanos <= 0) {
+                return false;
+            }
+            TimeUnit.NANOSECONDS.timedWait(this, remainingNanos);
+        }
+        inFlight++;
+        return true;
+    }
+
+    /**
+     * Release a permit and adapt the limit to the outcome of the call.
+     *
+     * @param latencyNanos duration of the call, measured from acquiring the permit
+     * @param overloaded whether the call failed in a way that indicates that the backend is overloaded
+     */
+    public synchronized void release(long latencyNanos, boolean overloaded) {
+        // only grow if the limit is actually used, otherwise it would grow without bounds while idle
+        boolean limitIsUsed = inFlight * 2 >= getLimit();
+        inFlight--;
+        if (overloaded || (latencyThresholdNanos > 0 && latencyNanos > latencyThresholdNanos)) {
+            long now = System.nanoTime();
+            long startNanos = now - latencyNanos;
+            if (!reduced || startNanos - lastReductionNanos >= 0) {
+                limit = Math.max(minLimit, limit * BACKOFF_RATIO);
+                lastReductionNanos = now;
+                reduced = true;
+            }
+        } else if (limitIsUsed) {
+            limit = Math.min(maxLimit, limit + 1.0 / limit);
+        }
+        notifyAll();
+    }
+
+    /**
+     * Release a permit without adapting the limit, e.g. because the call was not made at all.
+     */
+    public synchronized void cancel() {
+        inFlight--;
+        notifyAll();
+    }
+
+    /**
+     * Current concurrency limit.
+     */
+    public synchronized int getLimit() {
+        return (int) limit;
+    }
+
+    /**
+     * Number of calls currently holding a permit.
+     */
+    public synchronized int getInFlight() {
+        return inFlight;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "AdaptiveConcurrencyLimiter{" + name + ", limit=" + getLimit() + ", inFlight=" + inFlight + '}';
+    }
+}
@@ -0,0 +1,86 @@
+package com.testfabrik.webmate.javasdk.commonutils;
+
+import com.google.common.base.Ticker;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Circuit breaker counting consecutive failures of an endpoint. After failureThreshold failures the breaker is
+ * OPEN and rejects all calls. Once openMillis have passed, a single trial call is let through (HALF_OPEN): if it
+ * succeeds the breaker closes again, otherwise it stays open for another period.
+ */
+public class CircuitBreaker {
+
+    public enum State {
+        CLOSED, OPEN, HALF_OPEN
+    }
+
+    private final String name;
+    private final int failureThreshold;
+    private final long openNanos;
+    private final Ticker ticker;
+
+    private State state = State.CLOSED;
+    private int consecutiveFailures = 0;
+    private long openedAt;
+
+    public CircuitBreaker(String name, int failureThreshold, long openMillis) {
+        this(name, failureThreshold, openMillis, Ticker.systemTicker());
+    }
+
+    public CircuitBreaker(String name, int failureThreshold, long openMillis, Ticker ticker) {
+        this.name = name;
+        this.failureThreshold = failureThreshold;
+        this.openNanos = TimeUnit.MILLISECONDS.toNanos(openMillis);
+        this.ticker = ticker;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Check whether a call may be made now. Returns false if the breaker is open or if a trial call is already in
+     * progress.
+     */
+    public synchronized boolean tryAcquire() {
+        switch (state) {
+            case CLOSED:
+                return true;
+            case OPEN:
+                if (ticker.read() - openedAt >= openNanos) {
+                    state = State.HALF_OPEN;
+                    return true;
+                }
+                return false;
+            default:
+                return false;
+        }
+    }
+
+    public synchronized void onSuccess() {
+        consecutiveFailures = 0;
+        state = State.CLOSED;
+    }
+
+    public synchronized void onFailure() {
+        consecutiveFailures++;
+        if (state == State.HALF_OPEN || consecutiveFailures >= failureThreshold) {
+            state = State.OPEN;
+            openedAt = ticker.read();
+        }
+    }
+
+    public synchronized State getState() {
+        return state;
+    }
+
+    public synchronized int getConsecutiveFailures() {
+        return consecutiveFailures;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "CircuitBreaker{" + name + ", " + state + ", consecutiveFailures=" + consecutiveFailures + '}';
+    }
+}
@@ -0,0 +1,257 @@
+package com.testfabrik.webmate.javasdk.commonutils;
+
+import com.google.common.base.Function;
+import com.google.common.base.Predicate;
+import com.testfabrik.webmate.javasdk.WebmateApiClientException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Consumer;
+
+/**
+ * Waits for many remote entities (e.g. TestRuns) to reach a final state with a single poll loop. The loop runs on
+ * the shared {@link Scheduling} thread and hands the (blocking) fetches over to the given executor, so no thread is
+ * blocked while waiting. Each entity is polled with its own adaptive interval: it starts at initialIntervalMillis
+ * and is doubled after each fetch which does not yield a final state, up to maxIntervalMillis. A failed fetch is
+ * retried the same way, unless it is not retryable (by default: webmate rejected the request, see
+ * {@link Poller#isRetryable(Throwable)}). Concurrent waits for the same entity share its fetches.
+ *
+ * @param <K> type of the entity ids
+ * @param <V> type of the fetched entity state
+ */
+public class CompletionEngine<K, V> {
+
+    private static final Logger LOG = LoggerFactory.getLogger(CompletionEngine.class);
+
+    private final Function<K, V> fetch;
+    private final Predicate<V> isFinished;
+    private final Predicate<Throwable> isRetryable;
+    private final Executor executor;
+    private final long initialIntervalMillis;
+    private final long maxIntervalMillis;
+
+    /** Pending entities, guarded by this. */
+    private final Map<K, Pending> pending = new HashMap<>();
+    /** Next run of the poll loop, null if none is scheduled. Guarded by this. */
+    private ScheduledFuture<?> nextTick;
+    private long nextTickAt;
+
+    /** A single wait for an entity. */
+    private class Waiter {
+        final CompletableFuture<V> future = new CompletableFuture<>();
+        final Consumer<? super V> onUpdate;
+
+        Waiter(Consumer<? super V> onUpdate) {
+            this.onUpdate = onUpdate;
+        }
+    }
+
+    /** Poll state of one entity. Fields guarded by the engine. */
+    private class Pending {
+        final K key;
+        final List<Waiter> waiters = new CopyOnWriteArrayList<>();
+        long intervalMillis = initialIntervalMillis;
+        long nextPollAt = System.currentTimeMillis() + initialIntervalMillis;
+        boolean inFlight = false;
+        /** Error of the last fetch if it failed, reported as cause when a wait times out. */
+        volatile Throwable lastError;
+
+        Pending(K key) {
+            this.key = key;
+        }
+    }
+
+    /**
+     * @param fetch retrieves the current state of an entity, called on the executor.
+     * @param isFinished true if the given state is final.
+     * @param executor executor the fetches are run on.
+     * @param initialIntervalMillis time before the first fetch and between the first two fetches of an entity.
+     * @param maxIntervalMillis upper bound for the interval between two fetches of an entity.
+     */
+    public CompletionEngine(Function<K, V> fetch, Predicate<V> isFinished, Executor executor,
+                            long initialIntervalMillis, long maxIntervalMillis) {
+        this(fetch, isFinished, executor, initialIntervalMillis, maxIntervalMillis, Poller::isRetryable);
+    }
+
+    /**
+     * Like {@link #CompletionEngine(Function, Predicate, Executor, long, long)}, with a custom decision which fetch
+     * errors are retried.
+     *
+     * @param isRetryable decides whether polling continues after the fetch has thrown the given error. Otherwise all
+     *                    waits for the entity fail with that error.
+     */
+    public CompletionEngine(Function<K, V> fetch, Predicate<V> isFinished, Executor executor,
+                            long initialIntervalMillis, long maxIntervalMillis, Predicate<Throwable> isRetryable) {
+        if (initialIntervalMillis < 1 || maxIntervalMillis < initialIntervalMillis) {
+            throw new IllegalArgumentException("Invalid poll intervals: " + initialIntervalMillis + ", " + maxIntervalMillis);
+        }
+        this.fetch = fetch;
+        this.isFinished = isFinished;
+        this.isRetryable = isRetryable;
+        this.executor = executor;
+        this.initialIntervalMillis = initialIntervalMillis;
+        this.maxIntervalMillis = maxIntervalMillis;
+    }
+
+    /**
+     * Wait for the given entity to reach a final state. The returned future completes with the final state, fails
+     * with the exception of the fetch if it throws an error which is not retryable, or with a {@link TimeoutException}
+     * after timeoutMillis, which has the error of the last fetch as cause if that one failed.
+     * Cancelling the future ends the wait; the entity is not polled anymore once nobody waits for it.
+     */
+    public CompletableFuture<V> await(K key, long timeoutMillis) {
+        return await(key, timeoutMillis, state -> {});
+    }
+
+    /**
+     * Like {@link #await(Object, long)}, additionally calling onUpdate (on the executor) with every fetched state of
+     * the entity, including the final one, before the returned future is completed.
+     */
+    public CompletableFuture<V> await(K key, long timeoutMillis, Consumer<? super V> onUpdate) {
+        Waiter waiter = new Waiter(onUpdate);
+        Pending entry;
+        synchronized (this) {
+            entry = pending.computeIfAbsent(key, Pending::new);
+            entry.waiters.add(waiter);
+            scheduleTick();
+        }
+        waiter.future.whenComplete((result, error) -> removeWaiter(key, waiter));
+        return Scheduling.failAfter(waiter.future, timeoutMillis, "Timeout while waiting for " + key + " to finish",
+                () -> entry.lastError);
+    }
+
+    /**
+     * Number of entities currently being polled.
+     */
+    public synchronized int getPendingCount() {
+        return pending.size();
+    }
+
+    private synchronized void removeWaiter(K key, Waiter waiter) {
+        Pending entry = pending.get(key);
+        if (entry != null && entry.waiters.remove(waiter) && entry.waiters.isEmpty() && !entry.inFlight) {
+            pending.remove(key);
+        }
+    }
+
+    /**
+     * Make sure the poll loop runs when the next entity is due. Must be called while holding the lock.
+     */
+    private void scheduleTick() {
+        long next = Long.MAX_VALUE;
+        for (Pending entry : pending.values()) {
+            if (!entry.inFlight) {
+                next = Math.min(next, entry.nextPollAt);
+            }
+        }
+        if (next == Long.MAX_VALUE || (nextTick != null && nextTickAt <= next)) {
+            return;
+        }
+        if (nextTick != null) {
+            nextTick.cancel(false);
+        }
+        nextTickAt = next;
+        nextTick = Scheduling.schedule(this::tick, next - System.currentTimeMillis());
+    }
+
+    private void tick() {
+        List<Pending> due = new ArrayList<>();
+        synchronized (this) {
+            nextTick = null;
+            long now = System.currentTimeMillis();
+            for (Pending entry : pending.values()) {
+                if (!entry.inFlight && entry.nextPollAt <= now) {
+                    entry.inFlight = true;
+                    due.add(entry);
+                }
+            }
+        }
+        for (Pending entry : due) {
+            try {
+                executor.execute(() -> poll(entry));
+            } catch (RejectedExecutionException e) {
+                finish(entry, null, new WebmateApiClientException("Could not poll, executor rejected the fetch", e));
+            }
+        }
+        synchronized (this) {
+            scheduleTick();
+        }
+    }
+
+    private void poll(Pending entry) {
+        if (entry.waiters.isEmpty()) {
+            finish(entry, null, null);
+            return;
+        }
+        V state;
+        try {
+            state = fetch.apply(entry.key);
+        } catch (Throwable t) {
+            if (!isRetryable.apply(t)) {
+                finish(entry, null, t);
+                return;
+            }
+            LOG.debug("Could not fetch state of " + entry.key + ", retrying", t);
+            entry.lastError = t;
+            pollAgain(entry);
+            return;
+        }
+        entry.lastError = null;
+        for (Waiter waiter : entry.waiters) {
+            try {
+                waiter.onUpdate.accept(state);
+            } catch (RuntimeException e) {
+                LOG.warn("Update listener failed for " + entry.key, e);
+            }
+        }
+        if (isFinished.apply(state)) {
+            finish(entry, state, null);
+            return;
+        }
+        pollAgain(entry);
+    }
+
+    /**
+     * Schedule the next fetch of the given entity with a doubled interval, or drop it if nobody waits for it anymore.
+     */
+    private void pollAgain(Pending entry) {
+        synchronized (this) {
+            entry.inFlight = false;
+            if (entry.waiters.isEmpty()) {
+                pending.remove(entry.key);
+            } else {
+                entry.intervalMillis = Math.min(entry.intervalMillis * 2, maxIntervalMillis);
+                entry.nextPollAt = System.currentTimeMillis() + entry.intervalMillis;
+                scheduleTick();
+            }
+        }
+    }
+
+    /**
+     * Stop polling the given entity and complete all its waiters with the given state or error.
+     */
+    private void finish(Pending entry, V state, Throwable error) {
+        synchronized (this) {
+            if (pending.get(entry.key) == entry) {
+                pending.remove(entry.key);
+            }
+        }
+        for (Waiter waiter : entry.waiters) {
+            if (error != null) {
+                waiter.future.completeExceptionally(error);
+            } else if (state != null) {
+                waiter.future.complete(state);
+            }
+        }
+    }
+}
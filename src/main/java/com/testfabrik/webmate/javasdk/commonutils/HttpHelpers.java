@@ -1,8 +1,6 @@
 package com.testfabrik.webmate.javasdk.commonutils;
 
-import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
 import com.testfabrik.webmate.javasdk.JacksonMapper;
 import com.testfabrik.webmate.javasdk.WebmateApiClientException;
 import org.apache.http.HttpResponse;
@@ -26,8 +24,7 @@ public class HttpHelpers {
         JsonNode result;
         try {
             String strResult = EntityUtils.toString(response.getEntity());
-            ObjectMapper om = JacksonMapper.getInstance();
-            result = om.readTree(strResult);
+            result = JacksonMapper.readerFor(JsonNode.class).readTree(strResult);
         } catch (IOException e) {
             throw new WebmateApiClientException("Could not extract response data to json.");
         }
@@ -35,10 +32,9 @@ public class HttpHelpers {
     }
 
     public static <T> T getObjectFromJsonEntity(HttpResponse response, Class<T> clazz) {
-        ObjectMapper om = JacksonMapper.getInstance();
         try {
-            return om.treeToValue(getJsonNodeFromEntity(response), clazz);
-        } catch (JsonProcessingException e) {
+            return JacksonMapper.readerFor(clazz).readValue(getJsonNodeFromEntity(response));
+        } catch (IOException e) {
             throw new WebmateApiClientException("Could not extract response json data to instance of type ." + clazz.getSimpleName());
         }
     }
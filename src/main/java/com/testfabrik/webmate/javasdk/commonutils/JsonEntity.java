@@ -0,0 +1,81 @@
+package com.testfabrik.webmate.javasdk.commonutils;
+
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.testfabrik.webmate.javasdk.JacksonMapper;
+import org.apache.http.entity.AbstractHttpEntity;
+import org.apache.http.entity.ContentType;
+
+import java.io.ByteArrayInputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * Request body serializing a value (DTO, collection or JsonNode) as JSON directly to the connection while the
+ * request is sent, so that neither a JSON tree nor a String copy of the payload is built. As the length is not known
+ * in advance, the body is sent with chunked encoding. The entity is repeatable (the value is serialized again), so
+ * requests can be retried.
+ */
+public class JsonEntity extends AbstractHttpEntity {
+
+    private final Object value;
+    private final ObjectWriter writer;
+
+    public JsonEntity(Object value) {
+        this(value, JacksonMapper.writer());
+    }
+
+    /**
+     * @param writer writer used for serialization, e.g. {@link JacksonMapper#writer(com.fasterxml.jackson.annotation.JsonInclude.Include)}
+     */
+    public JsonEntity(Object value, ObjectWriter writer) {
+        this.value = value;
+        this.writer = writer;
+        setContentType(ContentType.APPLICATION_JSON.toString());
+        setChunked(true);
+    }
+
+    public Object getValue() {
+        return value;
+    }
+
+    @Override
+    public boolean isRepeatable() {
+        return true;
+    }
+
+    @Override
+    public long getContentLength() {
+        return -1;
+    }
+
+    /**
+     * Serializes the value into memory. Only used if the content is read instead of written, e.g. for logging.
+     */
+    @Override
+    public InputStream getContent() throws IOException {
+        return new ByteArrayInputStream(writer.writeValueAsBytes(value));
+    }
+
+    @Override
+    public void writeTo(OutputStream outStream) throws IOException {
+        // the generator closes its target when done, but the stream belongs to the caller
+        writer.writeValue(new FilterOutputStream(outStream) {
+            @Override
+            public void write(byte[] b, int off, int len) throws IOException {
+                out.write(b, off, len);
+            }
+
+            @Override
+            public void close() throws IOException {
+                out.flush();
+            }
+        }, value);
+    }
+
+    @Override
+    public boolean isStreaming() {
+        return false;
+    }
+}
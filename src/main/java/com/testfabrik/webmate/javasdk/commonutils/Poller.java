@@ -0,0 +1,126 @@
+package com.testfabrik.webmate.javasdk.commonutils;
+
+import com.google.common.base.Optional;
+import com.testfabrik.webmate.javasdk.WebmateApiClientException;
+import com.testfabrik.webmate.javasdk.WebmateApiStatusException;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+/**
+ * Polls a condition until it yields a result, without blocking a thread per poll: all waiting is done by the shared
+ * {@link Scheduling} thread, while the (blocking) probes themselves run on the given executor. The interval between
+ * two probes is doubled after each unsuccessful or failed probe, up to a maximum.
+ */
+public final class Poller {
+
+    private Poller() {}
+
+    /**
+     * Default for deciding whether polling continues after an error: all errors are retried, e.g. transient network
+     * errors or an unavailable server, except webmate rejecting the request itself with a client error (see
+     * {@link WebmateApiStatusException#isClientError()}), which asking again would not change.
+     */
+    public static boolean isRetryable(Throwable error) {
+        return !(error instanceof WebmateApiStatusException && ((WebmateApiStatusException) error).isClientError());
+    }
+
+    /**
+     * Poll until probe returns a value, which completes the returned future. A probe that throws an error accepted
+     * by {@link #isRetryable(Throwable)} is retried like an unsuccessful one, any other error fails the future
+     * right away. Otherwise the future fails with a
+     * {@link WebmateApiClientException} if there is no result after timeoutMillis, with the last error of the probe
+     * (if any) as cause. Cancelling the future stops polling.
+     *
+     * @param probe checks the condition and returns a value once it is met, absent otherwise.
+     * @param executor executor the probes are run on.
+     * @param initialIntervalMillis time before the first probe and between the first two probes.
+     * @param maxIntervalMillis upper bound for the interval between two probes.
+     * @param timeoutMillis time after which polling is given up.
+     */
+    public static <T> CompletableFuture<T> poll(Supplier<Optional<T>> probe, Executor executor,
+                                                long initialIntervalMillis, long maxIntervalMillis, long timeoutMillis) {
+        return poll(probe, executor, initialIntervalMillis, maxIntervalMillis, timeoutMillis, Poller::isRetryable);
+    }
+
+    /**
+     * Like {@link #poll(Supplier, Executor, long, long, long)}, but stops polling as soon as the probe throws an
+     * error for which isRetryable is false, e.g. because the condition can never be met. The future then fails
+     * with that error.
+     *
+     * @param isRetryable decides whether polling continues after the probe has thrown the given error.
+     */
+    public static <T> CompletableFuture<T> poll(Supplier<Optional<T>> probe, Executor executor,
+                                                long initialIntervalMillis, long maxIntervalMillis, long timeoutMillis,
+                                                Predicate<Throwable> isRetryable) {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        Polling<T> polling = new Polling<>(probe, executor, result, maxIntervalMillis,
+                System.currentTimeMillis() + timeoutMillis, isRetryable);
+        polling.schedule(initialIntervalMillis);
+        return result;
+    }
+
+    private static class Polling<T> {
+        private final Supplier<Optional<T>> probe;
+        private final Executor executor;
+        private final CompletableFuture<T> result;
+        private final long maxIntervalMillis;
+        private final long deadline;
+        private final Predicate<Throwable> isRetryable;
+        private volatile Throwable lastError;
+
+        Polling(Supplier<Optional<T>> probe, Executor executor, CompletableFuture<T> result, long maxIntervalMillis,
+                long deadline, Predicate<Throwable> isRetryable) {
+            this.probe = probe;
+            this.executor = executor;
+            this.result = result;
+            this.maxIntervalMillis = maxIntervalMillis;
+            this.deadline = deadline;
+            this.isRetryable = isRetryable;
+        }
+
+        void schedule(long intervalMillis) {
+            long delay = Math.min(intervalMillis, deadline - System.currentTimeMillis());
+            Scheduling.schedule(() -> {
+                if (result.isDone()) {
+                    return;
+                }
+                try {
+                    executor.execute(() -> runProbe(intervalMillis));
+                } catch (RejectedExecutionException e) {
+                    result.completeExceptionally(new WebmateApiClientException("Could not poll, executor rejected the probe", e));
+                }
+            }, delay);
+        }
+
+        private void runProbe(long intervalMillis) {
+            if (result.isDone()) {
+                return;
+            }
+            try {
+                Optional<T> value = probe.get();
+                if (value.isPresent()) {
+                    result.complete(value.get());
+                    return;
+                }
+            } catch (Throwable t) {
+                if (!isRetryable.test(t)) {
+                    result.completeExceptionally(t);
+                    return;
+                }
+                lastError = t;
+            }
+            if (System.currentTimeMillis() >= deadline) {
+                result.completeExceptionally(lastError == null ?
+                        new WebmateApiClientException("Timeout while polling, condition not met in time") :
+                        new WebmateApiClientException("Timeout while polling, condition not met in time. Last error: " +
+                                lastError.getMessage(), lastError));
+            } else {
+                schedule(Math.min(intervalMillis * 2, maxIntervalMillis));
+            }
+        }
+    }
+}
@@ -0,0 +1,138 @@
+package com.testfabrik.webmate.javasdk.commonutils;
+
+import com.google.common.base.Optional;
+import com.testfabrik.webmate.javasdk.WebmateApiClientException;
+
+import java.io.Closeable;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Lazy iterator over a cursor-paged collection. The cursor is the last element of the previous page. While the
+ * elements of a page are consumed, the next page is already loaded in the background, so at most two pages are
+ * held in memory at any time. Iteration ends with the first empty page; a page with less than pageSize elements
+ * does not end it, as the backend may return fewer elements per page than requested.
+ * <p>
+ * Not thread-safe: the iterator must be consumed by one thread at a time.
+ *
+ * @param <T> type of the elements
+ */
+public class PrefetchingPageIterator<T> implements Iterator<T>, Closeable {
+
+    /**
+     * Loads a page of elements.
+     */
+    public interface PageLoader<T> {
+        /**
+         * @param last last element of the previous page, absent for the first page
+         * @param pageSize maximum number of elements to load
+         */
+        List<T> loadPage(Optional<T> last, int pageSize);
+    }
+
+    private final PageLoader<T> loader;
+    private final int pageSize;
+    private final Executor executor;
+
+    private List<T> page = Collections.emptyList();
+    private int index = 0;
+    private Optional<T> lastOfPreviousPage = Optional.absent();
+    /** Next page, null if there is none. */
+    private CompletableFuture<List<T>> nextPage;
+
+    /**
+     * @param loader loads the pages, called on the executor.
+     * @param pageSize number of elements per page.
+     * @param executor executor the pages are loaded on.
+     */
+    public PrefetchingPageIterator(PageLoader<T> loader, int pageSize, Executor executor) {
+        if (pageSize < 1) {
+            throw new IllegalArgumentException("pageSize must be positive, but was " + pageSize);
+        }
+        this.loader = loader;
+        this.pageSize = pageSize;
+        this.executor = executor;
+        this.nextPage = load(Optional.<T>absent());
+    }
+
+    private CompletableFuture<List<T>> load(Optional<T> last) {
+        return CompletableFuture.supplyAsync(() -> loader.loadPage(last, pageSize), executor);
+    }
+
+    @Override
+    public boolean hasNext() {
+        while (index >= page.size()) {
+            if (nextPage == null) {
+                return false;
+            }
+            page = await(nextPage);
+            index = 0;
+            nextPage = null;
+            if (!page.isEmpty()) {
+                T last = page.get(page.size() - 1);
+                if (lastOfPreviousPage.isPresent() && lastOfPreviousPage.get().equals(last)) {
+                    // the backend ignored the cursor and returned the previous page again: drop it and stop,
+                    // which would otherwise loop forever
+                    page = Collections.emptyList();
+                } else {
+                    lastOfPreviousPage = Optional.of(last);
+                    nextPage = load(lastOfPreviousPage);
+                }
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public T next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        return page.get(index++);
+    }
+
+    /**
+     * Stop prefetching. The iterator must not be used afterwards.
+     */
+    @Override
+    public void close() {
+        if (nextPage != null) {
+            nextPage.cancel(false);
+            nextPage = null;
+        }
+        page = Collections.emptyList();
+        index = 0;
+    }
+
+    /**
+     * Sequential stream over the remaining elements. Closing the stream stops prefetching.
+     */
+    public Stream<T> stream() {
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(this, Spliterator.ORDERED | Spliterator.NONNULL), false)
+                .onClose(this::close);
+    }
+
+    private static <T> List<T> await(CompletableFuture<List<T>> future) {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new WebmateApiClientException("Interrupted while loading next page", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new WebmateApiClientException("Error while loading next page", cause);
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package com.testfabrik.webmate.javasdk.commonutils;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+/**
+ * Single scheduler thread shared by the whole SDK for timers, e.g. polling intervals and timeouts. Scheduled tasks
+ * must be short and must not block; blocking work has to be handed over to another executor.
+ */
+public final class Scheduling {
+
+    private static final ScheduledExecutorService scheduler = createScheduler();
+
+    private Scheduling() {}
+
+    private static ScheduledExecutorService createScheduler() {
+        ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(1, r -> {
+            Thread thread = new Thread(r, "webmate-scheduler");
+            thread.setDaemon(true);
+            return thread;
+        });
+        // cancelled timers must not stay in the queue until they would have fired
+        executor.setRemoveOnCancelPolicy(true);
+        return executor;
+    }
+
+    /**
+     * Run the given (short, non-blocking) task after delayMillis.
+     */
+    public static ScheduledFuture<?> schedule(Runnable task, long delayMillis) {
+        return scheduler.schedule(task, Math.max(0, delayMillis), TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Fail the given future with a {@link TimeoutException} if it is not completed within timeoutMillis.
+     *
+     * @return the given future
+     */
+    public static <T> CompletableFuture<T> failAfter(CompletableFuture<T> future, long timeoutMillis, String message) {
+        return failAfter(future, timeoutMillis, message, () -> null);
+    }
+
+    /**
+     * Like {@link #failAfter(CompletableFuture, long, String)}, using the error returned by cause (if not null) at
+     * the time of the timeout as cause of the {@link TimeoutException}, e.g. the last failed attempt.
+     *
+     * @return the given future
+     */
+    public static <T> CompletableFuture<T> failAfter(CompletableFuture<T> future, long timeoutMillis, String message,
+                                                     Supplier<? extends Throwable> cause) {
+        if (future.isDone()) {
+            return future;
+        }
+        ScheduledFuture<?> timer = schedule(() -> {
+            TimeoutException timeout = new TimeoutException(message);
+            Throwable lastError = cause.get();
+            if (lastError != null) {
+                timeout.initCause(lastError);
+            }
+            future.completeExceptionally(timeout);
+        }, timeoutMillis);
+        future.whenComplete((result, error) -> timer.cancel(false));
+        return future;
+    }
+}
@@ -0,0 +1,117 @@
+package com.testfabrik.webmate.javasdk.commonutils;
+
+import com.google.common.base.Optional;
+import com.testfabrik.webmate.javasdk.WebmateApiClientException;
+import org.apache.http.HttpEntity;
+import org.apache.http.entity.AbstractHttpEntity;
+import org.apache.http.entity.ByteArrayEntity;
+import org.apache.http.entity.ContentType;
+import org.apache.http.entity.FileEntity;
+import org.apache.http.entity.InputStreamEntity;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Factory for request bodies of uploads (blobs, packages, images). Except for byte arrays, the created entities
+ * stream their content while the request is written, so the upload size does not affect memory consumption.
+ */
+public class UploadEntities {
+
+    private UploadEntities() {}
+
+    public static HttpEntity fromBytes(byte[] data, Optional<String> contentType) {
+        return new ByteArrayEntity(data, toContentType(contentType));
+    }
+
+    /**
+     * Entity reading the given file. The file length is sent as Content-Length.
+     */
+    public static HttpEntity fromPath(Path path, Optional<String> contentType) {
+        if (!Files.isRegularFile(path)) {
+            throw new WebmateApiClientException("Cannot upload " + path + ": not a regular file");
+        }
+        return new FileEntity(path.toFile(), toContentType(contentType));
+    }
+
+    /**
+     * Entity transferring the content of the channel from its current position to the end. The channel is not
+     * closed, and sending the entity does not modify its position.
+     */
+    public static HttpEntity fromChannel(FileChannel channel, Optional<String> contentType) {
+        return new FileChannelEntity(channel, toContentType(contentType));
+    }
+
+    /**
+     * Entity reading the given stream. The stream is consumed and closed when the request is sent.
+     *
+     * @param length number of bytes to be read, or -1 if unknown (the request is then sent with chunked encoding).
+     */
+    public static HttpEntity fromStream(InputStream stream, long length, Optional<String> contentType) {
+        return new InputStreamEntity(stream, length, toContentType(contentType));
+    }
+
+    private static ContentType toContentType(Optional<String> contentType) {
+        return contentType.isPresent() ? ContentType.create(contentType.get()) : null;
+    }
+
+    private static class FileChannelEntity extends AbstractHttpEntity {
+
+        private final FileChannel channel;
+        private final long start;
+        private final long length;
+
+        FileChannelEntity(FileChannel channel, ContentType contentType) {
+            this.channel = channel;
+            try {
+                this.start = channel.position();
+                this.length = channel.size() - start;
+            } catch (IOException e) {
+                throw new WebmateApiClientException("Could not determine size of upload: " + e.getMessage(), e);
+            }
+            if (contentType != null) {
+                setContentType(contentType.toString());
+            }
+        }
+
+        @Override
+        public boolean isRepeatable() {
+            return true;
+        }
+
+        @Override
+        public long getContentLength() {
+            return length;
+        }
+
+        @Override
+        public InputStream getContent() throws IOException {
+            return Channels.newInputStream(channel.position(start));
+        }
+
+        @Override
+        public void writeTo(OutputStream outStream) throws IOException {
+            WritableByteChannel target = Channels.newChannel(outStream);
+            long written = 0;
+            while (written < length) {
+                long n = channel.transferTo(start + written, length - written, target);
+                if (n <= 0) {
+                    throw new IOException("Upload channel ended after " + written + " of " + length + " bytes");
+                }
+                written += n;
+            }
+            outStream.flush();
+        }
+
+        @Override
+        public boolean isStreaming() {
+            return false;
+        }
+    }
+}
@@ -1,27 +1,32 @@
 package com.testfabrik.webmate.javasdk.devices;
 
 import com.fasterxml.jackson.core.type.TypeReference;
-import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
 import com.fasterxml.jackson.databind.node.JsonNodeFactory;
 import com.fasterxml.jackson.databind.node.ObjectNode;
 import com.google.common.base.Optional;
+import com.google.common.base.Supplier;
+import com.google.common.base.Suppliers;
 import com.google.common.collect.ImmutableMap;
 import com.testfabrik.webmate.javasdk.*;
 import com.testfabrik.webmate.javasdk.commonutils.HttpHelpers;
+import com.testfabrik.webmate.javasdk.commonutils.UploadEntities;
 import com.testfabrik.webmate.javasdk.packagemgmt.ImageId;
 import com.testfabrik.webmate.javasdk.packagemgmt.ImagePool;
 import com.testfabrik.webmate.javasdk.packagemgmt.ImageType;
 import com.testfabrik.webmate.javasdk.packagemgmt.PackageId;
-import com.testfabrik.webmate.javasdk.utils.JsonUtils;
+import org.apache.http.HttpEntity;
 import org.apache.http.HttpResponse;
 import org.apache.http.NameValuePair;
 import org.apache.http.impl.client.HttpClientBuilder;
 import org.apache.http.message.BasicNameValuePair;
-import org.apache.http.util.EntityUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
 import java.util.*;
 
 /**
@@ -30,7 +35,8 @@ import java.util.*;
 public class DeviceClient {
 
     private WebmateAPISession session;
-    private DeviceApiClient apiClient;
+    /** Created on first use, so that unused subsystems of a session cost (almost) nothing. */
+    private final Supplier<DeviceApiClient> apiClient;
 
     private static final Logger LOG = LoggerFactory.getLogger(DeviceClient.class);
 
@@ -38,11 +44,11 @@ public class DeviceClient {
 
         private final static UriTemplate getDeviceIdsForProject = new UriTemplate("/projects/${projectId}/device/devices");
 
-        private final static UriTemplate getDevice = new UriTemplate("/device/devices/${deviceId}");
+        private final static UriTemplate getDevice = new UriTemplate("/device/devices/${deviceId}").coalescable();
 
         private final static UriTemplate requestDeviceByRequirementsForProject = new UriTemplate("/projects/${projectId}/device/devices");
 
-        private final static UriTemplate synchronizeDevice = new UriTemplate("/device/devices/${deviceId}/sync");
+        private final static UriTemplate synchronizeDevice = new UriTemplate("/device/devices/${deviceId}/sync").idempotent();
 
         private final static UriTemplate releaseDevice = new UriTemplate("/device/devices/${deviceId}");
 
@@ -58,40 +64,33 @@ public class DeviceClient {
 
         private final static UriTemplate setCameraSimulation = new UriTemplate("/device/devices/${deviceId}/capabilities");
 
+        private final static ObjectReader uuidListReader = JacksonMapper.readerFor(new TypeReference<List<UUID>>() {});
+
         public DeviceApiClient(WebmateAuthInfo authInfo, WebmateEnvironment environment) {
             super(authInfo, environment);
         }
 
+        public DeviceApiClient(WebmateHttpTransport transport) {
+            super(transport);
+        }
+
         public DeviceApiClient(WebmateAuthInfo authInfo, WebmateEnvironment environment, HttpClientBuilder httpClientBuilder) {
             super(authInfo, environment, httpClientBuilder);
         }
 
         public Collection<DeviceId> getDeviceIdsForProject(ProjectId projectId) {
-            ApiResponse response = sendGET(getDeviceIdsForProject, ImmutableMap.of("projectId", projectId.toString()));
-
-            Optional<HttpResponse> optHttpResponse = response.getOptHttpResponse();
-
-            if (!optHttpResponse.isPresent()) {
-                throw new WebmateApiClientException("Could not get device list. Got no response");
-            }
+            List<UUID> deviceIdList = sendGETStreaming(getDeviceIdsForProject, ImmutableMap.of("projectId", projectId.toString()),
+                    uuidListReader);
 
-            List<DeviceId> deviceIds = new ArrayList<>();
-            try {
-                String deviceIdsJson = EntityUtils.toString(optHttpResponse.get().getEntity());
-                ObjectMapper mapper = JacksonMapper.getInstance();
-                List<String> deviceIdList = mapper.readValue(deviceIdsJson, new TypeReference<List<String>>(){});
-                for (String deviceIdStr : deviceIdList) {
-                   deviceIds.add(new DeviceId(UUID.fromString(deviceIdStr)));
-                }
-            } catch (IOException e) {
-                throw new WebmateApiClientException("Could not retrieve device list", e);
+            List<DeviceId> deviceIds = new ArrayList<>(deviceIdList.size());
+            for (UUID deviceId : deviceIdList) {
+               deviceIds.add(new DeviceId(deviceId));
             }
             return deviceIds;
         }
 
         public DeviceDTO requestDeviceByRequirements(ProjectId projectId, DeviceRequest deviceRequest) {
-            ObjectMapper mapper = JacksonMapper.getInstance();
-            Optional<HttpResponse> optHttpResponse = sendPOST(requestDeviceByRequirementsForProject, ImmutableMap.of("projectId", projectId.toString()), mapper.valueToTree(deviceRequest)).getOptHttpResponse();
+            Optional<HttpResponse> optHttpResponse = sendPOSTJson(requestDeviceByRequirementsForProject, ImmutableMap.of("projectId", projectId.toString()), deviceRequest).getOptHttpResponse();
 
             if (!optHttpResponse.isPresent()) {
                 throw new WebmateApiClientException("Could not request device. Got no response");
@@ -101,13 +100,8 @@ public class DeviceClient {
         }
 
         public DeviceDTO getDevice(DeviceId deviceId) {
-            Optional<HttpResponse> optHttpResponse = sendGET(getDevice, ImmutableMap.of("deviceId", deviceId.toString())).getOptHttpResponse();
-
-            if (!optHttpResponse.isPresent()) {
-                throw new WebmateApiClientException("Could not request device. Got no response");
-            }
-
-            return HttpHelpers.getObjectFromJsonEntity(optHttpResponse.get(), DeviceDTO.class);
+            return sendGETStreaming(getDevice, ImmutableMap.of("deviceId", deviceId.toString()),
+                    JacksonMapper.readerFor(DeviceDTO.class));
         }
 
         public void synchronizeDevice(DeviceId deviceId) {
@@ -131,7 +125,11 @@ public class DeviceClient {
         }
 
         public ImageId uploadImage(ProjectId projectId, byte[] image, String imageName, ImageType imageType) {
-            Optional<String> contentType = Optional.of("image/" + imageType.getValue());
+            Optional<String> contentType = imageContentType(imageType);
+            return uploadImage(projectId, UploadEntities.fromBytes(image, contentType), imageName, contentType);
+        }
+
+        public ImageId uploadImage(ProjectId projectId, HttpEntity image, String imageName, Optional<String> contentType) {
             List<NameValuePair> queryParams = new ArrayList<>();
             queryParams.add(new BasicNameValuePair("name", imageName));
 
@@ -147,6 +145,10 @@ public class DeviceClient {
             }
         }
 
+        public static Optional<String> imageContentType(ImageType imageType) {
+            return Optional.of("image/" + imageType.getValue());
+        }
+
         public void uploadImageToDevice(DeviceId deviceId, ImageId imageId) {
             sendPOST(uploadImageToDevice, ImmutableMap.of("deviceId", deviceId.toString(), "imageId", imageId.toString()));
         }
@@ -166,7 +168,7 @@ public class DeviceClient {
             String selectedImageId = imageId == null ? null : imageId.toString();
             simulateCameraNode.put("selectedImage", selectedImageId);
             Map<String, Object> params = ImmutableMap.of(CapabilityConstants.SIMULATE_CAMERA, simulateCameraNode, CapabilityConstants.MEDIA_SETTINGS, imagePool.toJson());
-            sendPOST(setCameraSimulation, ImmutableMap.of("deviceId", deviceId.toString()), JsonUtils.getJsonFromData(params));
+            sendPOSTJson(setCameraSimulation, ImmutableMap.of("deviceId", deviceId.toString()), params);
         }
 
     }
@@ -178,7 +180,7 @@ public class DeviceClient {
      */
     public DeviceClient(WebmateAPISession session) {
         this.session = session;
-        this.apiClient = new DeviceApiClient(session.authInfo, session.environment);
+        this.apiClient = Suppliers.memoize(() -> new DeviceApiClient(session.getTransport()));
     }
 
     /**
@@ -189,7 +191,7 @@ public class DeviceClient {
      */
     public DeviceClient(WebmateAPISession session,  HttpClientBuilder httpClientBuilder) {
         this.session = session;
-        this.apiClient = new DeviceApiClient(session.authInfo, session.environment, httpClientBuilder);
+        this.apiClient = Suppliers.memoize(() -> new DeviceApiClient(session.authInfo, session.environment, httpClientBuilder));
     }
 
     /**
@@ -199,7 +201,7 @@ public class DeviceClient {
      * @return Collection of device ids.
      */
     public Collection<DeviceId> getDeviceIdsForProject(ProjectId projectId) {
-        return this.apiClient.getDeviceIdsForProject(projectId);
+        return this.apiClient.get().getDeviceIdsForProject(projectId);
     }
 
 
@@ -210,7 +212,7 @@ public class DeviceClient {
      * @return information about device
      */
     public DeviceDTO getDeviceInfo(DeviceId deviceId) {
-        return this.apiClient.getDevice(deviceId);
+        return this.apiClient.get().getDevice(deviceId);
     }
 
     /**
@@ -220,7 +222,7 @@ public class DeviceClient {
      * @param deviceRequest Contains the defined device properties.
      */
     public DeviceDTO requestDeviceByRequirements(ProjectId projectId, DeviceRequest deviceRequest) {
-        return this.apiClient.requestDeviceByRequirements(projectId, deviceRequest);
+        return this.apiClient.get().requestDeviceByRequirements(projectId, deviceRequest);
     }
 
     /**
@@ -242,7 +244,7 @@ public class DeviceClient {
      * @param deviceId DeviceId of device. Can be found in "Details" dialog of an item in webmate device overview.
      */
     public void synchronizeDevice(DeviceId deviceId) {
-        this.apiClient.synchronizeDevice(deviceId);
+        this.apiClient.get().synchronizeDevice(deviceId);
     }
 
     /**
@@ -251,7 +253,7 @@ public class DeviceClient {
      * @param deviceId DeviceId of device. Can be found in "Details" dialog of an item in webmate device overview.
      */
     public void releaseDevice(DeviceId deviceId) {
-        this.apiClient.releaseDevice(deviceId);
+        this.apiClient.get().releaseDevice(deviceId);
     }
 
     /**
@@ -260,7 +262,7 @@ public class DeviceClient {
      * @param deviceId DeviceId of device. Can be found in "Details" dialog of an item in webmate device overview.
      */
     public void redeployDevice(DeviceId deviceId) {
-        this.apiClient.redeployDevice(deviceId);
+        this.apiClient.get().redeployDevice(deviceId);
     }
 
     /**
@@ -270,7 +272,7 @@ public class DeviceClient {
      * @param deviceId DeviceId of device. Can be found in "Details" dialog of an item in webmate device overview.
      */
     public void resetDevice(DeviceId deviceId) {
-        this.apiClient.resetDevice(deviceId);
+        this.apiClient.get().resetDevice(deviceId);
     }
 
     /**
@@ -282,7 +284,7 @@ public class DeviceClient {
      * @param instrumented If true, the instrumented version of the app will be installed, if available.
      */
     public void installAppOnDevice(DeviceId deviceId, PackageId appId, Boolean instrumented) {
-        this.apiClient.installAppOnDevice(deviceId, appId, instrumented);
+        this.apiClient.get().installAppOnDevice(deviceId, appId, instrumented);
     }
 
     /**
@@ -292,7 +294,7 @@ public class DeviceClient {
      * @param appId Id of app to be installed. Can be found in App management of the webmate device overview.
      */
     public void installAppOnDevice(DeviceId deviceId, PackageId appId) {
-        this.apiClient.installAppOnDevice(deviceId, appId, false);
+        this.apiClient.get().installAppOnDevice(deviceId, appId, false);
     }
 
     /**
@@ -306,7 +308,50 @@ public class DeviceClient {
      * @return Id of the uploaded image.
      */
     public ImageId uploadImage(ProjectId projectId, byte[] image, String imageName, ImageType imageType) {
-        return this.apiClient.uploadImage(projectId, image, imageName, imageType);
+        return this.apiClient.get().uploadImage(projectId, image, imageName, imageType);
+    }
+
+    /**
+     * Uploads an image file to webmate. The file is streamed and not loaded into memory.
+     *
+     * @param projectId Id of Project (as found in dashboard), for which devices should be retrieved.
+     * @param image Path of the image file.
+     * @param imageName Desired name of the image.
+     * @param imageType Image format type.
+     * @return Id of the uploaded image.
+     */
+    public ImageId uploadImage(ProjectId projectId, Path image, String imageName, ImageType imageType) {
+        Optional<String> contentType = DeviceApiClient.imageContentType(imageType);
+        return this.apiClient.get().uploadImage(projectId, UploadEntities.fromPath(image, contentType), imageName, contentType);
+    }
+
+    /**
+     * Uploads an image to webmate, read from a file channel (from its current position to the end).
+     *
+     * @param projectId Id of Project (as found in dashboard), for which devices should be retrieved.
+     * @param image Channel to read the image from. It is not closed after the upload.
+     * @param imageName Desired name of the image.
+     * @param imageType Image format type.
+     * @return Id of the uploaded image.
+     */
+    public ImageId uploadImage(ProjectId projectId, FileChannel image, String imageName, ImageType imageType) {
+        Optional<String> contentType = DeviceApiClient.imageContentType(imageType);
+        return this.apiClient.get().uploadImage(projectId, UploadEntities.fromChannel(image, contentType), imageName, contentType);
+    }
+
+    /**
+     * Uploads an image to webmate, read from a stream. The stream is closed after the upload.
+     *
+     * @param projectId Id of Project (as found in dashboard), for which devices should be retrieved.
+     * @param image Stream to read the image from.
+     * @param length Size of the image in bytes, or -1 if unknown.
+     * @param imageName Desired name of the image.
+     * @param imageType Image format type.
+     * @return Id of the uploaded image.
+     */
+    public ImageId uploadImage(ProjectId projectId, InputStream image, long length, String imageName, ImageType imageType) {
+        Optional<String> contentType = DeviceApiClient.imageContentType(imageType);
+        return this.apiClient.get().uploadImage(projectId, UploadEntities.fromStream(image, length, contentType), imageName, contentType);
     }
 
     /**
@@ -317,7 +362,7 @@ public class DeviceClient {
      * @param imageId Id of the image to be pushed to device.
      */
     public void uploadImageToDevice(DeviceId deviceId, ImageId imageId) {
-        this.apiClient.uploadImageToDevice(deviceId, imageId);
+        this.apiClient.get().uploadImageToDevice(deviceId, imageId);
     }
 
     /**
@@ -333,7 +378,7 @@ public class DeviceClient {
      */
     public ImageId uploadImageToDevice(ProjectId projectId, byte[] image, String imageName, ImageType imageType,
                                        DeviceId deviceId) {
-        return this.apiClient.uploadImageToDevice(projectId, image, imageName, imageType, deviceId);
+        return this.apiClient.get().uploadImageToDevice(projectId, image, imageName, imageType, deviceId);
     }
 
     /**
@@ -349,7 +394,7 @@ public class DeviceClient {
      *                  selectedImageId.
      */
     public void setCameraSimulation(DeviceId deviceId, ImageId selectedImageId, boolean simulate, ImagePool imagePool) {
-        this.apiClient.setCameraSimulation(deviceId, selectedImageId, simulate, imagePool);
+        this.apiClient.get().setCameraSimulation(deviceId, selectedImageId, simulate, imagePool);
     }
 
     /**
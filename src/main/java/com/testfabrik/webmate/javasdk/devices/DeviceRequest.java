@@ -3,7 +3,6 @@ package com.testfabrik.webmate.javasdk.devices;
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import com.fasterxml.jackson.annotation.JsonValue;
 import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.node.ObjectNode;
 import com.testfabrik.webmate.javasdk.JacksonMapper;
 
@@ -29,10 +28,9 @@ public class DeviceRequest {
 
     @JsonValue
     JsonNode toJson() {
-        ObjectMapper om = JacksonMapper.getInstance();
-        ObjectNode root = om.createObjectNode();
+        ObjectNode root = JacksonMapper.createObjectNode();
         root.put("name", this.name);
-        root.set("deviceRequirements", om.valueToTree(this.deviceRequirements));
+        root.set("deviceRequirements", JacksonMapper.valueToTree(this.deviceRequirements));
 
         return root;
     }
@@ -2,7 +2,6 @@ package com.testfabrik.webmate.javasdk.devices;
 
 import com.fasterxml.jackson.annotation.JsonValue;
 import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.node.ObjectNode;
 import com.testfabrik.webmate.javasdk.JacksonMapper;
 
@@ -21,10 +20,9 @@ public class DeviceRequirements {
 
     @JsonValue
     JsonNode toJson() {
-        ObjectMapper om = JacksonMapper.getInstance();
-        ObjectNode root = om.createObjectNode();
+        ObjectNode root = JacksonMapper.createObjectNode();
         for (Map.Entry<DevicePropertyName, Object> entry : this.deviceProperties.entrySet()) {
-            JsonNode jsonNode = om.valueToTree(entry.getValue());
+            JsonNode jsonNode = JacksonMapper.valueToTree(entry.getValue());
             String s = entry.getValue().toString();
             root.set(entry.getKey().property, jsonNode);
         }
@@ -0,0 +1,207 @@
+package com.testfabrik.webmate.javasdk.jobs;
+
+import com.google.common.base.Optional;
+import com.testfabrik.webmate.javasdk.ProjectId;
+import com.testfabrik.webmate.javasdk.WebmateApiClientException;
+import com.testfabrik.webmate.javasdk.WebmateAsyncExecutor;
+import com.testfabrik.webmate.javasdk.commonutils.Scheduling;
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Launches many Jobs (e.g. the crossbrowser and regression Jobs of a nightly run) at once, see
+ * {@link JobEngine#bulkLauncher()}. Each Job needs two calls, one to create and one to start it. The launches are
+ * pipelined: each call is a separate task on the session's {@link WebmateAsyncExecutor}, so no thread waits between
+ * the creation and the start of a Job, and the creation of some Jobs overlaps with the start of others. Up to
+ * maxConcurrency Jobs are in flight at the same time, while all calls together are paced to maxRequestsPerSecond;
+ * the executor and the transport's adaptive limits bound the calls actually running. If job reuse is enabled on the
+ * JobEngine, Jobs created before are started again instead of being created.
+ */
+public class BulkJobLauncher {
+
+    public static final int DEFAULT_MAX_CONCURRENCY = 16;
+    public static final double DEFAULT_MAX_REQUESTS_PER_SECOND = 50;
+
+    private final JobEngine jobEngine;
+    private final WebmateAsyncExecutor executor;
+
+    private int maxConcurrency = DEFAULT_MAX_CONCURRENCY;
+    private double maxRequestsPerSecond = DEFAULT_MAX_REQUESTS_PER_SECOND;
+
+    BulkJobLauncher(JobEngine jobEngine, WebmateAsyncExecutor executor) {
+        this.jobEngine = jobEngine;
+        this.executor = executor;
+    }
+
+    /**
+     * Maximum number of Jobs being launched at the same time. The next Job is launched as soon as one of them has
+     * been started (or has failed).
+     */
+    public BulkJobLauncher setMaxConcurrency(int maxConcurrency) {
+        if (maxConcurrency < 1) {
+            throw new IllegalArgumentException("maxConcurrency must be positive, but was " + maxConcurrency);
+        }
+        this.maxConcurrency = maxConcurrency;
+        return this;
+    }
+
+    /**
+     * Maximum number of calls (creating or starting a Job) per second. {@link Double#POSITIVE_INFINITY} disables
+     * rate limiting.
+     */
+    public BulkJobLauncher setMaxRequestsPerSecond(double maxRequestsPerSecond) {
+        if (!(maxRequestsPerSecond > 0)) {
+            throw new IllegalArgumentException("maxRequestsPerSecond must be positive, but was " + maxRequestsPerSecond);
+        }
+        this.maxRequestsPerSecond = maxRequestsPerSecond;
+        return this;
+    }
+
+    /**
+     * Create and start a Job for each of the given inputs. Launching starts immediately; the returned stream
+     * yields the result of each Job as soon as it is available, i.e. in the order in which the launches finished,
+     * blocking until the next one is available. Closing the stream stops launching further Jobs; launches which
+     * have already begun are finished.
+     *
+     * @param nameForJobInstances Name describing the Jobs.
+     * @param inputs Configurations of webmate well-known Jobs, e.g. BrowserSessionCrossbrowserJobInput.
+     * @param projectId ProjectId of Project where the Jobs should be started in.
+     * @return Stream with one result per input.
+     */
+    public <I extends WellKnownJobInput> Stream<JobLaunchResult<I>> launch(String nameForJobInstances, List<I> inputs,
+                                                                          ProjectId projectId) {
+        Launch<I> launch = new Launch<>(nameForJobInstances, inputs.iterator(), projectId);
+        for (int i = 0; i < maxConcurrency; i++) {
+            launch.launchNext();
+        }
+
+        Iterator<JobLaunchResult<I>> iterator = new Iterator<JobLaunchResult<I>>() {
+            private int remaining = inputs.size();
+
+            @Override
+            public boolean hasNext() {
+                return remaining > 0;
+            }
+
+            @Override
+            public JobLaunchResult<I> next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                try {
+                    JobLaunchResult<I> result = launch.results.take();
+                    remaining--;
+                    return result;
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new WebmateApiClientException("Interrupted while launching Jobs", e);
+                }
+            }
+        };
+        return StreamSupport.stream(Spliterators.spliterator(iterator, inputs.size(),
+                Spliterator.NONNULL | Spliterator.SIZED), false)
+                .onClose(launch::close);
+    }
+
+    /** State of one call of {@link #launch}. */
+    private class Launch<I extends WellKnownJobInput> {
+        private final String nameForJobInstances;
+        private final ProjectId projectId;
+        /** Inputs not launched yet, guarded by this. */
+        private final Iterator<I> inputs;
+        private boolean closed = false;
+        private final BlockingQueue<JobLaunchResult<I>> results = new LinkedBlockingQueue<>();
+
+        private final long callIntervalNanos = (long) (TimeUnit.SECONDS.toNanos(1) / maxRequestsPerSecond);
+        /** Earliest time (System.nanoTime) for the next call. */
+        private final AtomicLong nextCallAt = new AtomicLong(System.nanoTime());
+
+        Launch(String nameForJobInstances, Iterator<I> inputs, ProjectId projectId) {
+            this.nameForJobInstances = nameForJobInstances;
+            this.inputs = inputs;
+            this.projectId = projectId;
+        }
+
+        synchronized void close() {
+            closed = true;
+        }
+
+        void launchNext() {
+            I input;
+            synchronized (this) {
+                if (closed || !inputs.hasNext()) {
+                    return;
+                }
+                input = inputs.next();
+            }
+            launch(input).thenAccept(result -> {
+                results.add(result);
+                launchNext();
+            });
+        }
+
+        private CompletableFuture<JobLaunchResult<I>> launch(I input) {
+            JobConfigName configName = input.getName();
+            Map<PortName, WMValue> inputValues = input.makeInputValues();
+            AtomicReference<JobId> jobId = new AtomicReference<>();
+
+            Optional<JobId> knownJob = jobEngine.getReusableJob(configName, inputValues, projectId);
+            CompletableFuture<Optional<JobRunId>> reused = CompletableFuture.completedFuture(Optional.<JobRunId>absent());
+            if (knownJob.isPresent()) {
+                reused = call(() -> jobEngine.startReusedJob(knownJob.get(), configName, inputValues, projectId));
+            }
+            return reused.thenCompose(jobRunId -> {
+                if (jobRunId.isPresent()) {
+                    jobId.set(knownJob.get());
+                    return CompletableFuture.completedFuture(jobRunId.get());
+                }
+                return call(() -> jobEngine.createJob(configName, nameForJobInstances, inputValues, projectId))
+                        .thenCompose(created -> {
+                            jobId.set(created);
+                            return call(() -> jobEngine.startJob(created));
+                        });
+            }).handle((jobRunId, error) -> {
+                if (error == null) {
+                    return new JobLaunchResult<>(input, Optional.of(jobId.get()), Optional.of(jobRunId),
+                            Optional.<Throwable>absent());
+                }
+                if (error instanceof CompletionException && error.getCause() != null) {
+                    error = error.getCause();
+                }
+                return new JobLaunchResult<>(input, Optional.fromNullable(jobId.get()), Optional.<JobRunId>absent(),
+                        Optional.of(error));
+            });
+        }
+
+        /**
+         * Run the given call on the executor once it is due according to maxRequestsPerSecond. Waiting for the
+         * call to become due is done by the shared scheduler, not by an executor thread.
+         */
+        private <T> CompletableFuture<T> call(Supplier<T> call) {
+            long now = System.nanoTime();
+            long callAt = Math.max(now, nextCallAt.getAndAccumulate(now, (next, time) -> Math.max(next, time) + callIntervalNanos));
+            long delayMillis = TimeUnit.NANOSECONDS.toMillis(callAt - now);
+            if (delayMillis == 0) {
+                return executor.supplyAsync(call);
+            }
+            CompletableFuture<Void> due = new CompletableFuture<>();
+            Scheduling.schedule(() -> due.complete(null), delayMillis);
+            return due.thenCompose(ignored -> executor.supplyAsync(call));
+        }
+    }
+}
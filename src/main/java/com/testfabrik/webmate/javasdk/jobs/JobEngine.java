@@ -1,24 +1,35 @@
 package com.testfabrik.webmate.javasdk.jobs;
 
+import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
 import com.fasterxml.jackson.databind.node.JsonNodeFactory;
 import com.fasterxml.jackson.databind.node.NullNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
 import com.google.common.base.Optional;
+import com.google.common.base.Supplier;
+import com.google.common.base.Suppliers;
 import com.google.common.collect.ImmutableMap;
 import com.testfabrik.webmate.javasdk.*;
+import com.testfabrik.webmate.javasdk.commonutils.CompletionEngine;
 import org.apache.http.HttpResponse;
 import org.apache.http.impl.client.HttpClientBuilder;
 import org.apache.http.util.EntityUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeoutException;
 
 /**
  * Facade to webmate's JobEngine subsystem.
  */
 public class JobEngine {
 
+    private static final Logger LOG = LoggerFactory.getLogger(JobEngine.class);
+
     private static class JobEngineApiClient extends WebmateApiClient {
 
         private final static UriTemplate createJobTemplate = new UriTemplate("/projects/${projectId}/job/jobs");
@@ -27,6 +38,9 @@ public class JobEngine {
         private final static UriTemplate jobRunSummaryTemplate = new UriTemplate("/job/jobruns/${jobRunId}/summary");
         private final static UriTemplate jobsForProjectTemplate = new UriTemplate("/projects/${projectId}/job/jobs");
 
+        private final static ObjectReader uuidListReader = JacksonMapper.readerFor(new TypeReference<List<UUID>>() {});
+        private final static ObjectReader jobRunSummaryReader = JacksonMapper.readerFor(JobRunSummary.class);
+
         public JobEngineApiClient(WebmateAuthInfo webmateAuthInfo, WebmateEnvironment environment, HttpClientBuilder httpClientBuilder) {
             super(webmateAuthInfo, environment, httpClientBuilder);
         }
@@ -35,6 +49,10 @@ public class JobEngine {
             super(webmateAuthInfo, environment);
         }
 
+        public JobEngineApiClient(WebmateHttpTransport transport) {
+            super(transport);
+        }
+
         /**
          * Create new Job.
          *
@@ -46,27 +64,21 @@ public class JobEngine {
          */
         public JobId createJob(ProjectId projectId, JobConfigName jobConfigName, String nameForJobInstance, Map<PortName, WMValue> inputValues) {
 
-            ObjectMapper mapper = new ObjectMapper();
-
-            Map<String, JsonNode> simpleInputValues = new HashMap<>();
-            for (PortName key : inputValues.keySet()) {
-                simpleInputValues.put(key.toString(), mapper.valueToTree(inputValues.get(key)));
+            Map<String, WMValue> simpleInputValues = new HashMap<>();
+            for (Map.Entry<PortName, WMValue> entry : inputValues.entrySet()) {
+                simpleInputValues.put(entry.getKey().toString(), entry.getValue());
             }
 
-            JsonNode inputValuesJson = mapper.valueToTree(simpleInputValues);
+            ObjectNode scheduling = JsonNodeFactory.instance.objectNode();
+            scheduling.putObject("jobSchedulingSpec").putObject("ExecuteLater");
 
-            Map<String, JsonNode> createJobDto;
-            try {
-                createJobDto = ImmutableMap.of(
-                        "nameForJobInstance", JsonNodeFactory.instance.textNode(nameForJobInstance),
-                        "inputValues", inputValuesJson,
-                        "scheduling", mapper.readTree("{ \"jobSchedulingSpec\": { \"ExecuteLater\": {} } }"),
-                        "jobConfigIdOrName", JsonNodeFactory.instance.textNode(jobConfigName.jobConfigName));
-            } catch (IOException e) {
-                throw new WebmateApiClientException("Error creating JSON", e);
-            }
+            Map<String, Object> createJobDto = ImmutableMap.of(
+                    "nameForJobInstance", JsonNodeFactory.instance.textNode(nameForJobInstance),
+                    "inputValues", simpleInputValues,
+                    "scheduling", scheduling,
+                    "jobConfigIdOrName", JsonNodeFactory.instance.textNode(jobConfigName.jobConfigName));
 
-            ApiResponse response = this.sendPOST(createJobTemplate, ImmutableMap.of("projectId", projectId.toString()), mapper.valueToTree(createJobDto));
+            ApiResponse response = this.sendPOSTJson(createJobTemplate, ImmutableMap.of("projectId", projectId.toString()), createJobDto);
             Optional<HttpResponse> optHttpResponse = response.getOptHttpResponse();
 
             if (!optHttpResponse.isPresent()) {
@@ -105,27 +117,12 @@ public class JobEngine {
          * Return list of JobRuns for the given JobId.
          */
         public List<JobRunId> getJobRunsForJob(JobId jobId) {
-            ApiResponse response = this.sendGET(jobRunsForJobTemplate, ImmutableMap.of("jobId", jobId.toString()));
-
-            Optional<HttpResponse> optHttpResponse = response.getOptHttpResponse();
-            if (!optHttpResponse.isPresent()) {
-                throw new WebmateApiClientException("Could not get JobRuns for Job " + jobId + ". Got no response");
-            }
-
-            if (optHttpResponse.get().getStatusLine().getStatusCode() != 200) {
-                throw new WebmateApiClientException("Retrieving JobRuns" + jobId + ". Got no response");
-            }
-
-            List<JobRunId> jobRunIds = new ArrayList<>();
-            ObjectMapper om = new ObjectMapper();
+            List<UUID> jsonIds = sendGETStreaming(jobRunsForJobTemplate, ImmutableMap.of("jobId", jobId.toString()),
+                    uuidListReader);
 
-            try {
-                String[] jsonIds = om.readValue(optHttpResponse.get().getEntity().getContent(), String[].class);
-                for (String jsonId : jsonIds) {
-                    jobRunIds.add(new JobRunId(UUID.fromString(jsonId)));
-                }
-            } catch (IOException e) {
-                throw new WebmateApiClientException("Could not read JobRun ids", e);
+            List<JobRunId> jobRunIds = new ArrayList<>(jsonIds.size());
+            for (UUID jsonId : jsonIds) {
+                jobRunIds.add(new JobRunId(jsonId));
             }
             return jobRunIds;
         }
@@ -134,57 +131,52 @@ public class JobEngine {
          * Get JobRunSummary jor JobRun.
          */
         public JobRunSummary getSummaryOfJobRun(JobRunId jobRunId) {
-            ApiResponse response = this.sendGET(jobRunSummaryTemplate, ImmutableMap.of("jobRunId", jobRunId.toString()));
-
-            Optional<HttpResponse> optHttpResponse = response.getOptHttpResponse();
-            if (!optHttpResponse.isPresent()) {
-                throw new WebmateApiClientException("Could not get summary of JobRun " + jobRunId + ". Got no response");
-            }
-
-            ObjectMapper om = JacksonMapper.getInstance();
-            try {
-                String jobRunSummaryJson = EntityUtils.toString(optHttpResponse.get().getEntity());
-                return om.readValue(jobRunSummaryJson, JobRunSummary.class);
-            } catch (IOException e) {
-                throw new WebmateApiClientException("Could not read JobRunSummary", e);
-            }
+            return sendGETStreaming(jobRunSummaryTemplate, ImmutableMap.of("jobRunId", jobRunId.toString()),
+                    jobRunSummaryReader);
         }
 
         public List<JobId> getJobsInProject(ProjectId projectId) {
-            ApiResponse response = this.sendGET(jobsForProjectTemplate, ImmutableMap.of("projectId", projectId.toString()));
-
-            Optional<HttpResponse> optHttpResponse = response.getOptHttpResponse();
-            if (!optHttpResponse.isPresent()) {
-                throw new WebmateApiClientException("Could not get Jobs for Project " + projectId + ". Got no response");
-            }
-
-            if (optHttpResponse.get().getStatusLine().getStatusCode() != 200) {
-                throw new WebmateApiClientException("Retrieving Jobs for Project " + projectId + ". Got no response");
-            }
+            JsonNode result = sendGETStreaming(jobsForProjectTemplate, ImmutableMap.of("projectId", projectId.toString()),
+                    JacksonMapper.readerFor(JsonNode.class));
 
             List<JobId> jobIds = new ArrayList<>();
-            ObjectMapper om = new ObjectMapper();
-
-            try {
-                JsonNode result = om.readTree(EntityUtils.toString(optHttpResponse.get().getEntity()));
-                for (String jsonId : result.findValuesAsText("id")) {
-                    jobIds.add(new JobId(UUID.fromString(jsonId)));
-                }
-            } catch (IOException e) {
-                throw new WebmateApiClientException("Could not read Job ids", e);
+            for (String jsonId : result.findValuesAsText("id")) {
+                jobIds.add(new JobId(UUID.fromString(jsonId)));
             }
             return jobIds;
         }
     }
 
-    private JobEngineApiClient apiClient;
+    /** Default time to wait for a JobRun to finish. */
+    public static final long JOBRUN_COMPLETION_TIMEOUT_MILLIS = 3_600_000;
+    private static final long JOBRUN_POLL_INITIAL_INTERVAL_MILLIS = 500;
+    private static final long JOBRUN_POLL_MAX_INTERVAL_MILLIS = 10_000;
+
+    private final WebmateAPISession session;
+    /** Created on first use, so that unused subsystems of a session cost (almost) nothing. */
+    private final Supplier<JobEngineApiClient> apiClient;
+    /** Jobs to reuse, null if job reuse is disabled. */
+    private volatile JobIdentityCache jobReuseCache;
+
+    /** Waits for JobRuns to finish, created on first use. */
+    private final Supplier<CompletionEngine<JobRunId, JobRunSummary>> jobRunCompletion;
 
     public JobEngine(WebmateAPISession session, HttpClientBuilder httpClientBuilder) {
-        this.apiClient = new JobEngineApiClient(session.authInfo, session.environment, httpClientBuilder);
+        this.session = session;
+        this.apiClient = Suppliers.memoize(() -> new JobEngineApiClient(session.authInfo, session.environment, httpClientBuilder));
+        this.jobRunCompletion = completionEngine(session);
     }
 
     public JobEngine(WebmateAPISession session) {
-        this.apiClient = new JobEngineApiClient(session.authInfo, session.environment);
+        this.session = session;
+        this.apiClient = Suppliers.memoize(() -> new JobEngineApiClient(session.getTransport()));
+        this.jobRunCompletion = completionEngine(session);
+    }
+
+    private Supplier<CompletionEngine<JobRunId, JobRunSummary>> completionEngine(WebmateAPISession session) {
+        return Suppliers.memoize(() -> new CompletionEngine<>(this::getSummaryOfJobRun,
+                summary -> summary.getState() != JobRunState.RUNNING, session.getAsyncExecutor(),
+                JOBRUN_POLL_INITIAL_INTERVAL_MILLIS, JOBRUN_POLL_MAX_INTERVAL_MILLIS));
     }
 
     /**
@@ -197,12 +189,99 @@ public class JobEngine {
      * @return Id of new JobRun
      */
     public JobRunId startJob(JobConfigName jobConfigName, String nameForJobInstance, Map<PortName, WMValue> inputValues, ProjectId projectId) {
+        Optional<JobId> knownJob = getReusableJob(jobConfigName, inputValues, projectId);
+        if (knownJob.isPresent()) {
+            Optional<JobRunId> jobRunId = startReusedJob(knownJob.get(), jobConfigName, inputValues, projectId);
+            if (jobRunId.isPresent()) {
+                return jobRunId.get();
+            }
+        }
+        return startJob(createJob(jobConfigName, nameForJobInstance, inputValues, projectId));
+    }
 
-        // create Job
-        JobId jobId = this.apiClient.createJob(projectId, jobConfigName, nameForJobInstance, inputValues);
-        JobRunId firstJobRun = startJob(jobId);
+    /**
+     * @return the Job created before for the given configuration, absent if there is none or job reuse is disabled.
+     */
+    Optional<JobId> getReusableJob(JobConfigName jobConfigName, Map<PortName, WMValue> inputValues, ProjectId projectId) {
+        JobIdentityCache reuseCache = this.jobReuseCache;
+        if (reuseCache == null) {
+            return Optional.absent();
+        }
+        return reuseCache.get(JobIdentityCache.keyFor(projectId, jobConfigName, inputValues));
+    }
 
-        return firstJobRun;
+    /**
+     * Start a Job returned by {@link #getReusableJob}. If webmate rejects it, e.g. because it has been deleted, the
+     * Job is not reused anymore.
+     *
+     * @return Id of the new JobRun, absent if webmate rejected the Job and a new one has to be created.
+     */
+    Optional<JobRunId> startReusedJob(JobId jobId, JobConfigName jobConfigName, Map<PortName, WMValue> inputValues,
+                                      ProjectId projectId) {
+        try {
+            return Optional.of(startJob(jobId));
+        } catch (WebmateApiStatusException e) {
+            // only if webmate rejects the Job itself; other errors (timeouts, 5xx, open circuit breaker) say
+            // nothing about the Job and are passed on
+            if (!e.isClientError()) {
+                throw e;
+            }
+            LOG.info("Could not start existing Job " + jobId + ", creating a new one", e);
+            JobIdentityCache reuseCache = this.jobReuseCache;
+            if (reuseCache != null) {
+                reuseCache.remove(JobIdentityCache.keyFor(projectId, jobConfigName, inputValues), jobId);
+            }
+            return Optional.absent();
+        }
+    }
+
+    /**
+     * Create a new Job without starting it, remembering it for reuse if job reuse is enabled.
+     */
+    JobId createJob(JobConfigName jobConfigName, String nameForJobInstance, Map<PortName, WMValue> inputValues,
+                    ProjectId projectId) {
+        JobId jobId = this.apiClient.get().createJob(projectId, jobConfigName, nameForJobInstance, inputValues);
+        JobIdentityCache reuseCache = this.jobReuseCache;
+        if (reuseCache != null) {
+            reuseCache.put(JobIdentityCache.keyFor(projectId, jobConfigName, inputValues), jobId);
+        }
+        return jobId;
+    }
+
+    /**
+     * Reuse Jobs: when a Job is started with the same JobConfig and input values (in the same project) as a Job
+     * which has been created before, the existing Job is started again instead of creating a new one, saving a
+     * round trip. The name given for the new Job is ignored in this case. If webmate rejects starting the existing
+     * Job (with a 4xx status, e.g. because it has been deleted), a new Job is created. Other errors, e.g. timeouts or
+     * server errors, are thrown as they are and the Job is kept for the next attempt.
+     *
+     * @param cache Cache mapping Job configurations to the Jobs created for them, e.g. backed by a file.
+     */
+    public void enableJobReuse(JobIdentityCache cache) {
+        this.jobReuseCache = cache;
+    }
+
+    /**
+     * Create a new Job for each start of a Job configuration (the default).
+     */
+    public void disableJobReuse() {
+        this.jobReuseCache = null;
+    }
+
+    /**
+     * @return the cache used for reusing Jobs, absent if job reuse is disabled.
+     */
+    public Optional<JobIdentityCache> getJobReuseCache() {
+        return Optional.fromNullable(jobReuseCache);
+    }
+
+    /**
+     * Create a launcher for creating and starting many Jobs at once, with bounded concurrency and rate limiting.
+     *
+     * @return New launcher with default settings.
+     */
+    public BulkJobLauncher bulkLauncher() {
+        return new BulkJobLauncher(this, session.getAsyncExecutor());
     }
 
     /**
@@ -220,6 +299,16 @@ public class JobEngine {
         return startJob(configName, nameForJobInstance, inputValues, projectId);
     }
 
+    /**
+     * Like {@link #startJob(String, WellKnownJobInput, ProjectId)}, run on the session's
+     * {@link WebmateAsyncExecutor}. For starting many Jobs at once, see {@link #bulkLauncher()}.
+     *
+     * @return Future completed with the id of the new JobRun
+     */
+    public CompletableFuture<JobRunId> startJobAsync(String nameForJobInstance, WellKnownJobInput config, ProjectId projectId) {
+        return session.getAsyncExecutor().supplyAsync(() -> startJob(nameForJobInstance, config, projectId));
+    }
+
     /**
      * Start a Job which already exists. (i.e. to run a Job again)
      *
@@ -227,7 +316,7 @@ public class JobEngine {
      * @return The id of the JobRun that was created
      */
     public JobRunId startJob(JobId id) {
-        return this.apiClient.startExistingJob(id);
+        return this.apiClient.get().startExistingJob(id);
     }
 
     /**
@@ -237,7 +326,7 @@ public class JobEngine {
      * @return List of JobRun ids
      */
     public List<JobRunId> getJobRunsForJob(JobId jobId) {
-        return this.apiClient.getJobRunsForJob(jobId);
+        return this.apiClient.get().getJobRunsForJob(jobId);
     }
 
     /**
@@ -247,7 +336,90 @@ public class JobEngine {
      * @return Summary of the current state of the JobRun
      */
     public JobRunSummary getSummaryOfJobRun(JobRunId jobRunId) {
-        return this.apiClient.getSummaryOfJobRun(jobRunId);
+        return this.apiClient.get().getSummaryOfJobRun(jobRunId);
+    }
+
+    /**
+     * Like {@link #getSummaryOfJobRun(JobRunId)}, run on the session's {@link WebmateAsyncExecutor}.
+     *
+     * @param jobRunId Id of the JobRun for which the current state should be retrieved.
+     * @return Future completed with the summary of the current state of the JobRun
+     */
+    public CompletableFuture<JobRunSummary> getSummaryOfJobRunAsync(JobRunId jobRunId) {
+        return session.getAsyncExecutor().supplyAsync(() -> getSummaryOfJobRun(jobRunId));
+    }
+
+    /**
+     * Wait (without blocking) for a JobRun to finish, i.e. to succeed or fail. All pending JobRuns of this session
+     * are polled by one shared poll loop, each starting with a short interval which is doubled up to 10 seconds
+     * while the JobRun is still running.
+     *
+     * @param jobRunId Id of the JobRun.
+     * @param timeoutMillis Time after which the returned future fails with a {@link TimeoutException}.
+     * @return Future completed with the summary of the finished JobRun. Cancelling it ends the wait.
+     */
+    public CompletableFuture<JobRunSummary> awaitJobRun(JobRunId jobRunId, long timeoutMillis) {
+        return jobRunCompletion.get().await(jobRunId, timeoutMillis);
+    }
+
+    /**
+     * Wait (without blocking) for a JobRun to finish, for at most {@link #JOBRUN_COMPLETION_TIMEOUT_MILLIS}.
+     *
+     * @param jobRunId Id of the JobRun.
+     * @return Future completed with the summary of the finished JobRun. Cancelling it ends the wait.
+     */
+    public CompletableFuture<JobRunSummary> awaitJobRun(JobRunId jobRunId) {
+        return awaitJobRun(jobRunId, JOBRUN_COMPLETION_TIMEOUT_MILLIS);
+    }
+
+    /**
+     * Subscribe to the progress of a JobRun. The JobRun is polled by the shared poll loop of this session until it
+     * has finished; registered listeners are called for each change of its state or last update time.
+     *
+     * @param jobRunId Id of the JobRun.
+     * @param timeoutMillis Time after which the completion future fails with a {@link TimeoutException}.
+     * @return Subscription with the completion future of the JobRun, to which listeners can be added.
+     */
+    public JobRunSubscription subscribe(JobRunId jobRunId, long timeoutMillis) {
+        return new JobRunSubscription(jobRunId, onUpdate -> jobRunCompletion.get().await(jobRunId, timeoutMillis, onUpdate));
+    }
+
+    /**
+     * Subscribe to the progress of a JobRun, for at most {@link #JOBRUN_COMPLETION_TIMEOUT_MILLIS}.
+     *
+     * @param jobRunId Id of the JobRun.
+     * @return Subscription with the completion future of the JobRun, to which listeners can be added.
+     */
+    public JobRunSubscription subscribe(JobRunId jobRunId) {
+        return subscribe(jobRunId, JOBRUN_COMPLETION_TIMEOUT_MILLIS);
+    }
+
+    /**
+     * Wait for many JobRuns together, e.g. all JobRuns of a nightly launch. All JobRuns are polled by the shared
+     * poll loop of this session. A JobRun counts as failed if its state is {@link JobRunState#FAILED}.
+     *
+     * @param jobRunIds Ids of the JobRuns.
+     * @param timeoutMillis Time after which waiting for a JobRun fails with a {@link TimeoutException}.
+     * @return Group offering awaitAll, awaitAny, awaitFirstFailure, the stream of completions and progress callbacks.
+     */
+    public CompletionGroup<JobRunId, JobRunSummary> awaitJobRuns(Collection<JobRunId> jobRunIds, long timeoutMillis) {
+        Map<JobRunId, CompletableFuture<JobRunSummary>> futures = new LinkedHashMap<>();
+        for (JobRunId jobRunId : jobRunIds) {
+            if (!futures.containsKey(jobRunId)) {
+                futures.put(jobRunId, awaitJobRun(jobRunId, timeoutMillis));
+            }
+        }
+        return new CompletionGroup<>(futures, summary -> summary.getState() == JobRunState.FAILED);
+    }
+
+    /**
+     * Wait for many JobRuns together, for at most {@link #JOBRUN_COMPLETION_TIMEOUT_MILLIS} each.
+     *
+     * @param jobRunIds Ids of the JobRuns.
+     * @return Group offering awaitAll, awaitAny, awaitFirstFailure, the stream of completions and progress callbacks.
+     */
+    public CompletionGroup<JobRunId, JobRunSummary> awaitJobRuns(Collection<JobRunId> jobRunIds) {
+        return awaitJobRuns(jobRunIds, JOBRUN_COMPLETION_TIMEOUT_MILLIS);
     }
 
     /**
@@ -257,6 +429,6 @@ public class JobEngine {
      * @return List of Job ids
      */
     public List<JobId> getJobsInProject(ProjectId projectId) {
-        return apiClient.getJobsInProject(projectId);
+        return apiClient.get().getJobsInProject(projectId);
     }
 }
@@ -0,0 +1,231 @@
+package com.testfabrik.webmate.javasdk.jobs;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.google.common.base.Optional;
+import com.google.common.hash.Hashing;
+import com.testfabrik.webmate.javasdk.JacksonMapper;
+import com.testfabrik.webmate.javasdk.ProjectId;
+import com.testfabrik.webmate.javasdk.WebmateApiClientException;
+import com.testfabrik.webmate.javasdk.commonutils.Scheduling;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Remembers which Job has been created for a JobConfig and input values, so that launching the same Job again can
+ * start the existing Job instead of creating a new one (see {@link JobEngine#enableJobReuse(JobIdentityCache)}).
+ * Jobs are identified by a SHA-256 hash of the project, the JobConfig name and the canonicalized input values, i.e.
+ * the order of ports and of JSON object fields does not matter.
+ * <p>
+ * The cache is held in memory and optionally in a properties file, so that it survives the JVM. Changes are not
+ * written one by one: the file is rewritten in the background about a second after a change, and on
+ * {@link #flush()} or {@link #close()} (which the session does when it is closed, for the cache used for job reuse).
+ * If writing fails, the cache keeps working in memory.
+ */
+public class JobIdentityCache implements Flushable, Closeable {
+
+    private static final Logger LOG = LoggerFactory.getLogger(JobIdentityCache.class);
+
+    /** Time between a change and the background write of the file, collecting further changes. */
+    private static final long WRITE_DELAY_MILLIS = 1_000;
+
+    private final ConcurrentMap<String, JobId> jobs = new ConcurrentHashMap<>();
+    private final Optional<Path> store;
+    /** True if there are changes which have not been written to the file yet. */
+    private final AtomicBoolean dirty = new AtomicBoolean();
+    private final AtomicBoolean writeScheduled = new AtomicBoolean();
+
+    /**
+     * Create a cache held in memory only.
+     */
+    public JobIdentityCache() {
+        this.store = Optional.absent();
+    }
+
+    /**
+     * Create a cache backed by the given properties file, which is created on the first write if it does not exist.
+     *
+     * @throws WebmateApiClientException if the existing file cannot be read.
+     */
+    public JobIdentityCache(Path store) {
+        this.store = Optional.of(store);
+        if (Files.exists(store)) {
+            Properties properties = new Properties();
+            try (Reader reader = Files.newBufferedReader(store, StandardCharsets.UTF_8)) {
+                properties.load(reader);
+            } catch (IOException e) {
+                throw new WebmateApiClientException("Could not read job identity cache " + store, e);
+            }
+            for (String key : properties.stringPropertyNames()) {
+                try {
+                    jobs.put(key, new JobId(UUID.fromString(properties.getProperty(key))));
+                } catch (IllegalArgumentException e) {
+                    LOG.warn("Ignoring invalid entry " + key + " in job identity cache " + store);
+                }
+            }
+        }
+    }
+
+    /**
+     * Key identifying a Job with the given configuration in the given project.
+     */
+    public static String keyFor(ProjectId projectId, JobConfigName jobConfigName, Map<PortName, WMValue> inputValues) {
+        StringBuilder canonical = new StringBuilder();
+        canonical.append(projectId).append('\n').append(jobConfigName.jobConfigName).append('\n');
+        List<Map.Entry<PortName, WMValue>> ports = new ArrayList<>(inputValues.entrySet());
+        ports.sort((a, b) -> a.getKey().toString().compareTo(b.getKey().toString()));
+        for (Map.Entry<PortName, WMValue> port : ports) {
+            canonical.append(port.getKey()).append('=');
+            appendCanonical(JacksonMapper.valueToTree(port.getValue()), canonical);
+            canonical.append('\n');
+        }
+        return Hashing.sha256().hashString(canonical, StandardCharsets.UTF_8).toString();
+    }
+
+    /**
+     * Append the given JSON with the fields of all objects sorted by name.
+     */
+    private static void appendCanonical(JsonNode node, StringBuilder out) {
+        if (node.isObject()) {
+            List<String> names = new ArrayList<>();
+            Iterator<String> fieldNames = node.fieldNames();
+            while (fieldNames.hasNext()) {
+                names.add(fieldNames.next());
+            }
+            Collections.sort(names);
+            out.append('{');
+            for (int i = 0; i < names.size(); i++) {
+                if (i > 0) {
+                    out.append(',');
+                }
+                out.append(JacksonMapper.valueToTree(names.get(i))).append(':');
+                appendCanonical(node.get(names.get(i)), out);
+            }
+            out.append('}');
+        } else if (node.isArray()) {
+            out.append('[');
+            for (int i = 0; i < node.size(); i++) {
+                if (i > 0) {
+                    out.append(',');
+                }
+                appendCanonical(node.get(i), out);
+            }
+            out.append(']');
+        } else {
+            out.append(node);
+        }
+    }
+
+    public Optional<JobId> get(String key) {
+        return Optional.fromNullable(jobs.get(key));
+    }
+
+    public void put(String key, JobId jobId) {
+        if (!jobId.equals(jobs.put(key, jobId))) {
+            changed();
+        }
+    }
+
+    /**
+     * Forget the given Job, e.g. because it could not be started anymore. Does nothing if the key has been mapped to
+     * another Job in the meantime.
+     */
+    public void remove(String key, JobId jobId) {
+        if (jobs.remove(key, jobId)) {
+            changed();
+        }
+    }
+
+    public void clear() {
+        jobs.clear();
+        changed();
+    }
+
+    public int size() {
+        return jobs.size();
+    }
+
+    /**
+     * Write pending changes to the file now.
+     */
+    @Override
+    public synchronized void flush() {
+        if (store.isPresent() && dirty.getAndSet(false)) {
+            write();
+        }
+    }
+
+    /**
+     * Write pending changes to the file. The cache can still be used afterwards.
+     */
+    @Override
+    public void close() {
+        flush();
+    }
+
+    private void changed() {
+        if (!store.isPresent()) {
+            return;
+        }
+        dirty.set(true);
+        if (writeScheduled.compareAndSet(false, true)) {
+            // the scheduler thread must not block, so it only hands the write over to a pool thread
+            Scheduling.schedule(() -> ForkJoinPool.commonPool().execute(() -> {
+                writeScheduled.set(false);
+                flush();
+            }), WRITE_DELAY_MILLIS);
+        }
+    }
+
+    /**
+     * Write the current entries to the file. Must be called while holding the lock.
+     */
+    private void write() {
+        Properties properties = new Properties();
+        for (Map.Entry<String, JobId> entry : jobs.entrySet()) {
+            properties.setProperty(entry.getKey(), entry.getValue().toString());
+        }
+        Path file = store.get().toAbsolutePath();
+        Path tmp = null;
+        try {
+            Files.createDirectories(file.getParent());
+            // write a temporary file first, so that a crash cannot leave a truncated cache behind
+            tmp = Files.createTempFile(file.getParent(), file.getFileName().toString(), ".tmp");
+            try (Writer writer = Files.newBufferedWriter(tmp, StandardCharsets.UTF_8)) {
+                properties.store(writer, "webmate job identity cache");
+            }
+            Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            LOG.warn("Could not write job identity cache " + file, e);
+            // try again with the next write
+            dirty.set(true);
+            try {
+                if (tmp != null) {
+                    Files.deleteIfExists(tmp);
+                }
+            } catch (IOException ignored) {
+                // nothing left to do
+            }
+        }
+    }
+}
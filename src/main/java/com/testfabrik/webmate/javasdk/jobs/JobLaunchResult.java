@@ -0,0 +1,57 @@
+package com.testfabrik.webmate.javasdk.jobs;
+
+import com.google.common.base.Optional;
+
+/**
+ * Outcome of launching a single Job with the {@link BulkJobLauncher}: the created Job and its JobRun, or the error
+ * which occurred. If the Job has been created but could not be started, both the JobId and the error are present.
+ *
+ * @param <I> type of the Job inputs
+ */
+public class JobLaunchResult<I extends WellKnownJobInput> {
+
+    private final I input;
+    private final Optional<JobId> jobId;
+    private final Optional<JobRunId> jobRunId;
+    private final Optional<Throwable> error;
+
+    public JobLaunchResult(I input, Optional<JobId> jobId, Optional<JobRunId> jobRunId, Optional<Throwable> error) {
+        this.input = input;
+        this.jobId = jobId;
+        this.jobRunId = jobRunId;
+        this.error = error;
+    }
+
+    public I getInput() {
+        return input;
+    }
+
+    public Optional<JobId> getJobId() {
+        return jobId;
+    }
+
+    public Optional<JobRunId> getJobRunId() {
+        return jobRunId;
+    }
+
+    public Optional<Throwable> getError() {
+        return error;
+    }
+
+    /**
+     * @return true if the Job has been created and started.
+     */
+    public boolean isSuccessful() {
+        return jobRunId.isPresent();
+    }
+
+    @Override
+    public String toString() {
+        return "JobLaunchResult{" +
+                "input=" + input +
+                ", jobId=" + jobId +
+                ", jobRunId=" + jobRunId +
+                ", error=" + error +
+                '}';
+    }
+}
@@ -0,0 +1,110 @@
+package com.testfabrik.webmate.javasdk.jobs;
+
+import com.google.common.base.Function;
+import com.google.common.base.Objects;
+import com.google.common.base.Optional;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+
+/**
+ * Subscription to the progress of a JobRun, see {@link JobEngine#subscribe(JobRunId, long)}. Listeners are called
+ * whenever the JobRun changes, i.e. its state or its last update time differs from the previously observed summary.
+ * The completion future completes with the summary of the finished JobRun.
+ * <p>
+ * Listeners are called one at a time, on the thread which polled the JobRun, and should return quickly.
+ */
+public class JobRunSubscription {
+
+    private static final Logger LOG = LoggerFactory.getLogger(JobRunSubscription.class);
+
+    /**
+     * Called for each observed change of a JobRun.
+     */
+    public interface Listener {
+        /**
+         * @param previous previously observed summary, absent for the first one.
+         * @param current current summary.
+         */
+        void onChange(Optional<JobRunSummary> previous, JobRunSummary current);
+    }
+
+    private final JobRunId jobRunId;
+    /** Guarded by this. */
+    private final List<Listener> listeners = new ArrayList<>();
+    /** Guarded by this. */
+    private JobRunSummary latest;
+    private final CompletableFuture<JobRunSummary> completion;
+
+    /**
+     * @param await starts waiting for the JobRun, calling the given consumer with each fetched summary.
+     */
+    JobRunSubscription(JobRunId jobRunId, Function<Consumer<JobRunSummary>, CompletableFuture<JobRunSummary>> await) {
+        this.jobRunId = jobRunId;
+        this.completion = await.apply(this::onUpdate);
+    }
+
+    /**
+     * Listeners are called while holding the lock, so that they see the changes in order.
+     */
+    private synchronized void onUpdate(JobRunSummary summary) {
+        if (latest != null && latest.getState() == summary.getState() &&
+                Objects.equal(latest.getLastUpdateTime(), summary.getLastUpdateTime())) {
+            return;
+        }
+        Optional<JobRunSummary> previous = Optional.fromNullable(latest);
+        latest = summary;
+        for (Listener listener : listeners) {
+            callListener(listener, previous, summary);
+        }
+    }
+
+    private void callListener(Listener listener, Optional<JobRunSummary> previous, JobRunSummary current) {
+        try {
+            listener.onChange(previous, current);
+        } catch (RuntimeException e) {
+            LOG.warn("JobRun listener failed for " + jobRunId, e);
+        }
+    }
+
+    public JobRunId getJobRunId() {
+        return jobRunId;
+    }
+
+    /**
+     * Future completed with the summary of the finished JobRun. Cancelling it ends the subscription.
+     */
+    public CompletableFuture<JobRunSummary> getCompletion() {
+        return completion;
+    }
+
+    /**
+     * The most recently observed summary, absent if the JobRun has not been polled yet.
+     */
+    public synchronized Optional<JobRunSummary> getLatest() {
+        return Optional.fromNullable(latest);
+    }
+
+    /**
+     * Register a listener for changes of the JobRun. If a summary has already been observed, the listener is called
+     * with it immediately, on the calling thread.
+     */
+    public synchronized JobRunSubscription addListener(Listener listener) {
+        listeners.add(listener);
+        if (latest != null) {
+            callListener(listener, Optional.<JobRunSummary>absent(), latest);
+        }
+        return this;
+    }
+
+    /**
+     * Stop polling the JobRun (unless others wait for it, too).
+     */
+    public void cancel() {
+        completion.cancel(false);
+    }
+}
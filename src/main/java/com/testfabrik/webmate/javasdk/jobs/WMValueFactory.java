@@ -47,13 +47,11 @@ public class WMValueFactory {
 //    }
 
     public static WMValue makeExpeditionSpec(ExpeditionSpec expeditionSpec) {
-        ObjectMapper om = JacksonMapper.getInstance();
-        return makeBrickValue(WMDataType.ExpeditionSpec, om.valueToTree(expeditionSpec));
+        return makeBrickValue(WMDataType.ExpeditionSpec, JacksonMapper.valueToTree(expeditionSpec));
     }
 
     public static WMValue makeExpeditionSpecList(List<ExpeditionSpec> expeditionSpecs) {
-        ObjectMapper om = JacksonMapper.getInstance();
         return makeBrickValue(WMDataType.ListExpeditionSpec,
-                om.valueToTree(expeditionSpecs.stream().map(WMValueFactory::makeExpeditionSpec)));
+                JacksonMapper.valueToTree(expeditionSpecs.stream().map(WMValueFactory::makeExpeditionSpec)));
     }
 }
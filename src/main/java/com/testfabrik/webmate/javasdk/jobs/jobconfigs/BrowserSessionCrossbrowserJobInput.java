@@ -1,9 +1,9 @@
 package com.testfabrik.webmate.javasdk.jobs.jobconfigs;
 
 import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.node.JsonNodeFactory;
 import com.google.common.collect.ImmutableMap;
+import com.testfabrik.webmate.javasdk.JacksonMapper;
 import com.testfabrik.webmate.javasdk.browsersession.BrowserSessionId;
 import com.testfabrik.webmate.javasdk.jobs.*;
 
@@ -33,18 +33,17 @@ public class BrowserSessionCrossbrowserJobInput implements WellKnownJobInput {
     @Override
     public Map<PortName, WMValue> makeInputValues() {
         JsonNodeFactory jsonNodeFactory = JsonNodeFactory.instance;
-        ObjectMapper mapper = new ObjectMapper();
 
         List<JsonNode> compareSessionJson = new ArrayList<>();
         for (BrowserSessionId compareSession : compareSessions) {
-            JsonNode sessionNode = mapper.valueToTree(compareSession);
+            JsonNode sessionNode = JacksonMapper.valueToTree(compareSession);
             WMValue sessionWMValue = new WMValue(new WMDataType("BrowserSessionRef"), sessionNode);
-            compareSessionJson.add(mapper.valueToTree(sessionWMValue));
+            compareSessionJson.add(JacksonMapper.valueToTree(sessionWMValue));
         }
 
         return ImmutableMap.of(
                 new PortName("referenceSession"), new WMValue(new WMDataType("BrowserSessionRef"), jsonNodeFactory.textNode(referenceSession.toString())),
-                new PortName("compareSessions"), new WMValue(new WMDataType("List[BrowserSessionRef]"), mapper.valueToTree(compareSessionJson)),
+                new PortName("compareSessions"), new WMValue(new WMDataType("List[BrowserSessionRef]"), JacksonMapper.valueToTree(compareSessionJson)),
                 new PortName("matchingType"), new WMValue(new WMDataType("String"), jsonNodeFactory.textNode("tag")),
                 new PortName("enabledynamicelementsfilter"), new WMValue(new WMDataType("Boolean"), jsonNodeFactory.booleanNode(true))
         );
@@ -1,9 +1,10 @@
 package com.testfabrik.webmate.javasdk.mailtest;
 
 import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.node.JsonNodeFactory;
 import com.google.common.base.Optional;
+import com.google.common.base.Supplier;
+import com.google.common.base.Suppliers;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Lists;
@@ -25,7 +26,8 @@ import java.util.List;
 public class MailTestClient {
 
     private WebmateAPISession session;
-    private MailTestApiClient apiClient;
+    /** Created on first use, so that unused subsystems of a session cost (almost) nothing. */
+    private final Supplier<MailTestApiClient> apiClient;
     private ArtifactClient artifactClient;
 
     private String mailAddress = "1231d12dasd@betatestmails.webmate.io";
@@ -42,6 +44,10 @@ public class MailTestClient {
             super(authInfo, environment);
         }
 
+        public MailTestApiClient(WebmateHttpTransport transport) {
+            super(transport);
+        }
+
         public MailTestApiClient(WebmateAuthInfo authInfo, WebmateEnvironment environment, HttpClientBuilder clientBuilder) {
             super(authInfo, environment, clientBuilder);
         }
@@ -61,8 +67,7 @@ public class MailTestClient {
 
             try {
                 String testMailAddressBody = EntityUtils.toString(optHttpResponse.get().getEntity());
-                ObjectMapper mapper = JacksonMapper.getInstance();
-                String testMailStr = mapper.readValue(testMailAddressBody, String.class);
+                String testMailStr = JacksonMapper.readerFor(String.class).readValue(testMailAddressBody);
                 return new TestMailAddress(testMailStr);
             } catch (IOException e) {
                 throw new WebmateApiClientException("Error reading data: " + e.getMessage(), e);
@@ -79,7 +84,7 @@ public class MailTestClient {
      */
     public MailTestClient(WebmateAPISession session, ArtifactClient artifactClient) {
         this.session = session;
-        this.apiClient = new MailTestApiClient(session.authInfo, session.environment);
+        this.apiClient = Suppliers.memoize(() -> new MailTestApiClient(session.getTransport()));
         this.artifactClient = artifactClient;
     }
 
@@ -92,7 +97,7 @@ public class MailTestClient {
      */
     public MailTestClient(WebmateAPISession session, ArtifactClient artifactClient,  HttpClientBuilder httpClientBuilder) {
         this.session = session;
-        this.apiClient = new MailTestApiClient(session.authInfo, session.environment, httpClientBuilder);
+        this.apiClient = Suppliers.memoize(() -> new MailTestApiClient(session.authInfo, session.environment, httpClientBuilder));
         this.artifactClient = artifactClient;
     }
 
@@ -104,7 +109,7 @@ public class MailTestClient {
      */
     public MailTestClient(WebmateAPISession session,  HttpClientBuilder httpClientBuilder) {
         this.session = session;
-        this.apiClient = new MailTestApiClient(session.authInfo, session.environment, httpClientBuilder);
+        this.apiClient = Suppliers.memoize(() -> new MailTestApiClient(session.authInfo, session.environment, httpClientBuilder));
     }
 
     /**
@@ -115,7 +120,7 @@ public class MailTestClient {
      * @return email address associated with project and testrun.
      */
     public TestMailAddress createTestMailAddress(ProjectId projectId, TestRunId testRunId) {
-        TestMailAddress result = this.apiClient.createTestMailAddressInProject(projectId, testRunId);
+        TestMailAddress result = this.apiClient.get().createTestMailAddressInProject(projectId, testRunId);
         this.mailAddress = result.getAddress();
         return result;
     }
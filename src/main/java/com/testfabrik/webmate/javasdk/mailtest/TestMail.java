@@ -1,7 +1,6 @@
 package com.testfabrik.webmate.javasdk.mailtest;
 
 import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
 import com.testfabrik.webmate.javasdk.JacksonMapper;
 import com.testfabrik.webmate.javasdk.WebmateApiClientException;
 import com.testfabrik.webmate.javasdk.testmgmt.Artifact;
@@ -31,9 +30,8 @@ public class TestMail {
      * @throws com.testfabrik.webmate.javasdk.WebmateApiClientException if TestMail could not be instantiated
      */
     public static TestMail fromArtifact(Artifact artifact) {
-        ObjectMapper mapper = JacksonMapper.getInstance();
         try {
-            return mapper.readValue(artifact.getData().toString(), TestMail.class);
+            return JacksonMapper.readerFor(TestMail.class).readValue(artifact.getData());
         } catch (IOException e) {
             throw new WebmateApiClientException("Error parsing TestMail json: " + e.getMessage(), e);
         }
@@ -2,7 +2,6 @@ package com.testfabrik.webmate.javasdk.packagemgmt;
 
 import com.fasterxml.jackson.annotation.JsonValue;
 import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.node.ArrayNode;
 import com.fasterxml.jackson.databind.node.ObjectNode;
 import com.testfabrik.webmate.javasdk.JacksonMapper;
@@ -40,8 +39,7 @@ public class ImagePool {
 
     @JsonValue
     public JsonNode toJson() {
-        ObjectMapper om = JacksonMapper.getInstance();
-        ObjectNode root = om.createObjectNode();
+        ObjectNode root = JacksonMapper.createObjectNode();
 
         ArrayNode array = root.putArray("imagePool");
         for (ImageId imageId : this.imageIds) {
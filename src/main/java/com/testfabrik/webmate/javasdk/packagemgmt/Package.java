@@ -2,7 +2,6 @@ package com.testfabrik.webmate.javasdk.packagemgmt;
 
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
 import com.testfabrik.webmate.javasdk.JacksonMapper;
 import com.testfabrik.webmate.javasdk.ProjectId;
 import com.testfabrik.webmate.javasdk.UserId;
@@ -187,7 +186,6 @@ public class Package {
     }
 
     public static Package fromJsonString(String string) throws IOException {
-        ObjectMapper mapper = JacksonMapper.getInstance();
-        return mapper.readValue(string, Package.class);
+        return JacksonMapper.readerFor(Package.class).readValue(string);
     }
 }
@@ -1,12 +1,12 @@
 package com.testfabrik.webmate.javasdk.packagemgmt;
 
 import com.fasterxml.jackson.annotation.JsonInclude;
-import com.fasterxml.jackson.databind.DeserializationFeature;
-import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
 import com.google.common.base.Optional;
+import com.google.common.base.Supplier;
+import com.google.common.base.Suppliers;
 import com.google.common.collect.ImmutableMap;
 import com.testfabrik.webmate.javasdk.*;
-import com.testfabrik.webmate.javasdk.blobs.BlobClient;
 import com.testfabrik.webmate.javasdk.blobs.BlobId;
 import org.apache.http.HttpResponse;
 import org.apache.http.impl.client.HttpClientBuilder;
@@ -15,7 +15,11 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Facade to webmate's Package Management (e.g. App) subsystem.
@@ -23,7 +27,8 @@ import java.util.Map;
 public class PackageMgmtClient {
 
     private WebmateAPISession session;
-    private PackageMgmtApiClient apiClient;
+    /** Created on first use, so that unused subsystems of a session cost (almost) nothing. */
+    private final Supplier<PackageMgmtApiClient> apiClient;
 
 
     private static final Logger LOG = LoggerFactory.getLogger(PackageMgmtClient.class);
@@ -32,13 +37,17 @@ public class PackageMgmtClient {
 
         private final static UriTemplate createPackageTemplate = new UriTemplate("/projects/${projectId}/packages");
 
-        private final static UriTemplate getPackageTemplate = new UriTemplate("/package/packages/${packageId}");
+        private final static UriTemplate getPackageTemplate = new UriTemplate("/package/packages/${packageId}").cacheable(TimeUnit.MINUTES.toMillis(10));
 
 
         public PackageMgmtApiClient(WebmateAuthInfo authInfo, WebmateEnvironment environment) {
             super(authInfo, environment);
         }
 
+        public PackageMgmtApiClient(WebmateHttpTransport transport) {
+            super(transport);
+        }
+
         public PackageMgmtApiClient(WebmateAuthInfo authInfo, WebmateEnvironment environment, HttpClientBuilder httpClientBuilder) {
             super(authInfo, environment, httpClientBuilder);
         }
@@ -46,9 +55,8 @@ public class PackageMgmtClient {
 
         public Package createPackage(ProjectId projectId, BlobId blobId, String packageName, String extension) {
             Map<String, String> packageData = ImmutableMap.of("blobId", blobId.toString(), "name", packageName, "extension", extension);
-            ObjectMapper mapper = new ObjectMapper();
-            mapper.setSerializationInclusion(JsonInclude.Include.NON_NULL);
-            Optional<HttpResponse> r = sendPOST(createPackageTemplate, ImmutableMap.of("projectId", projectId.toString()), mapper.valueToTree(packageData)).getOptHttpResponse();
+            Optional<HttpResponse> r = sendPOSTJson(createPackageTemplate, ImmutableMap.of("projectId", projectId.toString()),
+                    packageData, JsonInclude.Include.NON_NULL).getOptHttpResponse();
 
             if (!r.isPresent()) {
                 throw new WebmateApiClientException("Could not create package. Got no response");
@@ -57,8 +65,7 @@ public class PackageMgmtClient {
             Package appPackage;
             try {
                 String packageJson = EntityUtils.toString(r.get().getEntity());
-                ObjectMapper pMapper = JacksonMapper.getInstance();
-                appPackage = pMapper.readValue(packageJson, Package.class);
+                appPackage = JacksonMapper.readerFor(Package.class).readValue(packageJson);
             } catch (IOException e) {
                 throw new WebmateApiClientException("Error reading Package data: " + e.getMessage(), e);
             }
@@ -66,21 +73,8 @@ public class PackageMgmtClient {
         }
 
         public Package getPackage(PackageId packageId) {
-            Optional<HttpResponse> r = sendGET(getPackageTemplate, ImmutableMap.of("packageId", packageId.toString())).getOptHttpResponse();
-
-            if (!r.isPresent()) {
-                throw new WebmateApiClientException("Could not get package. Got no response");
-            }
-
-            Package aPackage;
-            try {
-                String packageJson = EntityUtils.toString(r.get().getEntity());
-                ObjectMapper pMapper = JacksonMapper.getInstance();
-                pMapper.disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES);
-                aPackage = pMapper.readValue(packageJson, Package.class);
-            } catch (IOException e) {
-                throw new WebmateApiClientException("Error reading Package data: " + e.getMessage(), e);
-            }
+            ObjectReader reader = JacksonMapper.readerFor(Package.class);
+            Package aPackage = sendGETStreaming(getPackageTemplate, ImmutableMap.of("packageId", packageId.toString()), reader);
             return aPackage;
         }
 
@@ -93,7 +87,7 @@ public class PackageMgmtClient {
      */
     public PackageMgmtClient(WebmateAPISession session) {
         this.session = session;
-        this.apiClient = new PackageMgmtApiClient(session.authInfo, session.environment);
+        this.apiClient = Suppliers.memoize(() -> new PackageMgmtApiClient(session.getTransport()));
     }
 
     /**
@@ -104,7 +98,7 @@ public class PackageMgmtClient {
      */
     public PackageMgmtClient(WebmateAPISession session, HttpClientBuilder httpClientBuilder) {
         this.session = session;
-        this.apiClient = new PackageMgmtApiClient(session.authInfo, session.environment, httpClientBuilder);
+        this.apiClient = Suppliers.memoize(() -> new PackageMgmtApiClient(session.authInfo, session.environment, httpClientBuilder));
     }
 
 
@@ -117,7 +111,7 @@ public class PackageMgmtClient {
      * @param extension The package file format, e.g. ipa or apk
      */
     public Package createPackage(ProjectId projectId, BlobId blobid, String packageName, String extension) {
-        return this.apiClient.createPackage(projectId, blobid, packageName, extension);
+        return this.apiClient.get().createPackage(projectId, blobid, packageName, extension);
     }
 
     /**
@@ -127,7 +121,7 @@ public class PackageMgmtClient {
      * @return Package information
      */
     public Package getPackage(PackageId packageId){
-        return this.apiClient.getPackage(packageId);
+        return this.apiClient.get().getPackage(packageId);
     }
 
     /**
@@ -140,12 +134,57 @@ public class PackageMgmtClient {
      * @return Package information for new package
      */
     public Package uploadApplicationPackage(ProjectId projectId, byte[] appPackage, String packageName, String extension) {
-        String contentType = extension.equals("apk") ? "application/vnd.android.package-archive" : "application/x-ios-app";
-        BlobClient blobClient = new BlobClient(this.session);
-        BlobId blobId = blobClient.putBlob(projectId, appPackage, Optional.of(contentType));
+        BlobId blobId = this.session.blob.putBlob(projectId, appPackage, packageContentType(extension));
         return this.createPackage(projectId, blobId, packageName, extension);
     }
 
+    /**
+     * Upload a package file to webmate. The file is streamed and not loaded into memory.
+     *
+     * @param projectId ProjectId where the package is uploaded to
+     * @param appPackage Path of the package file
+     * @param packageName Name of the package
+     * @param extension file extension, e.g. apk or ipa
+     * @return Package information for new package
+     */
+    public Package uploadApplicationPackage(ProjectId projectId, Path appPackage, String packageName, String extension) {
+        BlobId blobId = this.session.blob.putBlob(projectId, appPackage, packageContentType(extension));
+        return this.createPackage(projectId, blobId, packageName, extension);
+    }
+
+    /**
+     * Upload a package to webmate, read from a file channel (from its current position to the end).
+     *
+     * @param projectId ProjectId where the package is uploaded to
+     * @param appPackage Channel to read the package from. It is not closed after the upload.
+     * @param packageName Name of the package
+     * @param extension file extension, e.g. apk or ipa
+     * @return Package information for new package
+     */
+    public Package uploadApplicationPackage(ProjectId projectId, FileChannel appPackage, String packageName, String extension) {
+        BlobId blobId = this.session.blob.putBlob(projectId, appPackage, packageContentType(extension));
+        return this.createPackage(projectId, blobId, packageName, extension);
+    }
+
+    /**
+     * Upload a package to webmate, read from a stream. The stream is closed after the upload.
+     *
+     * @param projectId ProjectId where the package is uploaded to
+     * @param appPackage Stream to read the package from
+     * @param length Size of the package in bytes, or -1 if unknown
+     * @param packageName Name of the package
+     * @param extension file extension, e.g. apk or ipa
+     * @return Package information for new package
+     */
+    public Package uploadApplicationPackage(ProjectId projectId, InputStream appPackage, long length, String packageName, String extension) {
+        BlobId blobId = this.session.blob.putBlob(projectId, appPackage, length, packageContentType(extension));
+        return this.createPackage(projectId, blobId, packageName, extension);
+    }
+
+    private static Optional<String> packageContentType(String extension) {
+        return Optional.of(extension.equals("apk") ? "application/vnd.android.package-archive" : "application/x-ios-app");
+    }
+
     /**
      * Upload a package to webmate.
      *
@@ -163,4 +202,21 @@ public class PackageMgmtClient {
         return this.uploadApplicationPackage(projectId.get(), appPackage, packageName, extension);
     }
 
+    /**
+     * Upload a package file to webmate. The file is streamed and not loaded into memory.
+     *
+     * @param appPackage Path of the package file
+     * @param packageName Name of the package
+     * @param extension file extension, e.g. apk or ipa
+     * @return Package information for new package
+     */
+    public Package uploadApplicationPackage(Path appPackage, String packageName, String extension) {
+        Optional<ProjectId> projectId = this.session.getProjectId();
+        if (!projectId.isPresent()) {
+            throw new WebmateApiClientException("No project id associated with webmate session.");
+        }
+
+        return this.uploadApplicationPackage(projectId.get(), appPackage, packageName, extension);
+    }
+
 }
@@ -1,59 +1,61 @@
 package com.testfabrik.webmate.javasdk.selenium;
 
-import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
-import com.google.common.base.Optional;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.google.common.base.Supplier;
+import com.google.common.base.Suppliers;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
 import com.testfabrik.webmate.javasdk.*;
 import com.testfabrik.webmate.javasdk.browsersession.BrowserSessionId;
-import com.testfabrik.webmate.javasdk.testmgmt.Test;
-import com.testfabrik.webmate.javasdk.user.UserId;
-import org.apache.http.HttpResponse;
+import com.testfabrik.webmate.javasdk.commonutils.PrefetchingPageIterator;
 import org.apache.http.NameValuePair;
 import org.apache.http.impl.client.HttpClientBuilder;
 import org.apache.http.message.BasicNameValuePair;
-import org.apache.http.util.EntityUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.io.IOException;
 import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
 
 /**
  * Facade to webmate's Selenium subsystem.
  */
 public class SeleniumServiceClient {
-    private SeleniumServiceApiClient apiClient;
+    private final WebmateAPISession session;
+    /** Created on first use, so that unused subsystems of a session cost (almost) nothing. */
+    private final Supplier<SeleniumServiceApiClient> apiClient;
     private static final Logger LOG = LoggerFactory.getLogger(SeleniumServiceClient.class);
 
+    /** Number of Selenium sessions requested per call when streaming them. */
+    public static final int DEFAULT_PAGE_SIZE = 500;
+
+    private SeleniumSessionCache sessionCache;
+
     private static class SeleniumServiceApiClient extends WebmateApiClient {
-        private static final UriTemplate getSeleniumsessionTemplate = new UriTemplate("/seleniumsession/${sessionId}");
+        private static final UriTemplate getSeleniumsessionTemplate = new UriTemplate("/seleniumsession/${sessionId}").coalescable();
         private static final UriTemplate getSeleniumsessionForBrowserSessionTemplate = new UriTemplate("/seleniumsession/");
-        private static final UriTemplate getSeleniumCapabilitiesForProjectTemplate = new UriTemplate("/projects/${projectId}/selenium/capabilities");
+        private static final UriTemplate getSeleniumCapabilitiesForProjectTemplate = new UriTemplate("/projects/${projectId}/selenium/capabilities").cacheable(TimeUnit.MINUTES.toMillis(5));
         private static final UriTemplate getSeleniumsessionsForProjectTemplate = new UriTemplate("/projects/${projectId}/seleniumsession");
         private static final UriTemplate getSeleniumsessionIdsForProjectTemplate = new UriTemplate("/projects/${projectId}/seleniumsession/id");
-        private static final UriTemplate stopSeleniumsessionTemplate = new UriTemplate("/seleniumsession/${sessionId}/stop");
+        private static final UriTemplate stopSeleniumsessionTemplate = new UriTemplate("/seleniumsession/${sessionId}/stop").idempotent();
+
+        private static final ObjectReader seleniumSessionListReader =
+                JacksonMapper.readerFor(new TypeReference<ArrayList<SeleniumSession>>() {});
+        private static final ObjectReader uuidListReader = JacksonMapper.readerFor(new TypeReference<List<UUID>>() {});
 
         public SeleniumServiceApiClient(WebmateAuthInfo authInfo, WebmateEnvironment environment) {
             super(authInfo, environment);
         }
 
-        public SeleniumServiceApiClient(WebmateAuthInfo authInfo, WebmateEnvironment environment, HttpClientBuilder httpClientBuilder) {
-            super(authInfo, environment, httpClientBuilder);
+        public SeleniumServiceApiClient(WebmateHttpTransport transport) {
+            super(transport);
         }
 
-        /**
-         * Helper method to build a selenium session from json.
-         */
-        private SeleniumSession buildSeleniumSessionFromJson(JsonNode sessionJson) {
-            ObjectMapper om = new ObjectMapper();
-            try {
-                return om.treeToValue(sessionJson, SeleniumSession.class);
-            } catch (JsonProcessingException e) {
-                throw new WebmateApiClientException("Error deserializing SeleniumSession data: " + e.getMessage());
-            }
+        public SeleniumServiceApiClient(WebmateAuthInfo authInfo, WebmateEnvironment environment, HttpClientBuilder httpClientBuilder) {
+            super(authInfo, environment, httpClientBuilder);
         }
 
         /**
@@ -78,68 +80,37 @@ public class SeleniumServiceClient {
         }
 
         public SeleniumSession getSeleniumsession(WebmateSeleniumSessionId sessionId) {
-            ApiResponse response = sendGET(getSeleniumsessionTemplate, ImmutableMap.of("sessionId", sessionId.toString()));
-            Optional<HttpResponse> optHttpResponse = response.getOptHttpResponse();
-            if (!optHttpResponse.isPresent()) {
-                throw new WebmateApiClientException("The requested Seleniumsession could not be found");
-            }
-
-            ObjectMapper om = new ObjectMapper();
-            try {
-                JsonNode sessionJson = om.readTree(EntityUtils.toString(optHttpResponse.get().getEntity()));
-                return buildSeleniumSessionFromJson(sessionJson);
-            }
-            catch (IOException e) {
-                throw new WebmateApiClientException("The Seleniumsession could not be retrieved");
-            }
+            return sendGETStreaming(getSeleniumsessionTemplate, ImmutableMap.of("sessionId", sessionId.toString()),
+                    JacksonMapper.readerFor(SeleniumSession.class));
         }
 
         public SeleniumSession getSeleniumsessionForBrowserSession(BrowserSessionId browserSessionId) {
-            ApiResponse response = sendGET(getSeleniumsessionForBrowserSessionTemplate,
-                    ImmutableMap.of(),
-                    ImmutableList.of(new BasicNameValuePair("expeditionId", browserSessionId.toString())));
-            Optional<HttpResponse> optHttpResponse = response.getOptHttpResponse();
-            if (!optHttpResponse.isPresent()) {
+            SeleniumSession session = sendGETStreaming(getSeleniumsessionForBrowserSessionTemplate,
+                    ImmutableMap.<String, String>of(),
+                    ImmutableList.<NameValuePair>of(new BasicNameValuePair("expeditionId", browserSessionId.toString())),
+                    JacksonMapper.readerFor(SeleniumSession.class));
+            if (session == null) {
                 throw new WebmateApiClientException("There is no Seleniumsession associated with browsersession " + browserSessionId);
             }
-
-            ObjectMapper mapper = JacksonMapper.getInstance();
-            SeleniumSession session;
-            try {
-                String testJson = EntityUtils.toString(optHttpResponse.get().getEntity());
-                session = mapper.readValue(testJson, SeleniumSession.class);
-            } catch (IOException e) {
-                throw new WebmateApiClientException("Error reading Selenium session: " + e.getMessage(), e);
-            }
             return session;
         }
 
         public Collection<SeleniumCapability> getSeleniumCapabilitiesForProject(ProjectId projectId) {
             Map<String, String> params = ImmutableMap.of("projectId", projectId.toString());
-            ApiResponse apiResponse = sendGET(getSeleniumCapabilitiesForProjectTemplate, params);
-
-            Optional<HttpResponse> optHttpResponse = apiResponse.getOptHttpResponse();
-            if (!optHttpResponse.isPresent()) {
-                throw new WebmateApiClientException("There has been an error retrieving the Selenium capabilities for the project");
-            }
+            JsonNode capabilityListJson = sendGETStreaming(getSeleniumCapabilitiesForProjectTemplate, params,
+                    JacksonMapper.readerFor(JsonNode.class));
 
             ArrayList<SeleniumCapability> capabilities = new ArrayList<>();
-            ObjectMapper om = new ObjectMapper();
-            try {
-                JsonNode capabilityListJson = om.readTree(EntityUtils.toString(optHttpResponse.get().getEntity()));
-                Iterator<JsonNode> capabilityListIter = capabilityListJson.iterator();
-                while (capabilityListIter.hasNext()) {
-                    JsonNode capabilityJson = capabilityListIter.next();
-                    capabilities.add(buildSeleniumCapabilityFromJson(capabilityJson));
-                }
-            } catch (IOException e) {
-                throw new WebmateApiClientException("The list of Selenium capabilities could not be retrieved");
+            Iterator<JsonNode> capabilityListIter = capabilityListJson.iterator();
+            while (capabilityListIter.hasNext()) {
+                JsonNode capabilityJson = capabilityListIter.next();
+                capabilities.add(buildSeleniumCapabilityFromJson(capabilityJson));
             }
 
             return capabilities;
         }
 
-        public Collection<SeleniumSession> getSeleniumsessionsForProject(ProjectId projectId, WebmateSeleniumSessionId after, Integer count, String state) {
+        public List<SeleniumSession> getSeleniumsessionsForProject(ProjectId projectId, WebmateSeleniumSessionId after, Integer count, String state) {
             ArrayList<NameValuePair> queryParams = new ArrayList<>();
             if (after != null) {
                 queryParams.add(new BasicNameValuePair("after", after.toString()));
@@ -152,37 +123,15 @@ public class SeleniumServiceClient {
             }
 
             Map<String, String> params = ImmutableMap.of("projectId", projectId.toString());
-            ApiResponse apiResponse;
-            if (!queryParams.isEmpty()) {
-                apiResponse = sendGET(getSeleniumsessionsForProjectTemplate, params, queryParams);
-            }
-            else {
-                apiResponse = sendGET(getSeleniumsessionsForProjectTemplate, params);
-            }
-
-            ArrayList<SeleniumSession> sessions = new ArrayList<>();
-            Optional<HttpResponse> optHttpResponse = apiResponse.getOptHttpResponse();
-            if (!optHttpResponse.isPresent()) {
-                throw new WebmateApiClientException("There has been an error retrieving the Selenium sessions for the project");
-            }
-
-            ObjectMapper om = new ObjectMapper();
-            try {
-                JsonNode sessionListJson = om.readTree(EntityUtils.toString(optHttpResponse.get().getEntity()));
-                Iterator<JsonNode> sessionListIter = sessionListJson.iterator();
-                while (sessionListIter.hasNext()) {
-                    JsonNode sessionJson = sessionListIter.next();
-                    sessions.add(buildSeleniumSessionFromJson(sessionJson));
-                }
-            } catch (IOException e) {
-                throw new WebmateApiClientException("The List of Selenium sessions could not be retrieved");
-            }
+            ArrayList<SeleniumSession> sessions = sendGETStreaming(getSeleniumsessionsForProjectTemplate, params,
+                    queryParams.isEmpty() ? null : queryParams,
+                    seleniumSessionListReader);
 
             return sessions;
         }
 
 
-        public Collection<WebmateSeleniumSessionId> getSeleniumsessionIdsForProject(ProjectId projectId, WebmateSeleniumSessionId after, Integer count, String state) {
+        public List<WebmateSeleniumSessionId> getSeleniumsessionIdsForProject(ProjectId projectId, WebmateSeleniumSessionId after, Integer count, String state) {
             ArrayList<NameValuePair> queryParams = new ArrayList<>();
             if (after != null) {
                 queryParams.add(new BasicNameValuePair("after", after.toString()));
@@ -195,30 +144,13 @@ public class SeleniumServiceClient {
             }
 
             Map<String, String> params = ImmutableMap.of("projectId", projectId.toString());
-            ApiResponse apiResponse;
-            if (!queryParams.isEmpty()) {
-                apiResponse = sendGET(getSeleniumsessionIdsForProjectTemplate, params, queryParams);
-            }
-            else {
-                apiResponse = sendGET(getSeleniumsessionIdsForProjectTemplate, params);
-            }
+            List<UUID> idValues = sendGETStreaming(getSeleniumsessionIdsForProjectTemplate, params,
+                    queryParams.isEmpty() ? null : queryParams,
+                    uuidListReader);
 
-            ArrayList<WebmateSeleniumSessionId> ids = new ArrayList<>();
-            Optional<HttpResponse> optHttpResponse = apiResponse.getOptHttpResponse();
-            if (!optHttpResponse.isPresent()) {
-                throw new WebmateApiClientException("There has been an error retrieving the Selenium session IDs for the project");
-            }
-
-            ObjectMapper om = new ObjectMapper();
-            try {
-                JsonNode idListJson = om.readTree(EntityUtils.toString(optHttpResponse.get().getEntity()));
-                Iterator<JsonNode> idListIter = idListJson.iterator();
-                while (idListIter.hasNext()) {
-                    JsonNode idJson = idListIter.next();
-                    ids.add(new WebmateSeleniumSessionId(UUID.fromString(idJson.asText())));
-                }
-            } catch (IOException e) {
-                throw new WebmateApiClientException("The List of Selenium session ids could not be retrieved");
+            ArrayList<WebmateSeleniumSessionId> ids = new ArrayList<>(idValues.size());
+            for (UUID idValue : idValues) {
+                ids.add(new WebmateSeleniumSessionId(idValue));
             }
 
             return ids;
@@ -238,7 +170,8 @@ public class SeleniumServiceClient {
      * @param session The WebmateApiSession the DeviceClient is supposed to be based on.
      */
     public SeleniumServiceClient(WebmateAPISession session) {
-        this.apiClient = new SeleniumServiceApiClient(session.authInfo, session.environment);
+        this.session = session;
+        this.apiClient = Suppliers.memoize(() -> new SeleniumServiceApiClient(session.getTransport()));
     }
 
     /**
@@ -248,7 +181,37 @@ public class SeleniumServiceClient {
      * @param httpClientBuilder The HttpClientBuilder that is used for building the underlying connection.
      */
     public SeleniumServiceClient(WebmateAPISession session, HttpClientBuilder httpClientBuilder) {
-        this.apiClient = new SeleniumServiceApiClient(session.authInfo, session.environment, httpClientBuilder);
+        this.session = session;
+        this.apiClient = Suppliers.memoize(() -> new SeleniumServiceApiClient(session.authInfo, session.environment, httpClientBuilder));
+    }
+
+    /**
+     * Session-wide cache of Selenium session metadata, used e.g. by {@link WebmateSeleniumSession}. Created on first
+     * use with default settings, see {@link #configureSessionCache(int, long, long)}.
+     */
+    public synchronized SeleniumSessionCache getSessionCache() {
+        if (sessionCache == null) {
+            sessionCache = createSessionCache(SeleniumSessionCache.DEFAULT_MAX_ENTRIES,
+                    SeleniumSessionCache.DEFAULT_REFRESH_AFTER_MILLIS, SeleniumSessionCache.DEFAULT_EXPIRE_AFTER_MILLIS);
+        }
+        return sessionCache;
+    }
+
+    /**
+     * Replace the Selenium session cache by an empty one with the given settings.
+     *
+     * @param maxEntries maximum number of cached sessions.
+     * @param refreshAfterMillis age after which an entry is refreshed in the background on its next lookup.
+     * @param expireAfterMillis age after which an entry is not used anymore. Must not be less than refreshAfterMillis.
+     */
+    public synchronized void configureSessionCache(int maxEntries, long refreshAfterMillis, long expireAfterMillis) {
+        sessionCache = createSessionCache(maxEntries, refreshAfterMillis, expireAfterMillis);
+    }
+
+    private SeleniumSessionCache createSessionCache(int maxEntries, long refreshAfterMillis, long expireAfterMillis) {
+        return new SeleniumSessionCache(id -> apiClient.get().getSeleniumsession(id),
+                id -> apiClient.get().getSeleniumsessionForBrowserSession(id), session.getAsyncExecutor(),
+                maxEntries, refreshAfterMillis, expireAfterMillis);
     }
 
     /**
@@ -259,7 +222,7 @@ public class SeleniumServiceClient {
      * @throws WebmateApiClientException if a HTTP error occurred or the session could not be found/retrieved
      */
     public SeleniumSession getSeleniumsession(WebmateSeleniumSessionId sessionId) throws WebmateApiClientException {
-        return this.apiClient.getSeleniumsession(sessionId);
+        return this.apiClient.get().getSeleniumsession(sessionId);
     }
 
     /**
@@ -270,7 +233,7 @@ public class SeleniumServiceClient {
      * @throws WebmateApiClientException if a HTTP error occurred or the session could not be found/retrieved
      */
     public SeleniumSession getSeleniumSessionForBrowserSession(BrowserSessionId browserSessionId) throws WebmateApiClientException {
-        return this.apiClient.getSeleniumsessionForBrowserSession(browserSessionId);
+        return this.apiClient.get().getSeleniumsessionForBrowserSession(browserSessionId);
     }
 
     /**
@@ -281,7 +244,7 @@ public class SeleniumServiceClient {
      * @throws WebmateApiClientException if a HTTP error occurred or the Selenium capabilities could not be retrieved (e.g. due to missing permissions)
      */
     public Collection<SeleniumCapability> getSeleniumCapabilitiesForProject(ProjectId projectId) throws WebmateApiClientException {
-        return this.apiClient.getSeleniumCapabilitiesForProject(projectId);
+        return this.apiClient.get().getSeleniumCapabilitiesForProject(projectId);
     }
 
     /**
@@ -295,7 +258,7 @@ public class SeleniumServiceClient {
      * @throws WebmateApiClientException if a HTTP error occurred or the Selenium sessions could not be retrieved (e.g. due to missing permissions)
      */
     public Collection<SeleniumSession> getSeleniumsessionsForProject(ProjectId projectId, WebmateSeleniumSessionId after, Integer count, String state) throws WebmateApiClientException {
-        return this.apiClient.getSeleniumsessionsForProject(projectId, after, count, state);
+        return this.apiClient.get().getSeleniumsessionsForProject(projectId, after, count, state);
     }
 
     /**
@@ -395,7 +358,7 @@ public class SeleniumServiceClient {
      * @throws WebmateApiClientException if a HTTP error occurred or the Selenium session IDs could not be retrieved (e.g. due to missing permissions)
      */
     public Collection<WebmateSeleniumSessionId> getSeleniumsessionIdsForProject(ProjectId projectId, WebmateSeleniumSessionId after, Integer count, String state) throws WebmateApiClientException {
-        return this.apiClient.getSeleniumsessionIdsForProject(projectId, after, count, state);
+        return this.apiClient.get().getSeleniumsessionIdsForProject(projectId, after, count, state);
     }
 
     /**
@@ -484,6 +447,69 @@ public class SeleniumServiceClient {
         return getSeleniumsessionIdsForProject(projectId, null, count, state);
     }
 
+    /**
+     * Lazily iterate over all Selenium sessions of a project, page by page. The next page is loaded in the background
+     * (on the session's async executor) while the current one is consumed, and at most two pages are held in memory,
+     * so arbitrarily many sessions can be scanned. Close the iterator to stop prefetching if it is not consumed
+     * completely.
+     *
+     * @param projectId The ID of the project of which Selenium sessions shall be retrieved
+     * @param state (optional) Only SeleniumSessions in the given state are returned.
+     * @param pageSize Number of sessions requested per call.
+     * @throws WebmateApiClientException (while iterating) if a page could not be retrieved
+     */
+    public PrefetchingPageIterator<SeleniumSession> iterateSeleniumsessionsForProject(ProjectId projectId, String state, int pageSize) {
+        return new PrefetchingPageIterator<>((last, count) -> apiClient.get().getSeleniumsessionsForProject(projectId,
+                last.isPresent() ? last.get().getId() : null, count, state), pageSize, session.getAsyncExecutor());
+    }
+
+    /**
+     * Lazy stream over all Selenium sessions of a project, see {@link #iterateSeleniumsessionsForProject(ProjectId, String, int)}.
+     * Close the stream (e.g. with try-with-resources) if it is not consumed completely.
+     *
+     * @param projectId The ID of the project of which Selenium sessions shall be retrieved
+     * @param state (optional) Only SeleniumSessions in the given state are returned.
+     * @param pageSize Number of sessions requested per call.
+     */
+    public Stream<SeleniumSession> streamSeleniumsessionsForProject(ProjectId projectId, String state, int pageSize) {
+        return iterateSeleniumsessionsForProject(projectId, state, pageSize).stream();
+    }
+
+    /**
+     * Lazy stream over all Selenium sessions of a project, loading {@link #DEFAULT_PAGE_SIZE} sessions per call.
+     */
+    public Stream<SeleniumSession> streamSeleniumsessionsForProject(ProjectId projectId) {
+        return streamSeleniumsessionsForProject(projectId, null, DEFAULT_PAGE_SIZE);
+    }
+
+    /**
+     * Lazily iterate over the ids of all Selenium sessions of a project, page by page. See
+     * {@link #iterateSeleniumsessionsForProject(ProjectId, String, int)}.
+     *
+     * @param projectId The ID of the project of which Selenium session ids shall be retrieved
+     * @param state (optional) Only ids of SeleniumSessions in the given state are returned.
+     * @param pageSize Number of ids requested per call.
+     */
+    public PrefetchingPageIterator<WebmateSeleniumSessionId> iterateSeleniumsessionIdsForProject(ProjectId projectId, String state, int pageSize) {
+        return new PrefetchingPageIterator<>((last, count) -> apiClient.get().getSeleniumsessionIdsForProject(projectId,
+                last.orNull(), count, state), pageSize, session.getAsyncExecutor());
+    }
+
+    /**
+     * Lazy stream over the ids of all Selenium sessions of a project, see
+     * {@link #iterateSeleniumsessionIdsForProject(ProjectId, String, int)}.
+     */
+    public Stream<WebmateSeleniumSessionId> streamSeleniumsessionIdsForProject(ProjectId projectId, String state, int pageSize) {
+        return iterateSeleniumsessionIdsForProject(projectId, state, pageSize).stream();
+    }
+
+    /**
+     * Lazy stream over the ids of all Selenium sessions of a project, loading {@link #DEFAULT_PAGE_SIZE} ids per call.
+     */
+    public Stream<WebmateSeleniumSessionId> streamSeleniumsessionIdsForProject(ProjectId projectId) {
+        return streamSeleniumsessionIdsForProject(projectId, null, DEFAULT_PAGE_SIZE);
+    }
+
     /**
      * Stop a Selenium session by ID.
      *
@@ -491,6 +517,8 @@ public class SeleniumServiceClient {
      * @throws WebmateApiClientException if an HTTP error occurred or the Selenium session could not be found (e.g. due to missing permissions, or wrong ID)
      */
     public void stopSeleniumsession(WebmateSeleniumSessionId sessionId) throws WebmateApiClientException{
-        this.apiClient.stopSeleniumsession(sessionId);
+        this.apiClient.get().stopSeleniumsession(sessionId);
+        session.getTeardownManager().untrack(sessionId);
+        getSessionCache().invalidate(sessionId);
     }
 }
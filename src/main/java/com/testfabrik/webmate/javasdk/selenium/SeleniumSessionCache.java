@@ -0,0 +1,142 @@
+package com.testfabrik.webmate.javasdk.selenium;
+
+import com.google.common.base.Function;
+import com.google.common.base.Ticker;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.ListenableFutureTask;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+import com.testfabrik.webmate.javasdk.WebmateApiClientException;
+import com.testfabrik.webmate.javasdk.browsersession.BrowserSessionId;
+
+import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Session-wide cache of {@link SeleniumSession} metadata, keyed by {@link WebmateSeleniumSessionId} or
+ * {@link BrowserSessionId}. Concurrent lookups of a missing entry load it only once.
+ * <p>
+ * An entry older than refreshAfterMillis is reloaded in the background on its next lookup, while the lookup
+ * still returns the old value (refresh-ahead), so lookups do not wait for webmate once an entry has been loaded.
+ * Entries older than expireAfterMillis are not returned anymore, which bounds how stale a value can get. Sessions
+ * in a final state (e.g. done or failed) do not change anymore and are not reloaded.
+ */
+public class SeleniumSessionCache {
+
+    public static final int DEFAULT_MAX_ENTRIES = 10_000;
+    public static final long DEFAULT_REFRESH_AFTER_MILLIS = 5_000;
+    public static final long DEFAULT_EXPIRE_AFTER_MILLIS = 60_000;
+
+    /** States after which a Selenium session does not change anymore. */
+    private static final Set<String> FINAL_STATES = ImmutableSet.of("done", "timeout", "failed", "canceled", "invalid");
+
+    /** Thrown by the loader if webmate does not know the session, since the cache cannot hold null. */
+    private static class NotFound extends RuntimeException {
+        NotFound() {
+            super(null, null, false, false);
+        }
+    }
+
+    private final LoadingCache<Object, SeleniumSession> cache;
+
+    /**
+     * @param byId loads a Selenium session by its id
+     * @param byBrowserSession loads the Selenium session of a BrowserSession (may return null)
+     * @param executor executor used for refreshing entries in the background
+     */
+    SeleniumSessionCache(Function<WebmateSeleniumSessionId, SeleniumSession> byId,
+                         Function<BrowserSessionId, SeleniumSession> byBrowserSession, Executor executor,
+                         int maxEntries, long refreshAfterMillis, long expireAfterMillis) {
+        this(byId, byBrowserSession, executor, maxEntries, refreshAfterMillis, expireAfterMillis, Ticker.systemTicker());
+    }
+
+    /**
+     * @param ticker time source for refreshing and expiring entries
+     */
+    SeleniumSessionCache(Function<WebmateSeleniumSessionId, SeleniumSession> byId,
+                         Function<BrowserSessionId, SeleniumSession> byBrowserSession, Executor executor,
+                         int maxEntries, long refreshAfterMillis, long expireAfterMillis, Ticker ticker) {
+        if (refreshAfterMillis > expireAfterMillis) {
+            throw new IllegalArgumentException("refreshAfterMillis must not exceed expireAfterMillis, but " +
+                    refreshAfterMillis + " > " + expireAfterMillis);
+        }
+        this.cache = CacheBuilder.newBuilder()
+                .ticker(ticker)
+                .maximumSize(maxEntries)
+                .refreshAfterWrite(refreshAfterMillis, TimeUnit.MILLISECONDS)
+                .expireAfterWrite(expireAfterMillis, TimeUnit.MILLISECONDS)
+                .build(new CacheLoader<Object, SeleniumSession>() {
+                    @Override
+                    public SeleniumSession load(Object key) {
+                        SeleniumSession session = key instanceof BrowserSessionId
+                                ? byBrowserSession.apply((BrowserSessionId) key)
+                                : byId.apply((WebmateSeleniumSessionId) key);
+                        if (session == null) {
+                            throw new NotFound();
+                        }
+                        return session;
+                    }
+
+                    @Override
+                    public ListenableFuture<SeleniumSession> reload(Object key, SeleniumSession oldValue) {
+                        if (oldValue.getState() != null && FINAL_STATES.contains(oldValue.getState())) {
+                            return Futures.immediateFuture(oldValue);
+                        }
+                        ListenableFutureTask<SeleniumSession> task = ListenableFutureTask.create(() -> load(key));
+                        executor.execute(task);
+                        return task;
+                    }
+                });
+    }
+
+    /**
+     * @throws WebmateApiClientException if the session could not be loaded.
+     */
+    public SeleniumSession get(WebmateSeleniumSessionId seleniumSessionId) {
+        return lookup(seleniumSessionId);
+    }
+
+    /**
+     * @return the Selenium session of the given BrowserSession or null if there is none.
+     * @throws WebmateApiClientException if the session could not be loaded.
+     */
+    public SeleniumSession get(BrowserSessionId browserSessionId) {
+        return lookup(browserSessionId);
+    }
+
+    public void invalidate(WebmateSeleniumSessionId seleniumSessionId) {
+        cache.invalidate(seleniumSessionId);
+    }
+
+    public void invalidate(BrowserSessionId browserSessionId) {
+        cache.invalidate(browserSessionId);
+    }
+
+    public void invalidateAll() {
+        cache.invalidateAll();
+    }
+
+    public long size() {
+        return cache.size();
+    }
+
+    private SeleniumSession lookup(Object key) {
+        try {
+            return cache.getUnchecked(key);
+        } catch (UncheckedExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof NotFound) {
+                return null;
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new WebmateApiClientException("Could not load Selenium session " + key, cause);
+        }
+    }
+}
@@ -5,6 +5,7 @@ import com.fasterxml.jackson.databind.node.ObjectNode;
 import com.testfabrik.webmate.javasdk.Browser;
 import com.testfabrik.webmate.javasdk.ProjectId;
 import com.testfabrik.webmate.javasdk.WebmateAPISession;
+import com.testfabrik.webmate.javasdk.WebmateApiClientException;
 import com.testfabrik.webmate.javasdk.browsersession.BrowserSessionId;
 import com.testfabrik.webmate.javasdk.testmgmt.TestRun;
 import com.testfabrik.webmate.javasdk.testmgmt.TestRunEvaluationStatus;
@@ -20,6 +21,8 @@ public class WebmateSeleniumSession {
 
     private interface SeleniumSessionProxy {
         SeleniumSession getSession();
+
+        void invalidate();
     }
 
     private static class FromBrowserSessionProxy implements SeleniumSessionProxy {
@@ -33,7 +36,17 @@ public class WebmateSeleniumSession {
 
         @Override
         public SeleniumSession getSession() {
-            return session.selenium.getSeleniumSessionForBrowserSession(this.sessionId);
+            return session.selenium.getSessionCache().get(this.sessionId);
+        }
+
+        @Override
+        public void invalidate() {
+            session.selenium.getSessionCache().invalidate(this.sessionId);
+        }
+
+        @Override
+        public String toString() {
+            return "browsersession " + sessionId;
         }
     }
 
@@ -48,16 +61,36 @@ public class WebmateSeleniumSession {
 
         @Override
         public SeleniumSession getSession() {
-            return session.selenium.getSeleniumsession(this.sessionId);
+            return session.selenium.getSessionCache().get(this.sessionId);
+        }
+
+        @Override
+        public void invalidate() {
+            session.selenium.getSessionCache().invalidate(this.sessionId);
+        }
+
+        @Override
+        public String toString() {
+            return "Selenium session " + sessionId;
         }
     }
 
+    /** TestRunId parsed from the capabilities of a particular SeleniumSession value. */
+    private static class TestRunIdOfSession {
+        final SeleniumSession session;
+        final TestRunId testRunId;
+
+        TestRunIdOfSession(SeleniumSession session, TestRunId testRunId) {
+            this.session = session;
+            this.testRunId = testRunId;
+        }
+    }
 
     private final SeleniumSessionProxy proxy;
 
     private final WebmateAPISession apiSession;
 
-    private SeleniumSession cachedValue;
+    private volatile TestRunIdOfSession testRunIdOfSession;
 
     /**
      * Factory that creates Selenium Session from its browserSessionId (caveat: there may also be browsersessions
@@ -73,46 +106,51 @@ public class WebmateSeleniumSession {
         this.apiSession = apiSession;
     }
 
-    private void fetchSessionData(boolean refresh) {
-        if (this.cachedValue == null || refresh) {
-            this.cachedValue = this.proxy.getSession();
+    /**
+     * The session data is taken from the session-wide cache (see {@link SeleniumServiceClient#getSessionCache()}),
+     * so it may be a few seconds old.
+     */
+    private SeleniumSession fetchSessionData() {
+        SeleniumSession data = this.proxy.getSession();
+        if (data == null) {
+            throw new WebmateApiClientException("There is no Selenium session for " + proxy);
         }
+        return data;
     }
 
-    private void fetchSessionData() {
-        this.fetchSessionData(false);
+    /**
+     * Drop the cached data of this Selenium session, so that the next call fetches the current data from webmate.
+     */
+    public void refresh() {
+        this.proxy.invalidate();
     }
 
     /**
      * Internal id of Selenium session in webmate.
      */
     public WebmateSeleniumSessionId getId() {
-        this.fetchSessionData();
-        return this.cachedValue.getId();
+        return this.fetchSessionData().getId();
     }
 
     /**
      * UserId of user who has started the session.
      */
     public UserId getUserId() {
-        this.fetchSessionData();
-        return this.cachedValue.getUserId();
+        return this.fetchSessionData().getUserId();
     }
 
     /**
      * Browser used in the selenium session.
      */
     public Browser getBrowser() {
-        this.fetchSessionData();
-        return this.cachedValue.getBrowser();
+        return this.fetchSessionData().getBrowser();
     }
 
     /**
      * Was a proxy being used?
      */
     public Boolean usingProxy() {
-        this.fetchSessionData();
-        return this.cachedValue.usingProxy();
+        return this.fetchSessionData().usingProxy();
     }
 
     /**
@@ -120,48 +158,52 @@ public class WebmateSeleniumSession {
      * waitingforsession, requestinglease, running, done, timeout, failed, canceled, invalid
      */
     public String getState() {
-        this.fetchSessionData();
-        return this.cachedValue.getState();
+        return this.fetchSessionData().getState();
     }
 
     /**
      * Internal representation of the requested Selenium capabilities
      */
     public ObjectNode getSeleniumCapabilities() {
-        this.fetchSessionData();
-        return this.cachedValue.getSeleniumCapabilities();
+        return this.fetchSessionData().getSeleniumCapabilities();
     }
 
     /**
      * Project where the session was started.
      */
     public ProjectId getProjectId() {
-        this.fetchSessionData();
-        return this.cachedValue.getProjectId();
+        return this.fetchSessionData().getProjectId();
     }
 
     /**
      * Id of BrowserSession / Expedition
      */
     public BrowserSessionId getBrowserSessionId() {
-        this.fetchSessionData();
-        return this.cachedValue.getBrowserSessionId();
+        return this.fetchSessionData().getBrowserSessionId();
     }
 
     /**
      * If this session has failed, return the error message or null otherwise.
      */
     public String getErrorMessage() {
-        this.fetchSessionData();
-        return this.cachedValue.getErrorMessage();
+        return this.fetchSessionData().getErrorMessage();
     }
 
     /**
      * Id of webmate TestRun associated with Selenium session.
      */
     public TestRunId getTestRunId() {
-        this.fetchSessionData();
-        JsonNode testRunIdJson = this.getSeleniumCapabilities().findValue("testRunId");
+        SeleniumSession data = this.fetchSessionData();
+        TestRunIdOfSession known = this.testRunIdOfSession;
+        if (known == null || known.session != data) {
+            known = new TestRunIdOfSession(data, parseTestRunId(data));
+            this.testRunIdOfSession = known;
+        }
+        return known.testRunId;
+    }
+
+    private static TestRunId parseTestRunId(SeleniumSession data) {
+        JsonNode testRunIdJson = data.getSeleniumCapabilities().findValue("testRunId");
         if (testRunIdJson != null) {
             String testRunId = testRunIdJson.asText();
             if (testRunId != null) {
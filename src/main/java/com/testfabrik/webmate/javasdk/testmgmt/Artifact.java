@@ -1,7 +1,6 @@
 package com.testfabrik.webmate.javasdk.testmgmt;
 
 import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
 import com.google.common.base.Optional;
 import com.testfabrik.webmate.javasdk.JacksonMapper;
 import com.testfabrik.webmate.javasdk.ProjectId;
@@ -100,8 +99,7 @@ public class Artifact {
     }
 
     public static Artifact fromJsonString(String string) throws IOException {
-        ObjectMapper mapper = JacksonMapper.getInstance();
-        return mapper.readValue(string, Artifact.class);
+        return JacksonMapper.readerFor(Artifact.class).readValue(string);
     }
 
     public List<ArtifactAssociation> getAssociations() {
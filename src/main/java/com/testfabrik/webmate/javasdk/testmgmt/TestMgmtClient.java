@@ -2,25 +2,27 @@ package com.testfabrik.webmate.javasdk.testmgmt;
 
 import com.fasterxml.jackson.annotation.JsonValue;
 import com.fasterxml.jackson.core.type.TypeReference;
-import com.fasterxml.jackson.databind.DeserializationFeature;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.node.ObjectNode;
 import com.google.common.base.Optional;
+import com.google.common.base.Supplier;
+import com.google.common.base.Suppliers;
 import com.google.common.collect.ImmutableMap;
 import com.testfabrik.webmate.javasdk.*;
-import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.testfabrik.webmate.javasdk.commonutils.CompletionEngine;
 import com.testfabrik.webmate.javasdk.commonutils.HttpHelpers;
 import com.testfabrik.webmate.javasdk.jobs.WMValue;
 import com.testfabrik.webmate.javasdk.testmgmt.spec.TestExecutionSpec;
-import com.testfabrik.webmate.javasdk.utils.JsonUtils;
 import org.apache.http.HttpResponse;
 import org.apache.http.impl.client.HttpClientBuilder;
-import org.apache.http.util.EntityUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.io.IOException;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 /**
  * Facade to webmate's TestMgmt subsystem.
@@ -28,7 +30,17 @@ import java.util.*;
 public class TestMgmtClient {
 
     private WebmateAPISession session;
-    private TestMgmtApiClient apiClient;
+    /** Created on first use, so that unused subsystems of a session cost (almost) nothing. */
+    private final Supplier<TestMgmtApiClient> apiClient;
+    /** Waits for TestRuns to finish, created on first use. */
+    private final Supplier<CompletionEngine<TestRunId, TestRunInfo>> testRunCompletion =
+            Suppliers.memoize(() -> new CompletionEngine<>(this::getTestRun, TestMgmtClient::isFinished,
+                    session.getAsyncExecutor(), TESTRUN_POLL_INITIAL_INTERVAL_MILLIS, TESTRUN_POLL_MAX_INTERVAL_MILLIS));
+
+    /** Default time to wait for a TestRun to finish. */
+    public static final long TESTRUN_COMPLETION_TIMEOUT_MILLIS = 300_000;
+    private static final long TESTRUN_POLL_INITIAL_INTERVAL_MILLIS = 250;
+    private static final long TESTRUN_POLL_MAX_INTERVAL_MILLIS = 5_000;
 
     private static final Logger LOG = LoggerFactory.getLogger(TestMgmtClient.class);
 
@@ -40,24 +52,34 @@ public class TestMgmtClient {
             this.parameterAssignments = parameterAssignments;
         }
 
+        /**
+         * Serialized form of the spec. The assignments are serialized along with it, without building a JSON tree.
+         */
         @JsonValue
+        public Map<String, Object> asMap() {
+            return ImmutableMap.<String, Object>of(
+                    "type", "SingleTestRunCreationSpec",
+                    "assignmentSpec", parameterAssignments);
+        }
+
         public JsonNode asJson() {
-            ObjectMapper om = new ObjectMapper();
-            ObjectNode paramAssignments = ((ObjectNode)om.valueToTree(parameterAssignments));
-            ObjectNode root = om.createObjectNode();
-            return root
-                    .put("type", "SingleTestRunCreationSpec")
-                    .set("assignmentSpec", paramAssignments);
+            return JacksonMapper.valueToTree(this);
         }
     }
 
     private static class TestMgmtApiClient extends WebmateApiClient {
 
+        private final static ObjectReader testTemplatesReader =
+                JacksonMapper.readerFor(new TypeReference<ApiDataResult<TestTemplate[]>>() {});
+
+        private final static ObjectReader testResultsReader =
+                JacksonMapper.readerFor(new TypeReference<ApiDataResult<TestResult[]>>() {});
+
         private final static UriTemplate getTestTemplatesTemplate =
-                new UriTemplate("GetTestTemplates", "/projects/${projectId}/tests");
+                new UriTemplate("GetTestTemplates", "/projects/${projectId}/tests").cacheable(TimeUnit.SECONDS.toMillis(30));
 
         private final static UriTemplate getTestTemplate =
-                new UriTemplate("GetTestTemplate", "/testmgmt/tests/${testId}");
+                new UriTemplate("GetTestTemplate", "/testmgmt/tests/${testId}").cacheable(TimeUnit.SECONDS.toMillis(30));
 
         private final static UriTemplate getTestResultsTemplate =
                 new UriTemplate("GetTestResults", "/testmgmt/testruns/${testRunId}/results");
@@ -81,12 +103,16 @@ public class TestMgmtClient {
                 new UriTemplate("SetTestRunName", "/testmgmt/testruns/${testRunId}/name");
 
         private final static UriTemplate getTestRunTemplate =
-                new UriTemplate("GetTestRun", "/testmgmt/testruns/${testRunId}");
+                new UriTemplate("GetTestRun", "/testmgmt/testruns/${testRunId}").coalescable();
 
         public TestMgmtApiClient(WebmateAuthInfo authInfo, WebmateEnvironment environment) {
             super(authInfo, environment);
         }
 
+        public TestMgmtApiClient(WebmateHttpTransport transport) {
+            super(transport);
+        }
+
         public TestMgmtApiClient(WebmateAuthInfo authInfo, WebmateEnvironment environment, HttpClientBuilder clientBuilder) {
             super(authInfo, environment, clientBuilder);
         }
@@ -99,22 +125,21 @@ public class TestMgmtClient {
         }
 
         public CreateTestExecutionResponse createTestExecution(ProjectId projectId, TestExecutionSpec spec) {
-            Optional<HttpResponse> optHttpResponse = sendPOST(createTestExecutionTemplate, ImmutableMap.of(
-                    "projectId", projectId.toString()), spec.asJson()).getOptHttpResponse();
+            Optional<HttpResponse> optHttpResponse = sendPOSTJson(createTestExecutionTemplate, ImmutableMap.of(
+                    "projectId", projectId.toString()), spec).getOptHttpResponse();
 
             return handleCreateTestExecutionResponse(optHttpResponse);
         }
 
         public CreateTestExecutionResponse createAndStartTestExecution(ProjectId projectId, TestExecutionSpec spec) {
-            Optional<HttpResponse> optHttpResponse = sendPOST(createTestExecutionTemplate, ImmutableMap.of(
-                    "projectId", projectId.toString()), "start=true", spec.asJson()).getOptHttpResponse();
+            Optional<HttpResponse> optHttpResponse = sendPOSTJson(createTestExecutionTemplate, ImmutableMap.of(
+                    "projectId", projectId.toString()), "start=true", spec).getOptHttpResponse();
 
             return handleCreateTestExecutionResponse(optHttpResponse);
         }
 
         public TestSessionId createTestSession(ProjectId projectId, String name) {
-            ObjectMapper om = JacksonMapper.getInstance();
-            ObjectNode root = om.createObjectNode();
+            ObjectNode root = JacksonMapper.createObjectNode();
             root.put("name", name);
 
             Optional<HttpResponse> optHttpResponse = sendPOST(createTestSessionTemplate, ImmutableMap.of(
@@ -139,31 +164,19 @@ public class TestMgmtClient {
         }
 
         public TestExecutionSummary getTestExecution(TestExecutionId id) {
-            Optional<HttpResponse> optHttpResponse = sendGET(getTestExecutionTemplate, ImmutableMap.of(
-                    "testExecutionId", id.toString())).getOptHttpResponse();
-
-            if (!optHttpResponse.isPresent()) {
-                throw new WebmateApiClientException("Could not get TestExecution. Got no response");
-            }
-
-            return HttpHelpers.getObjectFromJsonEntity(optHttpResponse.get(), TestExecutionSummary.class);
+            return sendGETStreaming(getTestExecutionTemplate, ImmutableMap.of("testExecutionId", id.toString()),
+                    JacksonMapper.readerFor(TestExecutionSummary.class));
         }
 
         public TestRunInfo getTestRun(TestRunId id) {
-            Optional<HttpResponse> optHttpResponse = sendGET(getTestRunTemplate, ImmutableMap.of(
-                    "testRunId", id.toString())).getOptHttpResponse();
-
-            if (!optHttpResponse.isPresent()) {
-                throw new WebmateApiClientException("Could not get TestRun. Got no response");
-            }
-
-            return HttpHelpers.getObjectFromJsonEntity(optHttpResponse.get(), TestRunInfo.class);
+            return sendGETStreaming(getTestRunTemplate, ImmutableMap.of("testRunId", id.toString()),
+                    JacksonMapper.readerFor(TestRunInfo.class));
         }
 
         public void setTestRunName(TestRunId id, String name) {
             Map<String, Object>  params = ImmutableMap.of("name", name);
-            Optional<HttpResponse> optHttpResponse = sendPOST(setTestRunNameTemplate, ImmutableMap.of(
-                    "testRunId", id.toString()), JsonUtils.getJsonFromData(params)).getOptHttpResponse();
+            Optional<HttpResponse> optHttpResponse = sendPOSTJson(setTestRunNameTemplate, ImmutableMap.of(
+                    "testRunId", id.toString()), params).getOptHttpResponse();
 
             if (!optHttpResponse.isPresent()) {
                 throw new WebmateApiClientException("Could not finish TestRun. Got no response");
@@ -171,10 +184,8 @@ public class TestMgmtClient {
         }
 
         public void finishTestRun(TestRunId id, TestRunFinishData data) {
-            JsonNode dataJson = JsonUtils.getJsonFromData(data);
-
-            Optional<HttpResponse> optHttpResponse = sendPOST(finishTestRunTemplate, ImmutableMap.of(
-                    "testRunId", id.toString()), dataJson).getOptHttpResponse();
+            Optional<HttpResponse> optHttpResponse = sendPOSTJson(finishTestRunTemplate, ImmutableMap.of(
+                    "testRunId", id.toString()), data).getOptHttpResponse();
 
             if (!optHttpResponse.isPresent()) {
                 throw new WebmateApiClientException("Could not finish TestRun. Got no response");
@@ -182,41 +193,14 @@ public class TestMgmtClient {
         }
 
         public List<TestTemplate> getTestTemplates(ProjectId projectId) {
-            Optional<HttpResponse> optHttpResponse = sendGET(getTestTemplatesTemplate, ImmutableMap.of("projectId", projectId.toString())).getOptHttpResponse();
-            List<TestTemplate> testTemplates;
-            try {
-                if (!optHttpResponse.isPresent()) {
-                    testTemplates = new ArrayList<>();
-                } else {
-                    String testInfosJson = EntityUtils.toString(optHttpResponse.get().getEntity());
-                    ObjectMapper mapper = JacksonMapper.getInstance();
-                    mapper.disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES);
-
-
-                    ApiDataResult<TestTemplate[]> testResults = mapper.readValue(testInfosJson, new TypeReference<ApiDataResult<TestTemplate[]>>() {});
-                    testTemplates = Arrays.asList(testResults.data);
-                }
-            } catch (IOException e) {
-                throw new WebmateApiClientException("Error reading data: " + e.getMessage(), e);
-            }
-            return testTemplates;
+            ApiDataResult<TestTemplate[]> testTemplates = sendGETStreaming(getTestTemplatesTemplate,
+                    ImmutableMap.of("projectId", projectId.toString()), testTemplatesReader);
+            return Arrays.asList(testTemplates.data);
         }
 
         public Optional<Test> getTest(TestTemplateId id) {
-            Optional<HttpResponse> optHttpResponse = sendGET(getTestTemplate, ImmutableMap.of("testId", id.toString())).getOptHttpResponse();
-            if (!optHttpResponse.isPresent()) {
-                return Optional.absent();
-            }
-
-            Test test;
-            try {
-                String testJson = EntityUtils.toString(optHttpResponse.get().getEntity());
-
-                ObjectMapper mapper = JacksonMapper.getInstance();
-                test = mapper.readValue(testJson, Test.class);
-            } catch (IOException e) {
-                throw new WebmateApiClientException("Error reading Test data: " + e.getMessage(), e);
-            }
+            Test test = sendGETStreaming(getTestTemplate, ImmutableMap.of("testId", id.toString()),
+                    JacksonMapper.readerFor(Test.class));
             return Optional.fromNullable(test);
         }
 
@@ -231,22 +215,10 @@ public class TestMgmtClient {
             if (id == null) {
                 throw new WebmateApiClientException("TestRun id must not be null");
             }
-            Optional<HttpResponse> optHttpResponse = sendGET(getTestResultsTemplate, ImmutableMap.of("testRunId", id.toString())).getOptHttpResponse();
-            if (!optHttpResponse.isPresent()) {
-                return Optional.absent();
-            }
-
-            List<TestResult> result;
-            try {
-                String testJson = EntityUtils.toString(optHttpResponse.get().getEntity());
-
-                ObjectMapper mapper = JacksonMapper.getInstance();
-                ApiDataResult<TestResult[]> testResults = mapper.readValue(testJson, new TypeReference<ApiDataResult<TestResult[]>>() {});
-                result = Arrays.asList(testResults.data);
-            } catch (IOException e) {
-                throw new WebmateApiClientException("Error reading TestResult data: " + e.getMessage(), e);
-            }
-            return Optional.fromNullable(result);
+            ApiDataResult<TestResult[]> testResults = sendGETStreaming(getTestResultsTemplate,
+                    ImmutableMap.of("testRunId", id.toString()),
+                    testResultsReader);
+            return Optional.<List<TestResult>>of(Arrays.asList(testResults.data));
         }
     }
 
@@ -257,7 +229,7 @@ public class TestMgmtClient {
      */
     public TestMgmtClient(WebmateAPISession session) {
         this.session = session;
-        this.apiClient = new TestMgmtApiClient(session.authInfo, session.environment);
+        this.apiClient = Suppliers.memoize(() -> new TestMgmtApiClient(session.getTransport()));
     }
 
     /**
@@ -268,11 +240,11 @@ public class TestMgmtClient {
      */
     public TestMgmtClient(WebmateAPISession session,  HttpClientBuilder httpClientBuilder) {
         this.session = session;
-        this.apiClient = new TestMgmtApiClient(session.authInfo, session.environment, httpClientBuilder);
+        this.apiClient = Suppliers.memoize(() -> new TestMgmtApiClient(session.authInfo, session.environment, httpClientBuilder));
     }
 
     public List<TestTemplate> getTestTemplates(ProjectId projectId) {
-        return this.apiClient.getTestTemplates(projectId);
+        return this.apiClient.get().getTestTemplates(projectId);
     }
 
     /**
@@ -282,7 +254,7 @@ public class TestMgmtClient {
      * @return Test
      */
     public Optional<Test> getTest(TestTemplateId id) {
-        return this.apiClient.getTest(id);
+        return this.apiClient.get().getTest(id);
     }
 
     /**
@@ -292,7 +264,7 @@ public class TestMgmtClient {
      * @return List of TestResults. Optional.absent if there was no such Test or TestRun.
      */
     public Optional<List<TestResult>> getTestResults(TestRunId id) {
-        return this.apiClient.getTestResults(id);
+        return this.apiClient.get().getTestResults(id);
     }
 
     /**
@@ -302,7 +274,78 @@ public class TestMgmtClient {
      * @return TestRun information
      */
     public TestRunInfo getTestRun(TestRunId testRunId) {
-        return this.apiClient.getTestRun(testRunId);
+        return this.apiClient.get().getTestRun(testRunId);
+    }
+
+    /**
+     * Like {@link #getTestRun(TestRunId)}, run on the session's {@link WebmateAsyncExecutor}.
+     *
+     * @param testRunId Id of TestRun.
+     * @return Future completed with the TestRun information
+     */
+    public CompletableFuture<TestRunInfo> getTestRunAsync(TestRunId testRunId) {
+        return session.getAsyncExecutor().supplyAsync(() -> getTestRun(testRunId));
+    }
+
+    /**
+     * Wait (without blocking) for a TestRun to finish, i.e. to be neither created nor running anymore. All pending
+     * TestRuns of this session are polled by one shared poll loop, each starting with a short interval which is
+     * doubled up to 5 seconds while the TestRun is still running.
+     *
+     * @param testRunId Id of TestRun.
+     * @param timeoutMillis Time after which the returned future fails with a {@link TimeoutException}.
+     * @return Future completed with the information of the finished TestRun. Cancelling it ends the wait.
+     */
+    public CompletableFuture<TestRunInfo> awaitTestRunCompletion(TestRunId testRunId, long timeoutMillis) {
+        return testRunCompletion.get().await(testRunId, timeoutMillis);
+    }
+
+    /**
+     * Wait (without blocking) for a TestRun to finish, for at most {@link #TESTRUN_COMPLETION_TIMEOUT_MILLIS}.
+     *
+     * @param testRunId Id of TestRun.
+     * @return Future completed with the information of the finished TestRun. Cancelling it ends the wait.
+     */
+    public CompletableFuture<TestRunInfo> awaitTestRunCompletion(TestRunId testRunId) {
+        return awaitTestRunCompletion(testRunId, TESTRUN_COMPLETION_TIMEOUT_MILLIS);
+    }
+
+    /**
+     * Wait for many TestRuns together, e.g. all TestRuns of a test matrix. All TestRuns are polled by the shared poll
+     * loop of this session. A TestRun counts as failed if its execution or its evaluation failed.
+     *
+     * @param testRunIds Ids of the TestRuns.
+     * @param timeoutMillis Time after which waiting for a TestRun fails with a {@link TimeoutException}.
+     * @return Group offering awaitAll, awaitAny, awaitFirstFailure, the stream of completions and progress callbacks.
+     */
+    public CompletionGroup<TestRunId, TestRunInfo> awaitTestRuns(Collection<TestRunId> testRunIds, long timeoutMillis) {
+        Map<TestRunId, CompletableFuture<TestRunInfo>> futures = new LinkedHashMap<>();
+        for (TestRunId testRunId : testRunIds) {
+            if (!futures.containsKey(testRunId)) {
+                futures.put(testRunId, awaitTestRunCompletion(testRunId, timeoutMillis));
+            }
+        }
+        return new CompletionGroup<>(futures, TestMgmtClient::isFailure);
+    }
+
+    /**
+     * Wait for many TestRuns together, for at most {@link #TESTRUN_COMPLETION_TIMEOUT_MILLIS} each.
+     *
+     * @param testRunIds Ids of the TestRuns.
+     * @return Group offering awaitAll, awaitAny, awaitFirstFailure, the stream of completions and progress callbacks.
+     */
+    public CompletionGroup<TestRunId, TestRunInfo> awaitTestRuns(Collection<TestRunId> testRunIds) {
+        return awaitTestRuns(testRunIds, TESTRUN_COMPLETION_TIMEOUT_MILLIS);
+    }
+
+    static boolean isFailure(TestRunInfo info) {
+        return info.getExecutionStatus() == TestRunExecutionStatus.FAILED ||
+                info.getEvaluationStatus() == TestRunEvaluationStatus.FAILED;
+    }
+
+    static boolean isFinished(TestRunInfo info) {
+        return info.getExecutionStatus() != TestRunExecutionStatus.RUNNING &&
+                info.getExecutionStatus() != TestRunExecutionStatus.CREATED;
     }
 
     /**
@@ -312,7 +355,7 @@ public class TestMgmtClient {
      * @param name New TestRun name.
      */
     public void setTestRunName(TestRunId testRunId, String name) {
-        this.apiClient.setTestRunName(testRunId, name);
+        this.apiClient.get().setTestRunName(testRunId, name);
     }
 
 //    /**
@@ -326,13 +369,20 @@ public class TestMgmtClient {
 //    }
 
     public CreateTestExecutionResponse startExecution(TestExecutionSpec spec, ProjectId projectId) {
-        CreateTestExecutionResponse executionAndRun = apiClient.createAndStartTestExecution(projectId, spec);
+        CreateTestExecutionResponse executionAndRun = apiClient.get().createAndStartTestExecution(projectId, spec);
         if (!executionAndRun.optTestRunId.isPresent()) {
             throw new WebmateApiClientException("Got no testrun id for new execution.");
         }
         return executionAndRun;
     }
 
+    /**
+     * Like {@link #startExecution(TestExecutionSpec, ProjectId)}, run on the session's {@link WebmateAsyncExecutor}.
+     */
+    public CompletableFuture<CreateTestExecutionResponse> startExecutionAsync(TestExecutionSpec spec, ProjectId projectId) {
+        return session.getAsyncExecutor().supplyAsync(() -> startExecution(spec, projectId));
+    }
+
     /**
      * Create and start a TestExecution.
      *
@@ -348,7 +398,7 @@ public class TestMgmtClient {
     }
 
     public TestExecutionSummary getTestExecutionSummary(TestExecutionId testExecutionId) {
-        return apiClient.getTestExecution(testExecutionId);
+        return apiClient.get().getTestExecution(testExecutionId);
     }
 
     /**
@@ -358,28 +408,34 @@ public class TestMgmtClient {
         if (!session.getProjectId().isPresent()) {
             throw new WebmateApiClientException("A TestSession must be associated with a project and none is provided or associated with the API session");
         }
-        return new TestSession(apiClient.createTestSession(session.getProjectId().get(), name), this.session);
+        return new TestSession(apiClient.get().createTestSession(session.getProjectId().get(), name), this.session);
     }
 
     /**
      * Finish a running TestRun.
      */
     public void finishTestRun(TestRunId id, TestRunEvaluationStatus status) {
-       apiClient.finishTestRun(id, new TestRunFinishData(status));
+        // actions reported asynchronously must arrive before the TestRun is finished
+        session.browserSession.flushActionReports();
+        apiClient.get().finishTestRun(id, new TestRunFinishData(status));
     }
 
     /**
      * Finish a running TestRun with message.
      */
     public void finishTestRun(TestRunId id, TestRunEvaluationStatus status, String msg) {
-        apiClient.finishTestRun(id, new TestRunFinishData(status, msg));
+        // actions reported asynchronously must arrive before the TestRun is finished
+        session.browserSession.flushActionReports();
+        apiClient.get().finishTestRun(id, new TestRunFinishData(status, msg));
     }
 
     /**
      * Finish a running TestRun with message and detail information.
      */
     public void finishTestRun(TestRunId id, TestRunEvaluationStatus status, String msg, String detail) {
-        apiClient.finishTestRun(id, new TestRunFinishData(status, msg, detail));
+        // actions reported asynchronously must arrive before the TestRun is finished
+        session.browserSession.flushActionReports();
+        apiClient.get().finishTestRun(id, new TestRunFinishData(status, msg, detail));
     }
 
 }
@@ -1,15 +1,17 @@
 package com.testfabrik.webmate.javasdk.testmgmt;
 
 import com.testfabrik.webmate.javasdk.WebmateAPISession;
+import com.testfabrik.webmate.javasdk.WebmateApiClientException;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeoutException;
 
 /**
  * Facade for a (running or finished) TestRun
  */
 public class TestRun {
 
-    private static final long MAX_WAITING_TIME_MILLIS = 300_000; // 300 seconds
-    private static final long WAITING_POLLINTERVAL_MILLIS = 3_000; // 3 seconds
-
     private WebmateAPISession session;
 
     private TestRunId id;
@@ -66,24 +68,59 @@ public class TestRun {
     }
 
     /**
-     * Block, until the TestRun goes into a finished state (completed or failed).
+     * Wait (without blocking) until the TestRun goes into a finished state (e.g. completed or failed).
      *
-     * @return returns the TestRun info of the finished TestRun.
+     * @param timeoutMillis Time after which the returned future fails with a {@link TimeoutException}.
+     * @return Future completed with the TestRun info of the finished TestRun. Cancelling it ends the wait.
      */
-    public TestRunInfo waitForCompletion() {
-        long startTime = System.currentTimeMillis();
-        TestRunInfo info = null;
+    public CompletableFuture<TestRunInfo> waitForCompletionAsync(long timeoutMillis) {
+        return this.session.testMgmt.awaitTestRunCompletion(id, timeoutMillis);
+    }
+
+    /**
+     * Wait (without blocking) until the TestRun goes into a finished state (e.g. completed or failed), for at most
+     * {@link TestMgmtClient#TESTRUN_COMPLETION_TIMEOUT_MILLIS}.
+     *
+     * @return Future completed with the TestRun info of the finished TestRun. Cancelling it ends the wait.
+     */
+    public CompletableFuture<TestRunInfo> waitForCompletionAsync() {
+        return this.session.testMgmt.awaitTestRunCompletion(id);
+    }
+
+    /**
+     * Block, until the TestRun goes into a finished state (completed or failed) or timeoutMillis have passed.
+     *
+     * @return returns the TestRun info of the finished TestRun, or the current info if it has not finished in time.
+     * @throws WebmateApiClientException if the TestRun could not be retrieved or the thread has been interrupted.
+     */
+    public TestRunInfo waitForCompletion(long timeoutMillis) {
+        CompletableFuture<TestRunInfo> completion = waitForCompletionAsync(timeoutMillis);
         try {
-            do {
-                Thread.sleep(WAITING_POLLINTERVAL_MILLIS);
-                info = retrieveCurrentInfo();
-            } while ((info.getExecutionStatus() == TestRunExecutionStatus.RUNNING ||
-                    info.getExecutionStatus() == TestRunExecutionStatus.CREATED) &&
-                    System.currentTimeMillis() - startTime < MAX_WAITING_TIME_MILLIS);
+            return completion.get();
         } catch (InterruptedException e) {
-            e.printStackTrace();
+            completion.cancel(false);
+            Thread.currentThread().interrupt();
+            throw new WebmateApiClientException("Interrupted while waiting for TestRun " + id + " to finish", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof TimeoutException) {
+                return retrieveCurrentInfo();
+            }
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new WebmateApiClientException("Error while waiting for TestRun " + id + " to finish", e.getCause());
         }
-        return info;
+    }
+
+    /**
+     * Block, until the TestRun goes into a finished state (completed or failed), for at most
+     * {@link TestMgmtClient#TESTRUN_COMPLETION_TIMEOUT_MILLIS}.
+     *
+     * @return returns the TestRun info of the finished TestRun, or the current info if it has not finished in time.
+     * @throws WebmateApiClientException if the TestRun could not be retrieved or the thread has been interrupted.
+     */
+    public TestRunInfo waitForCompletion() {
+        return waitForCompletion(TestMgmtClient.TESTRUN_COMPLETION_TIMEOUT_MILLIS);
     }
 
 }
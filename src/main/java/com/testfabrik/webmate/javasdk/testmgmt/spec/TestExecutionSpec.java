@@ -2,15 +2,17 @@ package com.testfabrik.webmate.javasdk.testmgmt.spec;
 
 import com.fasterxml.jackson.annotation.JsonValue;
 import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.databind.node.ObjectNode;
 import com.google.common.base.Optional;
+import com.testfabrik.webmate.javasdk.JacksonMapper;
 import com.testfabrik.webmate.javasdk.Tag;
 import com.testfabrik.webmate.javasdk.testmgmt.*;
 import com.testfabrik.webmate.javasdk.testmgmt.testtypes.TestType;
 
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 public abstract class TestExecutionSpec {
 
@@ -60,27 +62,31 @@ public abstract class TestExecutionSpec {
         return this.defaultTestTemplateName;
     }
 
+    /**
+     * Serialized form of the spec. Tags, models, sessions and the test run creation spec are serialized along with
+     * it, without building a JSON tree.
+     */
     @JsonValue
-    public JsonNode asJson() {
-        ObjectMapper mapper = new ObjectMapper();
-
-        ObjectNode rootNode = mapper.createObjectNode();
-        rootNode.put("executionName", executionName);
+    public Map<String, Object> asMap() {
+        Map<String, Object> root = new LinkedHashMap<>();
+        root.put("executionName", executionName);
 
         // If testTemplateId is set, then use it. Otherwise use the defaultTestTemplateName.
-        ObjectNode testTemplateIdOrName = mapper.createObjectNode();
         if (testTemplateId.isPresent()) {
-            testTemplateIdOrName.put("id", testTemplateId.get().toString());
+            root.put("testTemplateIdOrName", Collections.singletonMap("id", testTemplateId.get().toString()));
         } else {
-            testTemplateIdOrName.put("name", defaultTestTemplateName);
+            root.put("testTemplateIdOrName", Collections.singletonMap("name", defaultTestTemplateName));
         }
-        rootNode.set("testTemplateIdOrName", testTemplateIdOrName);
 
-        rootNode.set("tags", mapper.valueToTree(tags));
-        rootNode.set("models", mapper.valueToTree(models));
-        rootNode.set("associatedSessions", mapper.valueToTree(associatedTestSessions));
+        root.put("tags", tags);
+        root.put("models", models);
+        root.put("associatedSessions", associatedTestSessions);
 
-        rootNode.set("testRunCreationSpec", makeTestRunCreationSpec().asJson());
-        return rootNode;
+        root.put("testRunCreationSpec", makeTestRunCreationSpec());
+        return root;
+    }
+
+    public JsonNode asJson() {
+        return JacksonMapper.valueToTree(this);
     }
 }
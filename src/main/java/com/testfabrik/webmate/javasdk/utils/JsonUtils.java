@@ -2,16 +2,18 @@ package com.testfabrik.webmate.javasdk.utils;
 
 import com.fasterxml.jackson.annotation.JsonInclude;
 import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
+import com.testfabrik.webmate.javasdk.JacksonMapper;
 
 public class JsonUtils {
 
+    /**
+     * Convert data to a JSON tree with the shared mapper. If several inclusion policies are given, the last one wins.
+     */
     public static JsonNode getJsonFromData(Object data, JsonInclude.Include... jsonInclude) {
-        ObjectMapper mapper = new ObjectMapper();
-        for (JsonInclude.Include include : jsonInclude) {
-            mapper.setSerializationInclusion(include);
+        if (jsonInclude.length == 0) {
+            return JacksonMapper.valueToTree(data);
         }
-        return mapper.valueToTree(data);
+        return JacksonMapper.valueToTree(data, jsonInclude[jsonInclude.length - 1]);
     }
 
 }
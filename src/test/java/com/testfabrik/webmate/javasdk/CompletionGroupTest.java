@@ -0,0 +1,86 @@
+package com.testfabrik.webmate.javasdk;
+
+import com.google.common.base.Optional;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.stream.Collectors;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertFalse;
+import static junit.framework.Assert.assertTrue;
+
+public class CompletionGroupTest {
+
+    private final Map<String, CompletableFuture<String>> futures = new LinkedHashMap<>();
+
+    private CompletionGroup<String, String> newGroup(String... ids) {
+        for (String id : ids) {
+            futures.put(id, new CompletableFuture<>());
+        }
+        return new CompletionGroup<>(futures, "failed"::equals);
+    }
+
+    @Test
+    public void testIfCombinatorsCompleteAsSoonAsTheirConditionHolds() throws Exception {
+        CompletionGroup<String, String> group = newGroup("a", "b", "c");
+        List<String> progress = new ArrayList<>();
+        group.addProgressListener((completion, completed, total) ->
+                progress.add(completion.getId() + ":" + completed + "/" + total));
+
+        futures.get("b").complete("done");
+        assertEquals("b", group.awaitAny().get(1, TimeUnit.SECONDS).getId());
+        assertFalse(group.awaitFirstFailure().isDone());
+
+        futures.get("c").complete("failed");
+        assertEquals("c", group.awaitFirstFailure().get(1, TimeUnit.SECONDS).get().getId());
+        assertFalse(group.awaitAll().isDone());
+
+        futures.get("a").completeExceptionally(new TimeoutException());
+        BulkResult<String, String> all = group.awaitAll().get(1, TimeUnit.SECONDS);
+        assertEquals(2, all.getResults().size());
+        assertTrue(all.getErrors().get("a") instanceof TimeoutException);
+
+        assertEquals("[b:1/3, c:2/3, a:3/3]", progress.toString());
+        // late listeners get the completions so far
+        List<String> late = new ArrayList<>();
+        group.addProgressListener((completion, completed, total) -> late.add(completion.getId()));
+        assertEquals("[b, c, a]", late.toString());
+    }
+
+    @Test
+    public void testIfCompletionsAreStreamedInOrder() throws Exception {
+        CompletionGroup<String, String> group = newGroup("a", "b", "c");
+        CountDownLatch firstStreamed = new CountDownLatch(1);
+        CompletableFuture<List<String>> streamed = CompletableFuture.supplyAsync(() ->
+                group.completions().map(CompletionGroup.Completion::getId).peek(id -> firstStreamed.countDown())
+                        .collect(Collectors.toList()));
+        futures.get("c").complete("done");
+        // the first completion is streamed while the others are still pending
+        assertTrue(firstStreamed.await(1, TimeUnit.SECONDS));
+        futures.get("a").complete("done");
+        futures.get("b").complete("done");
+        assertEquals("[c, a, b]", streamed.get(1, TimeUnit.SECONDS).toString());
+        assertEquals(Optional.absent(), group.awaitFirstFailure().get(1, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void testIfGroupsCanBeCancelledAndBeEmpty() throws Exception {
+        CompletionGroup<String, String> group = newGroup("a", "b");
+        group.cancel();
+        BulkResult<String, String> all = group.awaitAll().get(1, TimeUnit.SECONDS);
+        assertEquals(2, all.getErrors().size());
+        assertTrue(group.awaitFirstFailure().get().get().isFailure());
+
+        CompletionGroup<String, String> empty = new CompletionGroup<>(new LinkedHashMap<String, CompletableFuture<String>>(), "failed"::equals);
+        assertTrue(empty.awaitAll().get().isSuccessful());
+        assertEquals(0, empty.completions().count());
+    }
+}
@@ -0,0 +1,74 @@
+package com.testfabrik.webmate.javasdk;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.exc.UnrecognizedPropertyException;
+import com.google.common.base.Optional;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.List;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertFalse;
+import static junit.framework.Assert.assertNotSame;
+import static junit.framework.Assert.assertSame;
+import static junit.framework.Assert.fail;
+
+public class JacksonMapperTest {
+
+    public static class Dto {
+        public String name;
+        public String comment;
+        public Optional<String> tag = Optional.absent();
+    }
+
+    @Test
+    public void testIfReadersAreReusedPerType() {
+        assertSame(JacksonMapper.readerFor(Dto.class), JacksonMapper.readerFor(Dto.class));
+        assertSame(JacksonMapper.readerFor(new TypeReference<List<Dto>>() {}),
+                JacksonMapper.readerFor(new TypeReference<List<Dto>>() {}));
+        assertSame(JacksonMapper.writer(JsonInclude.Include.NON_NULL), JacksonMapper.writer(JsonInclude.Include.NON_NULL));
+    }
+
+    @Test
+    public void testIfUnknownPropertiesAreIgnored() throws IOException {
+        String json = "{\"name\": \"a\", \"unknown\": 1}";
+        Dto dto = JacksonMapper.readerFor(Dto.class).readValue(json);
+        assertEquals("a", dto.name);
+    }
+
+    @Test
+    public void testIfHandedOutMapperDoesNotAffectSharedMapper() throws IOException {
+        String json = "{\"name\": \"a\", \"unknown\": 1}";
+        ObjectMapper mapper = JacksonMapper.getInstance();
+        assertNotSame(mapper, JacksonMapper.getInstance());
+        mapper.enable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES);
+        try {
+            mapper.readValue(json, Dto.class);
+            fail("expected exception");
+        } catch (UnrecognizedPropertyException e) {
+            // expected
+        }
+        assertEquals("a", JacksonMapper.getInstance().readValue(json, Dto.class).name);
+        assertEquals("a", ((Dto) JacksonMapper.readerFor(Dto.class).readValue(json)).name);
+    }
+
+    @Test
+    public void testIfInclusionPolicyDoesNotAffectSharedMapper() {
+        Dto dto = new Dto();
+        dto.name = "a";
+        dto.tag = Optional.of("t");
+
+        JsonNode nonNull = JacksonMapper.valueToTree(dto, JsonInclude.Include.NON_NULL);
+        assertFalse(nonNull.has("comment"));
+        assertEquals("t", nonNull.get("tag").asText());
+
+        JsonNode all = JacksonMapper.valueToTree(dto);
+        assertEquals(true, all.has("comment"));
+        assertEquals("t", all.get("tag").asText());
+    }
+}
@@ -0,0 +1,79 @@
+package com.testfabrik.webmate.javasdk;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.IOException;
+import java.net.URI;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of creating a {@link WebmateAPISession}. coldStart measures the first session of a fresh JVM (including class
+ * loading, as in short-lived test forks), sessionOnSharedTransport the steady-state cost of an additional session,
+ * whose gc.alloc.rate.norm approximates the memory of an idle session. Run the main method after
+ * <code>mvn test-compile</code>.
+ */
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class SessionCreationBenchmark {
+
+    private static final WebmateAuthInfo AUTH_INFO = new WebmateAuthInfo("email", "apikey");
+    private static final WebmateEnvironment ENVIRONMENT = WebmateEnvironment.create(URI.create("http://localhost:1/api/v1"));
+    private static final ProjectId PROJECT_ID = new ProjectId(UUID.randomUUID());
+
+    @State(Scope.Benchmark)
+    public static class SharedTransport {
+        WebmateHttpTransport transport;
+
+        @Setup(Level.Trial)
+        public void createTransport() {
+            transport = new WebmateHttpTransport(AUTH_INFO, ENVIRONMENT);
+        }
+
+        @TearDown(Level.Trial)
+        public void closeTransport() throws IOException {
+            transport.close();
+        }
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @Warmup(iterations = 0)
+    @Measurement(iterations = 1)
+    @Fork(20)
+    public Object coldStart() throws IOException {
+        try (WebmateAPISession session = new WebmateAPISession(AUTH_INFO, ENVIRONMENT, PROJECT_ID)) {
+            return session.selenium;
+        }
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @Warmup(iterations = 3, time = 1)
+    @Measurement(iterations = 5, time = 1)
+    @Fork(1)
+    public WebmateAPISession sessionOnSharedTransport(SharedTransport shared) {
+        return new WebmateAPISession(shared.transport, PROJECT_ID);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(SessionCreationBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .build()).run();
+    }
+}
@@ -0,0 +1,84 @@
+package com.testfabrik.webmate.javasdk;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.testfabrik.webmate.javasdk.browsersession.BrowserSessionId;
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertFalse;
+import static junit.framework.Assert.assertTrue;
+
+public class SessionTeardownManagerTest {
+
+    private static final BrowserSessionId HANGING_BROWSER_SESSION = new BrowserSessionId(UUID.randomUUID());
+
+    private final CountDownLatch release = new CountDownLatch(1);
+
+    @Rule
+    public final WebmateTestServer server = new WebmateTestServer(this::handle);
+
+    private void handle(HttpExchange exchange) throws IOException {
+        exchange.getRequestBody().close();
+        try {
+            if (exchange.getRequestURI().getPath().contains(HANGING_BROWSER_SESSION.getValueAsString())) {
+                release.await(10, TimeUnit.SECONDS);
+            } else {
+                Thread.sleep(50);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        WebmateTestServer.respond(exchange, 200, "true");
+    }
+
+    @After
+    public void releaseHangingCalls() {
+        release.countDown();
+    }
+
+    @Test
+    public void testIfTrackedSessionsAreTerminatedInParallelWithTimeouts() throws IOException {
+        try (WebmateAPISession session = server.newSession()) {
+            SessionTeardownManager teardown = session.getTeardownManager()
+                    .setMaxConcurrency(3)
+                    .setCallTimeoutMillis(500);
+            for (int i = 0; i < 8; i++) {
+                session.addBrowserSession(new BrowserSessionId(UUID.randomUUID()));
+            }
+            session.addBrowserSession(HANGING_BROWSER_SESSION);
+            assertEquals(9, teardown.getTrackedBrowserSessions().size());
+
+            long start = System.currentTimeMillis();
+            BulkResult<BrowserSessionId, Boolean> result = teardown.terminateBrowserSessions();
+
+            assertTrue(System.currentTimeMillis() - start < 5_000);
+            assertEquals(8, result.getResults().size());
+            assertFalse(result.getResults().containsValue(false));
+            assertTrue(result.getErrors().get(HANGING_BROWSER_SESSION) instanceof TimeoutException);
+            assertTrue(server.getMaxConcurrentCalls() <= 3);
+            assertTrue(server.getMaxConcurrentCalls() > 1);
+
+            // terminated sessions are no longer tracked
+            assertEquals(1, teardown.getTrackedBrowserSessions().size());
+            assertTrue(teardown.getTrackedBrowserSessions().contains(HANGING_BROWSER_SESSION));
+        }
+    }
+
+    @Test
+    public void testIfShutdownHookCanBeRegisteredAndIsRemovedOnClose() throws IOException {
+        WebmateAPISession session = server.newSession();
+        session.getTeardownManager().registerShutdownHook();
+        session.getTeardownManager().registerShutdownHook();
+        session.close();
+        // removing again is harmless
+        session.getTeardownManager().removeShutdownHook();
+    }
+}
@@ -0,0 +1,70 @@
+package com.testfabrik.webmate.javasdk;
+
+import com.google.common.collect.ImmutableMap;
+import org.apache.http.client.utils.URIBuilder;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares URI building of the compiled {@link WebmateApiClient.UriTemplate} with the former URIBuilder based
+ * implementation. Run the main method (e.g. from the IDE) after <code>mvn test-compile</code>; the GC profiler
+ * reports the allocated bytes per call as gc.alloc.rate.norm.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class UriTemplateBenchmark {
+
+    private static final String SCHEMA = "/projects/${projectId}/testruns/${testRunId}/results";
+
+    private final URI baseUri = URI.create("https://app.webmate.io/api/v1");
+    private final Map<String, String> params = ImmutableMap.of(
+            "projectId", "5e1a0c9b-1a92-4e0f-9a4a-7e6e4d1c2b3a",
+            "testRunId", "0b7d8d54-3f1e-4bb6-8a3e-2c1f5d9e8a7b");
+    private final WebmateApiClient.UriTemplate template = new WebmateApiClient.UriTemplate(SCHEMA);
+
+    @Benchmark
+    public URI compiledTemplate() {
+        return template.buildUri(baseUri, params);
+    }
+
+    @Benchmark
+    public URI uriBuilder() throws URISyntaxException {
+        String path = SCHEMA;
+        for (String key : params.keySet()) {
+            path = path.replace("${" + key + "}", params.get(key));
+        }
+        URIBuilder builder = new URIBuilder();
+        builder.setScheme(baseUri.getScheme());
+        builder.setHost(baseUri.getHost());
+        builder.setPort(baseUri.getPort());
+        builder.setPath((baseUri.normalize().getPath() + path).replaceAll("//", "/"));
+        return builder.build();
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(UriTemplateBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .build()).run();
+    }
+}
@@ -0,0 +1,96 @@
+package com.testfabrik.webmate.javasdk;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import org.apache.http.NameValuePair;
+import org.apache.http.client.utils.URIBuilder;
+import org.apache.http.message.BasicNameValuePair;
+import org.junit.Test;
+
+import java.net.URI;
+import java.util.List;
+import java.util.Map;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.fail;
+
+public class UriTemplateTest {
+
+    private static final URI BASE_URI = URI.create("https://app.webmate.io:8443/api/v1/");
+
+    private static final String ALL_CHARS;
+
+    static {
+        StringBuilder sb = new StringBuilder();
+        for (char c = 32; c < 127; c++) {
+            if (c != '/') {
+                sb.append(c);
+            }
+        }
+        sb.append("äöü€😀");
+        ALL_CHARS = sb.toString();
+    }
+
+    /**
+     * URIs as built by the former URIBuilder based implementation.
+     */
+    private static URI buildWithUriBuilder(URI baseUri, String path, String query, List<NameValuePair> queryParams) throws Exception {
+        URIBuilder builder = new URIBuilder();
+        builder.setScheme(baseUri.getScheme());
+        if (query != null) {
+            builder.setCustomQuery(query);
+        }
+        if (queryParams != null) {
+            builder.addParameters(queryParams);
+        }
+        builder.setHost(baseUri.getHost());
+        builder.setPort(baseUri.getPort());
+        builder.setPath((baseUri.normalize().getPath() + path).replaceAll("//", "/"));
+        return builder.build();
+    }
+
+    @Test
+    public void testIfPathIsEncodedLikeUriBuilder() throws Exception {
+        WebmateApiClient.UriTemplate template = new WebmateApiClient.UriTemplate("/projects/${projectId}/blobs/${blobId}");
+        Map<String, String> params = ImmutableMap.of("projectId", ALL_CHARS, "blobId", "1234-abcd");
+
+        assertEquals(buildWithUriBuilder(BASE_URI, "/projects/" + ALL_CHARS + "/blobs/1234-abcd", null, null),
+                template.buildUri(BASE_URI, params));
+    }
+
+    @Test
+    public void testIfQueriesAreEncodedLikeUriBuilder() throws Exception {
+        WebmateApiClient.UriTemplate template = new WebmateApiClient.UriTemplate("/devices/${deviceId}/install");
+        Map<String, String> params = ImmutableMap.of("deviceId", "42");
+        String query = "wait=true&name=" + ALL_CHARS;
+        List<NameValuePair> queryParams = ImmutableList.<NameValuePair>of(
+                new BasicNameValuePair("name", ALL_CHARS), new BasicNameValuePair("flag", null));
+
+        assertEquals(buildWithUriBuilder(BASE_URI, "/devices/42/install", query, null),
+                template.buildUri(BASE_URI, params, query));
+        assertEquals(buildWithUriBuilder(BASE_URI, "/devices/42/install", null, queryParams),
+                template.buildUri(BASE_URI, params, queryParams));
+    }
+
+    @Test
+    public void testIfTemplateQueryParamsAreExpanded() {
+        WebmateApiClient.UriTemplate template = new WebmateApiClient.UriTemplate("/jobs",
+                ImmutableMap.of("project", "${projectId}"));
+
+        URI uri = template.buildUri(URI.create("http://localhost/api"), ImmutableMap.of("projectId", "a b"),
+                ImmutableList.<NameValuePair>of(new BasicNameValuePair("project", "other"), new BasicNameValuePair("x", "1")));
+
+        assertEquals("http://localhost/api/jobs?x=1&project=a+b", uri.toString());
+    }
+
+    @Test
+    public void testIfMissingParameterIsRejected() {
+        WebmateApiClient.UriTemplate template = new WebmateApiClient.UriTemplate("/projects/${projectId}/blobs");
+        try {
+            template.buildUri(BASE_URI, ImmutableMap.of("blobId", "1"));
+            fail("expected exception");
+        } catch (WebmateApiClientException e) {
+            // expected
+        }
+    }
+}
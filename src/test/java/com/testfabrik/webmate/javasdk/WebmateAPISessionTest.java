@@ -0,0 +1,80 @@
+package com.testfabrik.webmate.javasdk;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.fail;
+
+public class WebmateAPISessionTest {
+
+    private static WebmateAPISession newSession() {
+        return new WebmateAPISession(new WebmateAuthInfo("email", "apikey"),
+                WebmateEnvironment.create(URI.create("http://localhost:1/api/v1")), new ProjectId(UUID.randomUUID()));
+    }
+
+    @Test
+    public void testIfConcurrentlyAddedTagsAreAllRegistered() throws Exception {
+        final int threads = 8;
+        final int tagsPerThread = 200;
+        try (WebmateAPISession session = newSession()) {
+            CountDownLatch start = new CountDownLatch(1);
+            List<Thread> workers = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                final int n = t;
+                Thread worker = new Thread(() -> {
+                    try {
+                        start.await();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                    for (int i = 0; i < tagsPerThread; i++) {
+                        session.addTag(new Tag("tag-" + n + "-" + i));
+                        // readers must always see a consistent snapshot
+                        session.getAssociatedTags().size();
+                    }
+                });
+                worker.start();
+                workers.add(worker);
+            }
+            start.countDown();
+            for (Thread worker : workers) {
+                worker.join();
+            }
+
+            List<Tag> tags = session.getAssociatedTags();
+            assertEquals(threads * tagsPerThread, tags.size());
+            Set<String> names = new HashSet<>();
+            for (Tag tag : tags) {
+                names.add(tag.getName());
+            }
+            assertEquals(threads * tagsPerThread, names.size());
+        }
+    }
+
+    @Test
+    public void testIfGettersReturnUnmodifiableSnapshots() throws IOException {
+        try (WebmateAPISession session = newSession()) {
+            session.addTag(new Tag("a"));
+            List<Tag> snapshot = session.getAssociatedTags();
+            session.addTag(new Tag("b"));
+
+            assertEquals(1, snapshot.size());
+            assertEquals(2, session.getAssociatedTags().size());
+            try {
+                snapshot.add(new Tag("c"));
+                fail("expected exception");
+            } catch (UnsupportedOperationException e) {
+                // expected
+            }
+        }
+    }
+}
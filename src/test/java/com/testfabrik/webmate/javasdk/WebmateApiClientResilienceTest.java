@@ -0,0 +1,86 @@
+package com.testfabrik.webmate.javasdk;
+
+import com.google.common.collect.ImmutableMap;
+import com.testfabrik.webmate.javasdk.commonutils.CircuitBreaker;
+import org.junit.Rule;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.fail;
+
+public class WebmateApiClientResilienceTest {
+
+    private final AtomicInteger requests = new AtomicInteger();
+    private volatile int failuresBeforeSuccess;
+
+    @Rule
+    public final WebmateTestServer server = new WebmateTestServer(exchange -> {
+        exchange.getRequestBody().close();
+        if (requests.incrementAndGet() <= failuresBeforeSuccess) {
+            exchange.getResponseHeaders().add("Retry-After", "0");
+            WebmateTestServer.respond(exchange, 503, "\"ok\"");
+        } else {
+            WebmateTestServer.respond(exchange, 200, "\"ok\"");
+        }
+    });
+
+    private WebmateHttpTransport makeTransport(ResilienceConfig config) {
+        return server.newTransport(ConnectionPoolConfig.defaults(), config);
+    }
+
+    private static ResilienceConfig fastRetries() {
+        return ResilienceConfig.defaults().setInitialBackoffMillis(1).setMaxBackoffMillis(5);
+    }
+
+    @Test
+    public void testIfIdempotentRequestsAreRetried() throws IOException {
+        failuresBeforeSuccess = 2;
+        try (WebmateHttpTransport transport = makeTransport(fastRetries())) {
+            WebmateApiClient client = new WebmateApiClient(transport);
+
+            client.sendGET(new WebmateApiClient.UriTemplate("/things"), ImmutableMap.<String, String>of());
+            assertEquals(3, requests.get());
+
+            client.sendPOST(new WebmateApiClient.UriTemplate("/things/stop").idempotent(), ImmutableMap.<String, String>of());
+            assertEquals(4, requests.get());
+        }
+    }
+
+    @Test
+    public void testIfNonIdempotentRequestsAreNotRetried() throws IOException {
+        failuresBeforeSuccess = 1;
+        try (WebmateHttpTransport transport = makeTransport(fastRetries())) {
+            WebmateApiClient client = new WebmateApiClient(transport);
+            try {
+                client.sendPOST(new WebmateApiClient.UriTemplate("/things"), ImmutableMap.<String, String>of());
+                fail("expected exception");
+            } catch (WebmateApiClientException e) {
+                assertEquals(1, requests.get());
+            }
+        }
+    }
+
+    @Test
+    public void testIfCircuitBreakerFailsFast() throws IOException {
+        failuresBeforeSuccess = 100;
+        ResilienceConfig config = fastRetries().setMaxAttempts(1)
+                .setCircuitBreakerFailureThreshold(2).setCircuitBreakerOpenMillis(60_000);
+        try (WebmateHttpTransport transport = makeTransport(config)) {
+            WebmateApiClient client = new WebmateApiClient(transport);
+            WebmateApiClient.UriTemplate template = new WebmateApiClient.UriTemplate("GetThings", "/things");
+            for (int i = 0; i < 4; i++) {
+                try {
+                    client.sendGET(template, ImmutableMap.<String, String>of());
+                    fail("expected exception");
+                } catch (WebmateApiClientException e) {
+                    // expected
+                }
+            }
+            assertEquals(2, requests.get());
+            assertEquals(CircuitBreaker.State.OPEN, transport.getCircuitBreakerStates().get("GetThings"));
+        }
+    }
+}
@@ -0,0 +1,137 @@
+package com.testfabrik.webmate.javasdk;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import org.junit.Rule;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static junit.framework.Assert.assertEquals;
+
+public class WebmateApiClientResponseCacheTest {
+
+    private final AtomicInteger requests = new AtomicInteger();
+    private final AtomicInteger notModified = new AtomicInteger();
+
+    @Rule
+    public final WebmateTestServer server = new WebmateTestServer(exchange -> {
+        exchange.getRequestBody().close();
+        requests.incrementAndGet();
+        String path = exchange.getRequestURI().getPath();
+        if (path.startsWith("/api/v1/lists/")) {
+            WebmateTestServer.respond(exchange, 200, "[\"x\", \"y\"]");
+            return;
+        }
+        String eTag = "\"" + path + "\"";
+        if (eTag.equals(exchange.getRequestHeaders().getFirst("If-None-Match"))) {
+            notModified.incrementAndGet();
+            WebmateTestServer.respond(exchange, 304);
+        } else {
+            exchange.getResponseHeaders().add("ETag", eTag);
+            WebmateTestServer.respond(exchange, 200, "\"" + path + "\"");
+        }
+    });
+
+    private WebmateHttpTransport makeTransport() {
+        return server.newTransport(ConnectionPoolConfig.defaults(), ResilienceConfig.disabled());
+    }
+
+    private static String get(WebmateApiClient client, WebmateApiClient.UriTemplate template, String id) {
+        return client.sendGETStreaming(template, ImmutableMap.of("id", id),
+                JacksonMapper.getInstance().readerFor(String.class));
+    }
+
+    @Test
+    public void testIfFreshResponsesAreServedFromCache() throws IOException {
+        WebmateApiClient.UriTemplate template = new WebmateApiClient.UriTemplate("/things/${id}").cacheable(60_000);
+        try (WebmateHttpTransport transport = makeTransport()) {
+            WebmateApiClient client = new WebmateApiClient(transport);
+
+            String first = get(client, template, "a");
+            assertEquals("/api/v1/things/a", first);
+            assertEquals(first, get(client, template, "a"));
+            assertEquals(1, requests.get());
+
+            get(client, template, "b");
+            assertEquals(2, requests.get());
+        }
+    }
+
+    @Test
+    public void testIfChangesOfReturnedValuesDoNotAffectTheCache() throws IOException {
+        WebmateApiClient.UriTemplate template = new WebmateApiClient.UriTemplate("/lists/${id}").cacheable(60_000);
+        ObjectReader reader = JacksonMapper.readerFor(new TypeReference<List<String>>() {});
+        try (WebmateHttpTransport transport = makeTransport()) {
+            WebmateApiClient client = new WebmateApiClient(transport);
+
+            List<String> first = client.sendGETStreaming(template, ImmutableMap.of("id", "a"), reader);
+            first.clear();
+            List<String> second = client.sendGETStreaming(template, ImmutableMap.of("id", "a"), reader);
+            assertEquals(ImmutableList.of("x", "y"), second);
+            assertEquals(1, requests.get());
+
+            ObjectReader treeReader = JacksonMapper.readerFor(JsonNode.class);
+            ((ArrayNode) client.<JsonNode>sendGETStreaming(template, ImmutableMap.of("id", "a"), treeReader)).removeAll();
+            assertEquals(2, client.<JsonNode>sendGETStreaming(template, ImmutableMap.of("id", "a"), treeReader).size());
+            assertEquals(1, requests.get());
+        }
+    }
+
+    @Test
+    public void testIfExpiredResponsesAreRevalidated() throws IOException {
+        WebmateApiClient.UriTemplate template = new WebmateApiClient.UriTemplate("/things/${id}").cacheable(0);
+        try (WebmateHttpTransport transport = makeTransport()) {
+            WebmateApiClient client = new WebmateApiClient(transport);
+
+            String first = get(client, template, "a");
+            assertEquals(first, get(client, template, "a"));
+            assertEquals(2, requests.get());
+            assertEquals(1, notModified.get());
+        }
+    }
+
+    @Test
+    public void testIfNonCacheableTemplatesAndDisabledCacheAlwaysRequest() throws IOException {
+        WebmateApiClient.UriTemplate template = new WebmateApiClient.UriTemplate("/things/${id}");
+        try (WebmateHttpTransport transport = makeTransport()) {
+            WebmateApiClient client = new WebmateApiClient(transport);
+            get(client, template, "a");
+            get(client, template, "a");
+            assertEquals(2, requests.get());
+
+            transport.setResponseCache(null);
+            WebmateApiClient.UriTemplate cacheable = new WebmateApiClient.UriTemplate("/things/${id}").cacheable(60_000);
+            get(client, cacheable, "a");
+            get(client, cacheable, "a");
+            assertEquals(4, requests.get());
+            assertEquals(0, notModified.get());
+        }
+    }
+
+    @Test
+    public void testIfLeastRecentlyUsedEntriesAreEvicted() throws IOException {
+        WebmateApiClient.UriTemplate template = new WebmateApiClient.UriTemplate("/things/${id}").cacheable(60_000);
+        try (WebmateHttpTransport transport = makeTransport()) {
+            transport.setResponseCache(new InMemoryResponseCache(2));
+            WebmateApiClient client = new WebmateApiClient(transport);
+
+            get(client, template, "a");
+            get(client, template, "b");
+            get(client, template, "a");
+            get(client, template, "c");
+            assertEquals(3, requests.get());
+
+            get(client, template, "a");
+            assertEquals(3, requests.get());
+            get(client, template, "b");
+            assertEquals(4, requests.get());
+        }
+    }
+}
@@ -0,0 +1,95 @@
+package com.testfabrik.webmate.javasdk;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertTrue;
+import static junit.framework.Assert.fail;
+
+public class WebmateAsyncExecutorTest {
+
+    @Test
+    public void testIfConcurrencyIsBounded() throws Exception {
+        WebmateAsyncExecutor executor = new WebmateAsyncExecutor(3);
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger maxRunning = new AtomicInteger();
+        List<CompletableFuture<Integer>> results = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            final int n = i;
+            results.add(executor.supplyAsync(() -> {
+                maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+                try {
+                    Thread.sleep(5);
+                } catch (InterruptedException e) {
+                    throw new RuntimeException(e);
+                }
+                running.decrementAndGet();
+                return n;
+            }));
+        }
+        for (int i = 0; i < 20; i++) {
+            assertEquals(i, (int) results.get(i).get());
+        }
+        assertTrue(maxRunning.get() <= 3);
+        executor.close();
+    }
+
+    @Test
+    public void testIfErrorsAndClosingAreReportedThroughFuture() throws Exception {
+        WebmateAsyncExecutor executor = new WebmateAsyncExecutor(1);
+        AsyncSubsystem<String> subsystem = new AsyncSubsystem<>("webmate", executor);
+
+        assertEquals(7, (int) subsystem.call(String::length).get());
+        try {
+            subsystem.call(s -> s.charAt(100)).get();
+            fail("expected exception");
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof StringIndexOutOfBoundsException);
+        }
+
+        executor.close();
+        try {
+            subsystem.run(s -> {}).get();
+            fail("expected exception");
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof WebmateApiClientException);
+        }
+    }
+
+    @Test
+    public void testIfQueueIsBounded() throws Exception {
+        WebmateAsyncExecutor executor = new WebmateAsyncExecutor(1, 1);
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        CompletableFuture<Void> running = executor.runAsync(() -> {
+            started.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                throw new RuntimeException(e);
+            }
+        });
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+
+        CompletableFuture<Integer> queued = executor.supplyAsync(() -> 1);
+        try {
+            executor.supplyAsync(() -> 2).get();
+            fail("expected exception");
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof WebmateApiClientException);
+        }
+
+        release.countDown();
+        running.get(5, TimeUnit.SECONDS);
+        assertEquals(1, (int) queued.get(5, TimeUnit.SECONDS));
+        executor.close();
+    }
+}
@@ -0,0 +1,172 @@
+package com.testfabrik.webmate.javasdk;
+
+import com.google.common.base.Optional;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.io.ByteStreams;
+import com.testfabrik.webmate.javasdk.commonutils.UploadEntities;
+import org.apache.http.impl.client.HttpClientBuilder;
+import org.junit.Rule;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertTrue;
+import static junit.framework.Assert.fail;
+
+public class WebmateHttpTransportTest {
+
+    private final List<List<String>> receivedContentTypes = new ArrayList<>();
+    private final List<byte[]> receivedBodies = new ArrayList<>();
+
+    @Rule
+    public final WebmateTestServer server = new WebmateTestServer(exchange -> {
+        synchronized (receivedContentTypes) {
+            receivedContentTypes.add(exchange.getRequestHeaders().get("Content-Type"));
+            receivedBodies.add(ByteStreams.toByteArray(exchange.getRequestBody()));
+        }
+        WebmateTestServer.respond(exchange, 200, "\"00000000-0000-0000-0000-000000000001\"");
+    });
+
+    private WebmateHttpTransport makeTransport(ConnectionPoolConfig config) {
+        return server.newTransport(config);
+    }
+
+    @Test
+    public void testIfHttpClientIsCreatedOnFirstRequestOnly() throws IOException {
+        WebmateHttpTransport transport = makeTransport(ConnectionPoolConfig.defaults());
+        WebmateAPISession session = new WebmateAPISession(transport, new ProjectId(UUID.randomUUID()));
+        session.close();
+        try {
+            transport.getHttpClient();
+            fail("expected exception");
+        } catch (WebmateApiClientException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void testIfPoolIsConfigured() throws IOException {
+        try (WebmateHttpTransport transport = makeTransport(ConnectionPoolConfig.defaults().setMaxTotal(7).setMaxPerRoute(3))) {
+            assertEquals(7, transport.getPoolStats().getMax());
+            assertEquals(0, transport.getPoolStats().getLeased());
+        }
+    }
+
+    @Test
+    public void testIfClientsShareConnections() throws IOException {
+        try (WebmateHttpTransport transport = makeTransport(ConnectionPoolConfig.defaults())) {
+            WebmateApiClient client1 = new WebmateApiClient(transport);
+            WebmateApiClient client2 = new WebmateApiClient(transport);
+            WebmateApiClient.UriTemplate template = new WebmateApiClient.UriTemplate("/blobs");
+
+            client1.sendGET(template, ImmutableMap.<String, String>of());
+            client2.sendGET(template, ImmutableMap.<String, String>of());
+
+            assertEquals(0, transport.getPoolStats().getLeased());
+            assertEquals(1, transport.getPoolStats().getAvailable());
+        }
+    }
+
+    @Test
+    public void testIfTransportsSharingABuilderUseTheirOwnPools() throws Exception {
+        HttpClientBuilder sharedBuilder = HttpClientBuilder.create();
+        List<WebmateHttpTransport> transports = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            transports.add(new WebmateHttpTransport(server.getAuthInfo(), server.getEnvironment(), sharedBuilder,
+                    ConnectionPoolConfig.defaults()));
+        }
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> threads = new ArrayList<>();
+        for (WebmateHttpTransport transport : transports) {
+            Thread thread = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                new WebmateApiClient(transport).sendGET(new WebmateApiClient.UriTemplate("/blobs"), ImmutableMap.<String, String>of());
+            });
+            thread.start();
+            threads.add(thread);
+        }
+        start.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        for (WebmateHttpTransport transport : transports) {
+            assertEquals(1, transport.getPoolStats().getAvailable());
+            transport.close();
+        }
+    }
+
+    @Test
+    public void testIfContentTypeIsNotDuplicated() throws IOException {
+        try (WebmateHttpTransport transport = makeTransport(ConnectionPoolConfig.defaults())) {
+            WebmateApiClient client = new WebmateApiClient(transport);
+            WebmateApiClient.UriTemplate template = new WebmateApiClient.UriTemplate("/blobs");
+
+            client.sendPOST(template, ImmutableMap.<String, String>of(), new byte[]{1, 2, 3}, Optional.of("image/png"));
+            client.sendPOST(template, ImmutableMap.<String, String>of());
+
+            assertEquals(2, receivedContentTypes.size());
+            assertEquals("[image/png]", receivedContentTypes.get(0).toString());
+            assertEquals("[application/json]", receivedContentTypes.get(1).toString());
+        }
+    }
+
+    @Test
+    public void testIfStreamingGetParsesAndReleasesConnection() throws IOException {
+        try (WebmateHttpTransport transport = makeTransport(ConnectionPoolConfig.defaults())) {
+            WebmateApiClient client = new WebmateApiClient(transport);
+            WebmateApiClient.UriTemplate template = new WebmateApiClient.UriTemplate("/blobs/${blobId}");
+
+            UUID result = client.sendGETStreaming(template, ImmutableMap.of("blobId", "1"),
+                    JacksonMapper.getInstance().readerFor(UUID.class));
+
+            assertEquals(new UUID(0, 1), result);
+            assertEquals(0, transport.getPoolStats().getLeased());
+            assertEquals(1, transport.getPoolStats().getAvailable());
+        }
+    }
+
+    @Test
+    public void testIfUploadsAreStreamedFromFileChannelAndStream() throws IOException {
+        byte[] data = new byte[100_000];
+        new Random(42).nextBytes(data);
+        Path file = Files.createTempFile("webmate-upload", ".bin");
+        try (WebmateHttpTransport transport = makeTransport(ConnectionPoolConfig.defaults())) {
+            Files.write(file, data);
+            WebmateApiClient client = new WebmateApiClient(transport);
+            WebmateApiClient.UriTemplate template = new WebmateApiClient.UriTemplate("/blobs");
+            Optional<String> contentType = Optional.of("application/octet-stream");
+
+            client.sendPOST(template, ImmutableMap.<String, String>of(), UploadEntities.fromPath(file, contentType), contentType);
+            try (FileChannel channel = FileChannel.open(file)) {
+                channel.position(10);
+                client.sendPOST(template, ImmutableMap.<String, String>of(), UploadEntities.fromChannel(channel, contentType), contentType);
+                assertEquals(10, channel.position());
+            }
+            client.sendPOST(template, ImmutableMap.<String, String>of(),
+                    UploadEntities.fromStream(new ByteArrayInputStream(data), -1, contentType), contentType);
+
+            assertEquals(3, receivedBodies.size());
+            assertTrue(Arrays.equals(data, receivedBodies.get(0)));
+            assertTrue(Arrays.equals(Arrays.copyOfRange(data, 10, data.length), receivedBodies.get(1)));
+            assertTrue(Arrays.equals(data, receivedBodies.get(2)));
+            assertEquals("[application/octet-stream]", receivedContentTypes.get(2).toString());
+        } finally {
+            Files.delete(file);
+        }
+    }
+}
@@ -0,0 +1,122 @@
+package com.testfabrik.webmate.javasdk;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.apache.http.impl.client.HttpClientBuilder;
+import org.junit.rules.ExternalResource;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Local HTTP server standing in for the webmate API in tests, started before and stopped after each test, e.g.
+ * <code>@Rule public final WebmateTestServer server = new WebmateTestServer(this::handle);</code>
+ * <p>
+ * Requests are handled in parallel, and the number of requests being handled at the same time is tracked.
+ */
+public class WebmateTestServer extends ExternalResource {
+
+    /**
+     * Handles a request to the server and sends the response.
+     */
+    public interface Handler {
+        void handle(HttpExchange exchange) throws IOException;
+    }
+
+    private final Handler handler;
+    private final AtomicInteger concurrentCalls = new AtomicInteger();
+    private final AtomicInteger maxConcurrentCalls = new AtomicInteger();
+
+    private HttpServer server;
+    private ExecutorService executor;
+
+    public WebmateTestServer(Handler handler) {
+        this.handler = handler;
+    }
+
+    @Override
+    protected void before() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/", exchange -> {
+            maxConcurrentCalls.accumulateAndGet(concurrentCalls.incrementAndGet(), Math::max);
+            try {
+                handler.handle(exchange);
+            } finally {
+                concurrentCalls.decrementAndGet();
+                exchange.close();
+            }
+        });
+        executor = Executors.newCachedThreadPool();
+        server.setExecutor(executor);
+        server.start();
+    }
+
+    @Override
+    protected void after() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    public URI getBaseUri() {
+        return URI.create("http://localhost:" + server.getAddress().getPort() + "/api/v1");
+    }
+
+    public WebmateEnvironment getEnvironment() {
+        return WebmateEnvironment.create(getBaseUri());
+    }
+
+    public WebmateAuthInfo getAuthInfo() {
+        return new WebmateAuthInfo("email", "apikey");
+    }
+
+    /**
+     * New API session talking to this server, with default configuration.
+     */
+    public WebmateAPISession newSession() {
+        return new WebmateAPISession(getAuthInfo(), getEnvironment(), new ProjectId(UUID.randomUUID()));
+    }
+
+    /**
+     * New transport talking to this server with the given pool configuration.
+     */
+    public WebmateHttpTransport newTransport(ConnectionPoolConfig poolConfig) {
+        return new WebmateHttpTransport(getAuthInfo(), getEnvironment(), HttpClientBuilder.create(), poolConfig);
+    }
+
+    /**
+     * New transport talking to this server with the given configuration.
+     */
+    public WebmateHttpTransport newTransport(ConnectionPoolConfig poolConfig, ResilienceConfig resilienceConfig) {
+        return new WebmateHttpTransport(getAuthInfo(), getEnvironment(), HttpClientBuilder.create(), poolConfig,
+                resilienceConfig);
+    }
+
+    /**
+     * Highest number of requests which have been handled at the same time so far.
+     */
+    public int getMaxConcurrentCalls() {
+        return maxConcurrentCalls.get();
+    }
+
+    /**
+     * Send a response with the given status and (UTF-8) body.
+     */
+    public static void respond(HttpExchange exchange, int status, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.sendResponseHeaders(status, bytes.length);
+        exchange.getResponseBody().write(bytes);
+    }
+
+    /**
+     * Send a response with the given status and without body.
+     */
+    public static void respond(HttpExchange exchange, int status) throws IOException {
+        exchange.sendResponseHeaders(status, -1);
+    }
+}
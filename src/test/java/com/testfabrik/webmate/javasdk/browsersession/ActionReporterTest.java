@@ -0,0 +1,172 @@
+package com.testfabrik.webmate.javasdk.browsersession;
+
+import com.google.common.util.concurrent.Uninterruptibles;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertFalse;
+import static junit.framework.Assert.assertTrue;
+
+public class ActionReporterTest {
+
+    @Test
+    public void testIfReportsAreSentInOrderPerExpeditionAndFlushed() {
+        Map<BrowserSessionId, List<Object>> sent = new ConcurrentHashMap<>();
+        List<BrowserSessionId> expeditions = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            expeditions.add(new BrowserSessionId(UUID.randomUUID()));
+        }
+
+        ActionReporter reporter = new ActionReporter(ActionReportingConfig.defaults().setMaxBatchSize(7),
+                (expeditionId, artifact) -> {
+                    sleep(1);
+                    sent.computeIfAbsent(expeditionId, id -> new CopyOnWriteArrayList<>()).add(artifact);
+                });
+        for (int i = 0; i < 100; i++) {
+            for (BrowserSessionId expeditionId : expeditions) {
+                reporter.report(expeditionId, i);
+            }
+        }
+        assertTrue(reporter.flush());
+
+        for (BrowserSessionId expeditionId : expeditions) {
+            List<Object> artifacts = sent.get(expeditionId);
+            assertEquals(100, artifacts.size());
+            for (int i = 0; i < 100; i++) {
+                assertEquals(i, artifacts.get(i));
+            }
+        }
+        assertEquals(0, reporter.getQueuedReports());
+        reporter.close();
+    }
+
+    @Test
+    public void testIfReportsAreDroppedWhenQueueIsFull() throws InterruptedException {
+        CountDownLatch sending = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        List<Object> sent = new CopyOnWriteArrayList<>();
+        ActionReporter reporter = new ActionReporter(ActionReportingConfig.defaults().setQueueCapacity(2)
+                .setOverflowPolicy(ActionReportingConfig.OverflowPolicy.DROP),
+                (expeditionId, artifact) -> {
+                    sending.countDown();
+                    await(release);
+                    sent.add(artifact);
+                });
+        BrowserSessionId expeditionId = new BrowserSessionId(UUID.randomUUID());
+
+        reporter.report(expeditionId, 0);
+        assertTrue(sending.await(5, TimeUnit.SECONDS));
+        // the dispatcher is blocked in sending 0, so 1 and 2 fill the queue
+        for (int i = 1; i < 5; i++) {
+            reporter.report(expeditionId, i);
+        }
+        assertEquals(2, reporter.getDroppedReports());
+
+        release.countDown();
+        assertTrue(reporter.flush());
+        assertEquals(3, sent.size());
+        reporter.close();
+    }
+
+    @Test
+    public void testIfFailuresAreCountedAndReportsAfterCloseAreSentSynchronously() {
+        List<Object> sent = new CopyOnWriteArrayList<>();
+        ActionReporter reporter = new ActionReporter(ActionReportingConfig.defaults(), (expeditionId, artifact) -> {
+            if ("fail".equals(artifact)) {
+                throw new IllegalStateException("boom");
+            }
+            sent.add(artifact);
+        });
+        BrowserSessionId expeditionId = new BrowserSessionId(UUID.randomUUID());
+
+        reporter.report(expeditionId, "fail");
+        reporter.report(expeditionId, "a");
+        reporter.close();
+        assertEquals(1, reporter.getFailedReports());
+        assertEquals(1, sent.size());
+
+        reporter.report(expeditionId, "b");
+        assertEquals(2, sent.size());
+    }
+
+    @Test
+    public void testIfReportsStillQueuedWhenFlushingOnCloseTimesOutAreCountedAsDropped() throws InterruptedException {
+        CountDownLatch sending = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        List<Object> sent = new CopyOnWriteArrayList<>();
+        ActionReporter reporter = new ActionReporter(ActionReportingConfig.defaults().setFlushTimeoutMillis(50),
+                (expeditionId, artifact) -> {
+                    sending.countDown();
+                    Uninterruptibles.awaitUninterruptibly(release);
+                    sent.add(artifact);
+                });
+        BrowserSessionId expeditionId = new BrowserSessionId(UUID.randomUUID());
+
+        reporter.report(expeditionId, 0);
+        assertTrue(sending.await(5, TimeUnit.SECONDS));
+        for (int i = 1; i < 5; i++) {
+            reporter.report(expeditionId, i);
+        }
+        reporter.close();
+        assertEquals(4, reporter.getDroppedReports());
+        assertEquals(0, reporter.getQueuedReports());
+
+        release.countDown();
+        reporter.report(expeditionId, 5);
+        assertTrue(sent.contains(5));
+        assertFalse(sent.contains(1));
+    }
+
+    @Test
+    public void testIfNoReportIsLostWhileClosing() throws InterruptedException {
+        List<Object> sent = new CopyOnWriteArrayList<>();
+        ActionReporter reporter = new ActionReporter(ActionReportingConfig.defaults().setQueueCapacity(4),
+                (expeditionId, artifact) -> sent.add(artifact));
+        BrowserSessionId expeditionId = new BrowserSessionId(UUID.randomUUID());
+
+        CountDownLatch started = new CountDownLatch(4);
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 4; t++) {
+            Thread thread = new Thread(() -> {
+                started.countDown();
+                for (int i = 0; i < 500; i++) {
+                    reporter.report(expeditionId, i);
+                }
+            });
+            thread.start();
+            threads.add(thread);
+        }
+        started.await();
+        reporter.close();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertEquals(0, reporter.getDroppedReports());
+        assertEquals(2000, sent.size());
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            throw new RuntimeException(e);
+        }
+    }
+}
@@ -0,0 +1,285 @@
+package com.testfabrik.webmate.javasdk.browsersession;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.BooleanNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.NullNode;
+import com.fasterxml.jackson.databind.node.TextNode;
+import com.google.common.io.ByteStreams;
+import com.google.common.collect.ImmutableSet;
+import com.sun.net.httpserver.HttpExchange;
+import com.testfabrik.webmate.javasdk.BulkResult;
+import com.testfabrik.webmate.javasdk.JacksonMapper;
+import com.testfabrik.webmate.javasdk.ResilienceConfig;
+import com.testfabrik.webmate.javasdk.WebmateAPISession;
+import com.testfabrik.webmate.javasdk.WebmateApiClientException;
+import com.testfabrik.webmate.javasdk.WebmateTestServer;
+import org.junit.Rule;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Queue;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertFalse;
+import static junit.framework.Assert.assertNotNull;
+import static junit.framework.Assert.assertTrue;
+import static junit.framework.Assert.fail;
+
+public class BrowserSessionClientTest {
+
+    @Rule
+    public final WebmateTestServer server = new WebmateTestServer(this::handle);
+
+    /** Artifacts ("start:spanId" / "finish:spanId") received per expedition, in order. */
+    private final ConcurrentMap<String, List<String>> artifacts = new ConcurrentHashMap<>();
+
+    private static final BrowserSessionId FAILING_BROWSER_SESSION = new BrowserSessionId(UUID.randomUUID());
+    private final Queue<String> progressResponses = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger progressRequests = new AtomicInteger();
+
+    private void handle(HttpExchange exchange) throws IOException {
+        if (exchange.getRequestURI().getPath().endsWith("/states")) {
+            handleCreateState(exchange);
+            return;
+        }
+        if (exchange.getRequestURI().getPath().endsWith("/progress")) {
+            handleStateProgress(exchange);
+            return;
+        }
+        JsonNode body = JacksonMapper.getInstance().readTree(ByteStreams.toByteArray(exchange.getRequestBody()));
+        String expedition = exchange.getRequestURI().getPath().split("/")[4];
+        String type = body.get("artifactType").asText().equals("Action.ActionFinish") ? "finish:" : "start:";
+        artifacts.computeIfAbsent(expedition, e -> new CopyOnWriteArrayList<>())
+                .add(type + body.get("data").get("spanId").asText());
+        WebmateTestServer.respond(exchange, 200);
+    }
+
+    private void handleCreateState(HttpExchange exchange) throws IOException {
+        exchange.getRequestBody().close();
+        try {
+            Thread.sleep(100);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (exchange.getRequestURI().getPath().contains(FAILING_BROWSER_SESSION.getValueAsString())) {
+            WebmateTestServer.respond(exchange, 500);
+        } else {
+            WebmateTestServer.respond(exchange, 200, "\"" + UUID.randomUUID() + "\"");
+        }
+    }
+
+    /** Answers with the next of progressResponses, a status code (e.g. "500") or a JSON body. */
+    private void handleStateProgress(HttpExchange exchange) throws IOException {
+        exchange.getRequestBody().close();
+        progressRequests.incrementAndGet();
+        String response = progressResponses.poll();
+        if (response == null || response.matches("\\d{3}")) {
+            WebmateTestServer.respond(exchange, response == null ? 404 : Integer.parseInt(response));
+        } else {
+            WebmateTestServer.respond(exchange, 200, response);
+        }
+    }
+
+    private WebmateAPISession newSession() {
+        return server.newSession();
+    }
+
+    private List<String> artifactsOf(BrowserSessionId browserSessionId) {
+        return artifacts.get(browserSessionId.getValueAsString());
+    }
+
+    @Test
+    public void testIfActionsOfSeveralBrowserSessionsAreTrackedIndependently() throws Exception {
+        try (WebmateAPISession session = newSession()) {
+            List<BrowserSessionRef> browsers = new ArrayList<>();
+            for (int i = 0; i < 4; i++) {
+                BrowserSessionId id = new BrowserSessionId(UUID.randomUUID());
+                session.addBrowserSession(id);
+                browsers.add(new BrowserSessionRef(id, session));
+            }
+
+            List<Thread> workers = new ArrayList<>();
+            for (BrowserSessionRef browser : browsers) {
+                Thread worker = new Thread(() -> {
+                    for (int i = 0; i < 10; i++) {
+                        browser.startAction("outer");
+                        browser.withActionVoid("inner", action -> {});
+                        browser.finishAction();
+                    }
+                });
+                worker.start();
+                workers.add(worker);
+            }
+            for (Thread worker : workers) {
+                worker.join();
+            }
+
+            for (BrowserSessionRef browser : browsers) {
+                List<String> received = artifactsOf(browser.browserSessionId);
+                assertEquals(40, received.size());
+                for (int i = 0; i < 40; i += 4) {
+                    String outer = received.get(i).substring("start:".length());
+                    String inner = received.get(i + 1).substring("start:".length());
+                    assertEquals("finish:" + inner, received.get(i + 2));
+                    assertEquals("finish:" + outer, received.get(i + 3));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testIfFailingActionDoesNotFinishEnclosingAction() throws IOException {
+        try (WebmateAPISession session = newSession()) {
+            BrowserSessionId id = new BrowserSessionId(UUID.randomUUID());
+            session.addBrowserSession(id);
+            BrowserSessionRef browser = new BrowserSessionRef(id, session);
+
+            browser.startAction("outer");
+            browser.withActionVoid("failing", action -> {
+                throw new IllegalStateException("boom");
+            });
+            browser.finishAction();
+
+            List<String> received = artifactsOf(id);
+            assertEquals(4, received.size());
+            assertEquals("finish:" + received.get(0).substring("start:".length()), received.get(3));
+            try {
+                browser.finishAction();
+                fail("expected exception");
+            } catch (WebmateApiClientException e) {
+                // expected: no action is active anymore
+            }
+        }
+    }
+
+    @Test
+    public void testIfActionsWithAndWithoutBrowserSessionIdCanBeMixed() throws IOException {
+        try (WebmateAPISession session = newSession()) {
+            BrowserSessionId id = new BrowserSessionId(UUID.randomUUID());
+            session.addBrowserSession(id);
+            BrowserSessionRef browser = new BrowserSessionRef(id, session);
+
+            session.browserSession.startAction("outer");
+            browser.startAction("inner");
+            session.browserSession.finishAction();
+            browser.finishAction();
+
+            List<String> received = artifactsOf(id);
+            assertEquals(4, received.size());
+            assertEquals("finish:" + received.get(1).substring("start:".length()), received.get(2));
+            assertEquals("finish:" + received.get(0).substring("start:".length()), received.get(3));
+        }
+    }
+
+    @Test
+    public void testIfStatesOfSeveralBrowserSessionsAreCreatedInParallel() throws IOException {
+        try (WebmateAPISession session = newSession()) {
+            List<BrowserSessionId> browserSessionIds = new ArrayList<>();
+            for (int i = 0; i < 5; i++) {
+                browserSessionIds.add(new BrowserSessionId(UUID.randomUUID()));
+            }
+            browserSessionIds.add(FAILING_BROWSER_SESSION);
+
+            BulkResult<BrowserSessionId, BrowserSessionStateId> result =
+                    session.browserSession.createStates("compare", browserSessionIds);
+
+            assertFalse(result.isSuccessful());
+            assertEquals(5, result.getResults().size());
+            assertEquals(ImmutableSet.of(FAILING_BROWSER_SESSION), result.getErrors().keySet());
+            assertEquals(browserSessionIds.subList(0, 5), new ArrayList<>(result.getResults().keySet()));
+            assertTrue(server.getMaxConcurrentCalls() > 1);
+        }
+    }
+
+    @Test
+    public void testIfStatesOfMoreBrowserSessionsThanTheEndpointLimitAreQueuedByTheLimiter() throws IOException {
+        try (WebmateAPISession session = newSession()) {
+            List<BrowserSessionId> browserSessionIds = new ArrayList<>();
+            for (int i = 0; i < 30; i++) {
+                browserSessionIds.add(new BrowserSessionId(UUID.randomUUID()));
+            }
+
+            BulkResult<BrowserSessionId, BrowserSessionStateId> result =
+                    session.browserSession.createStates("compare", browserSessionIds);
+
+            assertTrue(result.getErrors().toString(), result.isSuccessful());
+            assertEquals(30, result.getResults().size());
+            assertTrue(server.getMaxConcurrentCalls() <= ResilienceConfig.DEFAULT_ENDPOINT_CONCURRENCY_LIMIT);
+            assertTrue(server.getMaxConcurrentCalls() > 1);
+        }
+    }
+
+    @Test
+    public void testIfCreateStateAsyncCompletesOnceExtractionIsFinished() throws Exception {
+        progressResponses.addAll(Arrays.asList("{\"finished\": false}", "500", "{\"finished\": true, \"error\": null}"));
+        try (WebmateAPISession session = newSession()) {
+            BrowserSessionStateId stateId = session.browserSession
+                    .createStateAsync(new BrowserSessionId(UUID.randomUUID()), "async").get(10, TimeUnit.SECONDS);
+            assertNotNull(stateId);
+            assertEquals(3, progressRequests.get());
+        }
+    }
+
+    @Test
+    public void testIfCreateStateAsyncFailsImmediatelyIfExtractionFails() throws Exception {
+        progressResponses.addAll(Arrays.asList("{\"finished\": true, \"error\": \"no DOM\"}", "{\"finished\": true}"));
+        try (WebmateAPISession session = newSession()) {
+            session.browserSession.createStateAsync(new BrowserSessionId(UUID.randomUUID()), "async").get(10, TimeUnit.SECONDS);
+            fail("expected exception");
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof StateExtractionException);
+            assertTrue(e.getCause().getMessage().contains("no DOM"));
+            assertEquals(1, progressRequests.get());
+        }
+    }
+
+    @Test
+    public void testIfStateProgressIsParsed() {
+        BrowserSessionId browserSessionId = new BrowserSessionId(UUID.randomUUID());
+        BrowserSessionStateId stateId = new BrowserSessionStateId(UUID.randomUUID());
+
+        assertFalse(BrowserSessionClient.parseStateExtractionProgress(browserSessionId, stateId,
+                JsonNodeFactory.instance.objectNode().put("finished", false)));
+        assertTrue(BrowserSessionClient.parseStateExtractionProgress(browserSessionId, stateId,
+                JsonNodeFactory.instance.objectNode().put("finished", true)));
+        assertTrue(BrowserSessionClient.parseStateExtractionProgress(browserSessionId, stateId,
+                JsonNodeFactory.instance.objectNode().put("finished", true).putNull("error")));
+        try {
+            BrowserSessionClient.parseStateExtractionProgress(browserSessionId, stateId,
+                    JsonNodeFactory.instance.objectNode().put("finished", true).put("error", "timeout"));
+            fail("expected exception");
+        } catch (StateExtractionException e) {
+            assertTrue(e.getMessage().contains("failed: timeout"));
+        }
+
+        List<JsonNode> unexpected = Arrays.asList(
+                null,
+                NullNode.getInstance(),
+                BooleanNode.TRUE,
+                JsonNodeFactory.instance.objectNode().put("done", true),
+                JsonNodeFactory.instance.objectNode().put("finished", "yes"),
+                JsonNodeFactory.instance.objectNode().put("finished", false).put("error", 42),
+                TextNode.valueOf("running"),
+                JsonNodeFactory.instance.arrayNode());
+        for (JsonNode response : unexpected) {
+            try {
+                BrowserSessionClient.parseStateExtractionProgress(browserSessionId, stateId, response);
+                fail("expected exception for " + response);
+            } catch (StateExtractionException e) {
+                assertTrue(e.getMessage().contains("Unexpected progress"));
+            }
+        }
+    }
+}
@@ -0,0 +1,98 @@
+package com.testfabrik.webmate.javasdk.commonutils;
+
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertFalse;
+import static junit.framework.Assert.assertTrue;
+
+public class AdaptiveConcurrencyLimiterTest {
+
+    @Test
+    public void testIfExcessCallsAreRejectedAfterTimeout() throws InterruptedException {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter("test", 2, 1, 10, 0);
+
+        assertTrue(limiter.tryAcquire(0));
+        assertTrue(limiter.tryAcquire(0));
+        assertFalse(limiter.tryAcquire(10));
+        assertEquals(2, limiter.getInFlight());
+
+        limiter.cancel();
+        assertTrue(limiter.tryAcquire(0));
+    }
+
+    @Test
+    public void testIfLimitDecreasesOnOverloadAndRecovers() throws InterruptedException {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter("test", 10, 2, 20, 0);
+
+        for (int i = 0; i < 20; i++) {
+            assertTrue(limiter.tryAcquire(0));
+            limiter.release(0, true);
+        }
+        assertEquals(2, limiter.getLimit());
+
+        // saturated, successful calls raise the limit again
+        for (int round = 0; round < 50; round++) {
+            int limit = limiter.getLimit();
+            for (int i = 0; i < limit; i++) {
+                assertTrue(limiter.tryAcquire(0));
+            }
+            for (int i = 0; i < limit; i++) {
+                limiter.release(0, false);
+            }
+        }
+        assertTrue(limiter.getLimit() > 10);
+        assertTrue(limiter.getLimit() <= 20);
+    }
+
+    @Test
+    public void testIfSlowCallsCountAsOverload() throws InterruptedException {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter("test", 10, 1, 20, 100);
+
+        assertTrue(limiter.tryAcquire(0));
+        limiter.release(200_000_000L, false);
+
+        assertEquals(9, limiter.getLimit());
+    }
+
+    @Test
+    public void testIfConcurrentOverloadSignalsReduceTheLimitOnce() throws InterruptedException {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter("test", 20, 1, 40, 0);
+        for (int i = 0; i < 20; i++) {
+            assertTrue(limiter.tryAcquire(0));
+        }
+        for (int i = 0; i < 20; i++) {
+            // all calls (started a second ago) were running when the first one reported overload
+            limiter.release(1_000_000_000L, true);
+        }
+        assertEquals(18, limiter.getLimit());
+
+        // a call started after the reduction reduces the limit again
+        assertTrue(limiter.tryAcquire(0));
+        limiter.release(0, true);
+        assertEquals(16, limiter.getLimit());
+    }
+
+    @Test
+    public void testIfCallsWaitIndefinitelyByDefault() throws Exception {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter("test", 1, 1, 1, 0);
+        assertTrue(limiter.tryAcquire(Long.MAX_VALUE));
+        CountDownLatch acquired = new CountDownLatch(1);
+        Thread waiter = new Thread(() -> {
+            try {
+                if (limiter.tryAcquire(Long.MAX_VALUE)) {
+                    acquired.countDown();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        waiter.start();
+        assertFalse(acquired.await(50, TimeUnit.MILLISECONDS));
+        limiter.release(0, false);
+        assertTrue(acquired.await(5, TimeUnit.SECONDS));
+    }
+}
@@ -0,0 +1,127 @@
+package com.testfabrik.webmate.javasdk.commonutils;
+
+import com.testfabrik.webmate.javasdk.WebmateApiStatusException;
+import org.junit.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertFalse;
+import static junit.framework.Assert.assertTrue;
+import static junit.framework.Assert.fail;
+
+public class CompletionEngineTest {
+
+    private final ExecutorService executor = Executors.newFixedThreadPool(2);
+    /** Remaining number of fetches until an entity is finished. */
+    private final ConcurrentMap<String, Integer> remaining = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, AtomicInteger> fetches = new ConcurrentHashMap<>();
+
+    private Integer fetch(String key) {
+        fetches.computeIfAbsent(key, k -> new AtomicInteger()).incrementAndGet();
+        return remaining.merge(key, -1, Integer::sum);
+    }
+
+    private CompletionEngine<String, Integer> newEngine() {
+        return new CompletionEngine<>(this::fetch, state -> state <= 0, executor, 5, 40);
+    }
+
+    @Test
+    public void testIfManyEntitiesAreAwaitedWithSharedFetches() throws Exception {
+        CompletionEngine<String, Integer> engine = newEngine();
+        remaining.put("a", 1);
+        remaining.put("b", 4);
+        CompletableFuture<Integer> a = engine.await("a", 5_000);
+        CompletableFuture<Integer> b1 = engine.await("b", 5_000);
+        CompletableFuture<Integer> b2 = engine.await("b", 5_000);
+
+        assertEquals(0, (int) a.get(5, TimeUnit.SECONDS));
+        assertEquals(0, (int) b1.get(5, TimeUnit.SECONDS));
+        assertEquals(0, (int) b2.get(5, TimeUnit.SECONDS));
+        assertEquals(1, fetches.get("a").get());
+        assertEquals(4, fetches.get("b").get());
+        assertEquals(0, engine.getPendingCount());
+    }
+
+    @Test
+    public void testIfCancelledWaitsStopPolling() throws Exception {
+        CountDownLatch polled = new CountDownLatch(3);
+        CountDownLatch polledAfterCancel = new CountDownLatch(2);
+        AtomicBoolean cancelled = new AtomicBoolean();
+        CompletionEngine<String, Integer> engine = new CompletionEngine<>(key -> {
+            (cancelled.get() ? polledAfterCancel : polled).countDown();
+            return Integer.MAX_VALUE;
+        }, state -> state <= 0, executor, 5, 40);
+
+        CompletableFuture<Integer> wait = engine.await("never", 60_000);
+        assertTrue(polled.await(5, TimeUnit.SECONDS));
+        cancelled.set(true);
+        wait.cancel(false);
+
+        // a fetch may already have been started when cancelling, but no further one; the interval is at most 40ms
+        assertFalse(polledAfterCancel.await(200, TimeUnit.MILLISECONDS));
+        assertEquals(0, engine.getPendingCount());
+    }
+
+    @Test
+    public void testIfWaitsTimeOut() throws Exception {
+        CompletionEngine<String, Integer> engine = newEngine();
+        remaining.put("slow", Integer.MAX_VALUE);
+        try {
+            engine.await("slow", 50).get(5, TimeUnit.SECONDS);
+            fail("expected timeout");
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof TimeoutException);
+        }
+    }
+
+    @Test
+    public void testIfFailedFetchesAreRetried() throws Exception {
+        AtomicInteger calls = new AtomicInteger();
+        CompletionEngine<String, Integer> flaky = new CompletionEngine<>(key -> {
+            if (calls.incrementAndGet() < 3) {
+                throw new WebmateApiStatusException("unavailable", 503);
+            }
+            return 0;
+        }, state -> state <= 0, executor, 5, 40);
+        assertEquals(0, (int) flaky.await("x", 5_000).get(5, TimeUnit.SECONDS));
+        assertEquals(3, calls.get());
+
+        CompletionEngine<String, Integer> failing = new CompletionEngine<>(key -> {
+            throw new IllegalStateException("boom");
+        }, state -> true, executor, 5, 40);
+        try {
+            failing.await("x", 100).get(5, TimeUnit.SECONDS);
+            fail("expected timeout");
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof TimeoutException);
+            assertTrue(e.getCause().getCause() instanceof IllegalStateException);
+        }
+    }
+
+    @Test
+    public void testIfRejectedFetchesFailWaits() throws Exception {
+        AtomicInteger calls = new AtomicInteger();
+        CompletionEngine<String, Integer> engine = new CompletionEngine<>(key -> {
+            calls.incrementAndGet();
+            throw new WebmateApiStatusException("not found", 404);
+        }, state -> true, executor, 5, 40);
+        try {
+            engine.await("x", 5_000).get(5, TimeUnit.SECONDS);
+            fail("expected exception");
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof WebmateApiStatusException);
+        }
+        assertEquals(1, calls.get());
+    }
+}
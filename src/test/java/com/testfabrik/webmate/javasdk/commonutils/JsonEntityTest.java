@@ -0,0 +1,66 @@
+package com.testfabrik.webmate.javasdk.commonutils;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.google.common.collect.ImmutableList;
+import com.google.common.io.ByteStreams;
+import com.testfabrik.webmate.javasdk.JacksonMapper;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertFalse;
+import static junit.framework.Assert.assertTrue;
+
+public class JsonEntityTest {
+
+    private static class TrackingOutputStream extends ByteArrayOutputStream {
+        boolean closed = false;
+
+        @Override
+        public void close() {
+            closed = true;
+        }
+
+        String content() {
+            return new String(toByteArray(), StandardCharsets.UTF_8);
+        }
+    }
+
+    @Test
+    public void testIfValueIsWrittenRepeatablyWithoutClosingTheStream() throws IOException {
+        Map<String, Object> value = new LinkedHashMap<>();
+        value.put("name", "ärger");
+        value.put("urls", ImmutableList.of("http://a", "http://b"));
+        value.put("comment", null);
+        JsonEntity entity = new JsonEntity(value);
+
+        assertTrue(entity.isRepeatable());
+        assertTrue(entity.isChunked());
+        assertEquals(-1, entity.getContentLength());
+        assertEquals("application/json; charset=UTF-8", entity.getContentType().getValue());
+
+        String expected = "{\"name\":\"ärger\",\"urls\":[\"http://a\",\"http://b\"],\"comment\":null}";
+        for (int i = 0; i < 2; i++) {
+            TrackingOutputStream out = new TrackingOutputStream();
+            entity.writeTo(out);
+            assertEquals(expected, out.content());
+            assertFalse(out.closed);
+        }
+        assertEquals(expected, new String(ByteStreams.toByteArray(entity.getContent()), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void testIfInclusionPolicyIsApplied() throws IOException {
+        Map<String, Object> value = new LinkedHashMap<>();
+        value.put("name", "a");
+        value.put("comment", null);
+        TrackingOutputStream out = new TrackingOutputStream();
+        new JsonEntity(value, JacksonMapper.writer(JsonInclude.Include.NON_NULL)).writeTo(out);
+        assertEquals("{\"name\":\"a\"}", out.content());
+    }
+}
@@ -0,0 +1,105 @@
+package com.testfabrik.webmate.javasdk.commonutils;
+
+import com.google.common.base.Optional;
+import com.testfabrik.webmate.javasdk.WebmateApiClientException;
+import org.junit.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertFalse;
+import static junit.framework.Assert.assertTrue;
+import static junit.framework.Assert.fail;
+
+public class PollerTest {
+
+    private static final Executor executor = ForkJoinPool.commonPool();
+
+    @Test
+    public void testIfPollingStopsWithFirstResult() throws Exception {
+        AtomicInteger probes = new AtomicInteger();
+        CountDownLatch probedAfterResult = new CountDownLatch(1);
+        CompletableFuture<String> result = Poller.poll(() -> {
+            int probe = probes.incrementAndGet();
+            if (probe > 3) {
+                probedAfterResult.countDown();
+            }
+            return probe == 3 ? Optional.of("done") : Optional.<String>absent();
+        }, executor, 1, 4, 10_000);
+
+        assertEquals("done", result.get(5, TimeUnit.SECONDS));
+        // the interval is at most 4ms, so a further probe would happen well within the wait
+        assertFalse(probedAfterResult.await(50, TimeUnit.MILLISECONDS));
+        assertEquals(3, probes.get());
+    }
+
+    @Test
+    public void testIfPollingFailsOnTimeout() throws Exception {
+        try {
+            Poller.poll(() -> Optional.absent(), executor, 1, 5, 30).get(5, TimeUnit.SECONDS);
+            fail("expected exception");
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof WebmateApiClientException);
+        }
+    }
+
+    @Test
+    public void testIfFailedProbesAreRetriedUntilTimeout() throws Exception {
+        AtomicInteger probes = new AtomicInteger();
+        CompletableFuture<String> result = Poller.poll(() -> {
+            if (probes.incrementAndGet() < 3) {
+                throw new IllegalStateException("boom");
+            }
+            return Optional.of("done");
+        }, executor, 1, 5, 10_000);
+        assertEquals("done", result.get(5, TimeUnit.SECONDS));
+
+        try {
+            Poller.<String>poll(() -> {
+                throw new IllegalStateException("boom");
+            }, executor, 1, 5, 30).get(5, TimeUnit.SECONDS);
+            fail("expected exception");
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof WebmateApiClientException);
+            assertTrue(e.getCause().getCause() instanceof IllegalStateException);
+        }
+    }
+
+    @Test
+    public void testIfPollingStopsOnNonRetryableErrors() throws Exception {
+        AtomicInteger probes = new AtomicInteger();
+        try {
+            Poller.<String>poll(() -> {
+                probes.incrementAndGet();
+                throw new IllegalArgumentException("never");
+            }, executor, 1, 5, 10_000, e -> !(e instanceof IllegalArgumentException)).get(5, TimeUnit.SECONDS);
+            fail("expected exception");
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof IllegalArgumentException);
+            assertEquals(1, probes.get());
+        }
+    }
+
+    @Test
+    public void testIfCancellingStopsPolling() throws Exception {
+        CountDownLatch probed = new CountDownLatch(3);
+        CountDownLatch probedAfterCancel = new CountDownLatch(2);
+        AtomicBoolean cancelled = new AtomicBoolean();
+        CompletableFuture<String> result = Poller.poll(() -> {
+            (cancelled.get() ? probedAfterCancel : probed).countDown();
+            return Optional.absent();
+        }, executor, 5, 5, 10_000);
+        assertTrue(probed.await(5, TimeUnit.SECONDS));
+        cancelled.set(true);
+        result.cancel(false);
+        // a probe may already have been started when cancelling, but no further one
+        assertFalse(probedAfterCancel.await(50, TimeUnit.MILLISECONDS));
+    }
+}
@@ -0,0 +1,118 @@
+package com.testfabrik.webmate.javasdk.commonutils;
+
+import com.google.common.base.Optional;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertTrue;
+import static junit.framework.Assert.fail;
+
+public class PrefetchingPageIteratorTest {
+
+    private final ExecutorService executor = Executors.newSingleThreadExecutor();
+
+    /** Pages over the numbers 0 until size, using the last number as cursor. */
+    private static class NumberLoader implements PrefetchingPageIterator.PageLoader<Integer> {
+        final int size;
+        final AtomicInteger loadedPages = new AtomicInteger();
+
+        NumberLoader(int size) {
+            this.size = size;
+        }
+
+        @Override
+        public List<Integer> loadPage(Optional<Integer> last, int pageSize) {
+            loadedPages.incrementAndGet();
+            int from = last.isPresent() ? last.get() + 1 : 0;
+            List<Integer> page = new ArrayList<>();
+            for (int i = from; i < Math.min(size, from + pageSize); i++) {
+                page.add(i);
+            }
+            return page;
+        }
+    }
+
+    @Test
+    public void testIfAllElementsAreReturnedInOrder() {
+        for (int size : new int[]{0, 1, 9, 10, 11, 95}) {
+            NumberLoader loader = new NumberLoader(size);
+            List<Integer> elements = new PrefetchingPageIterator<>(loader, 10, executor).stream().collect(Collectors.toList());
+            assertEquals(size, elements.size());
+            for (int i = 0; i < size; i++) {
+                assertEquals(i, (int) elements.get(i));
+            }
+            // the last page loaded is always empty
+            assertEquals((size + 9) / 10 + 1, loader.loadedPages.get());
+        }
+    }
+
+    @Test
+    public void testIfShortPagesDoNotEndIteration() {
+        NumberLoader loader = new NumberLoader(25);
+        // the backend returns at most 7 elements per page, although 10 are requested
+        List<Integer> elements = new PrefetchingPageIterator<Integer>((last, pageSize) ->
+                loader.loadPage(last, Math.min(pageSize, 7)), 10, executor).stream().collect(Collectors.toList());
+        assertEquals(25, elements.size());
+        assertEquals(24, (int) elements.get(24));
+    }
+
+    @Test
+    public void testIfPagesRepeatedByBackendIgnoringTheCursorAreDropped() {
+        NumberLoader loader = new NumberLoader(100);
+        List<Integer> elements = new PrefetchingPageIterator<Integer>((last, pageSize) ->
+                loader.loadPage(Optional.<Integer>absent(), pageSize), 10, executor).stream().collect(Collectors.toList());
+        assertEquals(10, elements.size());
+        assertEquals(10, new HashSet<>(elements).size());
+        assertEquals(2, loader.loadedPages.get());
+    }
+
+    @Test
+    public void testIfAtMostOnePageIsPrefetched() throws InterruptedException {
+        NumberLoader loader = new NumberLoader(1000);
+        CountDownLatch fourPagesLoaded = new CountDownLatch(4);
+        PrefetchingPageIterator<Integer> iterator = new PrefetchingPageIterator<Integer>((last, pageSize) -> {
+            List<Integer> page = loader.loadPage(last, pageSize);
+            fourPagesLoaded.countDown();
+            return page;
+        }, 10, executor);
+        for (int i = 0; i < 25; i++) {
+            iterator.next();
+        }
+        assertTrue(fourPagesLoaded.await(5, TimeUnit.SECONDS));
+        // pages 1-3 have been consumed (partly), page 4 has been prefetched, page 5 is only loaded once page 4 is
+        // being consumed
+        assertEquals(4, loader.loadedPages.get());
+        iterator.close();
+        assertTrue(!iterator.hasNext());
+    }
+
+    @Test
+    public void testIfLoadingErrorsArePropagatedAndStreamsCanBeClosed() {
+        PrefetchingPageIterator<Integer> failing = new PrefetchingPageIterator<>((last, pageSize) -> {
+            throw new IllegalStateException("boom");
+        }, 10, executor);
+        try {
+            failing.hasNext();
+            fail("expected exception");
+        } catch (IllegalStateException e) {
+            // expected
+        }
+
+        NumberLoader loader = new NumberLoader(100);
+        try (Stream<Integer> stream = new PrefetchingPageIterator<>(loader, 10, executor).stream()) {
+            assertEquals(Collections.singletonList(0), stream.limit(1).collect(Collectors.toList()));
+        }
+    }
+}
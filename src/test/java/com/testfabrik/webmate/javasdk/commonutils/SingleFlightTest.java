@@ -0,0 +1,77 @@
+package com.testfabrik.webmate.javasdk.commonutils;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertTrue;
+import static junit.framework.Assert.fail;
+
+public class SingleFlightTest {
+
+    @Test
+    public void testIfConcurrentCallsAreCoalesced() throws Exception {
+        SingleFlight<String, Integer> singleFlight = new SingleFlight<>();
+        AtomicInteger calls = new AtomicInteger();
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        List<Integer> results = new CopyOnWriteArrayList<>();
+
+        List<Thread> threads = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            threads.add(new Thread(() -> results.add(singleFlight.execute("testrun", () -> {
+                calls.incrementAndGet();
+                started.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    throw new RuntimeException(e);
+                }
+                return 42;
+            }))));
+        }
+        threads.get(0).start();
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        List<Thread> joining = threads.subList(1, threads.size());
+        for (Thread thread : joining) {
+            thread.start();
+        }
+        // the call is held until all other callers are blocked, i.e. wait for its result
+        for (Thread thread : joining) {
+            while (thread.getState() != Thread.State.WAITING) {
+                Thread.yield();
+            }
+        }
+        release.countDown();
+
+        for (Thread thread : threads) {
+            thread.join(5_000);
+        }
+        assertEquals(8, results.size());
+        for (int result : results) {
+            assertEquals(42, result);
+        }
+        assertEquals(1, calls.get());
+        assertEquals(0, singleFlight.getInFlightCount());
+    }
+
+    @Test
+    public void testIfFailuresAreNotRemembered() {
+        SingleFlight<String, Integer> singleFlight = new SingleFlight<>();
+        try {
+            singleFlight.execute("device", () -> {
+                throw new IllegalStateException("boom");
+            });
+            fail("expected exception");
+        } catch (IllegalStateException e) {
+            // expected
+        }
+        assertEquals(7, (int) singleFlight.execute("device", () -> 7));
+    }
+}
@@ -0,0 +1,155 @@
+package com.testfabrik.webmate.javasdk.jobs;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.io.ByteStreams;
+import com.sun.net.httpserver.HttpExchange;
+import com.testfabrik.webmate.javasdk.ProjectId;
+import com.testfabrik.webmate.javasdk.WebmateAPISession;
+import com.testfabrik.webmate.javasdk.WebmateApiStatusException;
+import com.testfabrik.webmate.javasdk.WebmateTestServer;
+import org.junit.Rule;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertFalse;
+import static junit.framework.Assert.assertTrue;
+import static junit.framework.Assert.fail;
+
+public class BulkJobLauncherTest {
+
+    @Rule
+    public final WebmateTestServer server = new WebmateTestServer(this::handle);
+    private final AtomicInteger createdJobs = new AtomicInteger();
+    private final AtomicInteger startedJobs = new AtomicInteger();
+
+    private static final JobId DELETED_JOB = new JobId(UUID.randomUUID());
+    private static final JobId UNAVAILABLE_JOB = new JobId(UUID.randomUUID());
+
+    private static class TestJobInput implements WellKnownJobInput {
+        final String config;
+
+        TestJobInput(String config) {
+            this.config = config;
+        }
+
+        @Override
+        public JobConfigName getName() {
+            return new JobConfigName(config);
+        }
+
+        @Override
+        public Map<PortName, WMValue> makeInputValues() {
+            return ImmutableMap.of();
+        }
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        String request = new String(ByteStreams.toByteArray(exchange.getRequestBody()), StandardCharsets.UTF_8);
+        try {
+            Thread.sleep(20);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (request.contains("broken")) {
+            WebmateTestServer.respond(exchange, 400, "invalid config");
+        } else if (exchange.getRequestURI().getPath().contains(DELETED_JOB.toString())) {
+            WebmateTestServer.respond(exchange, 404, "no such job");
+        } else if (exchange.getRequestURI().getPath().contains(UNAVAILABLE_JOB.toString())) {
+            WebmateTestServer.respond(exchange, 500, "internal error");
+        } else if (exchange.getRequestURI().getPath().endsWith("/jobruns")) {
+            startedJobs.incrementAndGet();
+            WebmateTestServer.respond(exchange, 200, "\"" + UUID.randomUUID() + "\"");
+        } else {
+            createdJobs.incrementAndGet();
+            WebmateTestServer.respond(exchange, 200, UUID.randomUUID().toString());
+        }
+    }
+
+    @Test
+    public void testIfJobsAreLaunchedConcurrentlyAndErrorsAreReported() throws IOException {
+        try (WebmateAPISession session = server.newSession()) {
+            List<TestJobInput> inputs = new ArrayList<>();
+            for (int i = 0; i < 20; i++) {
+                inputs.add(new TestJobInput(i == 7 ? "broken" : "crossbrowser"));
+            }
+
+            List<JobLaunchResult<TestJobInput>> results = session.jobEngine.bulkLauncher()
+                    .setMaxConcurrency(4)
+                    .setMaxRequestsPerSecond(1000)
+                    .launch("nightly", inputs, new ProjectId(UUID.randomUUID()))
+                    .collect(Collectors.toList());
+
+            assertEquals(20, results.size());
+            List<JobLaunchResult<TestJobInput>> failed = results.stream()
+                    .filter(result -> !result.isSuccessful()).collect(Collectors.toList());
+            assertEquals(1, failed.size());
+            assertEquals("broken", failed.get(0).getInput().config);
+            assertFalse(failed.get(0).getJobId().isPresent());
+            assertTrue(failed.get(0).getError().isPresent());
+
+            assertEquals(19, createdJobs.get());
+            assertEquals(19, startedJobs.get());
+            assertTrue(server.getMaxConcurrentCalls() <= 4);
+            assertTrue(server.getMaxConcurrentCalls() > 1);
+        }
+    }
+
+    @Test
+    public void testIfJobsAreReusedWhenEnabled() throws IOException {
+        try (WebmateAPISession session = server.newSession()) {
+            JobIdentityCache cache = new JobIdentityCache();
+            session.jobEngine.enableJobReuse(cache);
+            ProjectId projectId = new ProjectId(UUID.randomUUID());
+
+            JobRunId first = session.jobEngine.startJob("nightly", new TestJobInput("crossbrowser"), projectId);
+            JobRunId second = session.jobEngine.startJob("nightly", new TestJobInput("crossbrowser"), projectId);
+            session.jobEngine.startJob("nightly", new TestJobInput("regression"), projectId);
+
+            assertFalse(first.equals(second));
+            assertEquals(2, createdJobs.get());
+            assertEquals(3, startedJobs.get());
+            assertEquals(2, cache.size());
+
+            session.jobEngine.disableJobReuse();
+            session.jobEngine.startJob("nightly", new TestJobInput("crossbrowser"), projectId);
+            assertEquals(3, createdJobs.get());
+        }
+    }
+
+    @Test
+    public void testIfReusedJobIsOnlyReplacedIfWebmateRejectsIt() throws IOException {
+        try (WebmateAPISession session = server.newSession()) {
+            JobIdentityCache cache = new JobIdentityCache();
+            session.jobEngine.enableJobReuse(cache);
+            ProjectId projectId = new ProjectId(UUID.randomUUID());
+            TestJobInput deleted = new TestJobInput("deleted");
+            TestJobInput unavailable = new TestJobInput("unavailable");
+            String deletedKey = JobIdentityCache.keyFor(projectId, deleted.getName(), deleted.makeInputValues());
+            String unavailableKey = JobIdentityCache.keyFor(projectId, unavailable.getName(), unavailable.makeInputValues());
+            cache.put(deletedKey, DELETED_JOB);
+            cache.put(unavailableKey, UNAVAILABLE_JOB);
+
+            session.jobEngine.startJob("nightly", deleted, projectId);
+            assertEquals(1, createdJobs.get());
+            assertFalse(DELETED_JOB.equals(cache.get(deletedKey).get()));
+
+            try {
+                session.jobEngine.startJob("nightly", unavailable, projectId);
+                fail("expected exception");
+            } catch (WebmateApiStatusException e) {
+                assertEquals(500, e.getStatusCode());
+            }
+            assertEquals(1, createdJobs.get());
+            assertEquals(UNAVAILABLE_JOB, cache.get(unavailableKey).get());
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package com.testfabrik.webmate.javasdk.jobs;
+
+import com.google.common.collect.ImmutableList;
+import com.sun.net.httpserver.HttpExchange;
+import com.testfabrik.webmate.javasdk.WebmateAPISession;
+import com.testfabrik.webmate.javasdk.WebmateTestServer;
+import org.junit.Rule;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertFalse;
+import static junit.framework.Assert.assertSame;
+import static junit.framework.Assert.assertTrue;
+
+public class JobEngineTest {
+
+    private static final JobRunId JOB_RUN = new JobRunId(UUID.randomUUID());
+
+    /** Summaries returned by consecutive polls, the last one is repeated. */
+    private static final List<String> SUMMARIES = ImmutableList.of(
+            summary("running", 1000),
+            summary("running", 1000),
+            summary("done", 2000));
+
+    @Rule
+    public final WebmateTestServer server = new WebmateTestServer(this::handle);
+    private final AtomicInteger polls = new AtomicInteger();
+
+    private static String summary(String state, long lastUpdateTime) {
+        return "{\"id\":\"" + JOB_RUN + "\",\"state\":\"" + state + "\",\"lastUpdateTime\":" + lastUpdateTime + "}";
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        exchange.getRequestBody().close();
+        int poll = polls.getAndIncrement();
+        exchange.getResponseHeaders().add("Content-Type", "application/json");
+        WebmateTestServer.respond(exchange, 200, SUMMARIES.get(Math.min(poll, SUMMARIES.size() - 1)));
+    }
+
+    @Test
+    public void testIfSubscriptionsReportChangesUntilTheJobRunHasFinished() throws Exception {
+        try (WebmateAPISession session = server.newSession()) {
+            List<JobRunSummary> changes = new CopyOnWriteArrayList<>();
+            JobRunSubscription subscription = session.jobEngine.subscribe(JOB_RUN, 10_000)
+                    .addListener((previous, current) -> {
+                        assertEquals(changes.isEmpty(), !previous.isPresent());
+                        changes.add(current);
+                    });
+
+            JobRunSummary finished = subscription.getCompletion().get(10, TimeUnit.SECONDS);
+
+            assertEquals(JobRunState.SUCCEEDED, finished.getState());
+            assertEquals(3, polls.get());
+            // the unchanged second summary is not reported
+            assertEquals(2, changes.size());
+            assertEquals(JobRunState.RUNNING, changes.get(0).getState());
+            assertEquals(1000, changes.get(0).getLastUpdateTime().getMillis());
+            assertSame(finished, changes.get(1));
+            assertSame(finished, subscription.getLatest().get());
+            assertFalse(subscription.getCompletion().isCompletedExceptionally());
+            assertTrue(session.jobEngine.awaitJobRun(JOB_RUN).get(10, TimeUnit.SECONDS).getState() == JobRunState.SUCCEEDED);
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package com.testfabrik.webmate.javasdk.jobs;
+
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.google.common.collect.ImmutableMap;
+import com.testfabrik.webmate.javasdk.ProjectId;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.UUID;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertFalse;
+import static junit.framework.Assert.assertTrue;
+
+public class JobIdentityCacheTest {
+
+    private static final ProjectId PROJECT = new ProjectId(UUID.randomUUID());
+    private static final JobConfigName CONFIG = new JobConfigName("Crossbrowser");
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private static WMValue value(String first, String second) {
+        ObjectNode node = JsonNodeFactory.instance.objectNode();
+        node.put(first, first.toUpperCase());
+        node.put(second, second.toUpperCase());
+        return WMValueFactory.makeBrickValue(WMDataType.BrowserSpecification, node);
+    }
+
+    @Test
+    public void testIfKeysDoNotDependOnOrder() {
+        Map<PortName, WMValue> inputs = ImmutableMap.of(new PortName("a"), value("x", "y"), new PortName("b"), value("x", "y"));
+        Map<PortName, WMValue> reordered = ImmutableMap.of(new PortName("b"), value("y", "x"), new PortName("a"), value("y", "x"));
+        assertEquals(JobIdentityCache.keyFor(PROJECT, CONFIG, inputs), JobIdentityCache.keyFor(PROJECT, CONFIG, reordered));
+
+        Map<PortName, WMValue> other = ImmutableMap.of(new PortName("a"), value("x", "z"), new PortName("b"), value("x", "y"));
+        assertFalse(JobIdentityCache.keyFor(PROJECT, CONFIG, inputs).equals(JobIdentityCache.keyFor(PROJECT, CONFIG, other)));
+        assertFalse(JobIdentityCache.keyFor(PROJECT, CONFIG, inputs).equals(
+                JobIdentityCache.keyFor(new ProjectId(UUID.randomUUID()), CONFIG, inputs)));
+    }
+
+    @Test
+    public void testIfEntriesArePersisted() throws IOException {
+        Path store = folder.getRoot().toPath().resolve("cache").resolve("jobs.properties");
+        JobId first = new JobId(UUID.randomUUID());
+        JobId second = new JobId(UUID.randomUUID());
+
+        JobIdentityCache cache = new JobIdentityCache(store);
+        cache.put("k1", first);
+        cache.put("k2", second);
+        cache.remove("k2", first);
+        cache.flush();
+
+        JobIdentityCache reloaded = new JobIdentityCache(store);
+        assertEquals(2, reloaded.size());
+        assertEquals(first, reloaded.get("k1").get());
+
+        reloaded.remove("k2", second);
+        reloaded.close();
+        assertEquals(1, new JobIdentityCache(store).size());
+    }
+
+    @Test
+    public void testIfChangesAreWrittenInTheBackground() throws Exception {
+        Path store = folder.getRoot().toPath().resolve("jobs.properties");
+        JobIdentityCache cache = new JobIdentityCache(store);
+        for (int i = 0; i < 100; i++) {
+            cache.put("k" + i, new JobId(UUID.randomUUID()));
+        }
+
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (new JobIdentityCache(store).size() < 100) {
+            assertTrue("changes have not been written in time", System.currentTimeMillis() < deadline);
+            Thread.sleep(50);
+        }
+    }
+}
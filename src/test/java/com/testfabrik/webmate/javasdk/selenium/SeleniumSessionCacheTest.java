@@ -0,0 +1,101 @@
+package com.testfabrik.webmate.javasdk.selenium;
+
+import com.testfabrik.webmate.javasdk.WebmateApiClientException;
+import com.testfabrik.webmate.javasdk.browsersession.BrowserSessionId;
+import com.google.common.base.Ticker;
+import org.junit.Test;
+
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertNull;
+import static junit.framework.Assert.assertSame;
+import static junit.framework.Assert.fail;
+
+public class SeleniumSessionCacheTest {
+
+    private final ConcurrentMap<WebmateSeleniumSessionId, String> states = new ConcurrentHashMap<>();
+    private final AtomicInteger loads = new AtomicInteger();
+
+    private SeleniumSession load(WebmateSeleniumSessionId id) {
+        loads.incrementAndGet();
+        String state = states.get(id);
+        if (state == null) {
+            throw new WebmateApiClientException("unknown session " + id);
+        }
+        return new SeleniumSession(id, null, null, false, state, null, null, null, null);
+    }
+
+    private final AtomicLong nanos = new AtomicLong();
+
+    private SeleniumSessionCache newCache(long refreshAfterMillis, long expireAfterMillis) {
+        // refreshes run synchronously on the calling thread and time is advanced explicitly, to keep the test
+        // deterministic
+        return new SeleniumSessionCache(this::load, browserSessionId -> null, Runnable::run,
+                100, refreshAfterMillis, expireAfterMillis, new Ticker() {
+                    @Override
+                    public long read() {
+                        return nanos.get();
+                    }
+                });
+    }
+
+    private void advance(long millis) {
+        nanos.addAndGet(TimeUnit.MILLISECONDS.toNanos(millis));
+    }
+
+    @Test
+    public void testIfSessionsAreLoadedOnceWhileFresh() {
+        WebmateSeleniumSessionId id = new WebmateSeleniumSessionId(UUID.randomUUID());
+        states.put(id, "running");
+        SeleniumSessionCache cache = newCache(60_000, 60_000);
+
+        SeleniumSession first = cache.get(id);
+        assertSame(first, cache.get(id));
+        assertEquals(1, loads.get());
+
+        cache.invalidate(id);
+        cache.get(id);
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    public void testIfStaleSessionsAreRefreshedUnlessFinal() {
+        WebmateSeleniumSessionId id = new WebmateSeleniumSessionId(UUID.randomUUID());
+        states.put(id, "running");
+        SeleniumSessionCache cache = newCache(10, 60_000);
+
+        assertEquals("running", cache.get(id).getState());
+        states.put(id, "done");
+        advance(20);
+        assertEquals("done", cache.get(id).getState());
+        assertEquals(2, loads.get());
+
+        // sessions in a final state are not reloaded
+        advance(20);
+        assertEquals("done", cache.get(id).getState());
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    public void testIfMissingSessionsAndErrorsAreNotCached() {
+        SeleniumSessionCache cache = newCache(60_000, 60_000);
+        assertNull(cache.get(new BrowserSessionId(UUID.randomUUID())));
+        assertEquals(0, cache.size());
+
+        WebmateSeleniumSessionId id = new WebmateSeleniumSessionId(UUID.randomUUID());
+        try {
+            cache.get(id);
+            fail("expected exception");
+        } catch (WebmateApiClientException e) {
+            // expected
+        }
+        states.put(id, "running");
+        assertEquals("running", cache.get(id).getState());
+    }
+}